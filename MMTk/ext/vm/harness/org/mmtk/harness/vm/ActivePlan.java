@@ -95,12 +95,16 @@ public final class ActivePlan extends org.mmtk.vm.ActivePlan {
    */
   @Override
   public MutatorContext getNextMutator() {
+    Mutator m;
+    /* Which collector processes which mutator is a scheduling decision */
+    Scheduler.awaitTurn();
     synchronized(ActivePlan.class) {
+      Scheduler.syncEvent();
       if (mutators == null) {
         mutators = Mutators.getAll();
       }
+      m = mutators.poll();
     }
-    Mutator m = mutators.poll();
     return m == null ? null : m.getContext();
   }
 }
@@ -12,6 +12,7 @@
  */
 package org.mmtk.harness.vm;
 
+import org.mmtk.harness.Metrics;
 import org.mmtk.harness.lang.Trace;
 import org.mmtk.harness.lang.Trace.Item;
 import org.mmtk.harness.sanity.FromSpaceInvariant;
@@ -81,6 +82,19 @@ public final class Debug extends org.mmtk.vm.Debug {
     if (phaseId == Simple.RELEASE && before) {
       new FromSpaceInvariant();
     }
+    if (Metrics.isEnabled()) {
+      Metrics.globalPhase(phaseId, before);
+    }
+  }
+
+  /**
+   * @see org.mmtk.vm.Debug#collectorPhase(short, int, boolean)
+   */
+  @Override
+  public void collectorPhase(short phaseId, int ordinal, boolean before) {
+    if (Metrics.isEnabled()) {
+      Metrics.collectorPhase(phaseId, ordinal, before);
+    }
   }
 
   /**
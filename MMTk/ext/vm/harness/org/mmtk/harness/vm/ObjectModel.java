@@ -24,6 +24,7 @@ import org.mmtk.harness.Mutator;
 import org.mmtk.harness.lang.Trace;
 import org.mmtk.harness.lang.Trace.Item;
 import org.mmtk.harness.sanity.Sanity;
+import org.mmtk.harness.scheduler.Scheduler;
 import org.mmtk.plan.CollectorContext;
 import org.mmtk.plan.MutatorContext;
 import org.mmtk.plan.Plan;
@@ -106,9 +107,13 @@ public final class ObjectModel extends org.mmtk.vm.ObjectModel {
   /** The next object id that will be allocated */
   private static int nextObjectId = 1;
 
-  /** Allocate a new (sequential) object id */
-  private static synchronized int allocateObjectId() {
-    return nextObjectId++;
+  /** Allocate a new (sequential) object id, in schedule order */
+  private static int allocateObjectId() {
+    Scheduler.awaitTurn();
+    synchronized (ObjectModel.class) {
+      Scheduler.syncEvent();
+      return nextObjectId++;
+    }
   }
 
   /**
@@ -663,7 +668,7 @@ public final class ObjectModel extends org.mmtk.vm.ObjectModel {
       byte old = object.toAddress().loadByte(STATUS_OFFSET);
       Trace.printf(Item.AVBYTE,"%s.gcbyte:%d->%d%n", getString(object),old,val);
     }
-    object.toAddress().store(val, STATUS_OFFSET);
+    SimulatedMemory.synchronizedSetByte(object.toAddress().plus(STATUS_OFFSET), val);
   }
 
   /**
@@ -678,7 +683,7 @@ public final class ObjectModel extends org.mmtk.vm.ObjectModel {
       byte old = object.toAddress().loadByte(STATUS_OFFSET);
       Trace.printf(Item.AVBYTE,"%s.gcbyte=%d%n", getString(object),old);
     }
-    return object.toAddress().loadByte(STATUS_OFFSET);
+    return SimulatedMemory.synchronizedGetByte(object.toAddress().plus(STATUS_OFFSET));
   }
 
   /**
@@ -693,7 +698,7 @@ public final class ObjectModel extends org.mmtk.vm.ObjectModel {
       Word old = object.toAddress().loadWord(STATUS_OFFSET);
       Trace.printf(Item.AVBYTE,"%s.gcword:%s->%s%n", getString(object),old,val);
     }
-    object.toAddress().store(val, STATUS_OFFSET);
+    SimulatedMemory.synchronizedSetWord(object.toAddress().plus(STATUS_OFFSET), val);
   }
 
   /**
@@ -708,7 +713,7 @@ public final class ObjectModel extends org.mmtk.vm.ObjectModel {
       Word old = object.toAddress().loadWord(STATUS_OFFSET);
       Trace.printf(Item.AVBYTE,"%s.gcword=%s%n", getString(object),old);
     }
-    return object.toAddress().loadWord(STATUS_OFFSET);
+    return object.toAddress().prepareWord(STATUS_OFFSET);
   }
 
   /**
@@ -14,7 +14,7 @@ package org.mmtk.harness.vm;
 
 import java.util.Collections;
 import java.util.EnumMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -58,11 +58,13 @@ public final class ReferenceProcessor extends org.mmtk.vm.ReferenceProcessor {
   }
 
   /**
-   * The set of reference objects of this semantics
+   * The set of reference objects of this semantics.  References hash by
+   * identity, so these keep insertion order to make scanning them (and
+   * hence a replayed schedule) deterministic.
    */
-  private final Set<ReferenceValue> oldRefs = new HashSet<ReferenceValue>();
-  private final Set<ReferenceValue> currentRefs = Collections.synchronizedSet(new HashSet<ReferenceValue>());
-  private final Set<ReferenceValue> newRefs = Collections.synchronizedSet(new HashSet<ReferenceValue>());
+  private final Set<ReferenceValue> oldRefs = new LinkedHashSet<ReferenceValue>();
+  private final Set<ReferenceValue> currentRefs = Collections.synchronizedSet(new LinkedHashSet<ReferenceValue>());
+  private final Set<ReferenceValue> newRefs = Collections.synchronizedSet(new LinkedHashSet<ReferenceValue>());
 
   private final Semantics semantics;
 
@@ -26,6 +26,7 @@ import org.mmtk.harness.lang.Trace.Item;
 import org.mmtk.harness.lang.runtime.AllocationSite;
 import org.mmtk.harness.lang.runtime.ObjectValue;
 import org.mmtk.harness.lang.runtime.StackFrame;
+import org.mmtk.harness.scheduler.Scheduler;
 import org.mmtk.plan.TraceLocal;
 import org.mmtk.plan.TransitiveClosure;
 
@@ -221,14 +222,18 @@ public class Scanning extends org.mmtk.vm.Scanning {
   @Override
   public void computeThreadRoots(TraceLocal trace) {
     Trace.trace(Item.COLLECT,"Computing roots for mutators");
-    synchronized(this) {
-      if (mutatorsToScan == null) {
-        mutatorsToScan = Mutators.getAll();
-      }
-    }
     while(true) {
-      Trace.trace(Item.COLLECT,"mutators to scan: %d",mutatorsToScan.size());
-      Mutator m = mutatorsToScan.poll();
+      Mutator m;
+      /* Which collector scans which mutator is a scheduling decision */
+      Scheduler.awaitTurn();
+      synchronized(this) {
+        Scheduler.syncEvent();
+        if (mutatorsToScan == null) {
+          mutatorsToScan = Mutators.getAll();
+        }
+        Trace.trace(Item.COLLECT,"mutators to scan: %d",mutatorsToScan.size());
+        m = mutatorsToScan.poll();
+      }
       if (m == null)
         break;
       if (Harness.allocDuringCollection.getValue()) {
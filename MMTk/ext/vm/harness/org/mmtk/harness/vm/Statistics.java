@@ -12,7 +12,11 @@
  */
 package org.mmtk.harness.vm;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.mmtk.harness.Collector;
+import org.mmtk.harness.Harness;
+import org.mmtk.harness.scheduler.Scheduler;
 import org.vmmagic.pragma.Uninterruptible;
 
 @Uninterruptible
@@ -62,13 +66,43 @@ public class Statistics extends org.mmtk.vm.Statistics {
     return (long)(t * 1e9);
   }
 
+  /** The simulated cycle counter of a replayable schedule */
+  private static final AtomicLong cycles = new AtomicLong();
+
   /**
-   * Read the cycle counter
+   * Read the cycle counter.  A replayable schedule needs code that measures
+   * time in cycles (eg a spin-wait) to take the same course when it is
+   * replayed, so the counter then just counts the reads.
    */
   public long cycles() {
+    if (Harness.scheduler.model() == Scheduler.Model.REPLAYABLE) {
+      return cycles.incrementAndGet();
+    }
     return System.nanoTime();
   }
 
+  /**
+   * Initialize performance events
+   *
+   * @param events Comma-separated list of event names
+   */
+  public void perfEventInit(String events) {
+    //Assert.notImplemented();
+  }
+
+  /**
+   * Read a performance event
+   *
+   * @param counter The event to read
+   * @param values Buffer to receive the event count and timing values
+   */
+  public void perfEventRead(int counter, long[] values) {
+    //Assert.notImplemented();
+    for (int i = 0; i < values.length; i++) {
+      values[i] = 0;
+    }
+  }
+
   /**
    * Initialize performance counters
    *
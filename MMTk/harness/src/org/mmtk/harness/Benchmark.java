@@ -0,0 +1,313 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.harness;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Benchmark driver for the MMTk harness.
+ * <p>
+ * Runs a script a number of times under each of a list of plans and prints
+ * a table comparing them, as CSV or JSON.  Each run is a separate JVM
+ * (the harness can only boot MMTk once per process) running
+ * {@link Main} with the benchmarkStats option, and each table entry is
+ * the median over the successful runs, which is reproducible enough to
+ * spot GC performance regressions without booting the full VM.
+ * <p>
+ * Usage:
+ * <pre>
+ *   java -cp mmtk-harness.jar org.mmtk.harness.Benchmark test-script
+ *        [plans=MS,SS,...] [iterations=n] [format=csv|json] [output=file]
+ *        [harness options ...]
+ * </pre>
+ * Plans are either fully qualified class names or the short names of the
+ * standard MMTk plans.  Any other options are passed on to each run.
+ */
+public class Benchmark {
+
+  /** Short names for the standard plans */
+  private static final Map<String,String> PLANS = new HashMap<String,String>();
+  static {
+    PLANS.put("CopyMS",      "org.mmtk.plan.copyms.CopyMS");
+    PLANS.put("GenCopy",     "org.mmtk.plan.generational.copying.GenCopy");
+    PLANS.put("GenImmix",    "org.mmtk.plan.generational.immix.GenImmix");
+    PLANS.put("GenMS",       "org.mmtk.plan.generational.marksweep.GenMS");
+    PLANS.put("GenRC",       "org.mmtk.plan.refcount.generational.GenRC");
+    PLANS.put("Immix",       "org.mmtk.plan.immix.Immix");
+    PLANS.put("MC",          "org.mmtk.plan.markcompact.MC");
+    PLANS.put("MS",          "org.mmtk.plan.marksweep.MS");
+    PLANS.put("NoGC",        "org.mmtk.plan.nogc.NoGC");
+    PLANS.put("Poisoned",    "org.mmtk.plan.poisoned.Poisoned");
+    PLANS.put("RC",          "org.mmtk.plan.refcount.fullheap.RC");
+    PLANS.put("SS",          "org.mmtk.plan.semispace.SS");
+    PLANS.put("StickyImmix", "org.mmtk.plan.stickyimmix.StickyImmix");
+    PLANS.put("StickyMS",    "org.mmtk.plan.stickyms.StickyMS");
+  }
+
+  /** Columns that lead the table, in this order */
+  private static final String[] LEADING_COLUMNS = {
+    "time.ms", "mutator.ms", "gc.ms", "gc.count", "pause.max.ms", "pause.mean.ms",
+    "alloc.bytes", "alloc.objects", "alloc.rate.mb.s", "peak.pages"
+  };
+
+  private static final String DEFAULT_PLANS = "MS,SS,Immix,GenImmix,RC";
+
+  /**
+   * @param args Command line parameters
+   * @throws Exception Something went wrong
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length < 1) {
+      System.err.println("usage: java -cp mmtk-harness.jar " + Benchmark.class.getName() +
+          " test-script [plans=MS,SS,...] [iterations=n] [format=csv|json] [output=file] [options ...]");
+      System.exit(-1);
+    }
+    String script = args[0];
+    String plans = DEFAULT_PLANS;
+    int iterations = 5;
+    String format = "csv";
+    String output = null;
+    List<String> harnessArgs = new ArrayList<String>();
+    for (int i = 1; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.startsWith("plans=")) {
+        plans = value(arg);
+      } else if (arg.startsWith("iterations=")) {
+        iterations = Integer.parseInt(value(arg));
+      } else if (arg.startsWith("format=")) {
+        format = value(arg);
+      } else if (arg.startsWith("output=")) {
+        output = value(arg);
+      } else if (arg.startsWith("plan=")) {
+        throw new IllegalArgumentException("Use plans= to select the plans to benchmark");
+      } else {
+        harnessArgs.add(arg);
+      }
+    }
+    if (!format.equals("csv") && !format.equals("json")) {
+      throw new IllegalArgumentException("Unknown format '" + format + "', expected csv or json");
+    }
+
+    Map<String,String> planClasses = new LinkedHashMap<String,String>();
+    for (String plan : plans.split(",")) {
+      planClasses.put(plan, planClass(plan));
+    }
+
+    Map<String,Result> results = new LinkedHashMap<String,Result>();
+    for (Map.Entry<String,String> plan : planClasses.entrySet()) {
+      Result result = new Result();
+      for (int i = 0; i < iterations; i++) {
+        System.err.printf("%s: %s, run %d of %d%n", script, plan.getKey(), i + 1, iterations);
+        Map<String,Double> run = runOnce(script, plan.getValue(), harnessArgs);
+        if (run == null) {
+          result.failures++;
+        } else {
+          result.runs.add(run);
+        }
+      }
+      results.put(plan.getKey(), result);
+    }
+
+    PrintStream out = output == null ? System.out : new PrintStream(new FileOutputStream(output));
+    List<String> columns = columns(results);
+    if (format.equals("json")) {
+      printJson(out, script, iterations, results, columns);
+    } else {
+      printCsv(out, results, columns);
+    }
+    out.flush();
+    if (out != System.out) {
+      out.close();
+    }
+  }
+
+  private static String value(String arg) {
+    return arg.substring(arg.indexOf('=') + 1);
+  }
+
+  /**
+   * The plan class for a plan name.  The class is checked here, because
+   * the harness does not exit cleanly when the plan can't be loaded.
+   */
+  private static String planClass(String plan) {
+    String name = PLANS.get(plan);
+    if (name == null) {
+      name = plan;
+    }
+    try {
+      Class.forName(name, false, Benchmark.class.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      throw new IllegalArgumentException("Unknown plan '" + plan + "'");
+    }
+    return name;
+  }
+
+  /**
+   * Run the script once in a new JVM with the same class path and JVM
+   * arguments as this one.
+   * @return The statistics reported by the run, or null if it failed
+   */
+  private static Map<String,Double> runOnce(String script, String plan, List<String> harnessArgs)
+      throws IOException, InterruptedException {
+    List<String> command = new ArrayList<String>();
+    command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+    command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(Main.class.getName());
+    command.add(script);
+    command.add("plan=" + plan);
+    command.add("benchmarkStats=true");
+    command.addAll(harnessArgs);
+
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+    Map<String,Double> stats = null;
+    boolean success = false;
+    String last = null;
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      if (line.startsWith(Metrics.PREFIX)) {
+        stats = parse(line);
+      } else if (line.equals("SUCCESS")) {
+        success = true;
+      }
+      last = line;
+    }
+    int status = process.waitFor();
+    if (status != 0 || !success || stats == null) {
+      System.err.printf("  failed (exit status %d): %s%n", status, last);
+      return null;
+    }
+    return stats;
+  }
+
+  private static Map<String,Double> parse(String line) {
+    Map<String,Double> stats = new HashMap<String,Double>();
+    for (String pair : line.substring(Metrics.PREFIX.length()).trim().split(" +")) {
+      int eq = pair.indexOf('=');
+      stats.put(pair.substring(0, eq), Double.valueOf(pair.substring(eq + 1)));
+    }
+    return stats;
+  }
+
+  /**
+   * The results of the runs of one plan
+   */
+  private static final class Result {
+    final List<Map<String,Double>> runs = new ArrayList<Map<String,Double>>();
+    int failures = 0;
+
+    /** The median value of a statistic, or null if no run reported it */
+    Double median(String name) {
+      List<Double> values = new ArrayList<Double>();
+      for (Map<String,Double> run : runs) {
+        if (run.containsKey(name)) {
+          values.add(run.get(name));
+        }
+      }
+      if (values.isEmpty()) {
+        return null;
+      }
+      Collections.sort(values);
+      int mid = values.size() / 2;
+      return values.size() % 2 == 1 ? values.get(mid) : (values.get(mid - 1) + values.get(mid)) / 2;
+    }
+  }
+
+  /**
+   * The standard columns, followed by the per-space and per-phase
+   * columns reported by any plan, in sorted order.
+   */
+  private static List<String> columns(Map<String,Result> results) {
+    Set<String> columns = new LinkedHashSet<String>();
+    Collections.addAll(columns, LEADING_COLUMNS);
+    List<String> others = new ArrayList<String>();
+    for (Result result : results.values()) {
+      for (Map<String,Double> run : result.runs) {
+        for (String name : run.keySet()) {
+          if (!columns.contains(name) && !others.contains(name)) {
+            others.add(name);
+          }
+        }
+      }
+    }
+    Collections.sort(others);
+    columns.addAll(others);
+    return new ArrayList<String>(columns);
+  }
+
+  private static String format(Double value) {
+    if (value == null) {
+      return "";
+    }
+    if (value == Math.rint(value)) {
+      return Long.toString(value.longValue());
+    }
+    return String.format(Locale.ROOT, "%.3f", value);
+  }
+
+  private static void printCsv(PrintStream out, Map<String,Result> results, List<String> columns) {
+    out.print("plan,runs,failures");
+    for (String column : columns) {
+      out.print("," + column);
+    }
+    out.println();
+    for (Map.Entry<String,Result> entry : results.entrySet()) {
+      Result result = entry.getValue();
+      out.print(entry.getKey() + "," + result.runs.size() + "," + result.failures);
+      for (String column : columns) {
+        out.print("," + format(result.median(column)));
+      }
+      out.println();
+    }
+  }
+
+  private static void printJson(PrintStream out, String script, int iterations,
+      Map<String,Result> results, List<String> columns) {
+    out.println("{");
+    out.printf("  \"script\": \"%s\",%n", script.replace("\\", "\\\\").replace("\"", "\\\""));
+    out.printf("  \"iterations\": %d,%n", iterations);
+    out.println("  \"plans\": {");
+    int p = 0;
+    for (Map.Entry<String,Result> entry : results.entrySet()) {
+      Result result = entry.getValue();
+      out.printf("    \"%s\": {%n", entry.getKey());
+      out.printf("      \"runs\": %d,%n", result.runs.size());
+      out.printf("      \"failures\": %d", result.failures);
+      for (String column : columns) {
+        Double value = result.median(column);
+        if (value != null) {
+          out.printf(",%n      \"%s\": %s", column, format(value));
+        }
+      }
+      out.printf("%n    }%s%n", ++p < results.size() ? "," : "");
+    }
+    out.println("  }");
+    out.println("}");
+  }
+}
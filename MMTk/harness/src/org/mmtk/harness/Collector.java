@@ -60,13 +60,18 @@ public final class Collector implements Runnable {
   }
 
   /**
-   * Register a collector thread
+   * Register a collector thread.  Ids are allocated in schedule order,
+   * because collector 0 does the primary collector's work.
    * @return the allocated id.
    */
-  public static synchronized int allocateCollectorId() {
-    int id = collectors.size();
-    collectors.add(null);
-    return id;
+  public static int allocateCollectorId() {
+    Scheduler.awaitTurn();
+    synchronized (Collector.class) {
+      Scheduler.syncEvent();
+      int id = collectors.size();
+      collectors.add(null);
+      return id;
+    }
   }
 
   /**
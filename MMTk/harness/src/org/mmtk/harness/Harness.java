@@ -53,6 +53,9 @@ public class Harness {
   /** Option for the maximum heap size */
   public static final DumpPcode dumpPcode = new DumpPcode();
 
+  /** Option for the script execution engine */
+  public static final Backend backend = new Backend();
+
   /** Trace options */
   public static final Trace trace = new Trace();
 
@@ -65,6 +68,12 @@ public class Harness {
   /** Scheduler policy */
   public static final SchedulerPolicy policy = new SchedulerPolicy();
 
+  /** File the REPLAYABLE scheduler records the schedule to (or replays it from) */
+  public static final ScheduleLog scheduleLog = new ScheduleLog();
+
+  /** Whether the REPLAYABLE scheduler replays rather than records */
+  public static final ScheduleReplay scheduleReplay = new ScheduleReplay();
+
   /** Interval for the fixed scheduler policies */
   public static final YieldInterval yieldInterval = new YieldInterval();
 
@@ -81,6 +90,9 @@ public class Harness {
   /** Print yield policy statistics on exit */
   public static final PolicyStats policyStats = new PolicyStats();
 
+  /** Print allocation, GC and heap statistics on exit, for the benchmark driver */
+  public static final BenchmarkStats benchmarkStats = new BenchmarkStats();
+
   /** A set of objects to watch */
   public static final WatchObject watchObject = new WatchObject();
 
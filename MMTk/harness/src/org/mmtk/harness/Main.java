@@ -12,12 +12,15 @@
  */
 package org.mmtk.harness;
 
+import java.io.File;
 
 import org.mmtk.harness.lang.Checker;
 import org.mmtk.harness.lang.CheckerException;
 import org.mmtk.harness.lang.Compiler;
+import org.mmtk.harness.lang.bytecode.BytecodeCompiler;
 import org.mmtk.harness.lang.parser.MethodTable;
 import org.mmtk.harness.lang.parser.Parser;
+import org.mmtk.harness.scheduler.Schedulable;
 import org.mmtk.harness.scheduler.Scheduler;
 
 /**
@@ -63,14 +66,31 @@ public class Main {
 
     TimeoutThread timeout = new TimeoutThread(Harness.timeout.getValue());
 
+    /* Compile the script, either to pcode or to JVM bytecode */
+    Schedulable script;
+    if (Harness.backend.compileToBytecode()) {
+      script = BytecodeCompiler.compile(methods, new File(scriptFile).getName());
+    } else {
+      script = Compiler.compile(methods);
+    }
+
     /* Schedule a thread to run the script */
-    Scheduler.scheduleMutator(Compiler.compile(methods));
+    Scheduler.scheduleMutator(script);
+
+    if (Harness.benchmarkStats.getValue()) {
+      Metrics.begin();
+    }
 
     /* Start the thread scheduler */
     Scheduler.schedule();
 
     timeout.cancel();
 
+    if (Harness.benchmarkStats.getValue()) {
+      Metrics.end();
+      Metrics.print();
+    }
+
     Harness.mmtkShutdown();
 
     exitWithSuccess();
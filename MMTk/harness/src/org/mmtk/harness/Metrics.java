@@ -0,0 +1,195 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.harness;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mmtk.harness.vm.ActivePlan;
+import org.mmtk.plan.Phase;
+import org.mmtk.plan.Simple;
+import org.mmtk.policy.Space;
+
+/**
+ * Allocation, GC and heap statistics for a single harness run, gathered
+ * when the benchmarkStats option is set and printed on exit as a single
+ * line of name=value pairs for the benchmark driver to parse.
+ * <p>
+ * Phase times are those seen by the primary collector thread, and are
+ * gathered through the harness implementation of the MMTk debugging
+ * interface.  Peak page counts are sampled at the start of each
+ * collection, ie when the heap is at its fullest, and at exit.
+ */
+public final class Metrics {
+
+  /** Prefix of the line of statistics printed on exit */
+  public static final String PREFIX = "benchmark:";
+
+  private static boolean enabled = false;
+
+  private static final AtomicLong allocBytes = new AtomicLong();
+  private static final AtomicLong allocObjects = new AtomicLong();
+
+  private static long startTime;
+  private static long endTime;
+
+  private static int gcCount = 0;
+  private static long gcStart;
+  private static long gcTime = 0;
+  private static long maxPause = 0;
+
+  private static long phaseStart;
+  private static final Map<String,Long> phaseTime = new TreeMap<String,Long>();
+
+  private static int peakPages = 0;
+  private static final Map<String,Integer> peakSpacePages = new TreeMap<String,Integer>();
+
+  private Metrics() { }
+
+  /**
+   * @return Whether statistics are being gathered
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Start gathering statistics, immediately before the script runs
+   */
+  public static void begin() {
+    enabled = true;
+    startTime = System.nanoTime();
+  }
+
+  /**
+   * Stop gathering statistics, immediately after the script completes
+   */
+  public static void end() {
+    endTime = System.nanoTime();
+    samplePages();
+    enabled = false;
+  }
+
+  /**
+   * Account for an allocation by a mutator
+   * @param bytes Size of the object
+   */
+  public static void allocation(int bytes) {
+    allocBytes.addAndGet(bytes);
+    allocObjects.incrementAndGet();
+  }
+
+  /**
+   * A global phase is about to begin (before = true) or has just ended.
+   * Global phases bracket each collection, so this is also where pause
+   * times and peak heap sizes are measured.
+   * @param phaseId The phase
+   * @param before Before or after the phase
+   */
+  public static synchronized void globalPhase(short phaseId, boolean before) {
+    if (!enabled) return;
+    long now = System.nanoTime();
+    if (phaseId == Simple.SET_COLLECTION_KIND && before) {
+      gcCount++;
+      gcStart = now;
+      samplePages();
+    } else if (phaseId == Simple.COMPLETE && !before) {
+      long pause = now - gcStart;
+      gcTime += pause;
+      maxPause = Math.max(maxPause, pause);
+    }
+    phase(phaseId, before, now);
+  }
+
+  /**
+   * A collector phase is about to begin (before = true) or has just ended.
+   * @param phaseId The phase
+   * @param ordinal The collector thread's rendezvous order (1 = primary)
+   * @param before Before or after the phase
+   */
+  public static synchronized void collectorPhase(short phaseId, int ordinal, boolean before) {
+    if (!enabled || ordinal != 1) return;
+    phase(phaseId, before, System.nanoTime());
+  }
+
+  private static void phase(short phaseId, boolean before, long now) {
+    if (before) {
+      phaseStart = now;
+    } else {
+      String name = Phase.getName(phaseId);
+      Long time = phaseTime.get(name);
+      phaseTime.put(name, (time == null ? 0 : time) + now - phaseStart);
+    }
+  }
+
+  /**
+   * Record the high-water marks of page usage, overall and by space
+   */
+  private static void samplePages() {
+    peakPages = Math.max(peakPages, ActivePlan.plan.getPagesReserved());
+    Space.visitSpaces(new Space.SpaceVisitor() {
+      @Override
+      public void visit(Space s) {
+        Integer peak = peakSpacePages.get(s.getName());
+        peakSpacePages.put(s.getName(), Math.max(peak == null ? 0 : peak, s.reservedPages()));
+      }
+    });
+  }
+
+  private static void append(StringBuilder buf, String name, long value) {
+    buf.append(' ').append(name).append('=').append(value);
+  }
+
+  private static void appendMillis(StringBuilder buf, String name, double nanos) {
+    buf.append(' ').append(name).append('=').append(String.format(Locale.ROOT, "%.3f", nanos / 1e6));
+  }
+
+  /**
+   * Format the statistics as a single line of space-separated name=value
+   * pairs, with times in milliseconds and sizes in bytes or pages.
+   * @return The formatted statistics
+   */
+  public static String format() {
+    long elapsed = endTime - startTime;
+    long mutatorTime = elapsed - gcTime;
+    StringBuilder buf = new StringBuilder(PREFIX);
+    appendMillis(buf, "time.ms", elapsed);
+    appendMillis(buf, "mutator.ms", mutatorTime);
+    appendMillis(buf, "gc.ms", gcTime);
+    append(buf, "gc.count", gcCount);
+    appendMillis(buf, "pause.max.ms", maxPause);
+    appendMillis(buf, "pause.mean.ms", gcCount == 0 ? 0 : (double)gcTime / gcCount);
+    append(buf, "alloc.bytes", allocBytes.get());
+    append(buf, "alloc.objects", allocObjects.get());
+    /* MB per second of mutator time */
+    buf.append(" alloc.rate.mb.s=").append(String.format(Locale.ROOT, "%.3f",
+        mutatorTime <= 0 ? 0.0 : (allocBytes.get() / (double)(1 << 20)) / (mutatorTime / 1e9)));
+    append(buf, "peak.pages", peakPages);
+    for (Map.Entry<String,Integer> space : peakSpacePages.entrySet()) {
+      append(buf, "peak.pages."+space.getKey(), space.getValue());
+    }
+    for (Map.Entry<String,Long> phase : phaseTime.entrySet()) {
+      appendMillis(buf, "phase."+phase.getKey()+".ms", phase.getValue());
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Print the statistics to standard output
+   */
+  public static void print() {
+    System.out.println(format());
+  }
+}
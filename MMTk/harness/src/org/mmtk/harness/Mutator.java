@@ -402,6 +402,9 @@ public abstract class Mutator {
       Trace.printf(Item.ALLOC,"alloc(%d,%d,%b) -> [%s]%n",refCount,dataCount,doubleAlign,ObjectModel.getString(result));
     }
     if (!(result != null)) fail("Allocation returned null");
+    if (Metrics.isEnabled()) {
+      Metrics.allocation(ObjectModel.getSize(refCount, dataCount));
+    }
     return result;
   }
 
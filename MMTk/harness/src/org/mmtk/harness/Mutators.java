@@ -36,12 +36,17 @@ public final class Mutators {
 
   /**
    * Complete the registration of a mutator, by inserting the initialized
-   * object in the allocated slot.
-   * @param id
+   * object in the allocated slot.  Mutators start in any order, so using
+   * the slot (rather than the order of completion) keeps the order of the
+   * mutators the same when a schedule is replayed.
    * @param m
    */
   static synchronized void set(Mutator m) {
-    mutators.add(m);
+    int id = m.getContext().getId();
+    while (mutators.size() <= id) {
+      mutators.add(null);
+    }
+    mutators.set(id, m);
   }
 
   /**
@@ -27,6 +27,7 @@ import org.mmtk.harness.lang.compiler.Temporary;
 import org.mmtk.harness.lang.parser.MethodTable;
 import org.mmtk.harness.lang.pcode.*;
 import org.mmtk.harness.lang.runtime.ConstantPool;
+import org.mmtk.harness.lang.runtime.StackFrame;
 import org.mmtk.harness.lang.type.Field;
 import org.mmtk.harness.lang.type.Type;
 import org.mmtk.harness.lang.type.UserType;
@@ -44,11 +45,17 @@ public final class Compiler extends Visitor {
   private final CompiledMethod current;
   private final CompiledMethodTable methodTable;
   private final Temporary temps;
+  /** Slot types of the local variables */
+  private final Type[] localTypes;
 
   private Compiler(NormalMethod method, CompiledMethodTable table) {
     this.current = new CompiledMethod(method);
     this.methodTable = table;
     this.temps = new Temporary(method.getDecls().size());
+    this.localTypes = new Type[method.getDecls().size()];
+    for (Declaration decl : method.getDecls()) {
+      localTypes[decl.getSlot()] = StackFrame.slotType(decl.getType());
+    }
   }
 
   public static CompiledMethod compile(MethodTable methods) {
@@ -72,7 +79,7 @@ public final class Compiler extends Visitor {
    */
 
   public CompiledMethod yield() {
-    current.setTemps(temps.size());
+    current.setTemps(temps.getTypes());
     return current;
   }
 
@@ -85,10 +92,26 @@ public final class Compiler extends Visitor {
     return current.currentIndex();
   }
 
-  private void freeTemps(List<Register> actuals) {
+  private void freeTemps(AST source, List<Register> actuals) {
     for (Register r : actuals) {
-      temps.release(r);
+      release(source,r);
+    }
+  }
+
+  /**
+   * Return temporaries to the pool.  Object temporaries are cleared, as
+   * they are GC roots and a stale reference would keep its referent alive
+   * (int and boolean temporaries no longer overwrite them).
+   * @param source The AST node the temporaries were used by
+   * @param regs Registers, some of which may be temporaries
+   */
+  private void release(AST source, Register...regs) {
+    for (Register r : regs) {
+      if (r.isTemporary() && !isPrimitive(r)) {
+        emit(new StoreLocal(source,r,ConstantPool.NULL));
+      }
     }
+    temps.release(regs);
   }
 
   private List<Register> compileArgList(List<Expression> args) {
@@ -107,6 +130,28 @@ public final class Compiler extends Visitor {
     return compiledMethod;
   }
 
+  /**
+   * The type of stack frame slot (INT, BOOLEAN or OBJECT) of a register.
+   * @param reg A local variable, temporary or constant
+   * @return The slot type
+   */
+  private Type typeOf(Register reg) {
+    int index = reg.getIndex();
+    if (index < 0) {
+      return StackFrame.slotType(ConstantPool.get(index).type());
+    } else if (index < localTypes.length) {
+      return localTypes[index];
+    }
+    return temps.getType(reg);
+  }
+
+  /**
+   * Is the register an unboxed int or boolean ?
+   */
+  private boolean isPrimitive(Register reg) {
+    return typeOf(reg) != Type.OBJECT;
+  }
+
   /**
    * Visit a node and return its result as a Register
    * @param ast
@@ -126,7 +171,7 @@ public final class Compiler extends Visitor {
         doubleAlign = compile(alloc.getArg(1));
       }
       emit(new AllocUserOp(alloc,result,type,doubleAlign,alloc.getSite()));
-      temps.release(doubleAlign);
+      release(alloc,doubleAlign);
     } else {
       Register refCount = compile(alloc.getArg(0));
       Register dataCount = compile(alloc.getArg(1));
@@ -134,7 +179,7 @@ public final class Compiler extends Visitor {
         doubleAlign = compile(alloc.getArg(2));
       }
       emit(new AllocOp(alloc,result,dataCount,refCount,doubleAlign,alloc.getSite()));
-      temps.release(dataCount,refCount,doubleAlign);
+      release(alloc,dataCount,refCount,doubleAlign);
     }
     return result;
   }
@@ -144,13 +189,13 @@ public final class Compiler extends Visitor {
     Register predicate = compile(ass.getPredicate());
     Branch branch = new Branch(ass,predicate,true);
     emit(branch);
-    temps.release(predicate);
+    release(ass,predicate);
     ArrayList<Register> actuals = new ArrayList<Register>(ass.getOutputs().size());
     for (Expression expr : ass.getOutputs()) {
       actuals.add(compile(expr));
     }
     emit(new PrintOp(ass,actuals.toArray(new Register[0])));
-    freeTemps(actuals);
+    freeTemps(ass,actuals);
     emit(new ExitOp(ass,ConstantPool.ONE));
     branch.setBranchTarget(currentPc());
     return null;
@@ -161,7 +206,7 @@ public final class Compiler extends Visitor {
     Trace.trace(Item.COMPILER, "Compiling %s", PrettyPrinter.format(a));
     Register rhs = compile(a.getRhs());
     emit(new StoreLocal(a,Register.createLocal(a.getSlot()),rhs));
-    temps.release(rhs);
+    release(a,rhs);
     return null;
   }
 
@@ -169,9 +214,14 @@ public final class Compiler extends Visitor {
   public Object visit(BinaryExpression exp) {
     Register lhs = compile(exp.getLhs());
     Register rhs = compile(exp.getRhs());
-    Register result = temps.acquire();
-    emit(new BinaryOperation(exp,result,lhs,rhs,exp.getOperator()));
-    temps.release(rhs,lhs);
+    Operator op = exp.getOperator();
+    Register result = temps.acquire(op.resultType(typeOf(lhs),typeOf(rhs)));
+    if (isPrimitive(lhs) && typeOf(lhs) == typeOf(rhs)) {
+      emit(new PrimitiveBinaryOperation(exp,result,lhs,rhs,op));
+    } else {
+      emit(new BinaryOperation(exp,result,lhs,rhs,op));
+    }
+    release(exp,rhs,lhs);
     return result;
   }
 
@@ -180,7 +230,7 @@ public final class Compiler extends Visitor {
     Method method = call.getMethod();
     List<Register> actuals = compileArgList(call.getParams());
     Register returnVal = method.getReturnType() == Type.VOID ?
-        Register.NULL : temps.acquire();
+        Register.NULL : temps.acquire(method.getReturnType());
 
     if (method instanceof IntrinsicMethod) {
       emit(new CallIntrinsicOp(call,returnVal,(IntrinsicMethod)method,actuals));
@@ -190,7 +240,7 @@ public final class Compiler extends Visitor {
     } else {
       throw new RuntimeException("Unknown method class "+method.getClass().getCanonicalName());
     }
-    freeTemps(actuals);
+    freeTemps(call,actuals);
     return returnVal;
   }
 
@@ -223,8 +273,8 @@ public final class Compiler extends Visitor {
       branch.setBranchTarget(currentPc());
       Register conditionReg = compile(cond);
       branch = new Branch(conditional,conditionReg,false);
-      temps.release(conditionReg);
       emit(branch);
+      release(conditional,conditionReg);
       stmtIter.next().accept(this);
       emit(gotoExit);
     }
@@ -245,9 +295,9 @@ public final class Compiler extends Visitor {
   public Object visit(LoadField load) {
     Register index = compile(load.getIndex());
     Register object = Register.createLocal(load.getSlot());
-    Register result = temps.acquire();
+    Register result = temps.acquire(load.getFieldType());
     emit(new LoadFieldOp(load,result,object,index,load.getFieldType()));
-    temps.release(index);
+    release(load,index);
     return result;
   }
 
@@ -255,11 +305,11 @@ public final class Compiler extends Visitor {
   public Object visit(LoadNamedField load) {
     UserType type = (UserType)load.getObjectSymbol().getType();
     Field field = type.getField(load.getFieldName());
+    Type fieldType = field.getType().isObject() ? Type.OBJECT : Type.INT;
     Register object = Register.createLocal(load.getSlot());
-    Register result = temps.acquire();
+    Register result = temps.acquire(fieldType);
     emit(new LoadFixedFieldOp(load,result,object,field.getOffset(),
-        load.getFieldName(),
-        field.getType().isObject() ? Type.OBJECT : Type.INT));
+        load.getFieldName(),fieldType));
     return result;
   }
 
@@ -275,7 +325,7 @@ public final class Compiler extends Visitor {
     List<Expression> args = print.getArgs();
     List<Register> actuals = compileArgList(args);
     emit(new PrintOp(print,actuals));
-    freeTemps(actuals);
+    freeTemps(print,actuals);
     return null;
   }
 
@@ -301,7 +351,7 @@ public final class Compiler extends Visitor {
   public Object visit(Spawn sp) {
     List<Register> actuals = compileArgList(sp.getArgs());
     emit(new SpawnOp(sp,compiledMethodFor(sp.getMethod()),actuals));
-    freeTemps(actuals);
+    freeTemps(sp,actuals);
     return null;
   }
 
@@ -311,7 +361,7 @@ public final class Compiler extends Visitor {
     Register value = compile(store.getRhs());
     Register object = Register.createLocal(store.getSlot());
     emit(new StoreFieldOp(store,object,index,value,store.getFieldType()));
-    temps.release(index,value);
+    release(store,index,value);
     return null;
   }
 
@@ -322,7 +372,7 @@ public final class Compiler extends Visitor {
     Register object = Register.createLocal(store.getSlot());
     emit(new StoreFixedFieldOp(store,object,field.getOffset(),store.getFieldName(),value,
         field.getType().isObject() ? Type.OBJECT : Type.INT));
-    temps.release(value);
+    release(store,value);
     return null;
   }
 
@@ -334,9 +384,14 @@ public final class Compiler extends Visitor {
   @Override
   public Object visit(UnaryExpression exp) {
     Register operand = compile(exp.getOperand());
-    Register result = temps.acquire();
-    emit(new UnaryOperation(exp,result,operand,exp.getOperator()));
-    temps.release(operand);
+    Operator op = exp.getOperator();
+    Register result = temps.acquire(op == Operator.NOT ? Type.BOOLEAN : typeOf(operand));
+    if (isPrimitive(operand)) {
+      emit(new PrimitiveUnaryOperation(exp,result,operand,op));
+    } else {
+      emit(new UnaryOperation(exp,result,operand,op));
+    }
+    release(exp,operand);
     return result;
   }
 
@@ -362,8 +417,8 @@ public final class Compiler extends Visitor {
     int top = currentPc();
     Register cond = compile(w.getCond());
     Branch branchToExit = new Branch(w,cond,false);
-    temps.release(cond);
     emit(branchToExit);
+    release(w,cond);
     compile(w.getBody());
     emit(new Goto(w,top));
     branchToExit.setBranchTarget(currentPc());
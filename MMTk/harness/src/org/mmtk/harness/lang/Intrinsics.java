@@ -19,6 +19,7 @@ import org.mmtk.harness.lang.runtime.PhantomReferenceValue;
 import org.mmtk.harness.lang.runtime.SoftReferenceValue;
 import org.mmtk.harness.lang.runtime.WeakReferenceValue;
 import org.mmtk.harness.scheduler.Scheduler;
+import org.mmtk.harness.vm.ActivePlan;
 import org.mmtk.vm.Collection;
 import org.mmtk.vm.VM;
 
@@ -55,6 +56,25 @@ public class Intrinsics {
     return env.hash(val.getObjectValue());
   }
 
+  /**
+   * Pin an object
+   * @param env Thread-local environment (language-dependent mutator context)
+   * @param val The object to pin
+   * @return True if the object will not move until it is unpinned
+   */
+  public static boolean pin(Env env, ObjectValue val) {
+    return ActivePlan.plan.pinObject(val.getObjectValue());
+  }
+
+  /**
+   * Unpin an object that was successfully pinned
+   * @param env Thread-local environment (language-dependent mutator context)
+   * @param val The object to unpin
+   */
+  public static void unpin(Env env, ObjectValue val) {
+    ActivePlan.plan.unpinObject(val.getObjectValue());
+  }
+
   /**
    * Set the random number generator seed for this thread
    * @param env Thread-local environment (language-dependent mutator context)
@@ -283,6 +283,20 @@ public class IntrinsicMethod extends Method {
     invoke(env,values);
   }
 
+  /**
+   * @return The Java method that implements this intrinsic
+   */
+  public java.lang.reflect.Method getJavaMethod() {
+    return method;
+  }
+
+  /**
+   * @return The Java signature of the method, excluding the mandatory Env parameter
+   */
+  public Class<?>[] getSignature() {
+    return signature.clone();
+  }
+
   /**
    * Convert to a string
    */
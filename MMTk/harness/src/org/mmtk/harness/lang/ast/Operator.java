@@ -35,50 +35,80 @@ public enum Operator {
     @Override public Value operate(Value lhs, Value rhs) {
       return BoolValue.valueOf(lhs.equals(rhs));
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs == rhs ? 1 : 0;
+    }
   }, NE("!=") {
     @Override public Value operate(Value lhs, Value rhs) {
       return BoolValue.valueOf(!lhs.equals(rhs));
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs != rhs ? 1 : 0;
+    }
   },
   /* Integer comparison */
   GT(">") {
     @Override public Value operate(Value lhs, Value rhs) {
       return BoolValue.valueOf(lhs.getIntValue() > rhs.getIntValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs > rhs ? 1 : 0;
+    }
   }, LT("<") {
     @Override public Value operate(Value lhs, Value rhs) {
       return BoolValue.valueOf(lhs.getIntValue() < rhs.getIntValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs < rhs ? 1 : 0;
+    }
   }, LE("<=") {
     @Override public Value operate(Value lhs, Value rhs) {
       return BoolValue.valueOf(lhs.getIntValue() <= rhs.getIntValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs <= rhs ? 1 : 0;
+    }
   }, GE(">=") {
     @Override public Value operate(Value lhs, Value rhs) {
       return BoolValue.valueOf(lhs.getIntValue() >= rhs.getIntValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs >= rhs ? 1 : 0;
+    }
   },
   /* Logical */
   AND("&&") {
     @Override public Value operate(Value lhs, Value rhs) {
       return BoolValue.valueOf(lhs.getBoolValue() && rhs.getBoolValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs != 0 && rhs != 0 ? 1 : 0;
+    }
   }, OR("||") {
     @Override public Value operate(Value lhs, Value rhs) {
       return BoolValue.valueOf(lhs.getBoolValue() || rhs.getBoolValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs != 0 || rhs != 0 ? 1 : 0;
+    }
   },
   /* Unary */
   NOT("!") {
     @Override public Value operate(Value operand) {
       return BoolValue.valueOf(!operand.getBoolValue());
     }
+    @Override public int operate(int operand) {
+      return operand == 0 ? 1 : 0;
+    }
   },
   /* Mathematical */
   PLUS("+") {
     @Override public Value operate(Value lhs, Value rhs) {
       return new IntValue(lhs.getIntValue() + rhs.getIntValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs + rhs;
+    }
   }, MINUS("-") {
     @Override public Value operate(Value lhs, Value rhs) {
       return new IntValue(lhs.getIntValue() - rhs.getIntValue());
@@ -86,31 +116,55 @@ public enum Operator {
     @Override public Value operate(Value operand) {
       return new IntValue(- operand.getIntValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs - rhs;
+    }
+    @Override public int operate(int operand) {
+      return - operand;
+    }
   }, MULT("*") {
     @Override public Value operate(Value lhs, Value rhs) {
       return new IntValue(lhs.getIntValue() * rhs.getIntValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs * rhs;
+    }
   }, DIV("/") {
     @Override
     public Value operate(Value lhs, Value rhs) {
       return new IntValue(lhs.getIntValue() / rhs.getIntValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs / rhs;
+    }
   }, REM("%") {
     @Override public Value operate(Value lhs, Value rhs) {
       return new IntValue(lhs.getIntValue() % rhs.getIntValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs % rhs;
+    }
   }, LS("<<"){
     @Override public Value operate(Value lhs, Value rhs) {
       return new IntValue(lhs.getIntValue() << rhs.getIntValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs << rhs;
+    }
   }, RS(">>"){
     @Override public Value operate(Value lhs, Value rhs) {
       return new IntValue(lhs.getIntValue() >> rhs.getIntValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs >> rhs;
+    }
   }, RSL(">>>"){
     @Override public Value operate(Value lhs, Value rhs) {
       return new IntValue(lhs.getIntValue() >>> rhs.getIntValue());
     }
+    @Override public int operate(int lhs, int rhs) {
+      return lhs >>> rhs;
+    }
   };
 
   /*
@@ -167,4 +221,23 @@ public enum Operator {
   public Value operate(Value lhs, Value rhs) {
     throw new RuntimeException("Unsupported binary operation, "+this);
   }
+
+  /**
+   * Apply the operator to an unboxed int (or boolean, as 0/1) operand
+   * @param operand The operand
+   * @return The result, booleans as 0/1
+   */
+  public int operate(int operand) {
+    throw new RuntimeException("Unsupported unary operation, "+this);
+  }
+
+  /**
+   * Apply the operator to unboxed int (or boolean, as 0/1) operands
+   * @param lhs The left-hand operand
+   * @param rhs The right-hand operand
+   * @return The result, booleans as 0/1
+   */
+  public int operate(int lhs, int rhs) {
+    throw new RuntimeException("Unsupported binary operation, "+this);
+  }
 }
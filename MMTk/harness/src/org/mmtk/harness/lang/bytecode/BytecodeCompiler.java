@@ -0,0 +1,961 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.harness.lang.bytecode;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.mmtk.harness.Main;
+import org.mmtk.harness.Mutator;
+import org.mmtk.harness.lang.Declaration;
+import org.mmtk.harness.lang.Env;
+import org.mmtk.harness.lang.Trace;
+import org.mmtk.harness.lang.Visitor;
+import org.mmtk.harness.lang.Trace.Item;
+import org.mmtk.harness.lang.ast.*;
+import org.mmtk.harness.lang.compiler.Register;
+import org.mmtk.harness.lang.compiler.Temporary;
+import org.mmtk.harness.lang.parser.MethodTable;
+import org.mmtk.harness.lang.runtime.BoolValue;
+import org.mmtk.harness.lang.runtime.ConstantPool;
+import org.mmtk.harness.lang.runtime.IntValue;
+import org.mmtk.harness.lang.runtime.ObjectValue;
+import org.mmtk.harness.lang.runtime.StackFrame;
+import org.mmtk.harness.lang.runtime.StringValue;
+import org.mmtk.harness.lang.runtime.Value;
+import org.mmtk.harness.lang.type.Field;
+import org.mmtk.harness.lang.type.Type;
+import org.mmtk.harness.lang.type.UserType;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.vmmagic.unboxed.ObjectReference;
+
+/**
+ * Compile a script to JVM bytecode.
+ * <p>
+ * Each script method becomes a static method of a generated class, taking
+ * the executing Env as an extra first parameter.  Int and boolean variables
+ * and temporaries are held unboxed in JVM locals; every other value is held
+ * in a StackFrame slot, exactly as in the pcode interpreter, so that the
+ * collector sees (and can update) all references.  Reference values are
+ * only loaded onto the JVM operand stack once all the operands of an
+ * operation have been evaluated, so no reference is held on the JVM stack
+ * across a GC safe point.
+ */
+public final class BytecodeCompiler extends Visitor implements Opcodes {
+
+  static {
+    //Trace.enable(Item.COMPILER);
+  }
+
+  /** Generated class names are numbered, in case several scripts are compiled */
+  private static int nextClassId = 0;
+
+  /** Name of the static field holding the objects referenced by the code */
+  private static final String CONSTANTS = "constants";
+
+  /*
+   * Internal names and descriptors of the runtime classes
+   */
+  private static final String ENV = internalName(Env.class);
+  private static final String MUTATOR = internalName(Mutator.class);
+  private static final String FRAME = internalName(StackFrame.class);
+  private static final String VALUE = internalName(Value.class);
+  private static final String OBJECT_VALUE = internalName(ObjectValue.class);
+  private static final String RUNTIME = internalName(BytecodeRuntime.class);
+  private static final String METHOD = internalName(BytecodeMethod.class);
+  private static final String INTRINSIC = internalName(IntrinsicMethod.class);
+  private static final String OBJECT_REFERENCE = internalName(ObjectReference.class);
+
+  private static final String ENV_DESC = "L" + ENV + ";";
+  private static final String VALUE_DESC = "L" + VALUE + ";";
+  private static final String OBJECT_REFERENCE_DESC = "L" + OBJECT_REFERENCE + ";";
+
+  /** JVM local variable holding the Env */
+  private static final int ENV_LOCAL = 0;
+
+  private static String internalName(Class<?> klass) {
+    return org.objectweb.asm.Type.getInternalName(klass);
+  }
+
+  /**
+   * @param type A script-language type
+   * @return The JVM descriptor of its compiled representation
+   */
+  private static String descriptor(Type type) {
+    if (type == Type.INT) {
+      return "I";
+    } else if (type == Type.BOOLEAN) {
+      return "Z";
+    } else if (type == Type.VOID) {
+      return "V";
+    }
+    return VALUE_DESC;
+  }
+
+  /**
+   * @param method A compiled method
+   * @return The JVM descriptor of its generated code
+   */
+  private static String descriptor(BytecodeMethod method) {
+    StringBuilder desc = new StringBuilder("(").append(ENV_DESC);
+    for (Type t : method.getParamTypes()) {
+      desc.append(descriptor(t));
+    }
+    return desc.append(")").append(descriptor(method.getReturnType())).toString();
+  }
+
+  /**
+   * Compile a script to a JVM class, and load it.
+   * @param methods The (type-checked) methods of the script
+   * @param sourceFile The script file name, for Java stack traces
+   * @return The compiled main method
+   */
+  public static BytecodeMethod compile(MethodTable methods, String sourceFile) {
+    String className = "org/mmtk/harness/lang/bytecode/Script" + (nextClassId++);
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(V1_5, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, className, null, "java/lang/Object", null);
+    cw.visitSource(sourceFile, null);
+    cw.visitField(ACC_PUBLIC + ACC_STATIC, CONSTANTS, "[Ljava/lang/Object;", null, null).visitEnd();
+
+    Map<String,BytecodeMethod> table = new HashMap<String,BytecodeMethod>();
+    for (NormalMethod m : methods.normalMethods()) {
+      table.put(m.getName(), new BytecodeMethod(m));
+    }
+    List<Object> constants = new ArrayList<Object>();
+    for (NormalMethod m : methods.normalMethods()) {
+      Trace.trace(Item.COMPILER, "Compiling %s to bytecode", m.getName());
+      m.accept(new BytecodeCompiler(cw, className, table, constants, m));
+    }
+    cw.visitEnd();
+
+    try {
+      Class<?> klass = new ScriptClassLoader().define(className.replace('/', '.'), cw.toByteArray());
+      klass.getField(CONSTANTS).set(null, constants.toArray());
+      for (BytecodeMethod m : table.values()) {
+        m.bind(klass);
+      }
+    } catch (Exception e) {
+      throw new RuntimeException("Unable to load compiled script", e);
+    }
+    return table.get("main");
+  }
+
+  /*
+   * Per-class state
+   */
+
+  /** The class being generated */
+  private final ClassWriter cw;
+  /** The internal name of the class being generated */
+  private final String className;
+  /** All the methods of the script */
+  private final Map<String,BytecodeMethod> table;
+  /** Objects referenced from the generated code */
+  private final List<Object> constants;
+
+  /*
+   * Per-method state
+   */
+
+  /** The method being compiled */
+  private final NormalMethod method;
+  /** The compiled version of the method */
+  private final BytecodeMethod current;
+  /** JVM local variable holding each int/boolean variable (by stack frame slot) */
+  private final int[] locals;
+  /** Temporary stack frame slots */
+  private final Temporary temps;
+  /** Free temporary JVM locals */
+  private final List<Integer> freeLocals = new ArrayList<Integer>();
+  /** The code being generated */
+  private MethodVisitor mv;
+  /** JVM local variable holding the StackFrame */
+  private int frameLocal;
+  /** Next free JVM local variable */
+  private int nextLocal;
+  /** Last source line emitted */
+  private int lastLine = -1;
+
+  private BytecodeCompiler(ClassWriter cw, String className, Map<String,BytecodeMethod> table,
+      List<Object> constants, NormalMethod method) {
+    this.cw = cw;
+    this.className = className;
+    this.table = table;
+    this.constants = constants;
+    this.method = method;
+    this.current = table.get(method.getName());
+    this.locals = new int[method.getDecls().size()];
+    this.temps = new Temporary(method.getDecls().size());
+  }
+
+  /*
+   * Utility methods
+   */
+
+  /**
+   * Visit an expression and return the location of its result.
+   * @param ast The expression
+   * @return The operand, or null for statements
+   */
+  private Operand compile(AST ast) {
+    return (Operand)ast.accept(this);
+  }
+
+  private List<Operand> compileArgList(List<Expression> args) {
+    List<Operand> actuals = new ArrayList<Operand>(args.size());
+    for (Expression exp : args) {
+      actuals.add(compile(exp));
+    }
+    return actuals;
+  }
+
+  /**
+   * Release temporaries.  Temporary stack frame slots are cleared, as
+   * otherwise a dead value could keep its referent alive until the slot
+   * is reused.
+   */
+  private void release(Operand...operands) {
+    for (Operand op : operands) {
+      if (op != null && op.isTemporary()) {
+        if (op.getKind() == Operand.Kind.LOCAL) {
+          freeLocals.add(op.getIndex());
+        } else {
+          mv.visitFieldInsn(GETSTATIC, OBJECT_VALUE, "NULL", "L" + OBJECT_VALUE + ";");
+          storeSlot(op.getIndex());
+          temps.release(op.getRegister());
+        }
+      }
+    }
+  }
+
+  private void release(List<Operand> operands) {
+    release(operands.toArray(new Operand[0]));
+  }
+
+  /** Record the source line of a statement, for Java stack traces */
+  private void lineNumber(AST ast) {
+    if (ast.getLine() != lastLine && ast.getLine() > 0) {
+      lastLine = ast.getLine();
+      Label here = new Label();
+      mv.visitLabel(here);
+      mv.visitLineNumber(lastLine, here);
+    }
+  }
+
+  /** Index of an object in the constants array, adding it if necessary */
+  private int constant(Object o) {
+    int index = constants.indexOf(o);
+    if (index < 0) {
+      index = constants.size();
+      constants.add(o);
+    }
+    return index;
+  }
+
+  /** Push a constant object of the given class */
+  private void loadConstant(Object o, String internalName) {
+    mv.visitFieldInsn(GETSTATIC, className, CONSTANTS, "[Ljava/lang/Object;");
+    pushInt(constant(o));
+    mv.visitInsn(AALOAD);
+    mv.visitTypeInsn(CHECKCAST, internalName);
+  }
+
+  private void pushInt(int value) {
+    if (value >= -1 && value <= 5) {
+      mv.visitInsn(ICONST_0 + value);
+    } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+      mv.visitIntInsn(BIPUSH, value);
+    } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+      mv.visitIntInsn(SIPUSH, value);
+    } else {
+      mv.visitLdcInsn(Integer.valueOf(value));
+    }
+  }
+
+  private void loadEnv() {
+    mv.visitVarInsn(ALOAD, ENV_LOCAL);
+  }
+
+  /** A GC safe point, at the same places the pcode interpreter has one */
+  private void safePoint() {
+    loadEnv();
+    mv.visitMethodInsn(INVOKEVIRTUAL, ENV, "gcSafePoint", "()Z");
+    mv.visitInsn(POP);
+  }
+
+  /** Push the Value of a stack frame slot */
+  private void loadSlot(int slot) {
+    mv.visitVarInsn(ALOAD, frameLocal);
+    pushInt(slot);
+    mv.visitMethodInsn(INVOKEVIRTUAL, FRAME, "get", "(I)" + VALUE_DESC);
+  }
+
+  /** Pop a Value into a stack frame slot */
+  private void storeSlot(int slot) {
+    mv.visitVarInsn(ALOAD, frameLocal);
+    mv.visitInsn(SWAP);
+    pushInt(slot);
+    mv.visitInsn(SWAP);
+    mv.visitMethodInsn(INVOKEVIRTUAL, FRAME, "set", "(I" + VALUE_DESC + ")V");
+  }
+
+  /** Push an operand as an int (or boolean) */
+  private void loadInt(Operand op) {
+    switch (op.getKind()) {
+      case CONSTANT: pushInt(op.getIndex()); break;
+      case LOCAL: mv.visitVarInsn(ILOAD, op.getIndex()); break;
+      case SLOT:
+        loadSlot(op.getIndex());
+        mv.visitMethodInsn(INVOKEVIRTUAL, VALUE, "getIntValue", "()I");
+        break;
+    }
+  }
+
+  /** Push an operand as a boolean, applying the object-is-non-null conversion */
+  private void loadBool(Operand op) {
+    if (op.getKind() == Operand.Kind.SLOT) {
+      loadSlot(op.getIndex());
+      mv.visitMethodInsn(INVOKEVIRTUAL, VALUE, "getBoolValue", "()Z");
+    } else {
+      loadInt(op);
+    }
+  }
+
+  /** Push an operand as a Value, boxing ints and booleans */
+  private void loadValue(Operand op) {
+    if (op.getKind() == Operand.Kind.SLOT) {
+      loadSlot(op.getIndex());
+    } else if (op.getType() == Type.BOOLEAN) {
+      loadInt(op);
+      mv.visitMethodInsn(INVOKESTATIC, internalName(BoolValue.class), "valueOf",
+          "(Z)L" + internalName(BoolValue.class) + ";");
+    } else {
+      loadInt(op);
+      mv.visitMethodInsn(INVOKESTATIC, internalName(IntValue.class), "valueOf",
+          "(I)L" + internalName(IntValue.class) + ";");
+    }
+  }
+
+  /** Push an operand as an ObjectReference */
+  private void loadObject(Operand op) {
+    loadValue(op);
+    mv.visitMethodInsn(INVOKEVIRTUAL, VALUE, "getObjectValue", "()" + OBJECT_REFERENCE_DESC);
+  }
+
+  /** Push an operand in the compiled representation of the given type */
+  private void load(Operand op, Type type) {
+    if (type == Type.INT) {
+      loadInt(op);
+    } else if (type == Type.BOOLEAN) {
+      loadBool(op);
+    } else {
+      loadValue(op);
+    }
+  }
+
+  /** Push an array of operands, as Values */
+  private void loadValueArray(List<Operand> ops) {
+    pushInt(ops.size());
+    mv.visitTypeInsn(ANEWARRAY, VALUE);
+    for (int i=0; i < ops.size(); i++) {
+      mv.visitInsn(DUP);
+      pushInt(i);
+      loadValue(ops.get(i));
+      mv.visitInsn(AASTORE);
+    }
+  }
+
+  /** Acquire a temporary JVM local */
+  private int acquireLocal() {
+    if (freeLocals.isEmpty()) {
+      return nextLocal++;
+    }
+    return freeLocals.remove(freeLocals.size()-1);
+  }
+
+  /** Pop an int (or boolean) into a new temporary */
+  private Operand storeTemp(Type type) {
+    int local = acquireLocal();
+    mv.visitVarInsn(ISTORE, local);
+    return Operand.local(type, local, true);
+  }
+
+  /**
+   * Pop a value in the compiled representation of the given type into
+   * a new temporary.  Values must have been boxed into a Value first.
+   */
+  private Operand storeValueTemp(Type type) {
+    if (Operand.isPrimitive(type)) {
+      return storeTemp(type);
+    }
+    Register temp = temps.acquire();
+    storeSlot(temp.getIndex());
+    return Operand.slot(type, temp);
+  }
+
+  /** Convert a two-way comparison into a 0/1 boolean result */
+  private Operand compare(int opcode) {
+    Label isTrue = new Label();
+    Label done = new Label();
+    mv.visitJumpInsn(opcode, isTrue);
+    mv.visitInsn(ICONST_0);
+    mv.visitJumpInsn(GOTO, done);
+    mv.visitLabel(isTrue);
+    mv.visitInsn(ICONST_1);
+    mv.visitLabel(done);
+    return storeTemp(Type.BOOLEAN);
+  }
+
+  /** Method epilogue: pop the stack frame and return the value on the JVM stack */
+  private void returnFromMethod() {
+    loadEnv();
+    mv.visitMethodInsn(INVOKEVIRTUAL, ENV, "pop", "()V");
+    Type type = current.getReturnType();
+    if (type == Type.VOID) {
+      mv.visitInsn(RETURN);
+    } else if (Operand.isPrimitive(type)) {
+      mv.visitInsn(IRETURN);
+    } else {
+      mv.visitInsn(ARETURN);
+    }
+  }
+
+  /*
+   * Visitor methods
+   */
+
+  @Override
+  public Object visit(Alloc alloc) {
+    Operand doubleAlign = Operand.constant(Type.BOOLEAN, 0);
+    Operand refCount, dataCount;
+    if (alloc.isTyped()) {
+      UserType type = alloc.getType();
+      refCount = Operand.constant(Type.INT, type.referenceFieldCount());
+      dataCount = Operand.constant(Type.INT, type.dataFieldCount());
+      if (alloc.numArgs() >= 2) {
+        doubleAlign = compile(alloc.getArg(1));
+      }
+    } else {
+      refCount = compile(alloc.getArg(0));
+      dataCount = compile(alloc.getArg(1));
+      if (alloc.numArgs() >= 3) {
+        doubleAlign = compile(alloc.getArg(2));
+      }
+    }
+    loadEnv();
+    loadInt(refCount);
+    loadInt(dataCount);
+    loadBool(doubleAlign);
+    pushInt(alloc.getSite());
+    mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "alloc", "(" + ENV_DESC + "IIZI)L" + OBJECT_VALUE + ";");
+    release(refCount, dataCount, doubleAlign);
+    Operand result = storeValueTemp(alloc.isTyped() ? alloc.getType() : Type.OBJECT);
+    loadEnv();
+    mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "afterAlloc", "(" + ENV_DESC + ")V");
+    return result;
+  }
+
+  @Override
+  public Object visit(Assert ass) {
+    lineNumber(ass);
+    Operand predicate = compile(ass.getPredicate());
+    loadBool(predicate);
+    release(predicate);
+    safePoint();
+    Label ok = new Label();
+    mv.visitJumpInsn(IFNE, ok);
+    List<Operand> outputs = compileArgList(ass.getOutputs());
+    loadValueArray(outputs);
+    release(outputs);
+    mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "print", "([" + VALUE_DESC + ")V");
+    pushInt(1);
+    mv.visitMethodInsn(INVOKESTATIC, internalName(Main.class), "exitWithFailure", "(I)V");
+    mv.visitLabel(ok);
+    return null;
+  }
+
+  @Override
+  public Object visit(Assignment a) {
+    lineNumber(a);
+    Operand rhs = compile(a.getRhs());
+    Type type = a.getSymbol().getType();
+    load(rhs, type);
+    if (Operand.isPrimitive(type)) {
+      mv.visitVarInsn(ISTORE, locals[a.getSlot()]);
+    } else {
+      storeSlot(a.getSlot());
+    }
+    release(rhs);
+    return null;
+  }
+
+  @Override
+  public Object visit(BinaryExpression exp) {
+    Operand lhs = compile(exp.getLhs());
+    Operand rhs = compile(exp.getRhs());
+    Operand result;
+    Operator op = exp.getOperator();
+    if (Operator.arithmeticOperators.contains(op)) {
+      loadInt(lhs);
+      loadInt(rhs);
+      switch (op) {
+        case PLUS:  mv.visitInsn(IADD); break;
+        case MINUS: mv.visitInsn(ISUB); break;
+        case MULT:  mv.visitInsn(IMUL); break;
+        case DIV:   mv.visitInsn(IDIV); break;
+        case REM:   mv.visitInsn(IREM); break;
+        case LS:    mv.visitInsn(ISHL); break;
+        case RS:    mv.visitInsn(ISHR); break;
+        case RSL:   mv.visitInsn(IUSHR); break;
+        default: throw new RuntimeException("Unknown arithmetic operator "+op);
+      }
+      release(lhs, rhs);
+      result = storeTemp(Type.INT);
+    } else if (op == Operator.AND || op == Operator.OR) {
+      /* Like the interpreter, both operands have already been evaluated */
+      loadBool(lhs);
+      loadBool(rhs);
+      mv.visitInsn(op == Operator.AND ? IAND : IOR);
+      release(lhs, rhs);
+      result = storeTemp(Type.BOOLEAN);
+    } else if (op == Operator.EQ || op == Operator.NE) {
+      if (Operand.isPrimitive(lhs.getType()) && lhs.getType() == rhs.getType()) {
+        loadInt(lhs);
+        loadInt(rhs);
+        release(lhs, rhs);
+        result = compare(op == Operator.EQ ? IF_ICMPEQ : IF_ICMPNE);
+      } else {
+        loadValue(lhs);
+        loadValue(rhs);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Object", "equals", "(Ljava/lang/Object;)Z");
+        if (op == Operator.NE) {
+          mv.visitInsn(ICONST_1);
+          mv.visitInsn(IXOR);
+        }
+        release(lhs, rhs);
+        result = storeTemp(Type.BOOLEAN);
+      }
+    } else {
+      loadInt(lhs);
+      loadInt(rhs);
+      release(lhs, rhs);
+      switch (op) {
+        case GT: result = compare(IF_ICMPGT); break;
+        case LT: result = compare(IF_ICMPLT); break;
+        case LE: result = compare(IF_ICMPLE); break;
+        case GE: result = compare(IF_ICMPGE); break;
+        default: throw new RuntimeException("Unknown binary operator "+op);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Object visit(Call call) {
+    lineNumber(call);
+    Method m = call.getMethod();
+    List<Operand> actuals = compileArgList(call.getParams());
+    Operand result;
+    if (m instanceof IntrinsicMethod) {
+      result = callIntrinsic((IntrinsicMethod)m, actuals);
+    } else if (m instanceof NormalMethod) {
+      BytecodeMethod callee = table.get(m.getName());
+      safePoint();
+      List<Type> paramTypes = callee.getParamTypes();
+      loadEnv();
+      for (int i=0; i < actuals.size(); i++) {
+        load(actuals.get(i), paramTypes.get(i));
+      }
+      mv.visitMethodInsn(INVOKESTATIC, className, callee.getName(), descriptor(callee));
+      release(actuals);
+      Type returnType = callee.getReturnType();
+      result = returnType == Type.VOID ? null : storeValueTemp(returnType);
+    } else {
+      throw new RuntimeException("Unknown method class "+m.getClass().getCanonicalName());
+    }
+    return result;
+  }
+
+  /**
+   * Can this Java class be passed directly to/from an intrinsic ?
+   */
+  private static boolean isDirectType(Class<?> klass) {
+    return klass == int.class || klass == boolean.class || klass == Integer.class ||
+        klass == Boolean.class || klass == String.class || Value.class.isAssignableFrom(klass);
+  }
+
+  /**
+   * Call an intrinsic method.  Public static methods are called directly,
+   * with unboxed parameters; anything else goes through reflection.
+   */
+  private Operand callIntrinsic(IntrinsicMethod m, List<Operand> actuals) {
+    java.lang.reflect.Method javaMethod = m.getJavaMethod();
+    Class<?>[] signature = m.getSignature();
+    Class<?> returnClass = javaMethod.getReturnType();
+    boolean direct = Modifier.isPublic(javaMethod.getModifiers()) &&
+        Modifier.isStatic(javaMethod.getModifiers()) &&
+        Modifier.isPublic(javaMethod.getDeclaringClass().getModifiers()) &&
+        (returnClass == void.class || isDirectType(returnClass));
+    for (Class<?> param : signature) {
+      direct &= isDirectType(param);
+    }
+    Type returnType = m.getReturnType();
+
+    if (direct) {
+      loadEnv();
+      for (int i=0; i < signature.length; i++) {
+        marshall(actuals.get(i), signature[i]);
+      }
+      mv.visitMethodInsn(INVOKESTATIC, internalName(javaMethod.getDeclaringClass()), javaMethod.getName(),
+          org.objectweb.asm.Type.getMethodDescriptor(javaMethod));
+      unMarshall(returnClass, returnType);
+    } else {
+      loadConstant(m, INTRINSIC);
+      loadEnv();
+      loadValueArray(actuals);
+      if (returnType == Type.VOID) {
+        mv.visitMethodInsn(INVOKEVIRTUAL, INTRINSIC, "exec", "(" + ENV_DESC + "[" + VALUE_DESC + ")V");
+      } else {
+        mv.visitMethodInsn(INVOKEVIRTUAL, INTRINSIC, "eval", "(" + ENV_DESC + "[" + VALUE_DESC + ")" + VALUE_DESC);
+        unMarshall(Value.class, returnType);
+      }
+    }
+    release(actuals);
+    return returnType == Type.VOID ? null : storeValueTemp(returnType);
+  }
+
+  /** Push an operand as a parameter of the given Java type */
+  private void marshall(Operand op, Class<?> klass) {
+    if (klass == int.class) {
+      loadInt(op);
+    } else if (klass == boolean.class) {
+      loadBool(op);
+    } else if (klass == Integer.class) {
+      loadInt(op);
+      mv.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;");
+    } else if (klass == Boolean.class) {
+      loadBool(op);
+      mv.visitMethodInsn(INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;");
+    } else if (klass == String.class) {
+      loadValue(op);
+      mv.visitMethodInsn(INVOKEVIRTUAL, VALUE, "getStringValue", "()Ljava/lang/String;");
+    } else {
+      loadValue(op);
+      mv.visitTypeInsn(CHECKCAST, internalName(klass));
+    }
+  }
+
+  /** Convert the Java result of an intrinsic to its compiled representation */
+  private void unMarshall(Class<?> klass, Type type) {
+    if (klass == Integer.class) {
+      mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Integer", "intValue", "()I");
+    } else if (klass == Boolean.class) {
+      mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Boolean", "booleanValue", "()Z");
+    } else if (klass == String.class) {
+      mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "stringValue", "(Ljava/lang/String;)" + VALUE_DESC);
+    } else if (Value.class.isAssignableFrom(klass)) {
+      if (type == Type.INT) {
+        mv.visitMethodInsn(INVOKEVIRTUAL, VALUE, "getIntValue", "()I");
+      } else if (type == Type.BOOLEAN) {
+        mv.visitMethodInsn(INVOKEVIRTUAL, VALUE, "getBoolValue", "()Z");
+      }
+    }
+  }
+
+  @Override
+  public Object visit(Constant c) {
+    Value value = c.value;
+    if (value.type() == Type.INT) {
+      return Operand.constant(Type.INT, value.getIntValue());
+    } else if (value.type() == Type.BOOLEAN) {
+      return Operand.constant(Type.BOOLEAN, value.getBoolValue() ? 1 : 0);
+    }
+    return Operand.slot(value.type(), ConstantPool.acquire(value).getIndex());
+  }
+
+  @Override
+  public Object visit(Empty e) {
+    return null;
+  }
+
+  @Override
+  public Object visit(Expect exp) {
+    lineNumber(exp);
+    loadEnv();
+    mv.visitLdcInsn(org.objectweb.asm.Type.getType(exp.getExpected()));
+    mv.visitMethodInsn(INVOKEVIRTUAL, ENV, "setExpectedThrowable", "(Ljava/lang/Class;)V");
+    return null;
+  }
+
+  @Override
+  public Object visit(IfStatement conditional) {
+    lineNumber(conditional);
+    Iterator<Statement> stmtIter = conditional.getStmts().iterator();
+    Label exit = new Label();
+    for (Expression cond : conditional.getConds()) {
+      Label next = new Label();
+      Operand condition = compile(cond);
+      loadBool(condition);
+      release(condition);
+      safePoint();
+      mv.visitJumpInsn(IFEQ, next);
+      release(compile(stmtIter.next()));
+      safePoint();
+      mv.visitJumpInsn(GOTO, exit);
+      mv.visitLabel(next);
+    }
+    if (stmtIter.hasNext()) {
+      release(compile(stmtIter.next()));
+    }
+    mv.visitLabel(exit);
+    return null;
+  }
+
+  @Override
+  public Object visit(IntrinsicMethod method) {
+    throw new RuntimeException("You can't compile an intrinsic method!!!");
+  }
+
+  @Override
+  public Object visit(LoadField load) {
+    Operand index = compile(load.getIndex());
+    Operand object = Operand.slot(Type.OBJECT, load.getSlot());
+    return loadField(object, index, load.getFieldType());
+  }
+
+  @Override
+  public Object visit(LoadNamedField load) {
+    UserType type = (UserType)load.getObjectSymbol().getType();
+    Field field = type.getField(load.getFieldName());
+    Operand object = Operand.slot(type, load.getSlot());
+    Operand index = Operand.constant(Type.INT, field.getOffset());
+    return loadField(object, index, field.getType().isObject() ? field.getType() : Type.INT);
+  }
+
+  /** Load an int or reference field */
+  private Operand loadField(Operand object, Operand index, Type fieldType) {
+    if (fieldType.isObject()) {
+      mv.visitTypeInsn(NEW, OBJECT_VALUE);
+      mv.visitInsn(DUP);
+      loadEnv();
+      loadObject(object);
+      loadInt(index);
+      mv.visitMethodInsn(INVOKEVIRTUAL, MUTATOR, "loadReferenceField",
+          "(" + OBJECT_REFERENCE_DESC + "I)" + OBJECT_REFERENCE_DESC);
+      mv.visitMethodInsn(INVOKESPECIAL, OBJECT_VALUE, "<init>", "(" + OBJECT_REFERENCE_DESC + ")V");
+      release(index);
+      return storeValueTemp(fieldType);
+    }
+    loadEnv();
+    loadObject(object);
+    loadInt(index);
+    mv.visitMethodInsn(INVOKEVIRTUAL, MUTATOR, "loadDataField", "(" + OBJECT_REFERENCE_DESC + "I)I");
+    release(index);
+    return storeTemp(Type.INT);
+  }
+
+  @Override
+  public Object visit(NormalMethod m) {
+    mv = cw.visitMethod(ACC_PUBLIC + ACC_STATIC, m.getName(), descriptor(current), null, null);
+    mv.visitCode();
+    lineNumber(m);
+
+    /* Prologue: push a stack frame, and move reference parameters into it */
+    List<Declaration> params = m.getParams();
+    frameLocal = params.size() + 1;
+    nextLocal = frameLocal + 1;
+    loadConstant(current, METHOD);
+    loadEnv();
+    mv.visitMethodInsn(INVOKEVIRTUAL, METHOD, "enter", "(" + ENV_DESC + ")L" + FRAME + ";");
+    mv.visitVarInsn(ASTORE, frameLocal);
+    for (Declaration decl : m.getDecls()) {
+      int param = params.indexOf(decl);
+      if (Operand.isPrimitive(decl.getType())) {
+        if (param >= 0) {
+          locals[decl.getSlot()] = param + 1;
+        } else {
+          locals[decl.getSlot()] = nextLocal++;
+          mv.visitInsn(ICONST_0);
+          mv.visitVarInsn(ISTORE, locals[decl.getSlot()]);
+        }
+      } else if (param >= 0) {
+        mv.visitVarInsn(ALOAD, param + 1);
+        storeSlot(decl.getSlot());
+      }
+    }
+
+    release(compile(m.getBody()));
+
+    /* Falling off the end of the method */
+    if (current.getReturnType() == Type.VOID) {
+      safePoint();
+      returnFromMethod();
+    } else {
+      mv.visitLdcInsn(m.getName());
+      mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "missingReturn", "(Ljava/lang/String;)Ljava/lang/RuntimeException;");
+      mv.visitInsn(ATHROW);
+    }
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+    current.setTemps(temps.size());
+    return null;
+  }
+
+  @Override
+  public Object visit(PrintStatement print) {
+    lineNumber(print);
+    List<Operand> actuals = compileArgList(print.getArgs());
+    loadValueArray(actuals);
+    release(actuals);
+    mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "print", "([" + VALUE_DESC + ")V");
+    return null;
+  }
+
+  @Override
+  public Object visit(Return ret) {
+    lineNumber(ret);
+    Operand result = ret.hasReturnValue() ? compile(ret.getRhs()) : null;
+    safePoint();
+    if (result != null) {
+      load(result, current.getReturnType());
+      release(result);
+    }
+    returnFromMethod();
+    return null;
+  }
+
+  @Override
+  public Object visit(Sequence seq) {
+    for (Statement stmt : seq) {
+      release(compile(stmt));
+    }
+    return null;
+  }
+
+  @Override
+  public Object visit(Spawn sp) {
+    lineNumber(sp);
+    List<Operand> actuals = compileArgList(sp.getArgs());
+    loadConstant(table.get(sp.getMethod().getName()), METHOD);
+    loadValueArray(actuals);
+    release(actuals);
+    mv.visitMethodInsn(INVOKEVIRTUAL, METHOD, "spawn", "([" + VALUE_DESC + ")V");
+    return null;
+  }
+
+  @Override
+  public Object visit(StoreField store) {
+    lineNumber(store);
+    Operand index = compile(store.getIndex());
+    Operand value = compile(store.getRhs());
+    storeField(Operand.slot(Type.OBJECT, store.getSlot()), index, value, store.getFieldType());
+    return null;
+  }
+
+  @Override
+  public Object visit(StoreNamedField store) {
+    lineNumber(store);
+    Field field = store.getField();
+    Operand value = compile(store.getRhs());
+    storeField(Operand.slot(Type.OBJECT, store.getSlot()), Operand.constant(Type.INT, field.getOffset()),
+        value, field.getType().isObject() ? Type.OBJECT : Type.INT);
+    return null;
+  }
+
+  /** Store to an int or reference field */
+  private void storeField(Operand object, Operand index, Operand value, Type fieldType) {
+    loadEnv();
+    loadObject(object);
+    loadInt(index);
+    if (fieldType.isObject()) {
+      loadObject(value);
+      mv.visitMethodInsn(INVOKEVIRTUAL, MUTATOR, "storeReferenceField",
+          "(" + OBJECT_REFERENCE_DESC + "I" + OBJECT_REFERENCE_DESC + ")V");
+    } else {
+      loadInt(value);
+      mv.visitMethodInsn(INVOKEVIRTUAL, MUTATOR, "storeDataField", "(" + OBJECT_REFERENCE_DESC + "II)V");
+    }
+    release(index, value);
+  }
+
+  @Override
+  public Object visit(TypeLiteral type) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Object visit(UnaryExpression exp) {
+    Operand operand = compile(exp.getOperand());
+    Operand result;
+    switch (exp.getOperator()) {
+      case NOT:
+        loadBool(operand);
+        mv.visitInsn(ICONST_1);
+        mv.visitInsn(IXOR);
+        release(operand);
+        result = storeTemp(Type.BOOLEAN);
+        break;
+      case MINUS:
+        loadInt(operand);
+        mv.visitInsn(INEG);
+        release(operand);
+        result = storeTemp(Type.INT);
+        break;
+      default:
+        throw new RuntimeException("Unknown unary operator "+exp.getOperator());
+    }
+    return result;
+  }
+
+  @Override
+  public Object visit(Variable var) {
+    Type type = var.getSymbol().getType();
+    if (Operand.isPrimitive(type)) {
+      return Operand.local(type, locals[var.getSlot()], false);
+    }
+    return Operand.slot(type, var.getSlot());
+  }
+
+  /**
+   * While statement.  Compiled to:
+   *   top: condition
+   *        if false goto exit
+   *        body
+   *        goto top
+   *   exit:
+   */
+  @Override
+  public Object visit(WhileStatement w) {
+    lineNumber(w);
+    Label top = new Label();
+    Label exit = new Label();
+    mv.visitLabel(top);
+    Operand cond = compile(w.getCond());
+    loadBool(cond);
+    release(cond);
+    safePoint();
+    mv.visitJumpInsn(IFEQ, exit);
+    release(compile(w.getBody()));
+    safePoint();
+    mv.visitJumpInsn(GOTO, top);
+    mv.visitLabel(exit);
+    return null;
+  }
+}
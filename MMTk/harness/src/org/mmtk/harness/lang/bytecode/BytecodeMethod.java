@@ -0,0 +1,173 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.harness.lang.bytecode;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+import org.mmtk.harness.lang.Declaration;
+import org.mmtk.harness.lang.Env;
+import org.mmtk.harness.lang.ast.NormalMethod;
+import org.mmtk.harness.lang.runtime.StackFrame;
+import org.mmtk.harness.lang.runtime.Value;
+import org.mmtk.harness.lang.type.Type;
+import org.mmtk.harness.scheduler.Schedulable;
+import org.mmtk.harness.scheduler.Scheduler;
+
+/**
+ * A script method that has been compiled to a static method of a
+ * generated JVM class.
+ */
+public final class BytecodeMethod implements Schedulable {
+
+  /** The name of the method */
+  private final String name;
+
+  /** The variable declarations */
+  private final List<Declaration> decls;
+
+  /** The parameter types */
+  private final List<Type> paramTypes;
+
+  /** The return type */
+  private final Type returnType;
+
+  /** The number of temporary stack frame slots */
+  private int nTemps;
+
+  /** The generated code, once the class has been loaded */
+  private java.lang.reflect.Method code;
+
+  /**
+   * Create a compiled method for the given parsed method.
+   * @param method The method
+   */
+  BytecodeMethod(NormalMethod method) {
+    this.name = method.getName();
+    this.decls = method.getDecls();
+    this.paramTypes = method.getParamTypes();
+    this.returnType = method.getReturnType();
+  }
+
+  /** @return the name of this method */
+  public String getName() {
+    return name;
+  }
+
+  /** @return the parameter types of this method */
+  List<Type> getParamTypes() {
+    return paramTypes;
+  }
+
+  /** @return the return type of this method */
+  Type getReturnType() {
+    return returnType;
+  }
+
+  /**
+   * Set the number of temporary stack frame slots
+   * @param nTemps Number of temporaries
+   */
+  void setTemps(int nTemps) {
+    this.nTemps = nTemps;
+  }
+
+  /**
+   * Find the generated code for this method
+   * @param klass The generated class
+   */
+  void bind(Class<?> klass) {
+    for (java.lang.reflect.Method m : klass.getMethods()) {
+      if (m.getName().equals(name)) {
+        code = m;
+        return;
+      }
+    }
+    throw new RuntimeException("No generated code for method "+name);
+  }
+
+  /**
+   * Method prologue, called from the generated code: create and push
+   * the stack frame that holds this method's reference values.
+   *
+   * @param env The executing thread
+   * @return The new stack frame
+   */
+  public StackFrame enter(Env env) {
+    StackFrame frame = new StackFrame(decls,nTemps);
+    env.push(frame);
+    return frame;
+  }
+
+  /**
+   * Execute this method (as the main method of a script).
+   */
+  @Override
+  public void execute(Env env) {
+    invoke(env);
+  }
+
+  /**
+   * Schedule a new mutator thread that executes this method,
+   * called from the generated code for the 'spawn' statement.
+   *
+   * @param params The actual parameters
+   */
+  public void spawn(final Value...params) {
+    Scheduler.scheduleMutator(new Schedulable() {
+      @Override
+      public void execute(Env env) {
+        invoke(env,params);
+      }
+    });
+  }
+
+  /**
+   * Call the generated code reflectively, unboxing the parameters.
+   * @param env The executing thread
+   * @param params The actual parameters
+   */
+  private void invoke(Env env, Value...params) {
+    assert params.length == paramTypes.size() : "Wrong number of parameters to "+name;
+    Object[] actuals = new Object[params.length+1];
+    actuals[0] = env;
+    for (int i=0; i < params.length; i++) {
+      Type type = paramTypes.get(i);
+      if (type == Type.INT) {
+        actuals[i+1] = Integer.valueOf(params[i].getIntValue());
+      } else if (type == Type.BOOLEAN) {
+        actuals[i+1] = Boolean.valueOf(params[i].getBoolValue());
+      } else {
+        actuals[i+1] = params[i];
+      }
+    }
+    try {
+      code.invoke(null, actuals);
+    } catch (InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      } else if (cause instanceof Error) {
+        throw (Error)cause;
+      }
+      throw new RuntimeException(cause);
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.harness.lang.bytecode;
+
+import org.mmtk.harness.Harness;
+import org.mmtk.harness.exception.OutOfMemory;
+import org.mmtk.harness.lang.Env;
+import org.mmtk.harness.lang.runtime.ObjectValue;
+import org.mmtk.harness.lang.runtime.StringValue;
+import org.mmtk.harness.lang.runtime.Value;
+import org.mmtk.harness.vm.ObjectModel;
+
+/**
+ * Out-of-line helpers called from compiled scripts, for operations
+ * that are too bulky to generate inline.
+ */
+public final class BytecodeRuntime {
+
+  private BytecodeRuntime() {
+  }
+
+  /**
+   * Allocate an object.
+   * @param env The executing thread
+   * @param refCount Number of reference fields
+   * @param dataCount Number of data fields
+   * @param doubleAlign Does the object require double-word alignment ?
+   * @param site Allocation site
+   * @return The new object
+   */
+  public static ObjectValue alloc(Env env, int refCount, int dataCount, boolean doubleAlign, int site) {
+    try {
+      return new ObjectValue(env.alloc(refCount, dataCount, doubleAlign, site));
+    } catch (OutOfMemory e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Error allocating object id:"+ObjectModel.lastObjectId()+" refs:"+refCount+
+          " ints: "+dataCount+" align:"+doubleAlign+" site:"+site,e);
+    }
+  }
+
+  /**
+   * GC stress: called once the result of an allocation is safely
+   * stored in the stack frame.
+   * @param env The executing thread
+   */
+  public static void afterAlloc(Env env) {
+    if (Harness.gcEveryAlloc()) {
+      env.gc();
+    }
+  }
+
+  /**
+   * The 'print' statement
+   * @param values Values to print
+   */
+  public static void print(Value[] values) {
+    StringBuffer buf = new StringBuffer();
+    for (Value val : values) {
+      buf.append(val.toString());
+    }
+    System.err.println(buf.toString());
+  }
+
+  /**
+   * Wrap the string result of an intrinsic method
+   * @param value The Java string
+   * @return The script-language value
+   */
+  public static Value stringValue(String value) {
+    return new StringValue(value);
+  }
+
+  /**
+   * @param method Method name
+   * @return The exception thrown when a method falls off its end
+   * without returning a value.
+   */
+  public static RuntimeException missingReturn(String method) {
+    return new RuntimeException("Method "+method+" completed without returning a value");
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.harness.lang.bytecode;
+
+import org.mmtk.harness.lang.compiler.Register;
+import org.mmtk.harness.lang.type.Type;
+
+/**
+ * The location of an intermediate value in compiled code.
+ * <p>
+ * Int and boolean values live unboxed in JVM local variables (or are
+ * compile-time constants).  All other values live in the slots of the
+ * script-level stack frame, where the garbage collector can find and
+ * update them.
+ */
+final class Operand {
+
+  /** Where the value lives */
+  enum Kind {
+    /** An int or boolean constant */
+    CONSTANT,
+    /** A JVM local variable holding an int or boolean */
+    LOCAL,
+    /** A stack frame slot (or constant pool entry) holding a Value */
+    SLOT
+  }
+
+  /** The script-language type of the value */
+  private final Type type;
+
+  /** Where the value lives */
+  private final Kind kind;
+
+  /** The constant value, JVM local index or stack frame slot */
+  private final int index;
+
+  /** Is this a temporary, to be released after use ? */
+  private final boolean temporary;
+
+  /** The frame-slot register, for temporary slots */
+  private final Register register;
+
+  private Operand(Type type, Kind kind, int index, boolean temporary, Register register) {
+    this.type = type;
+    this.kind = kind;
+    this.index = index;
+    this.temporary = temporary;
+    this.register = register;
+  }
+
+  /** @return An int or boolean constant operand */
+  static Operand constant(Type type, int value) {
+    assert isPrimitive(type);
+    return new Operand(type,Kind.CONSTANT,value,false,null);
+  }
+
+  /** @return An operand held in a JVM local variable */
+  static Operand local(Type type, int local, boolean temporary) {
+    assert isPrimitive(type);
+    return new Operand(type,Kind.LOCAL,local,temporary,null);
+  }
+
+  /** @return An operand held in a (named) stack frame slot or the constant pool */
+  static Operand slot(Type type, int slot) {
+    return new Operand(type,Kind.SLOT,slot,false,null);
+  }
+
+  /** @return An operand held in a temporary stack frame slot */
+  static Operand slot(Type type, Register temp) {
+    return new Operand(type,Kind.SLOT,temp.getIndex(),true,temp);
+  }
+
+  /**
+   * @param type A script-language type
+   * @return Whether values of this type are held unboxed in compiled code
+   */
+  static boolean isPrimitive(Type type) {
+    return type == Type.INT || type == Type.BOOLEAN;
+  }
+
+  Type getType() {
+    return type;
+  }
+
+  Kind getKind() {
+    return kind;
+  }
+
+  int getIndex() {
+    return index;
+  }
+
+  boolean isTemporary() {
+    return temporary;
+  }
+
+  Register getRegister() {
+    return register;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s %s[%d]", type, kind, index);
+  }
+}
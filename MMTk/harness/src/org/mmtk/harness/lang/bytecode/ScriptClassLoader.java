@@ -0,0 +1,33 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.harness.lang.bytecode;
+
+/**
+ * Class loader for the classes generated from scripts.
+ */
+final class ScriptClassLoader extends ClassLoader {
+
+  ScriptClassLoader() {
+    super(ScriptClassLoader.class.getClassLoader());
+  }
+
+  /**
+   * Define a generated class
+   * @param name The binary name of the class
+   * @param code The class file
+   * @return The loaded class
+   */
+  Class<?> define(String name, byte[] code) {
+    return defineClass(name, code, 0, code.length);
+  }
+}
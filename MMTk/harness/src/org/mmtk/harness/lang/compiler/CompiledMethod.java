@@ -23,6 +23,7 @@ import org.mmtk.harness.lang.pcode.PseudoOp;
 import org.mmtk.harness.lang.pcode.ResolvableOp;
 import org.mmtk.harness.lang.runtime.PcodeInterpreter;
 import org.mmtk.harness.lang.runtime.StackFrame;
+import org.mmtk.harness.lang.type.Type;
 import org.mmtk.harness.scheduler.Schedulable;
 
 /**
@@ -39,8 +40,8 @@ public class CompiledMethod implements Schedulable {
   /** The variable declarations */
   private final List<Declaration> decls;
 
-  /** The number of temporaries */
-  private int nTemps;
+  /** The slot types of the stack frame (variables and temporaries) */
+  private Type[] slotTypes;
 
   /**
    * Create an (empty) virtual method for the given parsed method.
@@ -84,12 +85,18 @@ public class CompiledMethod implements Schedulable {
   }
 
   /**
-   * Set the # temporaries required to execute
+   * Set the temporaries required to execute
    * this method
-   * @param nTemps
+   * @param tempTypes The slot types of the temporaries
    */
-  public void setTemps(int nTemps) {
-    this.nTemps = nTemps;
+  public void setTemps(List<Type> tempTypes) {
+    slotTypes = new Type[decls.size()+tempTypes.size()];
+    for (Declaration decl : decls) {
+      slotTypes[decl.getSlot()] = StackFrame.slotType(decl.getType());
+    }
+    for (int i=0; i < tempTypes.size(); i++) {
+      slotTypes[decls.size()+i] = tempTypes.get(i);
+    }
   }
 
   /**
@@ -138,7 +145,7 @@ public class CompiledMethod implements Schedulable {
    * @return
    */
   public StackFrame formatStackFrame() {
-    return new StackFrame(decls,nTemps);
+    return new StackFrame(decls,slotTypes);
   }
 
   public void execute(Env env) {
@@ -13,31 +13,56 @@
 package org.mmtk.harness.lang.compiler;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.mmtk.harness.lang.Trace;
 import org.mmtk.harness.lang.Trace.Item;
+import org.mmtk.harness.lang.runtime.StackFrame;
+import org.mmtk.harness.lang.type.Type;
 
 public class Temporary {
 
   private List<Register> freePool = new ArrayList<Register>();
 
+  /** The slot type (see StackFrame#slotType) of each temporary */
+  private final List<Type> types = new ArrayList<Type>();
+
+  private final Map<Register,Type> typeOf = new HashMap<Register,Type>();
+
   private int nextIndex = 0;
 
   /**
-   * Get a free temporary from the pool, or create a new one.
+   * Get a free object temporary from the pool, or create a new one.
    * @return
    */
   public Register acquire() {
-    if (freePool.isEmpty()) {
-      Register tmp = Register.createTemporary(nextIndex++);
-      Trace.trace(Item.COMPILER,"Acquire new temporary, %s", tmp);
-      return tmp;
+    return acquire(Type.OBJECT);
+  }
+
+  /**
+   * Get a free temporary that can hold a value of the given type from
+   * the pool, or create a new one.  Int and boolean values are held
+   * unboxed, so each temporary only ever holds one type of value.
+   * @param type The type of value the temporary will hold
+   * @return
+   */
+  public Register acquire(Type type) {
+    Type slotType = StackFrame.slotType(type);
+    for (int i=freePool.size()-1; i >= 0; i--) {
+      if (typeOf.get(freePool.get(i)) == slotType) {
+        Register result = freePool.remove(i);
+        Trace.trace(Item.COMPILER,"Acquire temporary, %s", result);
+        result.setUsed();
+        return result;
+      }
     }
-    Register result = freePool.remove(freePool.size()-1);
-    Trace.trace(Item.COMPILER,"Acquire temporary, %s", result);
-    result.setUsed();
-    return result;
+    Register tmp = Register.createTemporary(nextIndex++);
+    types.add(slotType);
+    typeOf.put(tmp, slotType);
+    Trace.trace(Item.COMPILER,"Acquire new temporary, %s", tmp);
+    return tmp;
   }
 
   public void release(Register...temp) {
@@ -61,4 +86,19 @@ public class Temporary {
   public int size() {
     return nextIndex;
   }
+
+  /**
+   * @param temp A temporary from this pool
+   * @return The slot type of the temporary
+   */
+  public Type getType(Register temp) {
+    return typeOf.get(temp);
+  }
+
+  /**
+   * @return The slot types of all the temporaries, in order
+   */
+  public List<Type> getTypes() {
+    return types;
+  }
 }
@@ -41,6 +41,8 @@ public class GlobalDefs {
       new IntrinsicMethod("gc",intrinsics,"gc"),
       new IntrinsicMethod("tid",intrinsics,"threadId"),
       new IntrinsicMethod("hash",intrinsics,"hash", new Class<?>[] { ObjectValue.class }),
+      new IntrinsicMethod("pin",intrinsics,"pin", new Class<?>[] { ObjectValue.class }),
+      new IntrinsicMethod("unpin",intrinsics,"unpin", new Class<?>[] { ObjectValue.class }),
       new IntrinsicMethod("random",intrinsics,"random",
           new Class<?>[] { int.class, int.class }),
       new IntrinsicMethod("setSeed",intrinsics,"setRandomSeed", new Class<?>[] { int.class }),
@@ -41,15 +41,15 @@ public final class AllocOp extends TernaryOp {
 
   /** Get the data count operand from <code>frame</code> */
   private int getDataCount(StackFrame frame) {
-    return frame.get(op1).getIntValue();
+    return frame.getInt(op1);
   }
   /** Get the reference count operand from <code>frame</code> */
   private int getRefCount(StackFrame frame) {
-    return frame.get(op2).getIntValue();
+    return frame.getInt(op2);
   }
   /** Get the alignment operand from <code>frame</code> */
   private boolean getDoubleAlign(StackFrame frame) {
-    return frame.get(op3).getBoolValue();
+    return frame.getBool(op3);
   }
 
   @Override
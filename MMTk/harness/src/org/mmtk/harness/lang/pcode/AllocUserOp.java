@@ -56,7 +56,7 @@ public final class AllocUserOp extends UnaryOp {
   }
   /** Get the alignment operand from <code>frame</code> */
   private boolean getDoubleAlign(StackFrame frame) {
-    return frame.get(operand).getBoolValue();
+    return frame.getBool(operand);
   }
 
   /**
@@ -74,7 +74,7 @@ public final class Branch extends UnaryOp {
   @Override
   public boolean isTaken(Env env) {
     StackFrame frame = env.top();
-    return frame.get(operand).getBoolValue() == branchOn;
+    return frame.getBool(operand) == branchOn;
   }
 
   @Override
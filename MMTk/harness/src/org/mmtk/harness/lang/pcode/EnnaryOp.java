@@ -60,6 +60,19 @@ public abstract class EnnaryOp extends PseudoOp {
     return buf.toString();
   }
 
+  /**
+   * Copy the operands into the first slots of another stack frame, ie
+   * pass them as the actual parameters of a callee, without boxing
+   * int and boolean values.
+   * @param frame The frame holding the operands
+   * @param callee The frame to copy them to
+   */
+  public void copyOperands(StackFrame frame, StackFrame callee) {
+    for (int i=0; i < arity; i++) {
+      callee.copy(i, frame, ops[i]);
+    }
+  }
+
   public Value[] getOperandValues(StackFrame frame) {
     Value[] actuals = new Value[arity];
     for (int i=0; i < arity; i++) {
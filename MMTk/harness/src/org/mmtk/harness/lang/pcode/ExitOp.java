@@ -28,7 +28,7 @@ public final class ExitOp extends UnaryOp {
   public void exec(Env env) {
     StackFrame frame = env.top();
 
-    int rval = frame.get(operand).getIntValue();
+    int rval = frame.getInt(operand);
     if (rval == 0) {
       Main.exitWithSuccess();
     }
@@ -15,7 +15,6 @@ package org.mmtk.harness.lang.pcode;
 import org.mmtk.harness.lang.Env;
 import org.mmtk.harness.lang.ast.AST;
 import org.mmtk.harness.lang.compiler.Register;
-import org.mmtk.harness.lang.runtime.IntValue;
 import org.mmtk.harness.lang.runtime.ObjectValue;
 import org.mmtk.harness.lang.runtime.StackFrame;
 import org.mmtk.harness.lang.type.Type;
@@ -61,7 +60,7 @@ public final class LoadFieldOp extends BinaryOp {
    * @return
    */
   public int getIndex(StackFrame frame) {
-    return frame.get(op2).getIntValue();
+    return frame.getInt(op2);
   }
 
   public String toString() {
@@ -73,7 +72,7 @@ public final class LoadFieldOp extends BinaryOp {
   public void exec(Env env) {
     StackFrame frame = env.top();
     if (fieldType == Type.INT) {
-      setResult(frame, new IntValue(env.loadDataField(getObject(frame), getIndex(frame))));
+      frame.setInt(getResult(), env.loadDataField(getObject(frame), getIndex(frame)));
     } else if (fieldType == Type.OBJECT) {
       setResult(frame, new ObjectValue(env.loadReferenceField(getObject(frame), getIndex(frame))));
     }
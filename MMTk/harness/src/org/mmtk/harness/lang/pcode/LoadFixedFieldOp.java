@@ -15,7 +15,6 @@ package org.mmtk.harness.lang.pcode;
 import org.mmtk.harness.lang.Env;
 import org.mmtk.harness.lang.ast.AST;
 import org.mmtk.harness.lang.compiler.Register;
-import org.mmtk.harness.lang.runtime.IntValue;
 import org.mmtk.harness.lang.runtime.ObjectValue;
 import org.mmtk.harness.lang.runtime.StackFrame;
 import org.mmtk.harness.lang.type.Type;
@@ -68,7 +67,7 @@ public final class LoadFixedFieldOp extends UnaryOp {
   public void exec(Env env) {
     StackFrame frame = env.top();
     if (fieldType == Type.INT) {
-      setResult(frame, new IntValue(env.loadDataField(getObject(frame), index)));
+      frame.setInt(getResult(), env.loadDataField(getObject(frame), index));
     } else if (fieldType == Type.OBJECT) {
       setResult(frame, new ObjectValue(env.loadReferenceField(getObject(frame), index)));
     }
@@ -0,0 +1,39 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.harness.lang.pcode;
+
+import org.mmtk.harness.lang.Env;
+import org.mmtk.harness.lang.ast.AST;
+import org.mmtk.harness.lang.ast.Operator;
+import org.mmtk.harness.lang.compiler.Register;
+import org.mmtk.harness.lang.runtime.StackFrame;
+
+/**
+ * A unary operation on an int or boolean operand, operating
+ * on unboxed values.
+ */
+public final class PrimitiveUnaryOperation extends UnaryOp {
+
+  public final Operator op;
+
+  public PrimitiveUnaryOperation(AST source, Register resultTemp, Register operand, Operator op) {
+    super(source,op.toString(), resultTemp, operand);
+    this.op = op;
+  }
+
+  @Override
+  public void exec(Env env) {
+    StackFrame frame = env.top();
+    frame.setInt(getResult(), op.operate(frame.getInt(operand)));
+  }
+}
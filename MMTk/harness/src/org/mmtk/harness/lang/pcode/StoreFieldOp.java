@@ -53,11 +53,11 @@ public final class StoreFieldOp extends TernaryOp {
   }
 
   private int getIndex(StackFrame frame) {
-    return frame.get(op2).getIntValue();
+    return frame.getInt(op2);
   }
 
   private int getValInt(StackFrame frame) {
-    return frame.get(op3).getIntValue();
+    return frame.getInt(op3);
   }
 
   private ObjectReference getValObject(StackFrame frame) {
@@ -72,7 +72,7 @@ public final class StoreFixedFieldOp extends BinaryOp {
   }
 
   private int getValInt(StackFrame frame) {
-    return frame.get(op2).getIntValue();
+    return frame.getInt(op2);
   }
 
   private ObjectReference getValObject(StackFrame frame) {
@@ -27,7 +27,7 @@ public final class StoreLocal extends UnaryOp {
   @Override
   public void exec(Env env) {
     StackFrame frame = env.top();
-    setResult(frame,frame.get(operand));
+    frame.copy(getResult(),frame,operand);
   }
 
 }
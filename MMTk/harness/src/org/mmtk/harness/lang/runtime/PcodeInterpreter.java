@@ -56,7 +56,9 @@ public final class PcodeInterpreter {
     while (true) {
       PseudoOp op = code[pc++];
       try {
-        Trace.trace(Item.EVAL,"%-4d %4d: %s",nesting,pc,op);
+        if (Trace.isEnabled(Item.EVAL)) {
+          Trace.trace(Item.EVAL,"%-4d %4d: %s",nesting,pc,op);
+        }
         op.exec(env);
         if (op.affectsControlFlow()) {
           env.gcSafePoint();
@@ -97,7 +99,7 @@ public final class PcodeInterpreter {
     StackFrame callerFrame = env.top();
 
     if (retOp.hasOperand()) {
-      callerFrame.setResult(retOp.getOperand(calleeFrame));
+      callerFrame.setResult(calleeFrame,retOp.operand);
     }
     nesting--;
     pc = callerFrame.getSavedPc();
@@ -113,7 +115,7 @@ public final class PcodeInterpreter {
     StackFrame callerFrame = env.top();
     saveContext(callOp, callerFrame);
     pushFrame(callee);
-    setActualParams(callOp.getOperandValues(callerFrame));
+    callOp.copyOperands(callerFrame,env.top());
     code = callee.getCodeArray();
     pc = 0;
     nesting++;
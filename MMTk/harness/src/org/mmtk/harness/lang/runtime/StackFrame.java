@@ -13,6 +13,7 @@
 package org.mmtk.harness.lang.runtime;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -29,6 +30,13 @@ import org.vmmagic.unboxed.ObjectReference;
 /**
  * A stack frame.  Currently assumes each slot contains exactly one
  * variable, and that all variables are live all the time.
+ * <p>
+ * The frame is a register file: int and boolean slots hold unboxed values
+ * in a parallel <code>int</code> array, so that arithmetic doesn't allocate
+ * a Value for every intermediate result.  All other values (objects,
+ * strings, references) are held in the Value array, which is the only
+ * part of the frame the collector needs to scan.  The type of each slot
+ * is fixed for the lifetime of the method.
  */
 public class StackFrame {
 
@@ -42,8 +50,12 @@ public class StackFrame {
   /** A sentinel for slots that have no value */
   public static final int NO_SUCH_SLOT = Integer.MAX_VALUE;
 
-  /** The values of variables and temporaries */
+  /** The values of object (and other non-primitive) variables and temporaries */
   private final Value[] values;
+  /** The values of int and boolean variables and temporaries (booleans as 0/1) */
+  private final int[] ints;
+  /** The type of each slot: INT, BOOLEAN or OBJECT */
+  private final Type[] types;
   /** (for debugging) the names of the value slots */
   private String[] names = null;
   /** The saved program counter during a method call */
@@ -59,8 +71,20 @@ public class StackFrame {
    * @param nTemp Number of temporaries
    */
   public StackFrame(List<Declaration> decls, int nTemp) {
-    int size = decls.size()+nTemp;
+    this(decls,slotTypes(decls,nTemp));
+  }
+
+  /**
+   * Create a stack frame, given a list of declarations and the types of all
+   * the slots (variables and temporaries).
+   * @param decls Variables declared in this stack frame
+   * @param types The type of each slot, as returned by {@link #slotType(Type)}
+   */
+  public StackFrame(List<Declaration> decls, Type[] types) {
+    int size = types.length;
     this.values = new Value[size];
+    this.ints = new int[size];
+    this.types = types;
     if (Trace.isEnabled(Item.ENV) || Trace.isEnabled(Item.ROOTS)) {
       this.names = new String[size];
       for (Declaration d : decls) {
@@ -77,20 +101,93 @@ public class StackFrame {
    * @param d The variable declaration
    */
   public void declare(Declaration d) {
-    values[d.getSlot()] = d.getInitial();
+    if (!isPrimitive(d.getSlot())) {
+      values[d.getSlot()] = d.getInitial();
+    }
     names[d.getSlot()] = d.getName();
   }
 
+  /**
+   * The type of stack frame slot used to hold a value of a given type.
+   * @param type The type of the value
+   * @return INT or BOOLEAN for values held unboxed, otherwise OBJECT
+   */
+  public static Type slotType(Type type) {
+    if (type == Type.INT || type == Type.BOOLEAN) {
+      return type;
+    }
+    return Type.OBJECT;
+  }
+
+  /**
+   * The slot types of a frame with the given variables and <code>nTemp</code>
+   * object temporaries.
+   * @param decls Variables declared in the stack frame
+   * @param nTemp Number of temporaries
+   * @return The slot types
+   */
+  private static Type[] slotTypes(List<Declaration> decls, int nTemp) {
+    Type[] types = new Type[decls.size()+nTemp];
+    Arrays.fill(types, Type.OBJECT);
+    for (Declaration d : decls) {
+      types[d.getSlot()] = slotType(d.getType());
+    }
+    return types;
+  }
+
+  /**
+   * @param slot A (non-constant) stack frame slot
+   * @return true if the slot holds an unboxed int or boolean
+   */
+  private boolean isPrimitive(int slot) {
+    return types[slot] != Type.OBJECT;
+  }
+
   /**
    * Return the variable at the given slot in the current stack frame
    * @param slot The stack frame slot
    * @return The value in the slot
    */
   public Value get(int slot) {
-    if (slot >= 0) {
-      return values[slot];
+    if (slot < 0) {
+      return ConstantPool.get(slot);
+    }
+    if (types[slot] == Type.INT) {
+      return IntValue.valueOf(ints[slot]);
+    } else if (types[slot] == Type.BOOLEAN) {
+      return BoolValue.valueOf(ints[slot] != 0);
+    }
+    return values[slot];
+  }
+
+  /**
+   * Return the int (or boolean, as 0/1) variable at the given slot, without boxing
+   * @param slot The stack frame slot
+   * @return The value in the slot
+   */
+  public int getInt(int slot) {
+    if (slot < 0) {
+      return ConstantPool.get(slot).getIntValue();
+    }
+    if (isPrimitive(slot)) {
+      return ints[slot];
     }
-    return ConstantPool.get(slot);
+    return values[slot].getIntValue();
+  }
+
+  /**
+   * Return the value at the given slot as a boolean, without boxing
+   * @param slot The stack frame slot
+   * @return The value in the slot
+   */
+  public boolean getBool(int slot) {
+    if (slot < 0) {
+      return ConstantPool.get(slot).getBoolValue();
+    }
+    if (isPrimitive(slot)) {
+      return ints[slot] != 0;
+    }
+    return values[slot].getBoolValue();
   }
 
   /**
@@ -99,7 +196,7 @@ public class StackFrame {
    * @return The type of the value in the slot
    */
   public Type getType(int slot) {
-    return values[slot].type();
+    return get(slot).type();
   }
 
   /**
@@ -112,7 +209,46 @@ public class StackFrame {
     if (Trace.isEnabled(Item.EVAL)) {
       Trace.printf(Item.EVAL, "%s %s = %s",value.type().toString(),getSlotName(slot),value.toString());
     }
-    values[slot] = value;
+    if (types[slot] == Type.INT) {
+      ints[slot] = value.getIntValue();
+    } else if (types[slot] == Type.BOOLEAN) {
+      ints[slot] = value.getBoolValue() ? 1 : 0;
+    } else {
+      values[slot] = value;
+    }
+  }
+
+  /**
+   * Assign a new int (or boolean, as 0/1) value to the given slot, without boxing
+   * @param slot Stack-frame slot to modify
+   * @param value New value
+   */
+  public void setInt(int slot, int value) {
+    if (Trace.isEnabled(Item.EVAL)) {
+      Trace.printf(Item.EVAL, "%s %s = %d",types[slot].toString(),getSlotName(slot),value);
+    }
+    if (isPrimitive(slot)) {
+      ints[slot] = value;
+    } else {
+      values[slot] = IntValue.valueOf(value);
+    }
+  }
+
+  /**
+   * Copy a value from a slot of another (or the same) stack frame, without boxing
+   * int and boolean values.
+   * @param slot Stack-frame slot to modify
+   * @param from The stack frame to copy from
+   * @param fromSlot The slot (or constant) to copy
+   */
+  public void copy(int slot, StackFrame from, int fromSlot) {
+    if (types[slot] == Type.INT) {
+      setInt(slot, from.getInt(fromSlot));
+    } else if (types[slot] == Type.BOOLEAN) {
+      setInt(slot, from.getBool(fromSlot) ? 1 : 0);
+    } else {
+      set(slot, from.get(fromSlot));
+    }
   }
 
   private String getSlotName(int slot) {
@@ -257,4 +393,14 @@ public class StackFrame {
     assert resultSlot != NO_SUCH_SLOT : "Attempt to return a value to a method call with no result slot";
     set(resultSlot,returnValue);
   }
+
+  /**
+   * Set the return value from a slot of the callee's stack frame
+   * @param callee The callee's stack frame
+   * @param slot The slot holding the return value
+   */
+  public void setResult(StackFrame callee, int slot) {
+    assert resultSlot != NO_SUCH_SLOT : "Attempt to return a value to a method call with no result slot";
+    copy(resultSlot,callee,slot);
+  }
 }
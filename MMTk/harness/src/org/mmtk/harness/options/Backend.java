@@ -0,0 +1,44 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.harness.options;
+
+import org.mmtk.harness.Harness;
+
+/**
+ * The execution engine for scripts: the pcode interpreter, or
+ * compilation to JVM bytecode.
+ */
+public final class Backend extends org.vmutil.options.EnumOption {
+  /**
+   * Create the option.
+   */
+  public Backend() {
+    super(Harness.options, "Backend",
+          "Script execution engine (pcode interpreter or JVM bytecode)",
+          new String[] {"PCODE","BYTECODE"},
+          System.getProperty("mmtk.harness.backend", "PCODE"));
+  }
+
+  /**
+   * Any of the enumerated values is valid.
+   */
+  protected void validate() {
+  }
+
+  /**
+   * @return true if scripts should be compiled to JVM bytecode
+   */
+  public boolean compileToBytecode() {
+    return values[getValue()].equals("BYTECODE");
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.harness.options;
+
+import org.mmtk.harness.Harness;
+
+/**
+ * The file that the REPLAYABLE scheduler records the thread interleaving
+ * to, or replays it from.
+ */
+public final class ScheduleLog extends org.vmutil.options.StringOption {
+  /**
+   * Create the option.
+   */
+  public ScheduleLog() {
+    super(Harness.options, "Schedule Log",
+          "File to record the thread schedule to (or replay it from)",
+          System.getProperty("mmtk.harness.schedule.log", "schedule.log"));
+  }
+}
@@ -0,0 +1,26 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.harness.options;
+
+import org.mmtk.harness.Harness;
+import org.vmutil.options.BooleanOption;
+
+public class ScheduleReplay extends BooleanOption {
+
+  public ScheduleReplay() {
+    super(Harness.options, "Schedule Replay",
+        "Replay the thread schedule recorded in the schedule log, rather than recording it",
+        Boolean.valueOf(System.getProperty("mmtk.harness.schedule.replay", "false")));
+  }
+
+}
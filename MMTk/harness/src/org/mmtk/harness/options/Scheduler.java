@@ -25,7 +25,7 @@ public final class Scheduler extends org.vmutil.options.EnumOption {
   public Scheduler() {
     super(Harness.options, "Scheduler",
           "MMTk Harness scheduler",
-          new String[] {"JAVA","DETERMINISTIC"},
+          new String[] {"JAVA","DETERMINISTIC","REPLAYABLE"},
           System.getProperty("mmtk.harness.scheduler", "JAVA"));
   }
 
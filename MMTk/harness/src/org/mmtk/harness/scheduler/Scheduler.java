@@ -32,7 +32,12 @@ public class Scheduler {
     /** Schedule using the Java thread scheduler */
     JAVA,
     /** Schedule in the harness using deterministic algorithms */
-    DETERMINISTIC;
+    DETERMINISTIC,
+    /**
+     * Schedule using the Java thread scheduler, recording the interleaving
+     * of scheduling events so that it can be replayed
+     */
+    REPLAYABLE;
 
     /** @return The values of this enum, converted to strings */
     public static String[] valueNames() {
@@ -74,6 +79,8 @@ public class Scheduler {
         return new JavaThreadModel();
       case DETERMINISTIC:
         return new RawThreadModel();
+      case REPLAYABLE:
+        return JavaThreadModel.replayable(Harness.scheduleLog.getValue(), Harness.scheduleReplay.getValue());
       default:
         throw new RuntimeException("Unknown thread model");
     }
@@ -129,6 +136,24 @@ public class Scheduler {
     model.yield();
   }
 
+  /**
+   * Wait until the current thread may perform a synchronization operation
+   * outside the scheduler, eg an atomic memory operation.  Must be followed
+   * by a call to {@link #syncEvent()} within the operation's critical section.
+   */
+  public static void awaitTurn() {
+    model.awaitTurn();
+  }
+
+  /**
+   * The current thread has performed a synchronization operation outside
+   * the scheduler.
+   * @see #awaitTurn()
+   */
+  public static void syncEvent() {
+    model.syncEvent();
+  }
+
   /**
    * Create and start a new Mutator thread
    * @param item The executable code to run in this thread
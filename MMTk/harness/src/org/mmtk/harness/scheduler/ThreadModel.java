@@ -48,6 +48,18 @@ public abstract class ThreadModel {
 
   protected abstract void yield();
 
+  /**
+   * Wait until the current thread may perform a synchronization operation.
+   * Only thread models that replay a recorded schedule ever wait.
+   */
+  protected void awaitTurn() { }
+
+  /**
+   * The current thread has performed a synchronization operation.  Called
+   * from within the critical section that performs the operation.
+   */
+  protected void syncEvent() { }
+
   protected abstract void scheduleMutator(Schedulable method);
 
   protected abstract void scheduleCollector();
@@ -17,21 +17,24 @@ import org.mmtk.harness.scheduler.Schedulable;
 
 final class CollectorContextThread extends CollectorThread {
   final Schedulable code;
-  private final JavaThreadModel model;
 
   CollectorContextThread(JavaThreadModel model, Schedulable code) {
-    super(false);
-    this.model = model;
+    super(model,false);
     this.code = code;
   }
 
   @Override
   public void run() {
-    init();
-    model.waitForGCStart();
-    code.execute(new Env());
-    model.removeCollector(this);
-    model.exitGC();
+    model.beginThread();
+    try {
+      init();
+      model.waitForGCStart();
+      code.execute(new Env());
+      model.removeCollector(this);
+      model.exitGC();
+    } finally {
+      model.endThread();
+    }
   }
 
 }
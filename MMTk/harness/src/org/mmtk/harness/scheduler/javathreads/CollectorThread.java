@@ -22,7 +22,10 @@ class CollectorThread extends JavaThread {
 
   private Collector collector = null;
 
-  protected CollectorThread(boolean daemon) {
+  protected final JavaThreadModel model;
+
+  protected CollectorThread(JavaThreadModel model, boolean daemon) {
+    this.model = model;
     setName("Collector-"+(++collectorId));
     setDaemon(daemon);
     setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
@@ -36,8 +39,8 @@ class CollectorThread extends JavaThread {
     });
   }
 
-  CollectorThread() {
-    this(true);
+  CollectorThread(JavaThreadModel model) {
+    this(model,true);
   }
 
   protected void init() {
@@ -49,8 +52,13 @@ class CollectorThread extends JavaThread {
 
   @Override
   public void run() {
-    init();
-    collector.run();
+    model.beginThread();
+    try {
+      init();
+      collector.run();
+    } finally {
+      model.endThread();
+    }
   }
 
   private void setCollector(Collector collector) {
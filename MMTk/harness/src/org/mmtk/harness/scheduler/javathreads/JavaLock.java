@@ -20,23 +20,35 @@ import org.vmmagic.pragma.Uninterruptible;
 @Uninterruptible
 public class JavaLock extends org.mmtk.harness.scheduler.Lock {
 
+  /** The order of lock acquisitions is a scheduling event */
+  private final ScheduleLog schedule;
+
   /** Create a new lock (with given name) */
   public JavaLock(String name) {
+    this(name,ScheduleLog.NONE);
+  }
+
+  JavaLock(String name, ScheduleLog schedule) {
     super(name);
+    this.schedule = schedule;
   }
 
   /**
-   * Try to acquire a lock and wait until acquired.
+   * Try to acquire a lock and wait until acquired.  Each attempt is a
+   * scheduling event.
    */
   @Override
   public void acquire() {
-    synchronized(this) {
-      while(holder != null) {
-        try {
-          this.wait();
-        } catch (InterruptedException ie) {}
+    while (true) {
+      schedule.awaitTurn();
+      synchronized(this) {
+        schedule.occurred();
+        if (holder == null) {
+          holder = Thread.currentThread();
+          return;
+        }
+        schedule.waitOn(this);
       }
-      holder = Thread.currentThread();
     }
   }
 
@@ -32,6 +32,33 @@ public final class JavaThreadModel extends ThreadModel {
     //Trace.enable(Item.SCHEDULER);
   }
 
+  /**
+   * Create a Java thread model
+   */
+  public JavaThreadModel() {
+    this(ScheduleLog.NONE);
+  }
+
+  private JavaThreadModel(ScheduleLog schedule) {
+    this.schedule = schedule;
+  }
+
+  /**
+   * Create a Java thread model that records the order of scheduling events
+   * to a file, or replays a previously recorded order from it.
+   * @param file The schedule log file
+   * @param replay Replay rather than record
+   * @return The new thread model
+   */
+  public static JavaThreadModel replayable(String file, boolean replay) {
+    return new JavaThreadModel(replay ? ScheduleLog.replay(file) : ScheduleLog.record(file));
+  }
+
+  /**
+   * The order of scheduling events, if recording or replaying
+   */
+  private final ScheduleLog schedule;
+
   /**
    * Collector threads scheduled through #scheduleCollector(Schedulable)
    */
@@ -50,7 +77,17 @@ public final class JavaThreadModel extends ThreadModel {
   @Override
   public void scheduleMutator(Schedulable code) {
     Trace.trace(Item.SCHEDULER, "Scheduling new mutator");
-    MutatorThread t = new MutatorThread(this,code);
+    MutatorThread t;
+    schedule.awaitTurn();
+    synchronized (mutatorThreads) {
+      /* Mutator names are allocated in schedule order */
+      t = new MutatorThread(this,code);
+      schedule.occurred();
+    }
+    if (schedule.isActive()) {
+      /* The script's random numbers must be reproducible too */
+      t.env.random().setSeed(t.getName().hashCode());
+    }
     mutatorThreads.add(t);
     t.start();
   }
@@ -61,7 +98,7 @@ public final class JavaThreadModel extends ThreadModel {
   @Override
   public void scheduleCollector() {
     Trace.trace(Item.SCHEDULER, "Scheduling new collector");
-    CollectorThread t = new CollectorThread();
+    CollectorThread t = new CollectorThread(this);
     collectorThreads.add(t);
     t.start();
   }
@@ -90,7 +127,11 @@ public final class JavaThreadModel extends ThreadModel {
 
   @Override
   public void yield() {
-    if (isRunning()) {
+    if (schedule.isActive()) {
+      /* The yield policy decides whether the turn passes to another thread */
+      schedule.awaitTurn();
+      schedule.occurred();
+    } else if (isRunning()) {
       if (currentMMTkThread().yieldPolicy()) {
         Thread.yield();
       }
@@ -121,7 +162,9 @@ public final class JavaThreadModel extends ThreadModel {
    * and increment the activeMutators.
    */
   void joinMutatorPool() {
+    schedule.awaitTurn();
     synchronized (count) {
+      schedule.occurred();
       if (!allWaitingForGC()) {
         incActiveMutators();
         return;
@@ -130,7 +173,9 @@ public final class JavaThreadModel extends ThreadModel {
       incActiveMutators();
     }
     waitForGC(false);
+    schedule.awaitTurn();
     synchronized (count) {
+      schedule.occurred();
       mutatorsWaitingForGC--;
     }
   }
@@ -155,7 +200,9 @@ public final class JavaThreadModel extends ThreadModel {
    */
   void leaveMutatorPool(MutatorThread m) {
     Trace.trace(Item.SCHEDULER, "%d Leaving mutator pool", Thread.currentThread().getId());
+    schedule.awaitTurn();
     synchronized (count) {
+      schedule.occurred();
       boolean lastToGC = (mutatorsWaitingForGC == (activeMutators - 1));
       if (!lastToGC) {
         decActiveMutators();
@@ -164,7 +211,9 @@ public final class JavaThreadModel extends ThreadModel {
       mutatorsWaitingForGC++;
     }
     waitForGC(true);
+    schedule.awaitTurn();
     synchronized (count) {
+        schedule.occurred();
         mutatorsWaitingForGC--;
         decActiveMutators();
     }
@@ -175,19 +224,30 @@ public final class JavaThreadModel extends ThreadModel {
   private final Object trigger = new Object();
 
   /**
-   * Wait for a GC to complete
+   * Wait for a GC to complete.
+   * <p>
+   * Each test of the GC state is a scheduling event, because whether a
+   * thread sees the state before or after another thread changes it
+   * decides what it does next.
    */
   private void waitForGC(boolean last) {
     Trace.trace(Item.SCHEDULER, "%d waitForGC in", Thread.currentThread().getId());
-    synchronized (trigger) {
-      if (last) {
+    if (last) {
+      schedule.awaitTurn();
+      synchronized (trigger) {
+        schedule.occurred();
         setState(GC);
         trigger.notifyAll();
       }
-      while (inGC > 0) {
-        try {
-          trigger.wait();
-        } catch (InterruptedException ie) {}
+    }
+    while (true) {
+      schedule.awaitTurn();
+      synchronized (trigger) {
+        schedule.occurred();
+        if (inGC == 0) {
+          break;
+        }
+        schedule.waitOn(trigger);
       }
     }
     Trace.trace(Item.SCHEDULER, "%d waitForGC out", Thread.currentThread().getId());
@@ -196,12 +256,16 @@ public final class JavaThreadModel extends ThreadModel {
   @Override
   public void waitForGC() {
     boolean allWaiting;
+    schedule.awaitTurn();
     synchronized (count) {
+      schedule.occurred();
       mutatorsWaitingForGC++;
       allWaiting = allWaitingForGC();
     }
     waitForGC(allWaiting);
+    schedule.awaitTurn();
     synchronized (count) {
+        schedule.occurred();
         mutatorsWaitingForGC--;
     }
   }
@@ -219,7 +283,9 @@ public final class JavaThreadModel extends ThreadModel {
    */
   @Override
   public void triggerGC(int why) {
+    schedule.awaitTurn();
     synchronized (trigger) {
+      schedule.occurred();
       triggerReason = why;
       inGC = collectorThreads.size();
       setState(BEGIN_GC);
@@ -232,7 +298,9 @@ public final class JavaThreadModel extends ThreadModel {
    */
   @Override
   public void exitGC() {
+    schedule.awaitTurn();
     synchronized (trigger) {
+      schedule.occurred();
       inGC--;
       if (inGC == 0) {
         setState(MUTATOR);
@@ -241,16 +309,23 @@ public final class JavaThreadModel extends ThreadModel {
     }
   }
 
+  /**
+   * Wait for a GC to start.  As in {@link #waitForGC(boolean)}, each test
+   * of the GC state is a scheduling event.
+   */
   @Override
   public void waitForGCStart() {
-    synchronized(trigger) {
-      while(inGC == 0 || !isState(GC)) {
-        try {
-          trigger.wait();
-        } catch (InterruptedException ie) {}
+    while (true) {
+      schedule.awaitTurn();
+      synchronized (trigger) {
+        schedule.occurred();
+        if (inGC > 0 && isState(GC)) {
+          break;
+        }
+        schedule.waitOn(trigger);
       }
-      Trace.trace(Item.SCHEDULER, "GC has started");
     }
+    Trace.trace(Item.SCHEDULER, "GC has started");
   }
 
   /** Object used for synchronizing mutatorsWaitingForGC and activeMutators */
@@ -270,16 +345,20 @@ public final class JavaThreadModel extends ThreadModel {
 
   @Override
   public int rendezvous(int where) {
-    return Rendezvous.rendezvous(Integer.toString(where),VM.activePlan.collectorCount());
+    return Rendezvous.rendezvous(Integer.toString(where),VM.activePlan.collectorCount(),schedule);
   }
 
   @Override
   public int mutatorRendezvous(String where, int expected) {
+    schedule.awaitTurn();
     synchronized (count) {
+      schedule.occurred();
       mutatorsWaitingForGC++;
     }
-    int ordinal = Rendezvous.rendezvous(where,expected);
+    int ordinal = Rendezvous.mutatorRendezvous(where,expected,schedule);
+    schedule.awaitTurn();
     synchronized (count) {
+      schedule.occurred();
       mutatorsWaitingForGC--;
     }
     return ordinal;
@@ -296,7 +375,7 @@ public final class JavaThreadModel extends ThreadModel {
 
   @Override
   public JavaLock newLock(String name) {
-    return new org.mmtk.harness.scheduler.javathreads.JavaLock(name);
+    return new org.mmtk.harness.scheduler.javathreads.JavaLock(name,schedule);
   }
 
   /**
@@ -347,11 +426,50 @@ public final class JavaThreadModel extends ThreadModel {
 
   @Override
   public boolean noThreadsInGC() {
-    return inGC == 0;
+    if (!schedule.isActive()) {
+      return inGC == 0;
+    }
+    schedule.awaitTurn();
+    synchronized (trigger) {
+      schedule.occurred();
+      return inGC == 0;
+    }
   }
 
   @Override
   public boolean gcTriggered() {
-    return inGC > 0;
+    if (!schedule.isActive()) {
+      return inGC > 0;
+    }
+    schedule.awaitTurn();
+    synchronized (trigger) {
+      schedule.occurred();
+      return inGC > 0;
+    }
+  }
+
+  /**
+   * A thread that takes turns in the schedule starts with an event
+   */
+  void beginThread() {
+    schedule.awaitTurn();
+    schedule.occurred();
+  }
+
+  /**
+   * A thread that takes turns in the schedule gives up its turn when it exits
+   */
+  void endThread() {
+    schedule.endTurn();
+  }
+
+  @Override
+  protected void awaitTurn() {
+    schedule.awaitTurn();
+  }
+
+  @Override
+  protected void syncEvent() {
+    schedule.occurred();
   }
 }
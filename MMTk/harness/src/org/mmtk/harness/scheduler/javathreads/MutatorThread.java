@@ -36,13 +36,18 @@ final class MutatorThread extends JavaThread {
 
   @Override
   public void run() {
-    Trace.trace(Item.SCHEDULER, "Env.begin()");
-    env.begin();
-    begin();
-    Trace.trace(Item.SCHEDULER, "Running mutator code");
-    code.execute(env);
-    env.end();
-    endMutator();
+    model.beginThread();
+    try {
+      Trace.trace(Item.SCHEDULER, "Env.begin()");
+      env.begin();
+      begin();
+      Trace.trace(Item.SCHEDULER, "Running mutator code");
+      code.execute(env);
+      env.end();
+      endMutator();
+    } finally {
+      model.endThread();
+    }
   }
 
   /**
@@ -15,7 +15,6 @@ package org.mmtk.harness.scheduler.javathreads;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.mmtk.vm.VM;
 
 /**
  * Rendezvous of all collector threads in the Java threading model.
@@ -90,19 +89,17 @@ final class Rendezvous {
    * (that is, the order this processor arrived at the barrier).
    * @param expected TODO
    */
-  private synchronized int rendezvous() {
+  private synchronized int rendezvous(ScheduleLog schedule) {
     int rank = ++currentRank;
+    schedule.occurred();
     if (currentRank == expected) {
       /* This is no longer the current barrier */
       clearCurrent(where);
       notifyAll();
     } else {
       while (currentRank != expected) {
-        try {
-          /* Wait for the remaining collectors to arrive */
-          wait();
-        } catch (InterruptedException ie) {
-        }
+        /* Wait for the remaining collectors to arrive */
+        schedule.waitOn(this);
       }
     }
     return rank;
@@ -111,18 +108,32 @@ final class Rendezvous {
   /**
    * Dispatch to the current collector rendezvous object
    * @param where
+   * @param expected The number of collector threads
+   * @param schedule The order of arrival is a scheduling event
    * @return
    */
-  static int rendezvous(String where) {
-    return current(where,VM.activePlan.collectorCount()).rendezvous();
+  static int rendezvous(String where, int expected, ScheduleLog schedule) {
+    schedule.awaitTurn();
+    int rank = current(where,expected).rendezvous(schedule);
+    /* Leaving the rendezvous is an event too: waiting threads gave up their turn */
+    schedule.awaitTurn();
+    schedule.occurred();
+    return rank;
   }
 
   /**
    * Dispatch to the named mutator rendezvous object
    * @param where
+   * @param expected The number of mutator threads
+   * @param schedule The order of arrival is a scheduling event
    * @return
    */
-  static int rendezvous(String where, int expected) {
-    return current("Barrier-"+where,expected).rendezvous();
+  static int mutatorRendezvous(String where, int expected, ScheduleLog schedule) {
+    schedule.awaitTurn();
+    int rank = current("Barrier-"+where,expected).rendezvous(schedule);
+    /* Leaving the rendezvous is an event too: waiting threads gave up their turn */
+    schedule.awaitTurn();
+    schedule.occurred();
+    return rank;
   }
 }
@@ -0,0 +1,359 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.harness.scheduler.javathreads;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.mmtk.harness.Main;
+
+/**
+ * The order in which threads pass through scheduling events in the Java
+ * threading model.  Events are the synchronization operations through which
+ * threads can affect each other's control flow: lock acquisitions, rendezvous,
+ * mutators joining, leaving and waiting for GC, triggering and testing for GC,
+ * mutator creation, atomic memory operations and yield points.
+ * <p>
+ * While a schedule is recorded or replayed, the threads take turns: only the
+ * thread whose turn it is runs, and the turn only passes to another thread at
+ * an event, or when the thread blocks or exits.  Every plain memory access
+ * therefore happens between the same two events in a replay as in the recorded
+ * run, so races through unsynchronized state (eg the generational plans'
+ * nursery size when deciding whether to collect, or a remembered slot that
+ * appears twice in the remset and is updated by one collector while another
+ * loads it) are replayed along with everything else.  The threads are real Java
+ * threads, but they do not run in parallel.
+ * <p>
+ * When recording, a thread keeps the turn at an event unless its yield policy
+ * says to yield and another thread is waiting for a turn, in which case it
+ * hands the turn to the thread that has waited longest.  Every event is
+ * appended to the log, in the order in which the events happen.  The log is
+ * written out when the harness exits, whether the script succeeded or not.
+ * <p>
+ * When replaying, each thread waits at each event until the log says that it is
+ * that thread's turn.  Once the log is exhausted, threads run freely (and in
+ * parallel).  A replay that stalls (because the script or options differ from
+ * the recorded run) is reported as a failure.
+ * <p>
+ * An event is a pair of calls: {@link #awaitTurn()} before the
+ * scheduling decision is made, and {@link #occurred()} immediately after,
+ * within whatever critical section makes the decision.  A thread that blocks
+ * must give up its turn by waiting through {@link #waitOn(Object)}, and must
+ * not call {@link #awaitTurn()} while it holds a monitor that the thread
+ * whose turn it is may need.  Threads are identified by name, which is
+ * deterministic given a deterministic schedule.
+ * <p>
+ * The log is held in memory in run-length-encoded form, one line per run of
+ * consecutive events by the same thread.
+ */
+final class ScheduleLog {
+
+  /** Don't record or replay */
+  static final ScheduleLog NONE = new ScheduleLog(Mode.NONE, null);
+
+  /** How long a replay may make no progress before it is considered to have diverged */
+  private static final long STALL_TIMEOUT_MS = 30000;
+
+  private enum Mode { NONE, RECORD, REPLAY }
+
+  private final Mode mode;
+
+  /** The schedule log file */
+  private final String file;
+
+  /** The thread executing each run of events */
+  private final List<String> threads = new ArrayList<String>();
+
+  /** The number of events in each run */
+  private final List<Integer> counts = new ArrayList<Integer>();
+
+  /** The thread whose turn it is, or null if no thread has the turn */
+  private Thread running = null;
+
+  /*
+   * Recording state
+   */
+  /** The thread that executed the most recent event */
+  private Thread lastThread = null;
+
+  /** The number of events in the current (last) run */
+  private int lastCount = 0;
+
+  /** Threads waiting for a turn, longest-waiting first */
+  private final LinkedList<Thread> ready = new LinkedList<Thread>();
+
+  /*
+   * Replay state
+   */
+  /** Index of the current run */
+  private int cursor = 0;
+
+  /** Events remaining in the current run */
+  private int remaining;
+
+  /** Total events replayed, for diagnostics */
+  private long replayed = 0;
+
+  private ScheduleLog(Mode mode, String file) {
+    this.mode = mode;
+    this.file = file;
+  }
+
+  /**
+   * Create a schedule log that records to the given file when the harness exits
+   * @param file The log file
+   * @return The new schedule log
+   */
+  static ScheduleLog record(String file) {
+    final ScheduleLog log = new ScheduleLog(Mode.RECORD, file);
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      @Override
+      public void run() {
+        log.write();
+      }
+    });
+    return log;
+  }
+
+  /**
+   * Create a schedule log that replays the schedule recorded in the given file
+   * @param file The log file
+   * @return The new schedule log
+   */
+  static ScheduleLog replay(String file) {
+    ScheduleLog log = new ScheduleLog(Mode.REPLAY, file);
+    log.read();
+    return log;
+  }
+
+  /**
+   * @return Whether the current thread takes turns in this schedule
+   */
+  private boolean takesTurns() {
+    return mode != Mode.NONE && Thread.currentThread() instanceof JavaThread;
+  }
+
+  /**
+   * Wait until it is the current thread's turn to execute the next event.
+   * Does nothing unless recording or replaying.
+   */
+  void awaitTurn() {
+    if (!takesTurns()) {
+      return;
+    }
+    Thread me = Thread.currentThread();
+    synchronized (this) {
+      if (mode == Mode.RECORD) {
+        recordTurn(me);
+      } else {
+        replayTurn(me);
+      }
+    }
+  }
+
+  /**
+   * Take the next turn when recording - MUST HOLD THIS OBJECT'S MONITOR
+   */
+  private void recordTurn(Thread me) {
+    if (running == me) {
+      if (ready.isEmpty() || !((JavaThread)me).yieldPolicy()) {
+        return;
+      }
+      running = ready.removeFirst();
+      notifyAll();
+    } else if (running == null) {
+      running = me;
+      return;
+    }
+    ready.addLast(me);
+    while (running != me) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+      }
+    }
+  }
+
+  /**
+   * Take the next turn when replaying - MUST HOLD THIS OBJECT'S MONITOR
+   */
+  private void replayTurn(Thread me) {
+    String name = me.getName();
+    long lastReplayed = replayed;
+    long deadline = System.currentTimeMillis() + STALL_TIMEOUT_MS;
+    while (cursor < threads.size() && !(threads.get(cursor).equals(name) && (running == null || running == me))) {
+      if (running == me) {
+        /* The next event is another thread's */
+        running = null;
+        notifyAll();
+      }
+      long now = System.currentTimeMillis();
+      if (replayed != lastReplayed) {
+        lastReplayed = replayed;
+        deadline = now + STALL_TIMEOUT_MS;
+      } else if (now >= deadline) {
+        System.err.printf("Schedule replay has stalled after %d events: %s is waiting, " +
+            "but the schedule expects %s%n", replayed, name, threads.get(cursor));
+        Main.exitWithFailure();
+      }
+      try {
+        wait(deadline - now);
+      } catch (InterruptedException e) {
+      }
+    }
+    if (cursor < threads.size()) {
+      running = me;
+    }
+  }
+
+  /**
+   * The current thread has executed an event
+   */
+  void occurred() {
+    if (!takesTurns()) {
+      return;
+    }
+    synchronized (this) {
+      if (mode == Mode.RECORD) {
+        recordEvent(Thread.currentThread());
+      } else {
+        replayEvent();
+      }
+    }
+  }
+
+  /**
+   * Give up the current thread's turn and wait on a monitor, which the
+   * caller must hold.  On return, the current thread does not have the turn
+   * (unless it is not taking turns), and must await it before its next event.
+   *
+   * @param monitor The monitor to wait on
+   */
+  void waitOn(Object monitor) {
+    endTurn();
+    try {
+      monitor.wait();
+    } catch (InterruptedException ie) {
+    }
+  }
+
+  /**
+   * Give up the current thread's turn, because it is about to block or exit.
+   */
+  void endTurn() {
+    if (!takesTurns()) {
+      return;
+    }
+    synchronized (this) {
+      if (running == Thread.currentThread()) {
+        running = mode == Mode.RECORD && !ready.isEmpty() ? ready.removeFirst() : null;
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * @return Whether the schedule is being recorded or replayed
+   */
+  boolean isActive() {
+    return mode != Mode.NONE;
+  }
+
+  /**
+   * Record an event for the given thread - MUST HOLD THIS OBJECT'S MONITOR
+   */
+  private void recordEvent(Thread thread) {
+    if (thread == lastThread) {
+      lastCount++;
+      return;
+    }
+    endRun();
+    lastThread = thread;
+    lastCount = 1;
+  }
+
+  /**
+   * Add the current run (if any) to the log - MUST HOLD THIS OBJECT'S MONITOR
+   */
+  private void endRun() {
+    if (lastThread != null) {
+      threads.add(lastThread.getName());
+      counts.add(lastCount);
+      lastThread = null;
+      lastCount = 0;
+    }
+  }
+
+  /**
+   * Consume an event, moving to the next run at the end of the current one.
+   * MUST HOLD THIS OBJECT'S MONITOR
+   */
+  private void replayEvent() {
+    if (cursor >= threads.size()) {
+      return;
+    }
+    replayed++;
+    if (--remaining == 0) {
+      cursor++;
+      if (cursor < threads.size()) {
+        remaining = counts.get(cursor);
+      } else {
+        System.err.printf("Schedule replay complete after %d events, continuing unscheduled%n", replayed);
+      }
+      notifyAll();
+    }
+  }
+
+  /**
+   * Write the log to the log file
+   */
+  private synchronized void write() {
+    endRun();
+    try {
+      PrintWriter out = new PrintWriter(new FileWriter(file));
+      for (int i = 0; i < threads.size(); i++) {
+        out.printf("%s %d%n", threads.get(i), counts.get(i));
+      }
+      out.close();
+      System.err.printf("Schedule recorded to %s%n", file);
+    } catch (IOException e) {
+      System.err.printf("Unable to write schedule log %s: %s%n", file, e.getMessage());
+    }
+  }
+
+  /**
+   * Read the log from the log file
+   */
+  private void read() {
+    try {
+      BufferedReader in = new BufferedReader(new FileReader(file));
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        int space = line.lastIndexOf(' ');
+        threads.add(line.substring(0, space));
+        counts.add(Integer.valueOf(line.substring(space + 1)));
+      }
+      in.close();
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to read schedule log " + file, e);
+    }
+    if (!threads.isEmpty()) {
+      remaining = counts.get(0);
+    }
+  }
+}
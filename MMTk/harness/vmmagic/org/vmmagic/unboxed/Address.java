@@ -903,7 +903,7 @@ public final class Address {
    * @return the old value to be passed to an attempt call.
    */
   public Word prepareWord() {
-    return loadWord();
+    return new Word(SimulatedMemory.synchronizedGetWord(this));
   }
 
   /**
@@ -914,7 +914,7 @@ public final class Address {
    * @return the old value to be passed to an attempt call.
    */
   public Word prepareWord(Offset offset) {
-    return loadWord(offset);
+    return this.plus(offset).prepareWord();
   }
 
   /**
@@ -924,7 +924,7 @@ public final class Address {
    * @return the old value to be passed to an attempt call.
    */
   public ObjectReference prepareObjectReference() {
-    return loadObjectReference();
+    return new ObjectReference(SimulatedMemory.synchronizedGetWord(this));
   }
 
   /**
@@ -935,7 +935,7 @@ public final class Address {
    * @return the old value to be passed to an attempt call.
    */
   public ObjectReference prepareObjectReference(Offset offset) {
-    return loadObjectReference(offset);
+    return this.plus(offset).prepareObjectReference();
   }
 
   /**
@@ -945,7 +945,7 @@ public final class Address {
    * @return the old value to be passed to an attempt call.
    */
   public Address prepareAddress() {
-    return loadAddress();
+    return new Address(SimulatedMemory.synchronizedGetWord(this));
   }
 
   /**
@@ -956,7 +956,7 @@ public final class Address {
    * @return the old value to be passed to an attempt call.
    */
   public Address prepareAddress(Offset offset) {
-    return loadAddress(offset);
+    return this.plus(offset).prepareAddress();
   }
 
   /**
@@ -966,7 +966,7 @@ public final class Address {
    * @return the old value to be passed to an attempt call.
    */
   public int prepareInt() {
-    return loadInt();
+    return SimulatedMemory.synchronizedGetInt(this);
   }
 
   /**
@@ -977,7 +977,7 @@ public final class Address {
    * @return the old value to be passed to an attempt call.
    */
   public int prepareInt(Offset offset) {
-    return loadInt(offset);
+    return this.plus(offset).prepareInt();
   }
 
   /**
@@ -987,7 +987,7 @@ public final class Address {
    * @return the old value to be passed to an attempt call.
    */
   public long prepareLong() {
-    return loadLong();
+    return SimulatedMemory.synchronizedGetLong(this);
   }
 
   /**
@@ -998,7 +998,7 @@ public final class Address {
    * @return the old value to be passed to an attempt call.
    */
   public long prepareLong(Offset offset) {
-    return loadLong(offset);
+    return this.plus(offset).prepareLong();
   }
 
   /**
@@ -278,7 +278,123 @@ public final class SimulatedMemory {
   }
 
   /**
-   * Atomic compare-and-swap operation
+   * Load the byte at an address, as a scheduling event made within the
+   * page's monitor (see #exchangeInt).  Loads that other threads'
+   * exchanges and synchronized stores can race with, such as the load that
+   * prepares an exchange, are events so that a thread spinning on one
+   * (eg waiting for another collector to finish forwarding an object) gives
+   * other threads a turn in a recorded schedule.
+   *
+   * @param address Address to load
+   * @return The byte at <code>address</code>
+   */
+  public static byte synchronizedGetByte(Address address) {
+    MemoryPage page = getPage(address);
+    Scheduler.awaitTurn();
+    synchronized (page) {
+      byte result = page.getByte(address);
+      Scheduler.syncEvent();
+      return result;
+    }
+  }
+
+  /**
+   * Load the int at an address, as a scheduling event
+   * @see #synchronizedGetByte(Address)
+   *
+   * @param address Address to load
+   * @return The int at <code>address</code>
+   */
+  public static int synchronizedGetInt(Address address) {
+    MemoryPage page = getPage(address);
+    Scheduler.awaitTurn();
+    synchronized (page) {
+      int result = page.getInt(address);
+      Scheduler.syncEvent();
+      return result;
+    }
+  }
+
+  /**
+   * Load the long at an address, as a scheduling event
+   * @see #synchronizedGetByte(Address)
+   *
+   * @param address Address to load
+   * @return The long at <code>address</code>
+   */
+  public static long synchronizedGetLong(Address address) {
+    MemoryPage page = getPage(address);
+    Scheduler.awaitTurn();
+    synchronized (page) {
+      long result = page.getLong(address);
+      Scheduler.syncEvent();
+      return result;
+    }
+  }
+
+  /**
+   * Load the word at an address, as a scheduling event
+   * @see #synchronizedGetByte(Address)
+   *
+   * @param address Address to load
+   * @return The ArchitecturalWord at <code>address</code>
+   */
+  public static ArchitecturalWord synchronizedGetWord(Address address) {
+    switch (ArchitecturalWord.getModel()) {
+      case BITS32:
+        return ArchitecturalWord.fromIntSignExtend(synchronizedGetInt(address));
+      case BITS64:
+        return ArchitecturalWord.fromLong(synchronizedGetLong(address));
+    }
+    throw new AssertionError("ArchitecturalWord.model is neither 32 or 64 bits");
+  }
+
+  /**
+   * Store a byte at an address, as a scheduling event made within the
+   * page's monitor (see #exchangeInt).  Used for stores that race with
+   * other threads' exchanges, such as the store that completes the
+   * forwarding of an object.
+   *
+   * @param address Address to store into
+   * @param value The new value
+   */
+  public static void synchronizedSetByte(Address address, byte value) {
+    MemoryPage page = getPage(address);
+    Scheduler.awaitTurn();
+    synchronized (page) {
+      page.setByte(address, value);
+      Scheduler.syncEvent();
+    }
+  }
+
+  /**
+   * Store a word at an address, as a scheduling event
+   * @see #synchronizedSetByte(Address, byte)
+   *
+   * @param address Address to store into
+   * @param value The new value
+   */
+  public static void synchronizedSetWord(Address address, Word value) {
+    MemoryPage page = getPage(address);
+    Scheduler.awaitTurn();
+    synchronized (page) {
+      switch (ArchitecturalWord.getModel()) {
+        case BITS32:
+          page.setInt(address, value.toInt());
+          break;
+        case BITS64:
+          page.setLong(address, value.toLong());
+          break;
+      }
+      Scheduler.syncEvent();
+    }
+  }
+
+  /**
+   * Atomic compare-and-swap operation.  The exchange is a scheduling event
+   * (see Scheduler#awaitTurn), made within the page's monitor so that
+   * recorded schedules capture the order in which competing exchanges
+   * succeed.
    *
    * @param address Address to swap
    * @param oldValue Expected value of (address)
@@ -286,7 +402,13 @@ public final class SimulatedMemory {
    * @return Whether the exchange succeeded
    */
   public static boolean exchangeInt(Address address, int oldValue, int value) {
-    return getPage(address).exchangeInt(address, oldValue, value);
+    MemoryPage page = getPage(address);
+    Scheduler.awaitTurn();
+    synchronized (page) {
+      boolean result = page.exchangeInt(address, oldValue, value);
+      Scheduler.syncEvent();
+      return result;
+    }
   }
 
   /**
@@ -298,7 +420,13 @@ public final class SimulatedMemory {
    * @return Whether the exchange succeeded
    */
   public static boolean exchangeLong(Address address, long oldValue, long value) {
-    return getPage(address).exchangeLong(address, oldValue, value);
+    MemoryPage page = getPage(address);
+    Scheduler.awaitTurn();
+    synchronized (page) {
+      boolean result = page.exchangeLong(address, oldValue, value);
+      Scheduler.syncEvent();
+      return result;
+    }
   }
 
   /**
@@ -312,9 +440,9 @@ public final class SimulatedMemory {
   public static boolean exchangeWord(Address address, ArchitecturalWord oldValue, ArchitecturalWord value) {
     switch (ArchitecturalWord.getModel()) {
       case BITS32:
-        return getPage(address).exchangeInt(address, oldValue.toInt(), value.toInt());
+        return exchangeInt(address, oldValue.toInt(), value.toInt());
       case BITS64:
-        return getPage(address).exchangeLong(address, oldValue.toLongSignExtend(), value.toLongSignExtend());
+        return exchangeLong(address, oldValue.toLongSignExtend(), value.toLongSignExtend());
     }
     throw new RuntimeException("ArchitecturalWord.model is neither 32 or 64 bits");
   }
@@ -120,6 +120,12 @@ public abstract class MutatorContext implements Constants {
   /** Per-mutator allocator into the small code space */
   protected final MarkSweepLocal smcode = Plan.USE_CODE_SPACE ? new MarkSweepLocal(Plan.smallCodeSpace) : null;
 
+  /**
+   * Per-mutator allocator of hot code into the small code space.  It has
+   * its own blocks, so hot code is kept together, away from cold code.
+   */
+  protected final MarkSweepLocal smhotcode = Plan.USE_CODE_SPACE ? new MarkSweepLocal(Plan.smallCodeSpace) : null;
+
   /** Per-mutator allocator into the large code space */
   protected final LargeObjectLocal lgcode = Plan.USE_CODE_SPACE ? new LargeObjectLocal(Plan.largeCodeSpace) : null;
 
@@ -165,7 +171,7 @@ public abstract class MutatorContext implements Constants {
       return (maxBytes > Plan.MAX_NON_LOS_DEFAULT_ALLOC_BYTES) ? Plan.ALLOC_LOS : allocator;
     }
 
-    if (Plan.USE_CODE_SPACE && allocator == Plan.ALLOC_CODE) {
+    if (Plan.USE_CODE_SPACE && (allocator == Plan.ALLOC_CODE || allocator == Plan.ALLOC_SMALL_HOT_CODE)) {
       return (maxBytes > Plan.MAX_NON_LOS_NONMOVING_ALLOC_BYTES) ? Plan.ALLOC_LARGE_CODE : allocator;
     }
 
@@ -196,6 +202,7 @@ public abstract class MutatorContext implements Constants {
     case      Plan.ALLOC_LOS: return los.alloc(bytes, align, offset);
     case      Plan.ALLOC_IMMORTAL: return immortal.alloc(bytes, align, offset);
     case      Plan.ALLOC_CODE: return smcode.alloc(bytes, align, offset);
+    case      Plan.ALLOC_SMALL_HOT_CODE: return smhotcode.alloc(bytes, align, offset);
     case      Plan.ALLOC_LARGE_CODE: return lgcode.alloc(bytes, align, offset);
     case      Plan.ALLOC_NON_MOVING: return nonmove.alloc(bytes, align, offset);
     default:
@@ -219,7 +226,8 @@ public abstract class MutatorContext implements Constants {
     switch (allocator) {
     case           Plan.ALLOC_LOS: Plan.loSpace.initializeHeader(ref, true); return;
     case      Plan.ALLOC_IMMORTAL: Plan.immortalSpace.initializeHeader(ref);  return;
-    case          Plan.ALLOC_CODE: Plan.smallCodeSpace.initializeHeader(ref, true); return;
+    case          Plan.ALLOC_CODE:
+    case Plan.ALLOC_SMALL_HOT_CODE: Plan.smallCodeSpace.initializeHeader(ref, true); return;
     case    Plan.ALLOC_LARGE_CODE: Plan.largeCodeSpace.initializeHeader(ref, true); return;
     case    Plan.ALLOC_NON_MOVING: Plan.nonMovingSpace.initializeHeader(ref, true); return;
     default:
@@ -234,7 +242,9 @@ public abstract class MutatorContext implements Constants {
 
   /**
    * Return the allocator instance associated with a space
-   * <code>space</code>, for this plan instance.
+   * <code>space</code>, for this plan instance.  The small code space
+   * has two allocators, <code>smcode</code> and <code>smhotcode</code>;
+   * this returns <code>smcode</code>.
    *
    * @param space The space for which the allocator instance is desired.
    * @return The allocator instance associated with this plan instance
@@ -260,6 +270,24 @@ public abstract class MutatorContext implements Constants {
     return null;
   }
 
+  /**
+   * Return the allocator instance, for this plan instance, with which to
+   * retry a request that <code>allocator</code> could not satisfy.  If
+   * <code>allocator</code> is this plan instance's hot code allocator, it
+   * is returned, so that the retry still places the code among the hot
+   * code.  Otherwise this is the allocator associated with
+   * <code>space</code>.
+   *
+   * @param allocator The allocator that made the original request.
+   * @param space The space into which <code>allocator</code> allocates.
+   * @return The allocator instance of this plan instance with which to
+   * retry the request.
+   */
+  public Allocator getAllocatorForRetry(Allocator allocator, Space space) {
+    if (Plan.USE_CODE_SPACE && allocator == smhotcode) return smhotcode;
+    return getAllocatorFromSpace(space);
+  }
+
   /****************************************************************************
    *
    * Write and read barriers. By default do nothing, override if
@@ -1222,6 +1250,7 @@ public abstract class MutatorContext implements Constants {
   public void flush() {
     flushRememberedSets();
     smcode.flush();
+    smhotcode.flush();
     nonmove.flush();
   }
 
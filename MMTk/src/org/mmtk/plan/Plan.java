@@ -87,10 +87,11 @@ public abstract class Plan implements Constants {
   public static final int ALLOC_GCSPY = 6;
   public static final int ALLOC_CODE = 7;
   public static final int ALLOC_LARGE_CODE = 8;
-  public static final int ALLOC_HOT_CODE = USE_CODE_SPACE ? ALLOC_CODE : ALLOC_DEFAULT;
+  public static final int ALLOC_SMALL_HOT_CODE = 9;
+  public static final int ALLOC_HOT_CODE = USE_CODE_SPACE ? ALLOC_SMALL_HOT_CODE : ALLOC_DEFAULT;
   public static final int ALLOC_COLD_CODE = USE_CODE_SPACE ? ALLOC_CODE : ALLOC_DEFAULT;
   public static final int ALLOC_STACK = ALLOC_LOS;
-  public static final int ALLOCATORS = 9;
+  public static final int ALLOCATORS = 10;
   public static final int DEFAULT_SITE = -1;
 
   /* Miscellaneous Constants */
@@ -175,6 +176,7 @@ public abstract class Plan implements Constants {
     Options.variableSizeHeap = new VariableSizeHeap();
     Options.eagerMmapSpaces = new EagerMmapSpaces();
     Options.sanityCheck = new SanityCheck();
+    Options.parallelSanityCheck = new ParallelSanityCheck();
     Options.debugAddress = new DebugAddress();
     Options.perfEvents = new PerfEvents();
     Map.finalizeStaticSpaceMap();
@@ -964,6 +966,31 @@ public abstract class Plan implements Constants {
     return false;
   }
 
+  /**
+   * Pin an object, so that the VM can hand its address to native code
+   * (eg for IO) without copying it.  If this returns true, the object
+   * will not move until it is unpinned.  If it returns false, the caller
+   * must copy the object's contents; plans that can't pin an object where
+   * it is may instead move it somewhere it will never move at the next
+   * collection, so that a later request succeeds.
+   *
+   * @param object The object in question
+   * @return True if the object will not move until it is unpinned.
+   */
+  public boolean pinObject(ObjectReference object) {
+    return willNeverMove(object);
+  }
+
+  /**
+   * Unpin an object pinned by a successful call to {@link #pinObject}.
+   * No plan currently releases pins (an object that has been pinned stays
+   * where it is), but callers must pair the two calls.
+   *
+   * @param object The object in question
+   */
+  public void unpinObject(ObjectReference object) {
+  }
+
   /****************************************************************************
    * Specialized Methods
    */
@@ -94,7 +94,8 @@ public abstract class Simple extends Plan implements Constants {
       Phase.scheduleCollector  (SANITY_ROOTS),
       Phase.scheduleGlobal     (SANITY_ROOTS),
       Phase.scheduleCollector  (SANITY_COPY_ROOTS),
-      Phase.scheduleGlobal     (SANITY_BUILD_TABLE));
+      Phase.scheduleGlobal     (SANITY_BUILD_TABLE),
+      Phase.scheduleCollector  (SANITY_BUILD_TABLE));
 
   /** Validate a sanity table */
   protected static final short sanityCheckPhase = Phase.createComplex("sanity-check", null,
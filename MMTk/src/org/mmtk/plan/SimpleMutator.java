@@ -58,6 +58,7 @@ public abstract class SimpleMutator extends MutatorContext {
       los.prepare(true);
       lgcode.prepare(true);
       smcode.prepare();
+      smhotcode.prepare();
       nonmove.prepare();
       VM.memory.collectorPrepareVMSpace();
       return;
@@ -67,6 +68,7 @@ public abstract class SimpleMutator extends MutatorContext {
       los.release(true);
       lgcode.release(true);
       smcode.release();
+      smhotcode.release();
       nonmove.release();
       VM.memory.collectorReleaseVMSpace();
       return;
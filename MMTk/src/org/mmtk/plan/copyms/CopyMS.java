@@ -193,6 +193,21 @@ public class CopyMS extends StopTheWorld {
     return space.isReachable(object) ? SanityChecker.ALIVE : SanityChecker.DEAD;
   }
 
+  /**
+   * @see org.mmtk.plan.Plan#pinObject
+   *
+   * @param object Object in question
+   * @return True if the object will not move until it is unpinned
+   */
+  @Override
+  public boolean pinObject(ObjectReference object) {
+    if (Space.isInSpace(NURSERY, object)) {
+      CopySpace.requestPin(object);
+      return false;
+    }
+    return super.pinObject(object);
+  }
+
   /**
    * Register specialized methods.
    */
@@ -46,6 +46,7 @@ public class CopyMSCollector extends StopTheWorldCollector {
   private CopyMSTraceLocal trace;
 
   protected final LargeObjectLocal los;
+  protected final MarkSweepLocal nonmove;
 
   /****************************************************************************
    *
@@ -57,6 +58,7 @@ public class CopyMSCollector extends StopTheWorldCollector {
    */
   public CopyMSCollector() {
     los = new LargeObjectLocal(Plan.loSpace);
+    nonmove = new MarkSweepLocal(Plan.nonMovingSpace);
     mature = new MarkSweepLocal(CopyMS.msSpace);
     trace = new CopyMSTraceLocal(global().trace);
  }
@@ -79,8 +81,16 @@ public class CopyMSCollector extends StopTheWorldCollector {
   @Inline
   public final Address allocCopy(ObjectReference original, int bytes,
       int align, int offset, int allocator) {
+    if (allocator == Plan.ALLOC_NON_MOVING) {
+      // a pinned object, evacuated from the nursery
+      return nonmove.alloc(bytes, align, offset);
+    }
     if (allocator == Plan.ALLOC_LOS) {
-      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Allocator.getMaximumAlignedSize(bytes, align) > Plan.MAX_NON_LOS_COPY_BYTES);
+      if (VM.VERIFY_ASSERTIONS) {
+        int maxBytes = Allocator.getMaximumAlignedSize(bytes, align);
+        // pinned objects are also evacuated to the LOS if they are too big for the non-moving space
+        VM.assertions._assert(maxBytes > Plan.MAX_NON_LOS_COPY_BYTES || maxBytes > Plan.MAX_NON_LOS_NONMOVING_ALLOC_BYTES);
+      }
       return los.alloc(bytes, align, offset);
     } else {
       if (VM.VERIFY_ASSERTIONS) {
@@ -103,6 +113,8 @@ public class CopyMSCollector extends StopTheWorldCollector {
       int bytes, int allocator) {
     if (allocator == Plan.ALLOC_LOS)
       Plan.loSpace.initializeHeader(object, false);
+    else if (allocator == Plan.ALLOC_NON_MOVING)
+      Plan.nonMovingSpace.postCopy(object, true);
     else
       CopyMS.msSpace.postCopy(object, true);
   }
@@ -123,6 +135,7 @@ public class CopyMSCollector extends StopTheWorldCollector {
     if (phaseId == CopyMS.PREPARE) {
       super.collectionPhase(phaseId, primary);
       mature.prepare();
+      nonmove.prepare();
       trace.prepare();
       return;
     }
@@ -134,6 +147,7 @@ public class CopyMSCollector extends StopTheWorldCollector {
 
     if (phaseId == CopyMS.RELEASE) {
       mature.release();
+      nonmove.release();
       trace.release();
       super.collectionPhase(phaseId, primary);
       return;
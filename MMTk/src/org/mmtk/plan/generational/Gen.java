@@ -431,6 +431,21 @@ public abstract class Gen extends StopTheWorld {
     return super.willNeverMove(object);
   }
 
+  /**
+   * @see org.mmtk.plan.Plan#pinObject
+   *
+   * @param object Object in question
+   * @return True if the object will not move until it is unpinned
+   */
+  @Override
+  public boolean pinObject(ObjectReference object) {
+    if (Space.isInSpace(NURSERY, object)) {
+      CopySpace.requestPin(object);
+      return false;
+    }
+    return super.pinObject(object);
+  }
+
   /**
    * Return the expected reference count. For non-reference counting
    * collectors this becomes a true/false relationship.
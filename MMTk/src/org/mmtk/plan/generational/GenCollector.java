@@ -14,6 +14,7 @@ package org.mmtk.plan.generational;
 
 import org.mmtk.plan.*;
 import org.mmtk.policy.LargeObjectLocal;
+import org.mmtk.policy.MarkSweepLocal;
 import org.mmtk.utility.deque.*;
 
 import org.mmtk.vm.VM;
@@ -44,6 +45,9 @@ import org.vmmagic.pragma.*;
 
   protected final LargeObjectLocal los;
 
+  /** Allocator for pinned objects, evacuated from the nursery or a copying mature space */
+  protected final MarkSweepLocal nonmove;
+
   // remembered set consumers
   protected final ObjectReferenceDeque modbuf;
   protected final AddressDeque remset;
@@ -64,6 +68,7 @@ import org.vmmagic.pragma.*;
    */
   public GenCollector() {
     los = new LargeObjectLocal(Plan.loSpace);
+    nonmove = new MarkSweepLocal(Plan.nonMovingSpace);
     arrayRemset = new AddressPairDeque(global().arrayRemsetPool);
     remset = new AddressDeque("remset", global().remsetPool);
     modbuf = new ObjectReferenceDeque("modbuf", global().modbufPool);
@@ -86,6 +91,7 @@ import org.vmmagic.pragma.*;
 
     if (phaseId == Gen.PREPARE) {
       los.prepare(true);
+      if (global().traceFullHeap()) nonmove.prepare();
       global().arrayRemsetPool.prepareNonBlocking();
       global().remsetPool.prepareNonBlocking();
       global().modbufPool.prepareNonBlocking();
@@ -113,6 +119,7 @@ import org.vmmagic.pragma.*;
 
     if (phaseId == Gen.RELEASE) {
       los.release(true);
+      if (global().traceFullHeap()) nonmove.release();
       if (!global().traceFullHeap()) {
         nurseryTrace.release();
         global().arrayRemsetPool.reset();
@@ -21,6 +21,7 @@ import org.mmtk.utility.heap.VMRequest;
 import org.mmtk.vm.VM;
 
 import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.ObjectReference;
 
 /**
  * This class implements the functionality of a standard
@@ -221,6 +222,21 @@ import org.vmmagic.pragma.*;
     return toSpace();
   }
 
+  /**
+   * @see org.mmtk.plan.Plan#pinObject
+   *
+   * @param object Object in question
+   * @return True if the object will not move until it is unpinned
+   */
+  @Override
+  public boolean pinObject(ObjectReference object) {
+    if (Space.isInSpace(MS0, object) || Space.isInSpace(MS1, object)) {
+      CopySpace.requestPin(object);
+      return false;
+    }
+    return super.pinObject(object);
+  }
+
   /**
    * Register specialized methods.
    */
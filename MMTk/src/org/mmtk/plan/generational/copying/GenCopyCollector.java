@@ -87,8 +87,16 @@ public class GenCopyCollector extends GenCollector {
   @Inline
   public Address allocCopy(ObjectReference original, int bytes,
       int align, int offset, int allocator) {
+    if (allocator == Plan.ALLOC_NON_MOVING) {
+      // a pinned object, evacuated from a copy space
+      return nonmove.alloc(bytes, align, offset);
+    }
     if (allocator == Plan.ALLOC_LOS) {
-      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Allocator.getMaximumAlignedSize(bytes, align) > Plan.MAX_NON_LOS_COPY_BYTES);
+      if (VM.VERIFY_ASSERTIONS) {
+        int maxBytes = Allocator.getMaximumAlignedSize(bytes, align);
+        // pinned objects are also evacuated to the LOS if they are too big for the non-moving space
+        VM.assertions._assert(maxBytes > Plan.MAX_NON_LOS_COPY_BYTES || maxBytes > Plan.MAX_NON_LOS_NONMOVING_ALLOC_BYTES);
+      }
       return los.alloc(bytes, align, offset);
     } else {
       if (VM.VERIFY_ASSERTIONS) {
@@ -115,6 +123,8 @@ public class GenCopyCollector extends GenCollector {
     ForwardingWord.clearForwardingBits(object);
     if (allocator == Plan.ALLOC_LOS)
       Plan.loSpace.initializeHeader(object, false);
+    else if (allocator == Plan.ALLOC_NON_MOVING)
+      Plan.nonMovingSpace.postCopy(object, global().traceFullHeap());
     else if (GenCopy.IGNORE_REMSETS)
       GenCopy.immortalSpace.traceObject(getCurrentTrace(), object); // FIXME this does not look right
     if (Gen.USE_OBJECT_BARRIER)
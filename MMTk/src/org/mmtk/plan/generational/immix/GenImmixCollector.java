@@ -82,8 +82,15 @@ public class GenImmixCollector extends GenCollector {
     if (Stats.GATHER_MARK_CONS_STATS) {
       if (Space.isInSpace(GenImmix.NURSERY, original)) GenImmix.nurseryMark.inc(bytes);
     }
-    if (allocator == Plan.ALLOC_LOS) {
-      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Allocator.getMaximumAlignedSize(bytes, align) > Plan.MAX_NON_LOS_COPY_BYTES);
+    if (allocator == Plan.ALLOC_NON_MOVING) {
+      // a pinned object, evacuated from the nursery
+      return nonmove.alloc(bytes, align, offset);
+    } else if (allocator == Plan.ALLOC_LOS) {
+      if (VM.VERIFY_ASSERTIONS) {
+        int maxBytes = Allocator.getMaximumAlignedSize(bytes, align);
+        // pinned objects are also evacuated to the LOS if they are too big for the non-moving space
+        VM.assertions._assert(maxBytes > Plan.MAX_NON_LOS_COPY_BYTES || maxBytes > Plan.MAX_NON_LOS_NONMOVING_ALLOC_BYTES);
+      }
       return los.alloc(bytes, align, offset);
     } else {
       if (VM.VERIFY_ASSERTIONS) {
@@ -112,6 +119,8 @@ public class GenImmixCollector extends GenCollector {
       int bytes, int allocator) {
     if (allocator == Plan.ALLOC_LOS)
       Plan.loSpace.initializeHeader(object, false);
+    else if (allocator == Plan.ALLOC_NON_MOVING)
+      Plan.nonMovingSpace.postCopy(object, global().traceFullHeap());
     else {
       if (VM.VERIFY_ASSERTIONS) {
         VM.assertions._assert((!GenImmix.immixSpace.inImmixCollection() && allocator == GenImmix.ALLOC_MATURE_MINORGC) ||
@@ -77,6 +77,7 @@ public class RCBaseMutator extends StopTheWorldMutator {
       case RCBase.ALLOC_DEFAULT:
       case RCBase.ALLOC_NON_MOVING:
       case RCBase.ALLOC_CODE:
+      case RCBase.ALLOC_SMALL_HOT_CODE:
         return rc.alloc(bytes, align, offset);
       case RCBase.ALLOC_LOS:
       case RCBase.ALLOC_PRIMITIVE_LOS:
@@ -106,6 +107,7 @@ public class RCBaseMutator extends StopTheWorldMutator {
     case RCBase.ALLOC_NON_MOVING:
       modBuffer.push(ref);
     case RCBase.ALLOC_CODE:
+    case RCBase.ALLOC_SMALL_HOT_CODE:
       decBuffer.push(ref);
       RCHeader.initializeHeader(ref, true);
       ExplicitFreeListSpace.unsyncSetLiveBit(ref);
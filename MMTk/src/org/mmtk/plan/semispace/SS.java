@@ -195,6 +195,21 @@ public class SS extends StopTheWorld {
     return super.willNeverMove(object);
   }
 
+  /**
+   * @see org.mmtk.plan.Plan#pinObject
+   *
+   * @param object Object in question
+   * @return True if the object will not move until it is unpinned
+   */
+  @Override
+  public boolean pinObject(ObjectReference object) {
+    if (Space.isInSpace(SS0, object) || Space.isInSpace(SS1, object)) {
+      CopySpace.requestPin(object);
+      return false;
+    }
+    return super.pinObject(object);
+  }
+
   /**
    * Register specialized methods.
    */
@@ -15,8 +15,10 @@ package org.mmtk.plan.semispace;
 import org.mmtk.plan.*;
 import org.mmtk.policy.CopyLocal;
 import org.mmtk.policy.LargeObjectLocal;
+import org.mmtk.policy.MarkSweepLocal;
 import org.mmtk.policy.Space;
 import org.mmtk.utility.ForwardingWord;
+import org.mmtk.utility.alloc.Allocator;
 import org.mmtk.vm.VM;
 
 import org.vmmagic.unboxed.*;
@@ -48,6 +50,7 @@ public class SSCollector extends StopTheWorldCollector {
   protected final SSTraceLocal trace;
   protected final CopyLocal ss;
   protected final LargeObjectLocal los;
+  protected final MarkSweepLocal nonmove;
 
   /****************************************************************************
    *
@@ -68,6 +71,7 @@ public class SSCollector extends StopTheWorldCollector {
   protected SSCollector(SSTraceLocal tr) {
     ss = new CopyLocal();
     los = new LargeObjectLocal(Plan.loSpace);
+    nonmove = new MarkSweepLocal(Plan.nonMovingSpace);
     trace = tr;
   }
 
@@ -89,8 +93,16 @@ public class SSCollector extends StopTheWorldCollector {
   @Inline
   public Address allocCopy(ObjectReference original, int bytes,
       int align, int offset, int allocator) {
+    if (allocator == Plan.ALLOC_NON_MOVING) {
+      // a pinned object, evacuated from a copy space
+      return nonmove.alloc(bytes, align, offset);
+    }
     if (allocator == Plan.ALLOC_LOS) {
-      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(bytes > Plan.MAX_NON_LOS_COPY_BYTES);
+      if (VM.VERIFY_ASSERTIONS) {
+        int maxBytes = Allocator.getMaximumAlignedSize(bytes, align);
+        // pinned objects are also evacuated to the LOS if they are too big for the non-moving space
+        VM.assertions._assert(maxBytes > Plan.MAX_NON_LOS_COPY_BYTES || maxBytes > Plan.MAX_NON_LOS_NONMOVING_ALLOC_BYTES);
+      }
       return los.alloc(bytes, align, offset);
     } else {
       if (VM.VERIFY_ASSERTIONS) {
@@ -114,6 +126,8 @@ public class SSCollector extends StopTheWorldCollector {
     ForwardingWord.clearForwardingBits(object);
     if (allocator == Plan.ALLOC_LOS)
       Plan.loSpace.initializeHeader(object, false);
+    else if (allocator == Plan.ALLOC_NON_MOVING)
+      Plan.nonMovingSpace.postCopy(object, true);
   }
 
   /****************************************************************************
@@ -133,6 +147,7 @@ public class SSCollector extends StopTheWorldCollector {
       // rebind the copy bump pointer to the appropriate semispace.
       ss.rebind(SS.toSpace());
       los.prepare(true);
+      nonmove.prepare();
       super.collectionPhase(phaseId, primary);
       return;
     }
@@ -145,6 +160,7 @@ public class SSCollector extends StopTheWorldCollector {
     if (phaseId == SS.RELEASE) {
       trace.release();
       los.release(true);
+      nonmove.release();
       super.collectionPhase(phaseId, primary);
       return;
     }
@@ -13,6 +13,7 @@
 package org.mmtk.plan.semispace.gctrace;
 
 import org.mmtk.plan.semispace.SSConstraints;
+import org.mmtk.policy.CopySpace;
 
 import org.vmmagic.pragma.*;
 
@@ -25,4 +26,7 @@ public class GCTraceConstraints extends SSConstraints {
   public boolean needsObjectReferenceWriteBarrier() { return true; }
   @Override
   public boolean generateGCTrace() { return true; }
+  /** Hash codes are kept in the header when tracing, leaving no bit for pin requests */
+  @Override
+  public int gcHeaderBits() { return CopySpace.LOCAL_GC_BITS_REQUIRED_WITHOUT_PINNING; }
 }
@@ -12,7 +12,9 @@
  */
 package org.mmtk.policy;
 
+import org.mmtk.plan.Plan;
 import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.utility.alloc.Allocator;
 import org.mmtk.utility.heap.*;
 import org.mmtk.utility.options.Options;
 import org.mmtk.utility.Constants;
@@ -36,12 +38,30 @@ import org.vmmagic.pragma.*;
    *
    * Class variables
    */
-  public static final int LOCAL_GC_BITS_REQUIRED = 2;
+  public static final int LOCAL_GC_BITS_REQUIRED = 3;
+  /**
+   * The bits required by a plan that never asks for objects in this space
+   * to be pinned.  A plan whose header can't spare a bit for pin requests
+   * (GCTrace, which keeps hash codes in the header) declares this many, and
+   * pin requests are then ignored.
+   */
+  public static final int LOCAL_GC_BITS_REQUIRED_WITHOUT_PINNING = ForwardingWord.FORWARDING_BITS;
   public static final int GLOBAL_GC_BITS_REQUIRED = 0;
   public static final int GC_HEADER_WORDS_REQUIRED = 0;
 
   private static final int META_DATA_PAGES_PER_REGION = CARD_META_PAGES_PER_REGION;
 
+  /**
+   * Set in the header of an object that has been asked to be pinned.
+   * A copy space releases its pages en masse, so it cannot leave an object
+   * in place; instead the next trace evacuates such an object to a space
+   * whose objects never move.
+   */
+  private static final byte PIN_REQUEST_BIT = 1<<ForwardingWord.FORWARDING_BITS;
+
+  /** Does the plan leave us a header bit for pin requests? */
+  private static final boolean PINNING = VM.activePlan.constraints().gcHeaderBits() >= LOCAL_GC_BITS_REQUIRED;
+
 
   /****************************************************************************
    *
@@ -181,6 +201,9 @@ import org.vmmagic.pragma.*;
       return ForwardingWord.extractForwardingPointer(forwardingWord);
     } else {
       /* We are the designated copier, so forward it and enqueue it */
+      if (PINNING && (forwardingWord.toInt() & PIN_REQUEST_BIT) != 0) {
+        allocator = evacuatePinned(object);
+      }
       ObjectReference newObject = VM.objectModel.copy(object, allocator);
       ForwardingWord.setForwardingPointer(object, newObject);
       trace.processNode(newObject); // Scan it later
@@ -196,6 +219,49 @@ import org.vmmagic.pragma.*;
     }
   }
 
+  /****************************************************************************
+   *
+   * Pinning
+   */
+
+  /**
+   * Ask that an object in this space be pinned.  The object can't be pinned
+   * where it is, so it is marked to be evacuated to a non-moving space by the
+   * next trace, after which it will never move.  Other bits in the same
+   * header word may be changed concurrently (eg by locking), so the bit is
+   * set atomically.
+   *
+   * @param object The object to be pinned
+   */
+  @Inline
+  public static void requestPin(ObjectReference object) {
+    if (!PINNING) return;
+    Word oldValue;
+    do {
+      oldValue = VM.objectModel.prepareAvailableBits(object);
+      if ((oldValue.toInt() & PIN_REQUEST_BIT) != 0)
+        return;
+    } while (!VM.objectModel.attemptAvailableBits(object, oldValue,
+                                                  oldValue.or(Word.fromIntZeroExtend(PIN_REQUEST_BIT))));
+  }
+
+  /**
+   * Clear the pin request of an object that we are about to copy, and
+   * choose the allocator that will put it in a space whose objects never
+   * move: the large object space if it is too big for the non-moving space.
+   *
+   * @param object An object with its pin request bit set, which we have
+   * the right to copy
+   * @return The allocator to copy the object with
+   */
+  private static int evacuatePinned(ObjectReference object) {
+    byte old = VM.objectModel.readAvailableByte(object);
+    VM.objectModel.writeAvailableByte(object, (byte) (old & ~PIN_REQUEST_BIT));
+    int bytes = Allocator.getMaximumAlignedSize(VM.objectModel.getSizeWhenCopied(object),
+        VM.objectModel.getAlignWhenCopied(object));
+    return bytes > Plan.MAX_NON_LOS_NONMOVING_ALLOC_BYTES ? Plan.ALLOC_LOS : Plan.ALLOC_NON_MOVING;
+  }
+
   /**
    * Return true if this object is live in this GC
    *
@@ -69,11 +69,11 @@ import org.vmmagic.unboxed.*;
   }
 
   /**
-   * Create a (zeroed) table.
+   * Create a (zeroed) table.  The page resource zeroes the pages it
+   * allocates, so there is no need to zero them again here.
    */
   public final void acquireTable() {
     base = space.acquire(Conversions.bytesToPages(size));
-    VM.memory.zero(base, size);
     valid = true;
   }
 
@@ -128,6 +128,44 @@ import org.vmmagic.unboxed.*;
     return entry;
   }
 
+  /**
+   * Retrieve a pointer to the entry for the given object, or zero if one
+   * does not exist, unless create is passed.  Unlike
+   * {@link #getEntry(Word, boolean)} this may be called by many threads at
+   * once: entries are claimed by atomically installing their key, so all
+   * threads looking up the same key find the same entry.<p>
+   *
+   * If create is true, the return is guaranteed to be non-null.
+   *
+   * @param key The key used to lookup.
+   * @param create Create a new entry if not found.
+   * @return A pointer to the reference or null.
+   */
+  @Inline
+  public final Address getEntryAtomic(Word key, boolean create) {
+    int index = computeHash(key);
+    int probes = 0;
+    while (probes <= mask.toInt()) {
+      Address entry = getEntry(index);
+      Word curAddress = entry.prepareWord(KEY_OFFSET);
+      if (curAddress.EQ(key)) {
+        return entry;
+      }
+      if (curAddress.isZero()) {
+        if (!create) return Address.zero();
+        if (entry.attempt(curAddress, key, KEY_OFFSET)) {
+          return entry;
+        }
+        /* Another thread claimed this entry first, so look at it again */
+      } else {
+        index = (index + 1) & mask.toInt();
+        probes++;
+      }
+    }
+    VM.assertions.fail("No room left in table!");
+    return Address.zero();
+  }
+
   /**
    * Compute the hashtable index for a given object.
    *
@@ -244,7 +244,7 @@ import org.vmmagic.pragma.*;
          * current thread and the mutator context. This is possible for
          * VMs that dynamically multiplex Java threads onto multiple mutator
          * contexts, */
-        current = VM.activePlan.mutator().getAllocatorFromSpace(space);
+        current = VM.activePlan.mutator().getAllocatorForRetry(current, space);
       }
     }
     Log.write("GC Error: Allocator.allocSlow failed on request of ");
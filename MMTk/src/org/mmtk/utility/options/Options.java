@@ -53,6 +53,7 @@ public final class Options {
   public static NoFinalizer noFinalizer;
   public static NoReferenceTypes noReferenceTypes;
   public static NurserySize nurserySize;
+  public static ParallelSanityCheck parallelSanityCheck;
   public static PerfEvents perfEvents;
   public static PrintPhaseStats printPhaseStats;
   public static ProtectOnRelease protectOnRelease;
@@ -15,11 +15,12 @@ package org.mmtk.utility.sanitychecker;
 import org.mmtk.plan.Plan;
 import org.mmtk.plan.Trace;
 import org.mmtk.plan.Simple;
-import org.mmtk.plan.TraceLocal;
 import org.mmtk.policy.Space;
 import org.mmtk.utility.Constants;
 import org.mmtk.utility.Log;
+import org.mmtk.utility.options.Options;
 
+import org.mmtk.vm.Lock;
 import org.mmtk.vm.VM;
 
 import org.vmmagic.pragma.*;
@@ -50,9 +51,12 @@ public final class SanityChecker implements Constants {
   private final SanityDataTable sanityTable;
   private boolean preGCSanity;
 
-  /* Local, but we only run the check trace single-threaded. */
+  /* Local, used when the check trace is run single-threaded. */
   final SanityTraceLocal checkTraceLocal;
 
+  /* Protects the counters when the check trace is run in parallel */
+  private final Lock countLock = VM.newLock("SanityChecker.counts");
+
   /* Linear scanning */
   private final SanityLinearScan scanner = new SanityLinearScan(this);
 
@@ -104,8 +108,12 @@ public final class SanityChecker implements Constants {
       rootTrace.prepareNonBlocking();
 
       // Checking trace
-      checkTrace.prepareNonBlocking();
-      checkTraceLocal.prepare();
+      if (isParallel()) {
+        checkTrace.prepare();
+      } else {
+        checkTrace.prepareNonBlocking();
+        checkTraceLocal.prepare();
+      }
       return true;
     }
 
@@ -115,8 +123,11 @@ public final class SanityChecker implements Constants {
     }
 
     if (phaseId == Simple.SANITY_BUILD_TABLE) {
-      // Trace, checking for dangling pointers
-      checkTraceLocal.completeTrace();
+      if (!isParallel()) {
+        // Trace, checking for dangling pointers
+        checkTraceLocal.completeTrace();
+        addCounts(checkTraceLocal);
+      }
       return true;
     }
 
@@ -166,7 +177,9 @@ public final class SanityChecker implements Constants {
     if (phaseId == Simple.SANITY_RELEASE) {
       checkTrace.release();
       sanityTable.releaseTable();
-      checkTraceLocal.release();
+      if (!isParallel()) {
+        checkTraceLocal.release();
+      }
 
       Log.writeln("roots\tobjects\trefs\tnull");
       Log.write(rootReferenceCount);Log.write("\t");
@@ -183,6 +196,33 @@ public final class SanityChecker implements Constants {
     return false;
   }
 
+  /**
+   * @return True if all collector threads take part in the checking trace,
+   * each with its own SanityTraceLocal.
+   */
+  @Inline
+  static boolean isParallel() {
+    return Options.parallelSanityCheck.getValue();
+  }
+
+  /**
+   * Add the counters of a completed checking trace to the global counters.
+   *
+   * @param trace The completed trace
+   */
+  void addCounts(SanityTraceLocal trace) {
+    countLock.acquire();
+    referenceCount += trace.referenceCount;
+    rootReferenceCount += trace.rootReferenceCount;
+    nullReferenceCount += trace.nullReferenceCount;
+    liveObjectCount += trace.liveObjectCount;
+    countLock.release();
+    trace.referenceCount = 0;
+    trace.rootReferenceCount = 0;
+    trace.nullReferenceCount = 0;
+    trace.liveObjectCount = 0;
+  }
+
   /**
    * Process an object during a linear scan of the heap. We have already checked
    * all objects in the table. So we are only interested in objects that are not in
@@ -213,15 +253,16 @@ public final class SanityChecker implements Constants {
    * incrementing counters and enqueuing if this is the first
    * visit to the object.
    *
+   * @param trace The checking trace.
    * @param object The object to mark.
    * @param root True If the object is a root.
    */
-  public void processObject(TraceLocal trace, ObjectReference object, boolean root) {
-    SanityChecker.referenceCount++;
-    if (root) SanityChecker.rootReferenceCount++;
+  public void processObject(SanityTraceLocal trace, ObjectReference object, boolean root) {
+    trace.referenceCount++;
+    if (root) trace.rootReferenceCount++;
 
     if (object.isNull()) {
-      SanityChecker.nullReferenceCount++;
+      trace.nullReferenceCount++;
       return;
     }
 
@@ -230,10 +271,15 @@ public final class SanityChecker implements Constants {
     }
 
     // Get the table entry.
-    Address tableEntry = sanityTable.getEntry(object, true);
+    boolean first;
+    if (isParallel()) {
+      first = SanityDataTable.incRCAtomic(sanityTable.getEntryAtomic(object, true), root);
+    } else {
+      first = SanityDataTable.incRC(sanityTable.getEntry(object, true), root);
+    }
 
-    if (SanityDataTable.incRC(tableEntry, root)) {
-      SanityChecker.liveObjectCount++;
+    if (first) {
+      trace.liveObjectCount++;
       trace.processNode(object);
     }
   }
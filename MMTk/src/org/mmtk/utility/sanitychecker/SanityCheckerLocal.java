@@ -29,11 +29,15 @@ public final class SanityCheckerLocal implements Constants {
   /* Trace */
   final SanityRootTraceLocal rootTraceLocal;
 
+  /* This thread's part of the checking trace, if it is run in parallel */
+  final SanityTraceLocal checkTraceLocal;
+
   /****************************************************************************
    * Constants
    */
   public SanityCheckerLocal() {
     rootTraceLocal = new SanityRootTraceLocal(Plan.sanityChecker.rootTrace);
+    checkTraceLocal = new SanityTraceLocal(Plan.sanityChecker.checkTrace, Plan.sanityChecker);
   }
 
   /**
@@ -47,6 +51,9 @@ public final class SanityCheckerLocal implements Constants {
   public boolean collectionPhase(int phaseId, boolean primary) {
     if (phaseId == Simple.SANITY_PREPARE) {
       rootTraceLocal.prepare();
+      if (SanityChecker.isParallel()) {
+        checkTraceLocal.prepare();
+      }
       return true;
     }
 
@@ -62,14 +69,28 @@ public final class SanityCheckerLocal implements Constants {
     }
 
     if (phaseId == Simple.SANITY_COPY_ROOTS) {
-      if (primary) {
+      if (SanityChecker.isParallel()) {
+        rootTraceLocal.copyRootValuesTo(checkTraceLocal);
+      } else if (primary) {
         rootTraceLocal.copyRootValuesTo(Plan.sanityChecker.checkTraceLocal);
       }
       return true;
     }
 
+    if (phaseId == Simple.SANITY_BUILD_TABLE) {
+      if (SanityChecker.isParallel()) {
+        // Trace, checking for dangling pointers
+        checkTraceLocal.completeTrace();
+        Plan.sanityChecker.addCounts(checkTraceLocal);
+      }
+      return true;
+    }
+
     if (phaseId == Simple.SANITY_RELEASE) {
       rootTraceLocal.release();
+      if (SanityChecker.isParallel()) {
+        checkTraceLocal.release();
+      }
       return true;
     }
 
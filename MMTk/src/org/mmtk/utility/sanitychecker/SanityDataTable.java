@@ -25,7 +25,8 @@ import org.vmmagic.unboxed.*;
  * This class implements a simple hashtable to store and retrieve per
  * object information for sanity checking. <p>
  *
- * This class is not thread safe.
+ * This class is not thread safe, except for {@link #getEntryAtomic} and
+ * {@link #incRCAtomic}, which the parallel sanity checking trace uses.
  */
 @Uninterruptible
 public final class SanityDataTable extends SimpleHashtable implements Constants {
@@ -70,6 +71,23 @@ public final class SanityDataTable extends SimpleHashtable implements Constants
     return (old == 0);
   }
 
+  /**
+   * Atomically increment the data word for an object.
+   *
+   * @param entry The table entry.
+   * @param root True if this is a root reference.
+   * @return True if this is the first ref to that object.
+   */
+  @Inline
+  public static boolean incRCAtomic(Address entry, boolean root) {
+    Address data = SimpleHashtable.getPayloadAddress(entry);
+    int old;
+    do {
+      old = data.prepareInt();
+    } while (!data.attempt(old, old + (root ? ROOT_RC_INC : NORMAL_RC_INC)));
+    return (old == 0);
+  }
+
   /**
    * Push any entries that are only in this table, and not the
    * passed table. This does not compare values.
@@ -158,4 +176,15 @@ public final class SanityDataTable extends SimpleHashtable implements Constants
   public Address getEntry(ObjectReference object, boolean create) {
     return super.getEntry(object.toAddress().toWord(), create);
   }
+
+  /**
+   * Get an entry for an object, safe against concurrent callers.
+   *
+   * @param object The object to find an entry for.
+   * @param create Create an entry if none exists?
+   * @return The entry address.
+   */
+  public Address getEntryAtomic(ObjectReference object, boolean create) {
+    return super.getEntryAtomic(object.toAddress().toWord(), create);
+  }
 }
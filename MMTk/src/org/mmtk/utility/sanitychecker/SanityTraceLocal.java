@@ -26,6 +26,12 @@ public final class SanityTraceLocal extends TraceLocal {
 
   private final SanityChecker sanityChecker;
 
+  /* Counters for this trace, added to the global counters when it completes */
+  long referenceCount;
+  long rootReferenceCount;
+  long nullReferenceCount;
+  long liveObjectCount;
+
   /**
    * Constructor
    */
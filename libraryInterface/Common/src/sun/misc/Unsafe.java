@@ -17,9 +17,16 @@ import java.lang.reflect.Field;
 import org.jikesrvm.classloader.RVMField;
 import org.jikesrvm.classloader.RVMType;
 import org.jikesrvm.runtime.Magic;
+import org.jikesrvm.runtime.Memory;
 import org.jikesrvm.scheduler.Synchronization;
 import org.jikesrvm.scheduler.RVMThread;
+import org.vmmagic.pragma.Inline;
+import org.vmmagic.unboxed.Address;
 import org.vmmagic.unboxed.Offset;
+import org.vmmagic.unboxed.Word;
+
+import static org.jikesrvm.architecture.SizeConstants.BYTES_IN_ADDRESS;
+import static org.jikesrvm.runtime.SysCall.sysCall;
 
 import static org.jikesrvm.mm.mminterface.Barriers.*;
 
@@ -182,6 +189,180 @@ public final class Unsafe {
     }
   }
 
+  /*
+   * Off-heap memory.  Addresses are raw native addresses, as returned by
+   * allocateMemory.  The accessors are small enough to be inlined, after
+   * which the opt compiler reduces the Address magic to a single load or
+   * store, so they cost no more than a field access.
+   */
+
+  @Inline
+  private Address longToAddress(long address) {
+    return Word.fromLong(address).toAddress();
+  }
+
+  public int addressSize() {
+    return BYTES_IN_ADDRESS;
+  }
+
+  public int pageSize() {
+    return Memory.getPagesize();
+  }
+
+  public long allocateMemory(long bytes) {
+    checkSize(bytes);
+    if (bytes == 0) {
+      return 0;
+    }
+    Address result = sysCall.sysTryMalloc((int)bytes);
+    if (result.isZero()) {
+      throw outOfMemory(bytes);
+    }
+    return result.toLong();
+  }
+
+  public long reallocateMemory(long address, long bytes) {
+    checkSize(bytes);
+    if (bytes == 0) {
+      freeMemory(address);
+      return 0;
+    }
+    if (address == 0) {
+      return allocateMemory(bytes);
+    }
+    Address result = sysCall.sysRealloc(longToAddress(address), (int)bytes);
+    if (result.isZero()) {
+      throw outOfMemory(bytes);
+    }
+    return result.toLong();
+  }
+
+  public void freeMemory(long address) {
+    if (address != 0) {
+      sysCall.sysFree(longToAddress(address));
+    }
+  }
+
+  /** The native allocator takes an int, so larger requests can't be met */
+  private void checkSize(long bytes) {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Negative size: " + bytes);
+    }
+    if (bytes > Integer.MAX_VALUE) {
+      throw outOfMemory(bytes);
+    }
+  }
+
+  private OutOfMemoryError outOfMemory(long bytes) {
+    return new OutOfMemoryError("Unable to allocate " + bytes + " bytes of native memory");
+  }
+
+  public void setMemory(long address, long bytes, byte value) {
+    Address start = longToAddress(address);
+    if (value == 0) {
+      Memory.zero(start, Word.fromLong(bytes).toExtent());
+    } else {
+      Address end = start.plus(Word.fromLong(bytes).toExtent());
+      for (Address a = start; a.LT(end); a = a.plus(1)) {
+        a.store(value);
+      }
+    }
+  }
+
+  public void copyMemory(long srcAddress, long destAddress, long bytes) {
+    Address src = longToAddress(srcAddress);
+    Address dst = longToAddress(destAddress);
+    if (dst.GT(src) && dst.LT(src.plus(Word.fromLong(bytes).toExtent()))) {
+      // Overlapping, and a forward copy would overwrite the source before it is read
+      for (long i = bytes - 1; i >= 0; i--) {
+        Offset off = Word.fromLong(i).toOffset();
+        dst.store(src.loadByte(off), off);
+      }
+    } else {
+      Memory.memcopy(dst, src, Word.fromLong(bytes).toExtent());
+    }
+  }
+
+  @Inline
+  public byte getByte(long address) {
+    return longToAddress(address).loadByte();
+  }
+
+  @Inline
+  public void putByte(long address, byte value) {
+    longToAddress(address).store(value);
+  }
+
+  @Inline
+  public short getShort(long address) {
+    return longToAddress(address).loadShort();
+  }
+
+  @Inline
+  public void putShort(long address, short value) {
+    longToAddress(address).store(value);
+  }
+
+  @Inline
+  public char getChar(long address) {
+    return longToAddress(address).loadChar();
+  }
+
+  @Inline
+  public void putChar(long address, char value) {
+    longToAddress(address).store(value);
+  }
+
+  @Inline
+  public int getInt(long address) {
+    return longToAddress(address).loadInt();
+  }
+
+  @Inline
+  public void putInt(long address, int value) {
+    longToAddress(address).store(value);
+  }
+
+  @Inline
+  public long getLong(long address) {
+    return longToAddress(address).loadLong();
+  }
+
+  @Inline
+  public void putLong(long address, long value) {
+    longToAddress(address).store(value);
+  }
+
+  @Inline
+  public float getFloat(long address) {
+    return longToAddress(address).loadFloat();
+  }
+
+  @Inline
+  public void putFloat(long address, float value) {
+    longToAddress(address).store(value);
+  }
+
+  @Inline
+  public double getDouble(long address) {
+    return longToAddress(address).loadDouble();
+  }
+
+  @Inline
+  public void putDouble(long address, double value) {
+    longToAddress(address).store(value);
+  }
+
+  @Inline
+  public long getAddress(long address) {
+    return longToAddress(address).loadAddress().toLong();
+  }
+
+  @Inline
+  public void putAddress(long address, long value) {
+    longToAddress(address).store(longToAddress(value));
+  }
+
   public void unpark(Object thread) {
     RVMThread vmthread = java.lang.JikesRVMSupport.getThread((Thread)thread);
     if (vmthread != null) {
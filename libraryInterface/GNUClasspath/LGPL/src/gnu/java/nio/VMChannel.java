@@ -250,17 +250,23 @@ public final class VMChannel
   /**
    * Reads a byte array directly.  Performs optimal buffering.
    *
-   * If the target buffer is pinned, use it directly.  Otherwise
+   * If the target buffer can be pinned, use it directly.  Otherwise
    * allocate one of the thread-local buffers, perform the IO to
-   * that, and copy the result to the target array.
+   * that, and copy the result to the target array.  A buffer that
+   * can't be pinned now will usually be moved where it can be by the
+   * next collection, so a reused buffer is only copied at first.
    *
    * @param dst Byte array to read to
    * @return Number of bytes read.
    * @throws IOException If an error occurs or dst is not a direct buffers.
    */
   private int read(byte[] dst, int pos, int len) throws IOException {
-    if (MemoryManager.willNeverMove(dst)) {
-      return read(nfd.getNativeFD(),dst,pos,len);
+    if (MemoryManager.pinObject(dst)) {
+      try {
+        return read(nfd.getNativeFD(),dst,pos,len);
+      } finally {
+        MemoryManager.unpinObject(dst);
+      }
     } else {
       byte[] buffer;
       // Rebuffer the IO in a thread-local byte array
@@ -394,8 +400,12 @@ public final class VMChannel
    * @throws IOException
    */
   public int write(byte[] src, int pos, int len) throws IOException {
-    if (MemoryManager.willNeverMove(src)) {
-      return write(nfd.getNativeFD(), src, pos, len);
+    if (MemoryManager.pinObject(src)) {
+      try {
+        return write(nfd.getNativeFD(), src, pos, len);
+      } finally {
+        MemoryManager.unpinObject(src);
+      }
     } else {
       byte[] buffer;
       // Rebuffer the IO in a thread-local DirectBuffer
@@ -140,7 +140,7 @@ final class OSMemory implements IMemorySystem {
     }
 
     private long mallocNative(long length) throws OutOfMemoryError {
-	Address result = SysCall.sysCall.sysMalloc((int)length);
+	Address result = SysCall.sysCall.sysTryMalloc((int)length);
 	if (result.isZero()) {
 		throw new OutOfMemoryError("Unable to satisfy malloc of "+length);
 	}
@@ -14,6 +14,7 @@ package org.jikesrvm;
 
 import org.jikesrvm.adaptive.controller.Controller;
 import org.jikesrvm.adaptive.util.CompilerAdvice;
+import org.jikesrvm.adaptive.util.ProfileSnapshot;
 import org.jikesrvm.architecture.Constants;
 import org.jikesrvm.architecture.StackFrameLayout;
 import org.jikesrvm.classloader.Atom;
@@ -483,6 +484,7 @@ public class VM extends Properties implements Constants, ExitStatus {
 
     if (VM.BuildForAdaptiveSystem) {
       CompilerAdvice.postBoot();
+      ProfileSnapshot.postBoot();
     }
 
     // enable alignment checking
@@ -2333,6 +2335,10 @@ public class VM extends Properties implements Constants, ExitStatus {
       RVMThread.reportThreadTransitionCounts();
     }
 
+    if (VM.MeasureTimeToSafepoint) {
+      RVMThread.reportTimeToSafepoint();
+    }
+
     if (Options.stackTraceAtExit) {
       VM.sysWriteln("[Here is the context of the call to VM.sysExit(", value, ")...:");
       VM.disableGC();
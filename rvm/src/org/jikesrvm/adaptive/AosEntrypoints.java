@@ -24,8 +24,8 @@ public interface AosEntrypoints {
   NormalMethod osrGetRefAtMethod =
       getMethod(org.jikesrvm.osr.ObjectHolder.class, "getRefAt", "(II)Ljava/lang/Object;");
   NormalMethod osrCleanRefsMethod = getMethod(org.jikesrvm.osr.ObjectHolder.class, "cleanRefs", "(I)V");
-  RVMField methodListenerNumSamplesField =
-      getField(org.jikesrvm.adaptive.measurements.listeners.MethodListener.class, "numSamples", int.class);
+  RVMField methodListenerOrganizerActivatedField =
+      getField(org.jikesrvm.adaptive.measurements.listeners.MethodListener.class, "organizerActivated", int.class);
   RVMField edgeListenerUpdateCalledField =
       getField(org.jikesrvm.adaptive.measurements.listeners.EdgeListener.class, "updateCalled", int.class);
   RVMField edgeListenerSamplesTakenField =
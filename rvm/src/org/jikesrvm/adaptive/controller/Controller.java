@@ -78,10 +78,10 @@ public class Controller  {
   public static ControllerThread controllerThread = null;
 
   /**
-   * Thread that will perform opt-compilations as directed by the controller
-   * (the thread sets this field when it is created.)
+   * Threads that will perform opt-compilations as directed by the controller
+   * (the controller thread sets this field when it creates them.)
    */
-  public static CompilationThread compilationThread = null;
+  public static CompilationThread[] compilationThreads = null;
 
   /**
    * Thread collecting osr request and pass it to controllerThread
@@ -121,6 +121,11 @@ public class Controller  {
    * The main hot method raw data object.
    */
   public static MethodCountData methodSamples;
+  /**
+   * Method samples taken by collector threads during GC, kept apart from
+   * the main hot method data (null unless GC is sampled).
+   */
+  public static MethodCountData gcMethodSamples;
   /**
    * The dynamic call graph. Give it an initial seed weight that approximates
    * the old step function for edge hotness.  The intent is that early on
@@ -265,6 +270,9 @@ public class Controller  {
       VM.sysWriteln("\tTotal number of clock ticks ", RVMThread.timerTicks);
       VM.sysWriteln("\tController clock ", controllerClock);
       VM.sysWriteln("\tNumber of method samples taken ", (int) methodSamples.getTotalNumberOfSamples());
+      if (gcMethodSamples != null) {
+        VM.sysWriteln("\tNumber of GC method samples taken ", (int) gcMethodSamples.getTotalNumberOfSamples());
+      }
     }
   }
 
@@ -282,7 +290,9 @@ public class Controller  {
       Organizer organizer = e.nextElement();
       organizer.stop(threadDeath);
     }
-    compilationThread.stop(threadDeath);
+    for (CompilationThread compilationThread : compilationThreads) {
+      compilationThread.stop(threadDeath);
+    }
     controllerThread.stop(threadDeath);
     RuntimeMeasurements.stop();
     report();
@@ -14,6 +14,7 @@ package org.jikesrvm.adaptive.controller;
 
 import java.util.LinkedList;
 import org.jikesrvm.VM;
+import org.jikesrvm.adaptive.recompilation.CompilerDNACalibration;
 import org.jikesrvm.adaptive.util.AOSGenerator;
 import org.jikesrvm.adaptive.util.AOSLogging;
 import org.jikesrvm.compilers.common.CompiledMethod;
@@ -179,7 +180,7 @@ public final class ControllerPlan {
     int newCMID = RuntimeCompiler.recompileWithOpt(cp);
     int prevCMID = getPrevCMID();
 
-    if (Controller.options.sampling()) {
+    if (Controller.options.sampling() && prevCMID != -1) {
       // transfer the samples from the old CMID to the new CMID.
       // scale the number of samples down by the expected speedup
       // in the newly compiled method.
@@ -189,6 +190,16 @@ public final class ControllerPlan {
       Controller.methodSamples.reset(prevCMID);
       if (newCMID > -1) {
         Controller.methodSamples.augmentData(newCMID, newNumSamples);
+        if (Controller.options.CALIBRATE_COMPILER_DNA) {
+          CompilerDNACalibration.recordRecompilation(prevCMID, oldNumSamples, newCMID);
+        }
+      }
+      if (Controller.gcMethodSamples != null) {
+        double oldNumGCSamples = Controller.gcMethodSamples.getData(prevCMID);
+        Controller.gcMethodSamples.reset(prevCMID);
+        if (newCMID > -1) {
+          Controller.gcMethodSamples.augmentData(newCMID, oldNumGCSamples / expectedSpeedup);
+        }
       }
     }
 
@@ -207,6 +218,9 @@ public final class ControllerPlan {
     } else {
       AOSLogging.logger.recompilationCompleted(cp);
       AOSLogging.logger.recordCompileTime(cm, getExpectedCompilationTime());
+      if (Controller.options.CALIBRATE_COMPILER_DNA) {
+        CompilerDNACalibration.recordCompilation(cm);
+      }
     }
     if (Controller.options.ENABLE_ADVICE_GENERATION && (newCMID != -1)) {
       AOSGenerator.reCompilationWithOpt(cp);
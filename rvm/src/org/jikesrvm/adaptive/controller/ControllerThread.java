@@ -24,12 +24,14 @@ import org.jikesrvm.adaptive.measurements.organizers.DecayOrganizer;
 import org.jikesrvm.adaptive.measurements.organizers.DynamicCallGraphOrganizer;
 import org.jikesrvm.adaptive.measurements.organizers.MethodSampleOrganizer;
 import org.jikesrvm.adaptive.measurements.organizers.Organizer;
+import org.jikesrvm.adaptive.measurements.organizers.ProfileSnapshotOrganizer;
 import org.jikesrvm.adaptive.recompilation.CompilationThread;
 import org.jikesrvm.adaptive.recompilation.CompilerDNA;
 import org.jikesrvm.adaptive.recompilation.InvocationCounts;
 import org.jikesrvm.adaptive.util.AOSGenerator;
 import org.jikesrvm.adaptive.util.AOSLogging;
 import org.jikesrvm.adaptive.util.AOSOptions;
+import org.jikesrvm.adaptive.util.ProfileSnapshot;
 import org.jikesrvm.scheduler.RVMThread;
 import org.jikesrvm.scheduler.SoftLatch;
 import org.vmmagic.pragma.NonMoving;
@@ -131,8 +133,8 @@ public final class ControllerThread extends RVMThread {
     // Create the organizerThreads and schedule them
     createOrganizerThreads();
 
-    // Create the compilationThread and schedule it
-    createCompilationThread();
+    // Create the compilation threads and schedule them
+    createCompilationThreads();
 
     if (Controller.options.sampling()) {
       // Create our set of standard optimization plans.
@@ -197,7 +199,7 @@ public final class ControllerThread extends RVMThread {
    * a chance to revisit because methods get to maxOptLevel too quickly.
    */
   public boolean earlyRestrictOptLevels() {
-    return dcgOrg != null && !dcgOrg.someDataAvailable();
+    return dcgOrg != null && !dcgOrg.someDataAvailable() && !ProfileSnapshot.callGraphSeeded();
   }
 
   ///////////////////////
@@ -207,12 +209,16 @@ public final class ControllerThread extends RVMThread {
   ///////////////////////
 
   /**
-   *  Create the compilationThread and schedule it
+   *  Create the compilation threads and schedule them
    */
-  private void createCompilationThread() {
-    CompilationThread ct = new CompilationThread();
-    Controller.compilationThread = ct;
-    ct.start();
+  private void createCompilationThreads() {
+    int numThreads = Math.max(1, Controller.options.COMPILATION_THREADS);
+    Controller.compilationThreads = new CompilationThread[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      CompilationThread ct = new CompilationThread();
+      Controller.compilationThreads[i] = ct;
+      ct.start();
+    }
   }
 
   /**
@@ -251,6 +257,11 @@ public final class ControllerThread extends RVMThread {
 
       // Install organizer to drive method recompilation
       Controller.organizers.addElement(new MethodSampleOrganizer(opts.DERIVED_FILTER_OPT_LEVEL));
+      if (opts.SAMPLE_GC) {
+        // Separate backing store, and organizer, for samples of GC methods
+        Controller.gcMethodSamples = new MethodCountData();
+        Controller.organizers.addElement(new MethodSampleOrganizer(opts.DERIVED_FILTER_OPT_LEVEL, true));
+      }
       // Additional set up for feedback directed inlining
       if (opts.ADAPTIVE_INLINING) {
         Organizer decayOrganizer = new DecayOrganizer(new YieldCounterListener(opts.DECAY_FREQUENCY));
@@ -259,6 +270,12 @@ public final class ControllerThread extends RVMThread {
       }
     }
 
+    if (opts.PROFILE_SNAPSHOT_OUTPUT != null && opts.PROFILE_SNAPSHOT_FREQUENCY > 0) {
+      Organizer snapshotOrganizer =
+          new ProfileSnapshotOrganizer(new YieldCounterListener(opts.PROFILE_SNAPSHOT_FREQUENCY));
+      Controller.organizers.addElement(snapshotOrganizer);
+    }
+
     if ((!Controller.options.ENABLE_REPLAY_COMPILE) && (!Controller.options.ENABLE_PRECOMPILE)) {
       Controller.osrOrganizer = new OSROrganizerThread();
       Controller.osrOrganizer.start();
@@ -33,22 +33,41 @@ import org.jikesrvm.util.HashMapRVM;
 /**
  * A partial call graph (PCG) is a partial mapping from callsites
  * to weighted targets.
+ * <p>
+ * The call graph is updated by the organizer threads, decayed by the decay
+ * organizer and read by the compilation threads as they make inlining
+ * decisions, so it is split into stripes, each guarded by its own lock,
+ * by the caller method's id and the call site's bytecode index.  Threads
+ * touching different call sites rarely contend, and decay holds only one
+ * stripe's lock at a time, so it runs alongside the readers rather than
+ * stopping them all.
  */
 public final class PartialCallGraph implements Decayable, Reportable {
 
+  /** The number of stripes; a power of two */
+  private static final int NUM_STRIPES = 16;
+
   /**
    * The dynamic call graph, which is a mapping from
-   * CallSites to WeightedCallTargets.
+   * CallSites to WeightedCallTargets, split into stripes.
    */
-  private HashMapRVM<CallSite, WeightedCallTargets> callGraph =
-      new HashMapRVM<CallSite, WeightedCallTargets>();
+  private final Stripe[] stripes = new Stripe[NUM_STRIPES];
+
   private final HashMapRVM<UnResolvedCallSite, UnResolvedWeightedCallTargets> unresolvedCallGraph =
       new HashMapRVM<UnResolvedCallSite, UnResolvedWeightedCallTargets>();
 
   /**
-   * sum of all edge weights in the call graph
+   * Are there any edges in the unresolved call graph?  Lets lookups skip
+   * its lock in the common case that no profile has been read.
    */
-  private double totalEdgeWeights;
+  private volatile boolean hasUnresolvedEdges;
+
+  /**
+   * The weight of the edges into each method, indexed by the method's id,
+   * so that a method's weight can be had without walking the graph.
+   * Updated under its own lock, after the stripe's; read without it.
+   */
+  private volatile double[] incomingWeights = new double[0];
 
   /**
    * Initial seed weight; saved for use in the reset method
@@ -64,44 +83,104 @@ public final class PartialCallGraph implements Decayable, Reportable {
    *        of the call graph.
    */
   public PartialCallGraph(double initialWeight) {
-    seedWeight = initialWeight; // save for rest function
-    totalEdgeWeights = initialWeight;
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      stripes[i] = new Stripe();
+    }
+    reinitialize(initialWeight);
   }
 
   /**
    * Reinitialize
    */
   public void reinitialize(double initialWeight) {
-    seedWeight = initialWeight;
-    totalEdgeWeights = initialWeight;
+    seedWeight = initialWeight; // save for reset function
+    // The seed weight is carried by the first stripe
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      Stripe s = stripes[i];
+      synchronized (s) {
+        s.totalWeight = i == 0 ? initialWeight : 0;
+      }
+    }
   }
 
   /**
    * Reset data
    */
-  public synchronized void reset() {
-    callGraph = new HashMapRVM<CallSite, WeightedCallTargets>();
-    totalEdgeWeights = seedWeight;
+  public void reset() {
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      Stripe s = stripes[i];
+      synchronized (s) {
+        s.clear();
+        s.totalWeight = i == 0 ? seedWeight : 0;
+      }
+    }
+    synchronized (this) {
+      incomingWeights = new double[0];
+    }
   }
 
   /**
-   * @return sum of all edge weights in the partial call graph
+   * @return sum of all edge weights in the partial call graph.  The
+   * stripes are read without locking them, so the sum may miss updates
+   * that are in progress.
    */
-  public double getTotalEdgeWeights() { return totalEdgeWeights; }
+  public double getTotalEdgeWeights() {
+    double total = 0;
+    for (Stripe s : stripes) {
+      total += s.totalWeight;
+    }
+    return total;
+  }
+
+  /**
+   * @param method a method
+   * @return the sum of the weights of the edges into the method.  It is
+   * read without locking, so it may miss updates that are in progress.
+   */
+  public double getIncomingEdgeWeight(RVMMethod method) {
+    double[] weights = incomingWeights;
+    int id = method.getId();
+    return id < weights.length ? weights[id] : 0;
+  }
+
+  /**
+   * Add to the weight of the edges into a method
+   *
+   * @param callee the method called
+   * @param weight the weight to add
+   */
+  private synchronized void augmentIncomingWeight(RVMMethod callee, double weight) {
+    int id = callee.getId();
+    double[] weights = incomingWeights;
+    if (id >= weights.length) {
+      double[] tmp = new double[Math.max(id + 1, weights.length * 2)];
+      System.arraycopy(weights, 0, tmp, 0, weights.length);
+      weights = tmp;
+      incomingWeights = weights;
+    }
+    weights[id] += weight;
+  }
 
   /**
    * Visit the WeightedCallTargets for every call site send them the
    * decay message.
    */
-  public synchronized void decay() {
+  public void decay() {
     double rate = Controller.options.DCG_DECAY_RATE;
     // if we are dumping dynamic call graph, don't decay the graph
     if (Controller.options.DYNAMIC_CALL_FILE_OUTPUT != null) return;
 
-    for (WeightedCallTargets ct : callGraph.values()) {
-      ct.decay(rate);
+    for (Stripe s : stripes) {
+      synchronized (s) {
+        s.decay(rate);
+      }
+    }
+    synchronized (this) {
+      double[] weights = incomingWeights;
+      for (int i = 0; i < weights.length; i++) {
+        weights[i] /= rate;
+      }
     }
-    totalEdgeWeights /= rate;
   }
 
   /**
@@ -111,31 +190,52 @@ public final class PartialCallGraph implements Decayable, Reportable {
    *         given caller bytecodeIndex pair.
    */
   public WeightedCallTargets getCallTargets(RVMMethod caller, int bcIndex) {
-    MethodReference callerRef = caller.getMemberRef().asMethodReference();
-    UnResolvedWeightedCallTargets unresolvedTargets =
-        unresolvedCallGraph.get(new UnResolvedCallSite(callerRef, bcIndex));
+    if (hasUnresolvedEdges) {
+      promoteUnresolvedEdges(caller, bcIndex);
+    }
+    long key = key(caller, bcIndex);
+    Stripe s = stripeFor(key);
+    synchronized (s) {
+      return s.get(key);
+    }
+  }
+
+  /**
+   * @param callSite the callsite to look for
+   * @return the WeightedCallTargets currently associated with callSite.
+   */
+  public WeightedCallTargets getCallTargets(CallSite callSite) {
+    return getCallTargets(callSite.getMethod(), callSite.getBytecodeIndex());
+  }
+
+  /**
+   * Move the edges read from a profile for a call site into the regular
+   * call graph, once only, now that its caller has been resolved.  The
+   * targets that haven't been resolved stay in the unresolved call graph.
+   *
+   * @param caller caller method
+   * @param bcIndex bytecode index in caller method
+   */
+  private void promoteUnresolvedEdges(final RVMMethod caller, final int bcIndex) {
+    final MethodReference callerRef = caller.getMemberRef().asMethodReference();
+    UnResolvedCallSite unresolvedSite = new UnResolvedCallSite(callerRef, bcIndex);
+    UnResolvedWeightedCallTargets unresolvedTargets;
+    synchronized (unresolvedCallGraph) {
+      unresolvedTargets = unresolvedCallGraph.remove(unresolvedSite);
+    }
     if (unresolvedTargets != null) {
-      final RVMMethod fCaller = caller;
-      final int fBcIndex = bcIndex;
       final PartialCallGraph pg = this;
       unresolvedTargets.visitTargets(new UnResolvedWeightedCallTargets.Visitor() {
         public void visit(MethodReference calleeRef, double weight) {
           RVMMethod callee = calleeRef.getResolvedMember();
           if (callee != null) {
-            pg.incrementEdge(fCaller, fBcIndex, callee, (float) weight);
+            pg.incrementEdge(caller, bcIndex, callee, (float) weight);
+          } else {
+            pg.incrementUnResolvedEdge(callerRef, bcIndex, calleeRef, (float) weight);
           }
         }
       });
     }
-    return getCallTargets(new CallSite(caller, bcIndex));
-  }
-
-  /**
-   * @param callSite the callsite to look for
-   * @return the WeightedCallTargets currently associated with callSite.
-   */
-  public synchronized WeightedCallTargets getCallTargets(CallSite callSite) {
-    return callGraph.get(callSite);
   }
 
   /**
@@ -146,7 +246,7 @@ public final class PartialCallGraph implements Decayable, Reportable {
    * @param bcIndex  call site, if -1 then no call site is specified.
    * @param callee   method called
    */
-  public synchronized void incrementEdge(RVMMethod caller, int bcIndex, RVMMethod callee) {
+  public void incrementEdge(RVMMethod caller, int bcIndex, RVMMethod callee) {
     augmentEdge(caller, bcIndex, callee, 1);
   }
 
@@ -159,7 +259,7 @@ public final class PartialCallGraph implements Decayable, Reportable {
    * @param callee   method called
    * @param weight   the frequency of this calling edge
    */
-  public synchronized void incrementEdge(RVMMethod caller, int bcIndex, RVMMethod callee, float weight) {
+  public void incrementEdge(RVMMethod caller, int bcIndex, RVMMethod callee, float weight) {
     augmentEdge(caller, bcIndex, callee, (double) weight);
   }
 
@@ -176,19 +276,22 @@ public final class PartialCallGraph implements Decayable, Reportable {
    * @param calleeRef   method called
    * @param weight      the frequency of this calling edge
    */
-  public synchronized void incrementUnResolvedEdge(MethodReference callerRef, int bcIndex,
-                                                   MethodReference calleeRef, float weight) {
+  public void incrementUnResolvedEdge(MethodReference callerRef, int bcIndex,
+                                     MethodReference calleeRef, float weight) {
     UnResolvedCallSite callSite = new UnResolvedCallSite(callerRef, bcIndex);
-    UnResolvedWeightedCallTargets targets = unresolvedCallGraph.get(callSite);
-    if (targets == null) {
-      targets = UnResolvedWeightedCallTargets.create(calleeRef, weight);
-      unresolvedCallGraph.put(callSite, targets);
-    } else {
-      UnResolvedWeightedCallTargets orig = targets;
-      targets = targets.augmentCount(calleeRef, weight);
-      if (orig != targets) {
+    synchronized (unresolvedCallGraph) {
+      UnResolvedWeightedCallTargets targets = unresolvedCallGraph.get(callSite);
+      if (targets == null) {
+        targets = UnResolvedWeightedCallTargets.create(calleeRef, weight);
         unresolvedCallGraph.put(callSite, targets);
+      } else {
+        UnResolvedWeightedCallTargets orig = targets;
+        targets = targets.augmentCount(calleeRef, weight);
+        if (orig != targets) {
+          unresolvedCallGraph.put(callSite, targets);
+        }
       }
+      hasUnresolvedEdges = true;
     }
   }
 
@@ -202,30 +305,61 @@ public final class PartialCallGraph implements Decayable, Reportable {
    * @param weight   the frequency of this calling edge
    */
   private void augmentEdge(RVMMethod caller, int bcIndex, RVMMethod callee, double weight) {
-    CallSite callSite = new CallSite(caller, bcIndex);
-    WeightedCallTargets targets = callGraph.get(callSite);
-    if (targets == null) {
-      targets = WeightedCallTargets.create(callee, weight);
-      callGraph.put(callSite, targets);
-    } else {
-      WeightedCallTargets orig = targets;
-      targets = targets.augmentCount(callee, weight);
-      if (orig != targets) {
-        callGraph.put(callSite, targets);
+    long key = key(caller, bcIndex);
+    Stripe s = stripeFor(key);
+    synchronized (s) {
+      s.augment(key, caller, bcIndex, callee, weight);
+    }
+    augmentIncomingWeight(callee, weight);
+  }
+
+  /**
+   * @return the key of a call site: the caller's id and the bytecode index
+   */
+  private static long key(RVMMethod caller, int bcIndex) {
+    return ((long) caller.getId() << 32) | (bcIndex & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Mix the bits of a key, so that the call sites of a method are spread
+   * over the stripes and the buckets of each stripe's table.
+   */
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private Stripe stripeFor(long key) {
+    return stripes[hash(key) & (NUM_STRIPES - 1)];
+  }
+
+  /**
+   * @return a copy of the call graph, taken one stripe at a time
+   */
+  private HashMapRVM<CallSite, WeightedCallTargets> snapshot() {
+    HashMapRVM<CallSite, WeightedCallTargets> graph = new HashMapRVM<CallSite, WeightedCallTargets>();
+    for (Stripe s : stripes) {
+      synchronized (s) {
+        for (int i = 0; i < s.sites.length; i++) {
+          if (s.targets[i] != null) {
+            graph.put(s.sites[i], s.targets[i]);
+          }
+        }
       }
     }
-    totalEdgeWeights += weight;
+    return graph;
   }
 
   /**
    * Dump out set of edges in sorted order.
    */
-  public synchronized void report() {
+  public void report() {
+    HashMapRVM<CallSite, WeightedCallTargets> callGraph = snapshot();
     System.out.println("Partial Call Graph");
-    System.out.println("  Number of callsites " + callGraph.size() + ", total weight: " + totalEdgeWeights);
+    System.out.println("  Number of callsites " + callGraph.size() + ", total weight: " + getTotalEdgeWeights());
     System.out.println();
 
-    TreeSet<CallSite> tmp = new TreeSet<CallSite>(new OrderByTotalWeight());
+    TreeSet<CallSite> tmp = new TreeSet<CallSite>(new OrderByTotalWeight(callGraph));
     Iterator<CallSite> keys = callGraph.keys().iterator();
     while (keys.hasNext()) {
       tmp.add(keys.next());
@@ -245,7 +379,7 @@ public final class PartialCallGraph implements Decayable, Reportable {
   /**
    * Dump all profile data to the given file
    */
-  public synchronized void dumpGraph() {
+  public void dumpGraph() {
     dumpGraph(Controller.options.DYNAMIC_CALL_FILE_OUTPUT);
   }
 
@@ -253,7 +387,7 @@ public final class PartialCallGraph implements Decayable, Reportable {
    * Dump all profile data to the given file
    * @param fn output file name
    */
-  public synchronized void dumpGraph(String fn) {
+  public void dumpGraph(String fn) {
     final BufferedWriter f;
     try {
       f = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fn), "ISO-8859-1"));
@@ -261,7 +395,8 @@ public final class PartialCallGraph implements Decayable, Reportable {
       VM.sysWrite("\n\nPartialCallGraph.dumpGraph: Error opening output file!!\n\n");
       return;
     }
-    TreeSet<CallSite> tmp = new TreeSet<CallSite>(new OrderByTotalWeight());
+    HashMapRVM<CallSite, WeightedCallTargets> callGraph = snapshot();
+    TreeSet<CallSite> tmp = new TreeSet<CallSite>(new OrderByTotalWeight(callGraph));
     Iterator<CallSite> keys = callGraph.keys().iterator();
     while (keys.hasNext()) {
       tmp.add(keys.next());
@@ -294,12 +429,40 @@ public final class PartialCallGraph implements Decayable, Reportable {
         }
       });
     }
+
+    // Keep the edges read from a profile whose methods have not been resolved
+    synchronized (unresolvedCallGraph) {
+      for (final UnResolvedCallSite cs : unresolvedCallGraph.keys()) {
+        UnResolvedWeightedCallTargets ct = unresolvedCallGraph.get(cs);
+        ct.visitTargets(new UnResolvedWeightedCallTargets.Visitor() {
+          public void visit(MethodReference calleeRef, double weight) {
+            try {
+              f.write("CallSite " + cs.getMethodRef() + " 0 " + cs.getBytecodeIndex() + " " +
+                      calleeRef + " 0 weight: " + weight + "\n");
+            } catch (IOException exc) {
+              System.err.println("I/O error writing to dynamic call graph profile.");
+            }
+          }
+        });
+      }
+    }
+    try {
+      f.close();
+    } catch (IOException e) {
+      System.err.println("I/O error writing to dynamic call graph profile.");
+    }
   }
 
   /**
    * Used to compare two call sites by total weight.
    */
-  private final class OrderByTotalWeight implements Comparator<CallSite> {
+  private static final class OrderByTotalWeight implements Comparator<CallSite> {
+    private final HashMapRVM<CallSite, WeightedCallTargets> callGraph;
+
+    OrderByTotalWeight(HashMapRVM<CallSite, WeightedCallTargets> callGraph) {
+      this.callGraph = callGraph;
+    }
+
     public int compare(CallSite o1, CallSite o2) {
       if (o1.equals(o2)) return 0;
       double w1 = callGraph.get(o1).totalWeight();
@@ -311,4 +474,85 @@ public final class PartialCallGraph implements Decayable, Reportable {
     }
   }
 
+  /**
+   * One stripe of the call graph: an open addressing hash table from call
+   * site key to targets, and the weight of its edges.  All accesses must
+   * hold the stripe's lock.
+   */
+  private static final class Stripe {
+    /** The key of the call site in each bucket */
+    long[] keys = new long[16];
+    /** The call site in each bucket, for reporting */
+    CallSite[] sites = new CallSite[16];
+    /** The targets of the call site in each bucket, or null if it is empty */
+    WeightedCallTargets[] targets = new WeightedCallTargets[16];
+    /** The number of call sites */
+    int size;
+    /**
+     * Sum of the edge weights in this stripe; volatile so that the total
+     * can be summed without taking the locks
+     */
+    volatile double totalWeight;
+
+    /** @return the bucket holding the key, or the empty bucket to put it in */
+    private int find(long key) {
+      int mask = keys.length - 1;
+      int bucket = (hash(key) >>> 4) & mask;
+      while (targets[bucket] != null && keys[bucket] != key) {
+        bucket = (bucket + 1) & mask;
+      }
+      return bucket;
+    }
+
+    WeightedCallTargets get(long key) {
+      return targets[find(key)];
+    }
+
+    void augment(long key, RVMMethod caller, int bcIndex, RVMMethod callee, double weight) {
+      int bucket = find(key);
+      WeightedCallTargets ct = targets[bucket];
+      if (ct == null) {
+        keys[bucket] = key;
+        sites[bucket] = new CallSite(caller, bcIndex);
+        targets[bucket] = WeightedCallTargets.create(callee, weight);
+        if (++size * 2 > keys.length) grow();
+      } else {
+        // May change representation, so update the backing store
+        targets[bucket] = ct.augmentCount(callee, weight);
+      }
+      totalWeight += weight;
+    }
+
+    void decay(double rate) {
+      for (WeightedCallTargets ct : targets) {
+        if (ct != null) ct.decay(rate);
+      }
+      totalWeight /= rate;
+    }
+
+    void clear() {
+      keys = new long[16];
+      sites = new CallSite[16];
+      targets = new WeightedCallTargets[16];
+      size = 0;
+    }
+
+    private void grow() {
+      long[] oldKeys = keys;
+      CallSite[] oldSites = sites;
+      WeightedCallTargets[] oldTargets = targets;
+      keys = new long[oldKeys.length * 2];
+      sites = new CallSite[oldKeys.length * 2];
+      targets = new WeightedCallTargets[oldKeys.length * 2];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldTargets[i] != null) {
+          int bucket = find(oldKeys[i]);
+          keys[bucket] = oldKeys[i];
+          sites[bucket] = oldSites[i];
+          targets[bucket] = oldTargets[i];
+        }
+      }
+    }
+  }
+
 }
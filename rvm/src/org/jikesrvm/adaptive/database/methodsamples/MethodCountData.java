@@ -12,6 +12,9 @@
  */
 package org.jikesrvm.adaptive.database.methodsamples;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -95,6 +98,21 @@ public final class MethodCountData implements Reportable {
     if (DEBUG) validityCheck();
   }
 
+  /**
+   * Add a batch of samples, aggregated by compiled method, to the count array.
+   *
+   * @param samples the number of samples of each compiled method
+   */
+  public synchronized void update(MethodSampleCounts samples) {
+    for (int i = 0; i < samples.size(); i++) {
+      int index = findOrCreateHeapIdx(samples.getCMID(i));
+      counts[index] += samples.getCount(i);
+      heapifyUp(index);
+    }
+    totalCountsTaken += samples.getTotal();
+    if (DEBUG) validityCheck();
+  }
+
   /**
    * Increment the count for a compiled method id.
    *
@@ -138,6 +156,32 @@ public final class MethodCountData implements Reportable {
     RVMThread.dumpLock.unlock();
   }
 
+  /**
+   * Dump the counts of the methods that have not been made obsolete to the
+   * given file, as lines of the form
+   * <pre>
+   * Samples &lt;classloader, classname, method, signature&gt; count
+   * </pre>
+   * A method that has several compiled methods has a line for each.
+   *
+   * @param fn output file name
+   */
+  public synchronized void dumpCounts(String fn) {
+    PrintStream f;
+    try {
+      f = new PrintStream(new FileOutputStream(fn), false, "ISO-8859-1");
+    } catch (IOException e) {
+      VM.sysWrite("\n\nMethodCountData.dumpCounts: Error opening output file!!\n\n");
+      return;
+    }
+    for (int i = 1; i < nextIndex; i++) {
+      CompiledMethod cm = CompiledMethods.getCompiledMethod(cmids[i]);
+      if (cm == null || cm.getCompilerType() == CompiledMethod.TRAP) continue;
+      f.println("Samples " + cm.getMethod().getMemberRef() + " " + counts[i]);
+    }
+    f.close();
+  }
+
   /**
    * @return the total number of samples taken
    */
@@ -0,0 +1,147 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.adaptive.database.methodsamples;
+
+import org.jikesrvm.VM;
+import org.vmmagic.pragma.Uninterruptible;
+
+/**
+ * The number of times each compiled method was sampled in a batch of
+ * samples.  An open addressing hash table from compiled method id to count,
+ * sized for the largest batch when it is created, so that adding a sample
+ * takes constant time and never allocates.  The compiled methods are also
+ * kept in a dense list, in the order in which they were first sampled, so
+ * that the table can be iterated over and cleared in time proportional to
+ * the number of distinct methods sampled.
+ */
+@Uninterruptible
+public final class MethodSampleCounts {
+
+  /**
+   * The hash table: for each bucket, 1 + the index of its compiled method
+   * in the dense list, or 0 if the bucket is empty
+   */
+  private final int[] table;
+
+  /** How far to shift a hashed compiled method id to get its home bucket */
+  private final int shift;
+
+  /** The compiled method ids, in the order they were added */
+  private final int[] cmids;
+
+  /** The count for each compiled method in cmids */
+  private final int[] counts;
+
+  /** The number of distinct compiled methods */
+  private int size;
+
+  /** The total number of samples */
+  private int total;
+
+  /**
+   * @param maxSamples the most samples there will be in a batch
+   */
+  public MethodSampleCounts(int maxSamples) {
+    int logTableSize = 1;
+    while ((1 << logTableSize) < 2 * maxSamples) {
+      logTableSize++;
+    }
+    table = new int[1 << logTableSize];
+    shift = 32 - logTableSize;
+    cmids = new int[maxSamples];
+    counts = new int[maxSamples];
+  }
+
+  /**
+   * Count a sample of a compiled method.  Samples beyond the
+   * table's capacity are dropped.
+   *
+   * @param cmid the compiled method id
+   */
+  public void add(int cmid) {
+    int mask = table.length - 1;
+    int bucket = homeBucket(cmid);
+    while (true) {
+      int entry = table[bucket];
+      if (entry == 0) {
+        if (size == cmids.length) return;
+        cmids[size] = cmid;
+        counts[size] = 1;
+        table[bucket] = ++size;
+        total++;
+        return;
+      }
+      if (cmids[entry - 1] == cmid) {
+        counts[entry - 1]++;
+        total++;
+        return;
+      }
+      bucket = (bucket + 1) & mask;
+    }
+  }
+
+  /**
+   * Remove all the counts.
+   */
+  public void clear() {
+    int mask = table.length - 1;
+    // Clear the buckets that were used, and only those.  Going backwards,
+    // the buckets probed to find each method's bucket are still in use.
+    for (int i = size - 1; i >= 0; i--) {
+      int bucket = homeBucket(cmids[i]);
+      while (table[bucket] != i + 1) {
+        bucket = (bucket + 1) & mask;
+      }
+      table[bucket] = 0;
+    }
+    size = 0;
+    total = 0;
+  }
+
+  /** Fibonacci hashing: the top bits of the id times the golden ratio */
+  private int homeBucket(int cmid) {
+    return (cmid * 0x9E3779B9) >>> shift;
+  }
+
+  /**
+   * @return the number of distinct compiled methods sampled
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the total number of samples
+   */
+  public int getTotal() {
+    return total;
+  }
+
+  /**
+   * @param i index of a compiled method, from 0 to size() - 1
+   * @return the id of the i'th compiled method
+   */
+  public int getCMID(int i) {
+    if (VM.VerifyAssertions) VM._assert(i < size);
+    return cmids[i];
+  }
+
+  /**
+   * @param i index of a compiled method, from 0 to size() - 1
+   * @return the number of samples of the i'th compiled method
+   */
+  public int getCount(int i) {
+    if (VM.VerifyAssertions) VM._assert(i < size);
+    return counts[i];
+  }
+}
@@ -22,7 +22,9 @@ import org.jikesrvm.adaptive.util.AOSLogging;
 import org.jikesrvm.architecture.StackFrameLayout;
 import org.jikesrvm.compilers.common.CompiledMethod;
 import org.jikesrvm.compilers.common.CompiledMethods;
+import org.jikesrvm.mm.mminterface.CollectorThread;
 import org.jikesrvm.runtime.Magic;
+import org.jikesrvm.scheduler.RVMThread;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.Address;
 
@@ -159,6 +161,77 @@ public abstract class RuntimeMeasurements {
     }
   }
 
+  /////////////////////////////////////////////////////////////////////////
+  // Support for gathering profile data from collector threads during GC
+  /////////////////////////////////////////////////////////////////////////
+
+  /**
+   * listeners on timer ticks for methods executed by collector threads
+   */
+  private static MethodListener[] gcMethodListeners = new MethodListener[0];
+
+  /**
+   * Install a method listener on timer ticks taken by collector threads,
+   * and start sampling them.
+   * @param s method listener to be installed
+   */
+  public static synchronized void installGCMethodListener(MethodListener s) {
+    int numListeners = gcMethodListeners.length;
+    MethodListener[] tmp = new MethodListener[numListeners + 1];
+    for (int i = 0; i < numListeners; i++) {
+      tmp[i] = gcMethodListeners[i];
+    }
+    tmp[numListeners] = s;
+    gcMethodListeners = tmp;
+    CollectorThread.enableSampling();
+  }
+
+  /**
+   * Called by the timer thread, from CollectorThread.takeSample, to take a
+   * sample of a running collector thread.  The frames are those saved by
+   * the collector thread's most recent prologue and so may be stale by the
+   * time they are read; samples whose method ids are not valid are dropped.
+   *
+   * @param sampledFP frame pointer of the method being executed
+   * @param sampledCallerFP frame pointer of its caller
+   */
+  @Uninterruptible
+  public static void takeGCSample(Address sampledFP, Address sampledCallerFP) {
+    if (sampledFP.isZero() || sampledFP.EQ(StackFrameLayout.getStackFrameSentinelFP())) {
+      return;
+    }
+    int sampledCMID = Magic.getCompiledMethodID(sampledFP);
+    if (!isValidCMID(sampledCMID)) {
+      return;
+    }
+
+    int sampledCallerCMID = -1;
+    if (!sampledCallerFP.isZero() && sampledCallerFP.NE(StackFrameLayout.getStackFrameSentinelFP())) {
+      sampledCallerCMID = Magic.getCompiledMethodID(sampledCallerFP);
+      if (!isValidCMID(sampledCallerCMID)) {
+        sampledCallerCMID = -1;
+      }
+    }
+
+    // Notify all registered listeners.  A timer sample of the method being
+    // executed is treated as if taken at a loop backedge.
+    for (MethodListener aMl : gcMethodListeners) {
+      if (aMl.isActive()) {
+        aMl.update(sampledCMID, sampledCallerCMID, RVMThread.BACKEDGE);
+      }
+    }
+  }
+
+  /**
+   * @param cmid a compiled method id read from a running thread's stack
+   * @return whether cmid names a compiled method
+   */
+  @Uninterruptible
+  private static boolean isValidCMID(int cmid) {
+    return cmid > 0 && cmid < CompiledMethods.numCompiledMethods() &&
+           CompiledMethods.getCompiledMethodUnchecked(cmid) != null;
+  }
+
   /////////////////////////////////////////////////////////////////////////
   // Support for gathering profile data on CBS samples
   /////////////////////////////////////////////////////////////////////////
@@ -352,6 +425,8 @@ public abstract class RuntimeMeasurements {
     timerContextListeners = new ContextListener[0];
     timerNullListeners = new NullListener[0];
 
+    gcMethodListeners = new MethodListener[0];
+
     cbsMethodListeners = new MethodListener[0];
     cbsContextListeners = new ContextListener[0];
   }
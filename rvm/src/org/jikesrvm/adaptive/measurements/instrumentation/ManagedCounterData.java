@@ -79,7 +79,7 @@ public class ManagedCounterData {
    *
    * @param countersNeeded The number of counters needed
    */
-  public void resizeCounters(int countersNeeded) {
+  public synchronized void resizeCounters(int countersNeeded) {
     // Confirm that counters have been initialized (using initializeCounters(int))
     if (VM.VerifyAssertions) {
       VM._assert(handle != -1);
@@ -180,7 +180,7 @@ public class ManagedCounterData {
    * @param incrementValue The value to add to the given counter
    * @return The instruction that will update the given counter
    */
-  Instruction createEventCounterInstruction(int counterNumber, double incrementValue) {
+  synchronized Instruction createEventCounterInstruction(int counterNumber, double incrementValue) {
     // Confirm that counters have been initialized
     if (VM.VerifyAssertions) {
       VM._assert(handle != -1);
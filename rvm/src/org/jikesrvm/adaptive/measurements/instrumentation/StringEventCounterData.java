@@ -117,7 +117,7 @@ public class StringEventCounterData extends ManagedCounterData implements Report
    * @return The counter number for this string
 
    */
-  public int getOrCreateCounterIndexForString(String str) {
+  public synchronized int getOrCreateCounterIndexForString(String str) {
 
     int counterIdx = getCounterIndexForString(str);
     if (counterIdx == -1) {
@@ -139,7 +139,7 @@ public class StringEventCounterData extends ManagedCounterData implements Report
    * @return The counter number for this string, or -1 if the string has no
   counter associated with it.
    */
-  public int getCounterIndexForString(String str) {
+  public synchronized int getCounterIndexForString(String str) {
 
     int counter = -1;
     Integer counterNum = stringToCounterMap.get(str);
@@ -14,16 +14,25 @@ package org.jikesrvm.adaptive.measurements.listeners;
 
 import org.jikesrvm.VM;
 import org.jikesrvm.adaptive.AosEntrypoints;
+import org.jikesrvm.adaptive.database.methodsamples.MethodSampleCounts;
+import org.jikesrvm.runtime.Magic;
 import org.jikesrvm.scheduler.Synchronization;
 import org.jikesrvm.scheduler.RVMThread;
 import org.vmmagic.pragma.Uninterruptible;
+import org.vmmagic.unboxed.Offset;
+
+import static org.jikesrvm.architecture.SizeConstants.LOG_BYTES_IN_INT;
 
 /**
  * A MethodListener defines a listener to collect method invocation samples.
  *
- * Samples are collected in a buffer.
- * When sampleSize samples have been collected
- * the listener's organizer is activated to process them.
+ * Each thread collects its samples in its own part of the sample buffer,
+ * so threads sampling at the same time don't contend for a shared index.
+ * The threshold is per thread: when any one thread has taken sampleSize
+ * samples, the listener's organizer is activated to collect the samples
+ * of all threads.  So a program running fewer threads than there are
+ * processors has its samples processed more often than if the threshold
+ * counted every thread's samples.
  *
  * Defines update's interface to be a compiled method identifier, CMID.
  */
@@ -31,27 +40,32 @@ import org.vmmagic.pragma.Uninterruptible;
 public final class MethodListener extends Listener {
 
   /**
-   * Number of samples to be gathered before they are processed
+   * Number of samples a thread gathers before they are processed
    */
-  int sampleSize;
+  private final int sampleSize;
 
   /**
-   * Number of samples taken so far
+   * The sample buffer.  The samples of the thread in slot s are at
+   * [s * (sampleSize + 1) + 1 ...], preceded by their number.  Only the
+   * thread itself adds samples, but the organizer empties the buffer, so
+   * the number is only changed atomically.
    */
-  int numSamples;
+  private final int[] samples;
 
   /**
-   * The sample buffer
-   * Key Invariant: samples.length >= sampleSize
+   * Non-zero once the organizer has been activated for the current samples
    */
-  int[] samples;
+  @SuppressWarnings({"unused", "UnusedDeclaration"})
+  // Accessed via EntryPoints
+  private int organizerActivated;
 
   /**
-   * @param sampleSize the initial sampleSize for the listener
+   * @param sampleSize the number of samples a thread takes before they
+   *                   are processed
    */
   public MethodListener(int sampleSize) {
     this.sampleSize = sampleSize;
-    samples = new int[sampleSize];
+    samples = new int[RVMThread.MAX_THREADS * (sampleSize + 1)];
   }
 
   /**
@@ -105,44 +119,71 @@ public final class MethodListener extends Listener {
 
   /**
    * This method records a sample containing the CMID (compiled method ID)
-   * passed.  Since multiple threads may be taking samples concurrently,
-   * we use fetchAndAdd to distribute indices into the buffer AND to record
-   * when a sample is taken.  (Thread 1 may get an earlier index, but complete
-   * the insertion after Thread 2.)
+   * passed in the current thread's part of the buffer.  The sample is
+   * stored past the samples already counted, and then published by a
+   * compare-and-swap on their number; if the organizer empties the buffer
+   * in between, the swap fails and the sample is dropped rather than the
+   * collected samples being counted again.  The first thread to fill its
+   * part activates the organizer; a thread whose part is full drops its
+   * samples until the organizer has collected them.
    *
    * @param CMID compiled method ID to record
    */
   private void recordSample(int CMID) {
-    // reserve the next available slot
-    int idx = Synchronization.fetchAndAdd(this, AosEntrypoints.methodListenerNumSamplesField.getOffset(), 1);
-    // make sure it is valid
+    int base = RVMThread.getCurrentThread().threadSlot * (sampleSize + 1);
+    int idx = samples[base];
     if (idx < sampleSize) {
-      samples[idx] = CMID;
-    }
-    if (idx + 1 == sampleSize) {
-      // The last sample.
-      activateOrganizer();
+      samples[base + 1 + idx] = CMID;
+      Magic.sync();
+      if (Synchronization.tryCompareAndSwap(samples, countOffset(base), idx, idx + 1) &&
+          idx + 1 == sampleSize &&
+          Synchronization.tryCompareAndSwap(this, AosEntrypoints.methodListenerOrganizerActivatedField.getOffset(), 0, 1)) {
+        activateOrganizer();
+      }
     }
   }
 
+  /**
+   * @param base the index of a thread's part of the sample buffer
+   * @return the offset of the number of samples in that part
+   */
+  private static Offset countOffset(int base) {
+    return Offset.fromIntZeroExtend(base << LOG_BYTES_IN_INT);
+  }
+
   public void report() { }
 
   /**
-   * Reset the buffer to prepare to take more samples.
+   * Reset the listener to prepare to take more samples.
    */
   public void reset() {
-    numSamples = 0;
+    organizerActivated = 0;
   }
 
   /**
-   * @return the buffer of samples
+   * Collect the samples taken by all threads, and empty the buffer.
+   * Samples being taken while this is done may be lost, but none are
+   * collected twice.
+   *
+   * @param counts where to count the samples
    */
-  public int[] getSamples() { return samples; }
+  public void collectSamples(MethodSampleCounts counts) {
+    int stride = sampleSize + 1;
+    for (int base = 0; base < samples.length; base += stride) {
+      if (samples[base] > 0) {
+        int numSamples = Synchronization.fetchAndStore(samples, countOffset(base), 0);
+        Magic.isync();
+        for (int i = 1; i <= numSamples; i++) {
+          counts.add(samples[base + i]);
+        }
+      }
+    }
+  }
 
   /**
-   * @return how many samples in the array returned by getSamples are valid
+   * @return the most samples that {@link #collectSamples} can collect
    */
-  public int getNumSamples() {
-    return (numSamples < sampleSize) ? numSamples : sampleSize;
+  public int getMaxSamples() {
+    return RVMThread.MAX_THREADS * sampleSize;
   }
 }
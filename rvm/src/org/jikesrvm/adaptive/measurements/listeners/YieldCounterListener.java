@@ -55,7 +55,9 @@ public final class YieldCounterListener extends NullListener {
     VM.sysWriteln("Yield points counted: ", totalYields);
   }
 
-  public void reset() { }
+  public void reset() {
+    numYields = 0;
+  }
 
   private int yieldThreshold;
   @SuppressWarnings({"unused", "UnusedDeclaration", "CanBeFinal"})
@@ -15,6 +15,7 @@ package org.jikesrvm.adaptive.measurements.organizers;
 import org.jikesrvm.VM;
 import org.jikesrvm.adaptive.controller.Controller;
 import org.jikesrvm.adaptive.database.methodsamples.MethodCountData;
+import org.jikesrvm.adaptive.database.methodsamples.MethodSampleCounts;
 import org.jikesrvm.adaptive.measurements.RuntimeMeasurements;
 import org.jikesrvm.adaptive.measurements.listeners.MethodListener;
 import org.jikesrvm.adaptive.util.AOSLogging;
@@ -34,6 +35,9 @@ public final class AccumulatingMethodSampleOrganizer extends Organizer {
 
   private MethodCountData data;
 
+  /** Scratch space in which to count the samples of each method */
+  private MethodSampleCounts counts;
+
   public AccumulatingMethodSampleOrganizer() {
     makeDaemon(true);
   }
@@ -45,13 +49,14 @@ public final class AccumulatingMethodSampleOrganizer extends Organizer {
   public void initialize() {
     data = new MethodCountData();
     new AsyncReporter().start();
-    int numSamples = Controller.options.METHOD_SAMPLE_SIZE * RVMThread.numProcessors;
+    int numSamples = Controller.options.METHOD_SAMPLE_SIZE;
     if (Controller.options.mlCBS()) {
       numSamples *= VM.CBSMethodSamplesPerTick;
     }
     MethodListener methodListener = new MethodListener(numSamples);
     listener = methodListener;
     listener.setOrganizer(this);
+    counts = new MethodSampleCounts(methodListener.getMaxSamples());
     if (Controller.options.mlTimer()) {
       RuntimeMeasurements.installTimerMethodListener(methodListener);
     } else if (Controller.options.mlCBS()) {
@@ -66,9 +71,9 @@ public final class AccumulatingMethodSampleOrganizer extends Organizer {
    */
   void thresholdReached() {
     AOSLogging.logger.organizerThresholdReached();
-    int numSamples = ((MethodListener) listener).getNumSamples();
-    int[] samples = ((MethodListener) listener).getSamples();
-    data.update(samples, numSamples);
+    counts.clear();
+    ((MethodListener) listener).collectSamples(counts);
+    data.update(counts);
   }
 
   public void report() {
@@ -15,13 +15,15 @@ package org.jikesrvm.adaptive.measurements.organizers;
 import org.jikesrvm.VM;
 import org.jikesrvm.adaptive.controller.Controller;
 import org.jikesrvm.adaptive.controller.HotMethodRecompilationEvent;
+import org.jikesrvm.adaptive.database.methodsamples.MethodCountData;
+import org.jikesrvm.adaptive.database.methodsamples.MethodSampleCounts;
 import org.jikesrvm.adaptive.measurements.RuntimeMeasurements;
 import org.jikesrvm.adaptive.measurements.listeners.MethodListener;
+import org.jikesrvm.adaptive.recompilation.CompilerDNACalibration;
 import org.jikesrvm.adaptive.util.AOSLogging;
 import org.jikesrvm.compilers.common.CompiledMethod;
 import org.jikesrvm.compilers.common.CompiledMethods;
 import org.jikesrvm.compilers.opt.runtimesupport.OptCompiledMethod;
-import org.jikesrvm.scheduler.RVMThread;
 import org.vmmagic.pragma.NonMoving;
 
 /**
@@ -32,6 +34,10 @@ import org.vmmagic.pragma.NonMoving;
  * the sampling threshold is reached we update the accumulated method
  * sample data with the new data and then notify the controller of all
  * methods that were sampled in the current window.
+ * <p>
+ * One instance organizes the samples taken by mutator threads, and
+ * another (if GC is sampled) those taken by collector threads during GC,
+ * which are kept in a separate profile.
  */
 @NonMoving
 public final class MethodSampleOrganizer extends Organizer {
@@ -42,12 +48,31 @@ public final class MethodSampleOrganizer extends Organizer {
    */
   private int filterOptLevel;
 
+  /**
+   * Does this organizer organize samples taken by collector threads?
+   */
+  private final boolean gc;
+
+  /** Scratch space in which to count the samples of each method */
+  private MethodSampleCounts counts;
+
   /**
    * @param filterOptLevel   filter out all opt-compiled methods that
    *                         were compiled at this level or higher
    */
   public MethodSampleOrganizer(int filterOptLevel) {
+    this(filterOptLevel, false);
+  }
+
+  /**
+   * @param filterOptLevel   filter out all opt-compiled methods that
+   *                         were compiled at this level or higher
+   * @param gc               organize the samples taken by collector
+   *                         threads during GC rather than by mutators
+   */
+  public MethodSampleOrganizer(int filterOptLevel, boolean gc) {
     this.filterOptLevel = filterOptLevel;
+    this.gc = gc;
     makeDaemon(true);
   }
 
@@ -56,15 +81,18 @@ public final class MethodSampleOrganizer extends Organizer {
    */
   @Override
   public void initialize() {
-    int numSamples = Controller.options.METHOD_SAMPLE_SIZE * RVMThread.numProcessors;
-    if (Controller.options.mlCBS()) {
+    int numSamples = Controller.options.METHOD_SAMPLE_SIZE;
+    if (Controller.options.mlCBS() && !gc) {
       numSamples *= VM.CBSMethodSamplesPerTick;
     }
     MethodListener methodListener = new MethodListener(numSamples);
     listener = methodListener;
     listener.setOrganizer(this);
+    counts = new MethodSampleCounts(methodListener.getMaxSamples());
 
-    if (Controller.options.mlTimer()) {
+    if (gc) {
+      RuntimeMeasurements.installGCMethodListener(methodListener);
+    } else if (Controller.options.mlTimer()) {
       RuntimeMeasurements.installTimerMethodListener(methodListener);
     } else if (Controller.options.mlCBS()) {
       RuntimeMeasurements.installCBSMethodListener(methodListener);
@@ -79,35 +107,22 @@ public final class MethodSampleOrganizer extends Organizer {
   void thresholdReached() {
     AOSLogging.logger.organizerThresholdReached();
 
-    int numSamples = ((MethodListener) listener).getNumSamples();
-    int[] samples = ((MethodListener) listener).getSamples();
-
-    // (1) Update the global (cumulative) sample data
-    Controller.methodSamples.update(samples, numSamples);
+    // (1) Count the samples of each method.
+    counts.clear();
+    ((MethodListener) listener).collectSamples(counts);
+    MethodCountData methodSamples = gc ? Controller.gcMethodSamples : Controller.methodSamples;
 
-    // (2) Remove duplicates from samples buffer.
-    //     NOTE: This is a dirty trick and may be ill-advised.
-    //     Rather than copying the unique samples into a different buffer
-    //     we treat samples as if it was a scratch buffer.
-    //     NOTE: This is worse case O(numSamples^2) but we expect a
-    //     significant number of duplicates, so it's probably better than
-    //     the other obvious alternative (sorting samples).
-    int uniqueIdx = 1;
-    outer:
-    for (int i = 1; i < numSamples; i++) {
-      int cur = samples[i];
-      for (int j = 0; j < uniqueIdx; j++) {
-        if (cur == samples[j]) continue outer;
-      }
-      samples[uniqueIdx++] = cur;
+    // (2) Update the global (cumulative) sample data
+    methodSamples.update(counts);
+    if (!gc && Controller.options.CALIBRATE_COMPILER_DNA) {
+      CompilerDNACalibration.update();
     }
 
-    // (3) For all samples in 0...uniqueIdx, if the method represented by
-    //     the sample is compiled at an opt level below filterOptLevel
-    //     then report it to the controller.
-    for (int i = 0; i < uniqueIdx; i++) {
-      int cmid = samples[i];
-      double ns = Controller.methodSamples.getData(cmid);
+    // (3) For all methods sampled, if the method is compiled at an opt
+    //     level below filterOptLevel then report it to the controller.
+    for (int i = 0; i < counts.size(); i++) {
+      int cmid = counts.getCMID(i);
+      double ns = methodSamples.getData(cmid);
       CompiledMethod cm = CompiledMethods.getCompiledMethod(cmid);
       if (cm != null) {         // not already obsoleted
         int compilerType = cm.getCompilerType();
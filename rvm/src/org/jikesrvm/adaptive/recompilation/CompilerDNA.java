@@ -35,6 +35,9 @@ import org.jikesrvm.compilers.common.RuntimeCompiler;
  * There is an AOS command-line option to set the compiler DNA.  The method
  * {@link CompilerDNA#readDNA} contains a comment on the expected format.
  *
+ * The DNA can also be calibrated online, with the compilation rates and
+ * speedups measured as the program runs; see {@link CompilerDNACalibration}.
+ *
  * This DNA was gathered on July 9, 2008 using revision r14679 + the bugfix in r14688.
  * The PowerPC data was gathered on piccolo.watson.ibm.com (JS21, machine type 8884; ppc64-aix).
  * The IA32 data was gathered on lyric.watson.ibm.com (LS41, machine type 7972; x86_64-linux).
@@ -107,6 +110,12 @@ public class CompilerDNA implements Constants {
    */
   private static double[][] compileTimeRatio;
 
+  /**
+   * Have the compilation rates been rescaled to the baseline rate measured
+   * on this machine by {@link #calibrateCompilationRate}?
+   */
+  private static boolean compilationRatesRescaled = false;
+
   static {
     initializeCompilerRatioArrays();
   }
@@ -191,12 +200,62 @@ public class CompilerDNA implements Constants {
     int maxOptLevel = getOptLevel(maxProfitableCompiler);
     Controller.options.DERIVED_MAX_OPT_LEVEL = Math.min(maxOptLevel,Controller.options.MAX_OPT_LEVEL);
     Controller.options.DERIVED_FILTER_OPT_LEVEL = Controller.options.DERIVED_MAX_OPT_LEVEL;
+
+    if (Controller.options.CALIBRATE_COMPILER_DNA) {
+      CompilerDNACalibration.boot();
+    }
+  }
+
+  /**
+   * Move the compilation rate of a compiler towards a measured rate.
+   * The first time this is called, the rates are rescaled so that the
+   * baseline rate is the one measured on this machine, so that the DNA
+   * rates of the compilers that haven't been measured yet are comparable
+   * with the measured ones.
+   *
+   * @param compiler the compiler
+   * @param rate the measured rate, in bytecodes/millisecond
+   * @param weight the weight of the measurement (0.0 to 1.0)
+   */
+  static synchronized void calibrateCompilationRate(int compiler, double rate, double weight) {
+    double baselineRate = RuntimeCompiler.getBaselineRate();
+    if (!(baselineRate > 0) || Double.isInfinite(baselineRate)) return;
+    if (!compilationRatesRescaled) {
+      double scale = baselineRate / compilationRates[BASELINE];
+      for (int i = 0; i < compilationRates.length; i++) {
+        compilationRates[i] *= scale;
+      }
+      compilationRatesRescaled = true;
+    }
+    compilationRates[BASELINE] = baselineRate;
+    compilationRates[compiler] = Math.exp((1 - weight) * Math.log(compilationRates[compiler]) +
+                                          weight * Math.log(rate));
+    AOSLogging.logger.reportCompilationRate(compiler, compilationRates[compiler]);
+    initializeCompilerRatioArrays();
+  }
+
+  /**
+   * Move the speedup of a compiler towards a measured speedup over
+   * another compiler.
+   *
+   * @param from the compiler whose code was replaced
+   * @param to the compiler whose code replaced it
+   * @param speedup the measured speedup of <code>to</code>'s code over <code>from</code>'s
+   * @param weight the weight of the measurement (0.0 to 1.0)
+   */
+  static synchronized void calibrateSpeedupRate(int from, int to, double speedup, double weight) {
+    if (to == BASELINE) return;
+    double rate = speedupRates[from] * speedup;
+    speedupRates[to] = Math.exp((1 - weight) * Math.log(speedupRates[to]) + weight * Math.log(rate));
+    AOSLogging.logger.reportSpeedupRate(to, speedupRates[to]);
+    initializeCompilerRatioArrays();
   }
 
   private static void initializeCompilerRatioArrays() {
     numCompilers = compilerNames.length;
-    benefitRatio = new double[numCompilers][numCompilers];
-    compileTimeRatio = new double[numCompilers][numCompilers];
+    // Fill in new arrays, as the current ones may be in use if we're calibrating
+    double[][] benefitRatio = new double[numCompilers][numCompilers];
+    double[][] compileTimeRatio = new double[numCompilers][numCompilers];
 
     // fill in the upper triangular matrices
     for (int prevCompiler = 0; prevCompiler < numCompilers; prevCompiler++) {
@@ -215,6 +274,8 @@ public class CompilerDNA implements Constants {
         AOSLogging.logger.reportCompileTimeRatio(prevCompiler, nextCompiler, compileTimeRatio[prevCompiler][nextCompiler]);
       }
     }
+    CompilerDNA.benefitRatio = benefitRatio;
+    CompilerDNA.compileTimeRatio = compileTimeRatio;
   }
 
   /**
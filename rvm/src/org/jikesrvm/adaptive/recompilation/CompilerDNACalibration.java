@@ -0,0 +1,191 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.adaptive.recompilation;
+
+import java.util.ArrayList;
+import org.jikesrvm.adaptive.controller.Controller;
+import org.jikesrvm.classloader.NormalMethod;
+import org.jikesrvm.compilers.common.CompiledMethod;
+import org.jikesrvm.compilers.common.CompiledMethods;
+import org.jikesrvm.compilers.opt.runtimesupport.OptCompiledMethod;
+import org.jikesrvm.runtime.Callbacks;
+import org.jikesrvm.runtime.Callbacks.Callback;
+
+/**
+ * Online calibration of the {@link CompilerDNA}, used when
+ * <code>-X:aos:calibrate_compiler_dna=true</code>.
+ * <p>
+ * The compilation rate of each opt level is measured from the
+ * recompilations done by the compilation threads.  The speedup of an opt
+ * level over the compiler it replaced is measured by comparing the rate at
+ * which the old code was sampled (from when it was compiled until it was
+ * replaced) with the rate at which the new code is sampled over the
+ * following <code>dna_calibration_window</code> clock ticks.  Each
+ * measurement moves the DNA's (geometric) average a fraction
+ * <code>dna_calibration_weight</code> of the way towards it, so the DNA
+ * follows the machine and program while older measurements decay.
+ */
+public final class CompilerDNACalibration {
+
+  /**
+   * The fewest samples, and clock ticks, over which the sample rate of
+   * replaced code must have been measured for the speedup to be measured
+   */
+  private static final int MIN_SAMPLES = 4;
+  private static final int MIN_TICKS = 4;
+
+  /** Bounds on a measured speedup, to limit the effect of outliers */
+  private static final double MAX_SPEEDUP = 100.0;
+  private static final double MIN_SPEEDUP = 1.0 / MAX_SPEEDUP;
+
+  /** The controller clock when each compiled method was compiled, by id */
+  private static int[] compiledAt = new int[0];
+
+  /** A recompilation whose speedup is being measured */
+  private static final class Measurement {
+    /** The new compiled method */
+    final int cmid;
+    /** The compiler of the replaced code */
+    final int from;
+    /** The compiler of the new code */
+    final int to;
+    /** The samples per clock tick of the replaced code */
+    final double oldRate;
+    /** The samples credited to the new code when it replaced the old */
+    final double initialSamples;
+    /** The controller clock when the new code replaced the old */
+    final int start;
+
+    Measurement(int cmid, int from, int to, double oldRate, double initialSamples, int start) {
+      this.cmid = cmid;
+      this.from = from;
+      this.to = to;
+      this.oldRate = oldRate;
+      this.initialSamples = initialSamples;
+      this.start = start;
+    }
+  }
+
+  /** The recompilations whose speedups are being measured */
+  private static final ArrayList<Measurement> measurements = new ArrayList<Measurement>();
+
+  /**
+   * Start recording when methods are compiled.  Called by
+   * {@link CompilerDNA#init}.
+   */
+  static void boot() {
+    Callbacks.methodCompileCompleteCallbacks.addCallback(
+      new Callback() {
+        public void notify(Object... args) {
+          compiled((CompiledMethod) args[0]);
+        }
+      });
+  }
+
+  private static synchronized void compiled(CompiledMethod cm) {
+    int cmid = cm.getId();
+    if (cmid >= compiledAt.length) {
+      int[] tmp = new int[Math.max(cmid + 1, compiledAt.length * 2)];
+      System.arraycopy(compiledAt, 0, tmp, 0, compiledAt.length);
+      compiledAt = tmp;
+    }
+    compiledAt[cmid] = Controller.controllerClock;
+  }
+
+  private static synchronized int getCompiledAt(int cmid) {
+    // Methods compiled before we started (eg in the boot image) were compiled at 0
+    return cmid < compiledAt.length ? compiledAt[cmid] : 0;
+  }
+
+  /**
+   * @return the DNA compiler constant of the compiler of a compiled method,
+   * or -1 if it isn't one the DNA describes
+   */
+  private static int getCompiler(CompiledMethod cm) {
+    switch (cm.getCompilerType()) {
+      case CompiledMethod.BASELINE:
+        return CompilerDNA.BASELINE;
+      case CompiledMethod.OPT:
+        int optLevel = ((OptCompiledMethod) cm).getOptLevel();
+        return optLevel >= 0 ? CompilerDNA.getCompilerConstant(optLevel) : -1;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * Record the compilation rate of a recompilation by a compilation thread.
+   *
+   * @param cm the new compiled method
+   */
+  public static void recordCompilation(CompiledMethod cm) {
+    int compiler = getCompiler(cm);
+    double time = cm.getCompilationTime();
+    if (compiler <= CompilerDNA.BASELINE || !(time > 0)) return;
+    double rate = ((NormalMethod) cm.getMethod()).getBytecodeLength() / time;
+    CompilerDNA.calibrateCompilationRate(compiler, rate, Controller.options.DNA_CALIBRATION_WEIGHT);
+  }
+
+  /**
+   * Start measuring the speedup of a recompilation.  Called after the
+   * samples of the old compiled method have been credited to the new one.
+   *
+   * @param prevCMID the old compiled method
+   * @param oldSamples the samples of the old compiled method
+   * @param newCMID the new compiled method
+   */
+  public static void recordRecompilation(int prevCMID, double oldSamples, int newCMID) {
+    CompiledMethod prev = CompiledMethods.getCompiledMethodUnchecked(prevCMID);
+    CompiledMethod cm = CompiledMethods.getCompiledMethodUnchecked(newCMID);
+    if (prev == null || cm == null) return;
+    int from = getCompiler(prev);
+    int to = getCompiler(cm);
+    if (from < 0 || to < 0 || to <= from) return;
+    int now = Controller.controllerClock;
+    int ticks = now - getCompiledAt(prevCMID);
+    if (ticks < MIN_TICKS || oldSamples < MIN_SAMPLES) return;
+    Measurement m = new Measurement(newCMID, from, to, oldSamples / ticks,
+                                    Controller.methodSamples.getData(newCMID), now);
+    synchronized (measurements) {
+      measurements.add(m);
+    }
+  }
+
+  /**
+   * Complete the speedup measurements whose window has passed.  Called
+   * periodically by the method sample organizer.
+   */
+  public static void update() {
+    int now = Controller.controllerClock;
+    ArrayList<Measurement> done = new ArrayList<Measurement>();
+    synchronized (measurements) {
+      for (int i = measurements.size() - 1; i >= 0; i--) {
+        Measurement m = measurements.get(i);
+        if (now - m.start >= Controller.options.DNA_CALIBRATION_WINDOW) {
+          done.add(m);
+          measurements.remove(i);
+        }
+      }
+    }
+    for (Measurement m : done) {
+      CompiledMethod cm = CompiledMethods.getCompiledMethod(m.cmid);
+      // The code has been replaced, and its samples moved, in the meantime
+      if (cm == null || cm.getMethod().getCurrentCompiledMethod() != cm) continue;
+      double newSamples = Controller.methodSamples.getData(m.cmid) - m.initialSamples;
+      // Avoid dividing by zero when the new code is too fast to be sampled
+      double newRate = Math.max(newSamples, 0.5) / (now - m.start);
+      double speedup = Math.max(MIN_SPEEDUP, Math.min(MAX_SPEEDUP, m.oldRate / newRate));
+      CompilerDNA.calibrateSpeedupRate(m.from, m.to, speedup, Controller.options.DNA_CALIBRATION_WEIGHT);
+    }
+  }
+}
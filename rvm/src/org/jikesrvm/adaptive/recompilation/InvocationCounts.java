@@ -25,7 +25,9 @@ import org.jikesrvm.compilers.opt.OptOptions;
 import org.jikesrvm.compilers.opt.driver.CompilationPlan;
 import org.jikesrvm.compilers.opt.driver.OptimizationPlanElement;
 import org.jikesrvm.compilers.opt.driver.OptimizationPlanner;
+import org.jikesrvm.compilers.opt.runtimesupport.OptCompiledMethod;
 import org.jikesrvm.runtime.Magic;
+import org.jikesrvm.scheduler.RVMThread;
 
 /**
  * Runtime system support for using invocation counters in baseline
@@ -33,6 +35,16 @@ import org.jikesrvm.runtime.Magic;
  * by the adaptive system.  Bypasses the normal controller logic:
  * If an invocation counter trips, then the method is enqueued for
  * recompilation at a default optimization level.
+ * <p>
+ * With <code>-X:aos:tiered_compilation=true</code>, methods instead go
+ * through the opt levels in turn: code below the maximum opt level also
+ * has an invocation counter (see {@link
+ * org.jikesrvm.adaptive.recompilation.instrumentation.InsertRecompilationCounter}),
+ * and when it trips the method is recompiled at the next opt level.  The
+ * counter of baseline code also counts loop backedges, so it keeps counting
+ * after the method has been recompiled; if it trips again, an activation
+ * is still running the baseline code in a loop, and is promoted to the
+ * new code by OSR at its next backedge.
  */
 public final class InvocationCounts {
 
@@ -40,6 +52,16 @@ public final class InvocationCounts {
   private static boolean[] processed;
 
   public static synchronized void allocateCounter(int id) {
+    allocateCounter(id, Controller.options.INVOCATION_COUNT_THRESHOLD);
+  }
+
+  /**
+   * Allocate the counter of a compiled method.
+   *
+   * @param id the id of the compiled method
+   * @param count the number of events after which the counter trips
+   */
+  public static synchronized void allocateCounter(int id, int count) {
     if (counts == null) {
       counts = new int[id + 500];
       processed = new boolean[counts.length];
@@ -55,15 +77,21 @@ public final class InvocationCounts {
       counts = tmp;
       processed = tmp2;
     }
-    counts[id] = Controller.options.INVOCATION_COUNT_THRESHOLD;
+    counts[id] = count;
+    processed[id] = false;
   }
 
   /**
-   * Called from baseline compiled code when a method's invocation counter
-   * becomes negative and thus must be handled
+   * Called from baseline compiled code (and, in tiered compilation, opt
+   * compiled code) when a method's invocation counter becomes negative
+   * and thus must be handled
    */
   static synchronized void counterTripped(int id) {
     counts[id] = 0x7fffffff; // set counter to max int to avoid lots of redundant calls.
+    if (Controller.options.TIERED_COMPILATION) {
+      tierTripped(id);
+      return;
+    }
     if (processed[id]) return;
     processed[id] = true;
     CompiledMethod cm = CompiledMethods.getCompiledMethod(id);
@@ -76,6 +104,64 @@ public final class InvocationCounts {
     cp.execute();
   }
 
+  /**
+   * Handle a tripped counter in tiered compilation: the first time,
+   * recompile the method at the next opt level; after that, promote
+   * an activation still running the baseline code.
+   *
+   * @param id the id of the compiled method whose counter tripped
+   */
+  private static void tierTripped(int id) {
+    CompiledMethod cm = CompiledMethods.getCompiledMethod(id);
+    if (cm == null) return;
+    boolean baseline = cm.getCompilerType() == CompiledMethod.BASELINE;
+    boolean osr = baseline && Controller.options.OSR_PROMOTION;
+    NormalMethod m = (NormalMethod) cm.getMethod();
+    if (processed[id]) {
+      if (!osr) return;
+      if (m.getCurrentCompiledMethod() == cm) {
+        // The new code hasn't been installed yet
+        counts[id] = Controller.options.TIERED_OSR_COUNT_THRESHOLD;
+      } else {
+        cm.setOutdated();
+        RVMThread t = RVMThread.getCurrentThread();
+        t.monitor().lockNoHandshake();
+        t.osrPromotionRequested = true;
+        t.osrPromotionYieldpoints = Controller.options.TIERED_OSR_YIELDPOINT_LIMIT;
+        t.takeYieldpoint = 1;
+        t.monitor().unlock();
+      }
+      return;
+    }
+    processed[id] = true;
+    int optLevel = baseline ? 0 : ((OptCompiledMethod) cm).getOptLevel() + 1;
+    if (optLevel < 0 || optLevel > Controller.options.DERIVED_MAX_OPT_LEVEL) return;
+    CompilationPlan compPlan = new CompilationPlan(m, _tierPlans[optLevel], null, _tierOptions[optLevel]);
+    ControllerPlan cp =
+        new ControllerPlan(compPlan, Controller.controllerClock, id, 2.0, 2.0, 2.0); // 2.0 is a bogus number....
+    cp.execute();
+    if (osr) {
+      counts[id] = Controller.options.TIERED_OSR_COUNT_THRESHOLD;
+    }
+  }
+
+  /**
+   * @param optLevel the opt level of a compiled method
+   * @return the number of invocations after which the method's counter
+   * trips in tiered compilation, or -1 if it shouldn't have one
+   */
+  public static int getTierThreshold(int optLevel) {
+    if (optLevel >= Controller.options.DERIVED_MAX_OPT_LEVEL) return -1;
+    switch (optLevel) {
+      case 0:
+        return Controller.options.TIERED_O0_COUNT_THRESHOLD;
+      case 1:
+        return Controller.options.TIERED_O1_COUNT_THRESHOLD;
+      default:
+        return -1;
+    }
+  }
+
   /**
    * Create the compilation plan according to the default set
    * of <optimization plan, options> pairs
@@ -97,12 +183,19 @@ public final class InvocationCounts {
    */
   public static void init() {
     createOptimizationPlan();
+    if (Controller.options.TIERED_COMPILATION) {
+      createTierPlans();
+    }
     BaselineCompiler.options.INVOCATION_COUNTERS = true;
   }
 
   private static OptimizationPlanElement[] _optPlan;
   private static OptOptions _options;
 
+  /** The optimization plans and options of each opt level in tiered compilation */
+  private static OptimizationPlanElement[][] _tierPlans;
+  private static OptOptions[] _tierOptions;
+
   /**
    * Create the default set of <optimization plan, options> pairs
    * Process optimizing compiler command line options.
@@ -117,4 +210,21 @@ public final class InvocationCounts {
     _optPlan = OptimizationPlanner.createOptimizationPlan(_options);
   }
 
+  /**
+   * Create the <optimization plan, options> pair of each opt level
+   * for tiered compilation
+   */
+  static void createTierPlans() {
+    int maxOptLevel = Controller.options.DERIVED_MAX_OPT_LEVEL;
+    String[] optCompilerOptions = Controller.getOptCompilerOptions();
+    _tierPlans = new OptimizationPlanElement[maxOptLevel + 1][];
+    _tierOptions = new OptOptions[maxOptLevel + 1];
+    for (int i = 0; i <= maxOptLevel; i++) {
+      _tierOptions[i] = new OptOptions();
+      _tierOptions[i].setOptLevel(i);
+      RecompilationStrategy.processCommandLineOptions(_tierOptions[i], i, maxOptLevel, optCompilerOptions);
+      _tierPlans[i] = OptimizationPlanner.createOptimizationPlan(_tierOptions[i]);
+    }
+  }
+
 }
@@ -14,13 +14,17 @@ package org.jikesrvm.adaptive.recompilation;
 
 import org.jikesrvm.VM;
 import org.jikesrvm.adaptive.controller.Controller;
+import org.jikesrvm.adaptive.controller.ControllerMemory;
+import org.jikesrvm.adaptive.controller.ControllerPlan;
 import org.jikesrvm.adaptive.util.AOSLogging;
 import org.jikesrvm.adaptive.util.CompilerAdviceAttribute;
 import org.jikesrvm.classloader.RVMClass;
 import org.jikesrvm.classloader.RVMClassLoader;
 import org.jikesrvm.classloader.RVMMethod;
 import org.jikesrvm.classloader.NormalMethod;
+import org.jikesrvm.classloader.RVMType;
 import org.jikesrvm.classloader.TypeReference;
+import org.jikesrvm.compilers.common.CompiledMethod;
 import org.jikesrvm.compilers.common.RuntimeCompiler;
 import org.jikesrvm.compilers.opt.driver.CompilationPlan;
 import org.jikesrvm.runtime.Callbacks;
@@ -33,6 +37,21 @@ import org.jikesrvm.runtime.Callbacks.Callback;
  * <i>Run time</i> advice is given by identifying an advice file
  * through a command line option:
  * <code>-X:aos:compiler_advice_file=path-to-advice-file</code>.
+ * <p>
+ * With <code>-X:aos:enable_background_precompile=true</code> the
+ * adaptive system runs as usual, but the methods the advice opt compiles
+ * are also queued for the compilation threads as soon as their classes are
+ * initialized, so that they need not be sampled before reaching peak
+ * performance.  Advice generated by a previous run with
+ * <code>-X:aos:enable_advice_generation=true</code> records the bytecode
+ * hash of each method, and is ignored for a method that has changed since.
+ * <p>
+ * Only the choice of compiler and opt level is carried from one run to
+ * the next; the methods are compiled again.  Opt compiled code embeds
+ * JTOC offsets, field offsets and TIB slots that are assigned as classes
+ * are loaded in the current run, and the assemblers keep no relocation
+ * information, so machine code from one run cannot be installed in
+ * another.
  *
  *
  * @see org.jikesrvm.adaptive.util.CompilerAdviceAttribute
@@ -50,11 +69,83 @@ public final class PreCompile {
             // precompile the methods
             compileAllMethods();
             VM.sysWrite("Finish precompiling");
+          } else if (Controller.options.ENABLE_BACKGROUND_PRECOMPILE) {
+            queueAllMethods();
           }
         }
       });
   }
 
+  /**
+   * Queue the methods the advice file opt compiles for the compilation
+   * threads, now for the classes that have been initialized, and later for
+   * each class as it is initialized.
+   */
+  private static void queueAllMethods() {
+    if (!CompilerAdviceAttribute.hasAdvice() || !Controller.options.sampling() ||
+        !Controller.options.ENABLE_RECOMPILATION || Controller.options.ENABLE_REPLAY_COMPILE) {
+      return;
+    }
+    Callbacks.classInitializedCallbacks.addCallback(
+      new Callback() {
+        public void notify(Object... args) {
+          queueMethods((RVMClass) args[0]);
+        }
+      });
+    for (CompilerAdviceAttribute value : CompilerAdviceAttribute.values()) {
+      TypeReference tRef =
+          TypeReference.findOrCreate(RVMClassLoader.getApplicationClassLoader(), value.getClassName());
+      RVMType type = tRef.peekType();
+      if (type != null && type.isClassType() && type.isInitialized()) {
+        RVMMethod method = type.asClass().findDeclaredMethod(value.getMethodName(), value.getMethodSig());
+        if (method instanceof NormalMethod) {
+          queueMethod((NormalMethod) method, value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Queue the methods of a class that has just been initialized that the
+   * advice file opt compiles.
+   *
+   * @param cls the class
+   */
+  private static void queueMethods(RVMClass cls) {
+    for (RVMMethod method : cls.getDeclaredMethods()) {
+      if (method instanceof NormalMethod) {
+        queueMethod((NormalMethod) method, CompilerAdviceAttribute.getCompilerAdviceInfo(method));
+      }
+    }
+  }
+
+  /**
+   * Queue a method for opt compilation at the level the advice gives,
+   * unless the advice doesn't opt compile it or no longer matches it, or
+   * the adaptive system has already planned a recompilation of it.
+   *
+   * @param method the method
+   * @param value the advice for the method
+   */
+  private static synchronized void queueMethod(NormalMethod method, CompilerAdviceAttribute value) {
+    if (value.getCompiler() != CompiledMethod.OPT || value.getOptLevel() < 0 ||
+        method.hasNoOptCompileAnnotation() || !value.matches(method) ||
+        ControllerMemory.findLatestPlan(method) != null) {
+      return;
+    }
+    int optLevel = Math.min(value.getOptLevel(), Controller.options.DERIVED_MAX_OPT_LEVEL);
+    CompiledMethod prev = method.getCurrentCompiledMethod();
+    CompilationPlan compPlan = Controller.recompilationStrategy.createCompilationPlan(method, optLevel, null);
+    double speedup = CompilerDNA.getBenefitRatio(CompilerDNA.BASELINE, CompilerDNA.getCompilerConstant(optLevel));
+    double compileTime = CompilerDNA.estimateCompileTime(CompilerDNA.getCompilerConstant(optLevel), method);
+    // The method was hot when the advice was generated, so the priority
+    // is somewhat arbitrary
+    ControllerPlan plan =
+        new ControllerPlan(compPlan, Controller.controllerClock, prev == null ? -1 : prev.getId(),
+                           speedup, compileTime, 1.0);
+    plan.execute();
+  }
+
   /**
    * Compile all methods in the advice file
    */
@@ -87,9 +178,11 @@ public final class PreCompile {
         if ((method != null) &&
             !method.hasNoOptCompileAnnotation() &&
             (method instanceof org.jikesrvm.classloader.NormalMethod)) {
-          // if user's requirement is higher than advice
+          // if user's requirement is higher than advice, or the method has
+          // changed since the advice was generated
           if ((((org.jikesrvm.compilers.opt.OptOptions) RuntimeCompiler.options).getOptLevel() >
-               value.getOptLevel()) || (Controller.options.DERIVED_MAX_OPT_LEVEL < value.getOptLevel())) {
+               value.getOptLevel()) || (Controller.options.DERIVED_MAX_OPT_LEVEL < value.getOptLevel()) ||
+              !value.matches((NormalMethod) method)) {
             method.compile();
           } else {
             // otherwise, follow the advice...
@@ -0,0 +1,151 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.adaptive.recompilation.instrumentation;
+
+import static org.jikesrvm.compilers.opt.driver.OptConstants.PROLOGUE_BCI;
+import static org.jikesrvm.compilers.opt.ir.Operators.CALL;
+import static org.jikesrvm.compilers.opt.ir.Operators.GETSTATIC;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_ALOAD;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_ASTORE;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_IFCMP;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_SUB;
+import static org.jikesrvm.compilers.opt.ir.Operators.IR_PROLOGUE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.YIELDPOINT_PROLOGUE_opcode;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.adaptive.AosEntrypoints;
+import org.jikesrvm.adaptive.controller.Controller;
+import org.jikesrvm.adaptive.recompilation.InvocationCounts;
+import org.jikesrvm.classloader.RVMField;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.classloader.TypeReference;
+import org.jikesrvm.compilers.opt.OptOptions;
+import org.jikesrvm.compilers.opt.driver.CompilerPhase;
+import org.jikesrvm.compilers.opt.ir.ALoad;
+import org.jikesrvm.compilers.opt.ir.AStore;
+import org.jikesrvm.compilers.opt.ir.BasicBlock;
+import org.jikesrvm.compilers.opt.ir.Binary;
+import org.jikesrvm.compilers.opt.ir.Call;
+import org.jikesrvm.compilers.opt.ir.GetStatic;
+import org.jikesrvm.compilers.opt.ir.IR;
+import org.jikesrvm.compilers.opt.ir.IRTools;
+import org.jikesrvm.compilers.opt.ir.IfCmp;
+import org.jikesrvm.compilers.opt.ir.Instruction;
+import org.jikesrvm.compilers.opt.ir.operand.BranchProfileOperand;
+import org.jikesrvm.compilers.opt.ir.operand.ConditionOperand;
+import org.jikesrvm.compilers.opt.ir.operand.LocationOperand;
+import org.jikesrvm.compilers.opt.ir.operand.MethodOperand;
+import org.jikesrvm.compilers.opt.ir.operand.RegisterOperand;
+
+/**
+ * A CompilerPhase that gives the opt compiled code of a method an
+ * invocation counter for tiered compilation (see {@link InvocationCounts}).
+ * The counter is the method's entry in the same array as the counters of
+ * baseline compiled code, and is decremented in the first basic block;
+ * when it reaches zero, InvocationCounts.counterTripped is called to
+ * recompile the method at the next opt level.
+ * <p>
+ * Code compiled at the maximum opt level has no counter.
+ */
+public class InsertRecompilationCounter extends CompilerPhase {
+
+  /**
+   * Return this instance of this phase. This phase contains no
+   * per-compilation instance fields.
+   * @param ir not used
+   * @return this
+   */
+  public CompilerPhase newExecution(IR ir) {
+    return this;
+  }
+
+  public final boolean shouldPerform(OptOptions options) {
+    return Controller.options.counters() && Controller.options.TIERED_COMPILATION;
+  }
+
+  public final String getName() { return "InsertRecompilationCounter"; }
+
+  /**
+   * Insert the invocation counter
+   *
+   * @param ir the governing IR
+   */
+  public final void perform(IR ir) {
+    // Don't insert counters in uninterruptible or save volatile methods,
+    // or in OSR specializations, which don't replace the method's code
+    if (!VM.runningVM ||
+        !ir.method.isInterruptible() ||
+        ir.method.getDeclaringClass().hasSaveVolatileAnnotation() ||
+        ir.method.isForOsrSpecialization()) {
+      return;
+    }
+    int threshold = InvocationCounts.getTierThreshold(ir.options.getOptLevel());
+    if (threshold < 0) return;
+
+    int cmid = ir.compiledMethod.getId();
+    InvocationCounts.allocateCounter(cmid, threshold);
+
+    BasicBlock entry = ir.cfg.entry();
+    Instruction prologue = entry.firstRealInstruction();
+    if (VM.VerifyAssertions) {
+      VM._assert(prologue != null && prologue.getOpcode() == IR_PROLOGUE_opcode);
+    }
+
+    // The counters are reloaded on each invocation, as the array is
+    // replaced when it grows
+    RVMField countsField = AosEntrypoints.invocationCountsField;
+    RegisterOperand counts = ir.regpool.makeTemp(TypeReference.IntArray);
+    Instruction s1 =
+        GetStatic.create(GETSTATIC, counts, IRTools.AC(countsField.getOffset()), new LocationOperand(countsField));
+    RegisterOperand count = ir.regpool.makeTempInt();
+    Instruction s2 =
+        ALoad.create(INT_ALOAD, count, counts.copyD2U(), IRTools.IC(cmid),
+                     new LocationOperand(TypeReference.Int), IRTools.TG());
+    RegisterOperand newCount = ir.regpool.makeTempInt();
+    Instruction s3 = Binary.create(INT_SUB, newCount, count.copyD2U(), IRTools.IC(1));
+    Instruction s4 =
+        AStore.create(INT_ASTORE, newCount.copyD2U(), counts.copyD2U(), IRTools.IC(cmid),
+                      new LocationOperand(TypeReference.Int), IRTools.TG());
+
+    // The counter trips rarely, so the call is in an infrequent block
+    BasicBlock tripped = entry.createSubBlock(PROLOGUE_BCI, ir, 0f);
+    tripped.setInfrequent();
+    Instruction s5 =
+        IfCmp.create(INT_IFCMP, ir.regpool.makeTempValidation(), newCount.copyD2U(), IRTools.IC(0),
+                     ConditionOperand.LESS_EQUAL(), tripped.makeJumpTarget(), BranchProfileOperand.never());
+
+    // Keep the prologue yieldpoint, if any, in the entry block
+    Instruction last = prologue;
+    if (last.nextInstructionInCodeOrder().getOpcode() == YIELDPOINT_PROLOGUE_opcode) {
+      last = last.nextInstructionInCodeOrder();
+    }
+    for (Instruction s : new Instruction[]{s1, s2, s3, s4, s5}) {
+      s.position = ir.gc.inlineSequence;
+      s.bcIndex = PROLOGUE_BCI;
+      last.insertAfter(s);
+      last = s;
+    }
+    BasicBlock rest = entry.splitNodeWithLinksAt(s5, ir);
+
+    RVMMethod target = AosEntrypoints.invocationCounterTrippedMethod;
+    Instruction call =
+        Call.create1(CALL, null, IRTools.AC(target.getOffset()), MethodOperand.STATIC(target), IRTools.IC(cmid));
+    call.position = ir.gc.inlineSequence;
+    call.bcIndex = PROLOGUE_BCI;
+    tripped.appendInstruction(call);
+    tripped.appendInstruction(rest.makeGOTO());
+    tripped.insertOut(rest);
+    entry.insertOut(tripped);
+    ir.cfg.addLastInCodeOrder(tripped);
+  }
+}
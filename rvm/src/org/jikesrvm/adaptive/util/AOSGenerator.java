@@ -85,7 +85,9 @@ public class AOSGenerator {
                   plan.method.getDescriptor() +
                   " 3 " +
                   /*it's always compiler*/
-                  plan.options.getOptLevel());
+                  plan.options.getOptLevel() +
+                  " " +
+                  plan.method.getBytecodeHash());
     }
   }
 
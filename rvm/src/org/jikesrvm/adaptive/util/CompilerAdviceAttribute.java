@@ -16,6 +16,7 @@ import java.util.List;
 import java.util.ListIterator;
 import org.jikesrvm.VM;
 import org.jikesrvm.classloader.Atom;
+import org.jikesrvm.classloader.NormalMethod;
 import org.jikesrvm.classloader.RVMMethod;
 import org.jikesrvm.compilers.common.CompiledMethod;
 import org.jikesrvm.util.HashMapRVM;
@@ -34,6 +35,10 @@ import org.jikesrvm.util.HashMapRVM;
  * compiler, as given in CompilerInfo</li>
  * <li><code>&lt;optLevel></code> <i>in </i> The optimization level when
  the Opt compiler is used
+ * <li><code>&lt;bytecodeHash></code> <i>int</i> (Optional) The
+ * {@link NormalMethod#getBytecodeHash() bytecode hash} of the method when
+ * the advice was generated, so that advice for a method that has since
+ * changed can be ignored</li>
  * </ul>
  *
  *
@@ -56,6 +61,8 @@ public class CompilerAdviceAttribute {
   private final Atom methodSig;  // The signature of the method
   private final int compiler;   // The compiler to use for the method
   private final int optLevel;   // The optimization level
+  private final boolean hasBytecodeHash; // Was the bytecode hash recorded?
+  private final int bytecodeHash; // The bytecode hash of the method
 
   /**
    * Getter method for class name
@@ -92,6 +99,18 @@ public class CompilerAdviceAttribute {
    */
   public int getOptLevel() { return optLevel; }
 
+  /**
+   * Does this advice apply to the given method as it is now?  It does
+   * unless a bytecode hash was recorded with the advice, and the method's
+   * bytecodes, or what they refer to, have changed since.
+   *
+   * @param method the method the advice is for
+   * @return whether the advice still applies
+   */
+  public boolean matches(NormalMethod method) {
+    return !hasBytecodeHash || method.getBytecodeHash() == bytecodeHash;
+  }
+
   /**
    * Constructor
    *
@@ -109,6 +128,8 @@ public class CompilerAdviceAttribute {
     this.methodSig = methodSig;
     this.compiler = compiler;
     this.optLevel = -1;
+    this.hasBytecodeHash = false;
+    this.bytecodeHash = 0;
   }
 
   /**
@@ -130,6 +151,32 @@ public class CompilerAdviceAttribute {
     this.methodSig = methodSig;
     this.compiler = compiler;
     this.optLevel = optLevel;
+    this.hasBytecodeHash = false;
+    this.bytecodeHash = 0;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param className  The name of the class for the compiler site
+   * @param methodName The name of the method for the compiler site
+   * @param methodSig  The signature of the method for the compiler site
+   * @param compiler   The ID of the compiler to use for this method
+   * @param optLevel   The optimization level if using Opt compiler
+   * @param bytecodeHash The bytecode hash of the method
+   *
+   * @see CompilerAdviceInfoReader
+   */
+  public CompilerAdviceAttribute(Atom className, Atom methodName, Atom methodSig, int compiler,
+                                    int optLevel, int bytecodeHash) {
+    if(VM.VerifyAssertions) VM._assert(className != null && methodName != null && methodSig != null);
+    this.className = className;
+    this.methodName = methodName;
+    this.methodSig = methodSig;
+    this.compiler = compiler;
+    this.optLevel = optLevel;
+    this.hasBytecodeHash = true;
+    this.bytecodeHash = bytecodeHash;
   }
 
   /**
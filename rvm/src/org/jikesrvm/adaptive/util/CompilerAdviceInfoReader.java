@@ -30,7 +30,7 @@ import org.jikesrvm.classloader.Atom;
  * for one method and has the following format:
  * <p>
  * <pre>
- * <class> <method> <signature> <advice> <optLevel>
+ * <class> <method> <signature> <advice> <optLevel> [<bytecodeHash>]
  * </pre>
  * Where the types and meanings of the fields is as follows:
  * <ul>
@@ -42,6 +42,8 @@ import org.jikesrvm.classloader.Atom;
  CompiledMethod</li>
  * <li><code>&lt;optLevel></code> <i>int</i> (Optional) The opt level to use
  if compiler is optimizing compiler</li>
+ * <li><code>&lt;bytecodeHash></code> <i>int</i> (Optional) The bytecode
+ * hash of the method when the advice was generated</li>
  * </ul>
  *
  *
@@ -115,7 +117,10 @@ class CompilerAdviceInfoReader {
       // this is the attribute which will be returned
       CompilerAdviceAttribute newAttrib;
 
-      if (optLevel >= 0) {
+      if (st.hasMoreTokens()) {
+        int bytecodeHash = Integer.parseInt(st.nextToken());
+        newAttrib = new CompilerAdviceAttribute(cls, mth, sig, compiler, optLevel, bytecodeHash);
+      } else if (optLevel >= 0) {
         newAttrib = new CompilerAdviceAttribute(cls, mth, sig, compiler, optLevel);
       } else {
         newAttrib = new CompilerAdviceAttribute(cls, mth, sig, compiler);
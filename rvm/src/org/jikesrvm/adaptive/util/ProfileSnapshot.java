@@ -0,0 +1,195 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.adaptive.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.StringTokenizer;
+import org.jikesrvm.VM;
+import org.jikesrvm.adaptive.controller.Controller;
+import org.jikesrvm.classloader.MemberReference;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.compilers.baseline.EdgeCounts;
+import org.jikesrvm.compilers.common.CompiledMethod;
+import org.jikesrvm.runtime.Callbacks;
+import org.jikesrvm.runtime.Callbacks.Callback;
+import org.jikesrvm.util.HashMapRVM;
+
+/**
+ * A snapshot of the profiles gathered by the adaptive system: the method
+ * samples, the dynamic call graph and the baseline edge counts.  A
+ * snapshot is written when the VM exits, and periodically if
+ * <code>-X:aos:profile_snapshot_frequency</code> is set, to files with the
+ * prefix given by <code>-X:aos:profile_snapshot_output</code>.  Giving the
+ * same prefix to <code>-X:aos:profile_snapshot_input</code> in a later run
+ * seeds the profiles with the snapshot, so the controller can recompile hot
+ * methods, with good inlining decisions, without first having to gather
+ * the profiles again.
+ * <p>
+ * A snapshot is three files:
+ * <ul>
+ * <li><code>prefix.samples</code> the method samples, written by
+ *     {@link org.jikesrvm.adaptive.database.methodsamples.MethodCountData#dumpCounts}</li>
+ * <li><code>prefix.dc</code> the dynamic call graph, in the format read by
+ *     {@link DynamicCallFileInfoReader}</li>
+ * <li><code>prefix.edges</code> the edge counts, in the format read by
+ *     {@link EdgeCounts#readCounts}</li>
+ * </ul>
+ * Methods are identified by their member references, so the samples of a
+ * method that has not been compiled yet are kept until it is.
+ *
+ * @see CompilerAdvice
+ */
+public final class ProfileSnapshot {
+
+  /**
+   * The samples read from a snapshot for methods that have not been
+   * compiled yet
+   */
+  private static final HashMapRVM<MemberReference, Double> pendingSamples =
+      new HashMapRVM<MemberReference, Double>();
+
+  /** Has the dynamic call graph been seeded from a snapshot? */
+  private static boolean callGraphSeeded = false;
+
+  /**
+   * Called after VM boot up, once the controller has created the profile
+   * databases
+   */
+  public static void postBoot() {
+    String input = Controller.options.PROFILE_SNAPSHOT_INPUT;
+    if (input != null) {
+      VM.sysWrite("Profile snapshot ");
+      VM.sysWriteln(input);
+      read(input);
+    }
+    if (Controller.options.PROFILE_SNAPSHOT_OUTPUT != null) {
+      Callbacks.vmExitCallbacks.addCallback(
+        new Callback() {
+          public void notify(Object... args) {
+            write();
+          }
+        });
+    }
+  }
+
+  /**
+   * @return whether the dynamic call graph has been seeded from a snapshot,
+   * so has enough data to make inlining decisions with
+   */
+  public static boolean callGraphSeeded() {
+    return callGraphSeeded;
+  }
+
+  /**
+   * Write a snapshot to the files with the prefix given by
+   * <code>-X:aos:profile_snapshot_output</code>.
+   */
+  public static synchronized void write() {
+    String prefix = Controller.options.PROFILE_SNAPSHOT_OUTPUT;
+    if (Controller.methodSamples != null) {
+      Controller.methodSamples.dumpCounts(prefix + ".samples");
+    }
+    Controller.dcg.dumpGraph(prefix + ".dc");
+    EdgeCounts.dumpCounts(prefix + ".edges");
+  }
+
+  /**
+   * Seed the profiles with the snapshot in the files with the given prefix.
+   * Missing files are ignored.
+   *
+   * @param prefix the prefix of the snapshot's files
+   */
+  private static void read(String prefix) {
+    String samplesFile = prefix + ".samples";
+    if (Controller.methodSamples != null && new File(samplesFile).exists()) {
+      readSamples(samplesFile);
+    }
+    String dcFile = prefix + ".dc";
+    if (new File(dcFile).exists()) {
+      DynamicCallFileInfoReader.readDynamicCallFile(dcFile, false);
+      callGraphSeeded = true;
+    }
+    String edgesFile = prefix + ".edges";
+    if (new File(edgesFile).exists()) {
+      EdgeCounts.readCounts(edgesFile);
+    }
+  }
+
+  /**
+   * Read the method samples.  The samples of methods that have been
+   * compiled are credited to their current compiled method, and those of
+   * the other methods to the first compiled method they get.
+   *
+   * @param file the samples file
+   */
+  private static void readSamples(String file) {
+    try {
+      BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "ISO-8859-1"));
+      try {
+        for (String s = in.readLine(); s != null; s = in.readLine()) {
+          StringTokenizer parser = new StringTokenizer(s, " \n,");
+          if (!parser.nextToken().equals("Samples")) {
+            VM.sysFail("Format error in method samples file " + file);
+          }
+          MemberReference key = MemberReference.parse(parser, false);
+          double samples = Double.parseDouble(parser.nextToken());
+          RVMMethod method = key.asMethodReference().peekResolvedMethod();
+          CompiledMethod cm = method == null ? null : method.getCurrentCompiledMethod();
+          if (cm != null) {
+            Controller.methodSamples.update(cm.getId(), samples);
+          } else {
+            addPendingSamples(key, samples);
+          }
+        }
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      VM.sysWriteln("Couldn't read method samples file ", file);
+    }
+
+    Callbacks.methodCompileCompleteCallbacks.addCallback(
+      new Callback() {
+        public void notify(Object... args) {
+          methodCompiled((CompiledMethod) args[0]);
+        }
+      });
+  }
+
+  private static synchronized void addPendingSamples(MemberReference key, double samples) {
+    Double pending = pendingSamples.get(key);
+    pendingSamples.put(key, pending == null ? samples : pending + samples);
+  }
+
+  /**
+   * Credit a newly compiled method with the samples read for it, if any
+   *
+   * @param cm the compiled method
+   */
+  private static void methodCompiled(CompiledMethod cm) {
+    int compilerType = cm.getCompilerType();
+    if (compilerType != CompiledMethod.BASELINE && compilerType != CompiledMethod.OPT) return;
+    Double samples;
+    synchronized (ProfileSnapshot.class) {
+      if (pendingSamples.size() == 0) return;
+      samples = pendingSamples.remove(cm.getMethod().getMemberRef());
+    }
+    if (samples != null) {
+      Controller.methodSamples.update(cm.getId(), samples);
+    }
+  }
+}
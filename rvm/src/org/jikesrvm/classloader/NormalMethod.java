@@ -216,6 +216,101 @@ public class NormalMethod extends RVMMethod {
     return new BytecodeStream(this, bytecodes);
   }
 
+  /**
+   * Get a hash of the bytecodes of this method, which is the same in every
+   * run for the same method.  Constant pool indices are not hashed, as they
+   * depend on the rest of the class file; the fields, methods, types and
+   * constants they refer to are hashed instead, so the hash changes when a
+   * method refers to something else through the same index.
+   * @return the hash
+   */
+  public int getBytecodeHash() {
+    int hash = bytecodes.length;
+    BytecodeStream bcodes = new BytecodeStream(this, bytecodes);
+    while (bcodes.hasMoreBytecodes()) {
+      int start = bcodes.index();
+      int opcode = bcodes.nextInstruction();
+      hash = 31 * hash + opcode;
+      switch (opcode) {
+        case JBC_getstatic:
+        case JBC_putstatic:
+        case JBC_getfield:
+        case JBC_putfield:
+          hash = 31 * hash + getMemberReferenceHash(bcodes.getFieldReference());
+          break;
+        case JBC_invokevirtual:
+        case JBC_invokespecial:
+        case JBC_invokestatic:
+        case JBC_invokeinterface:
+          hash = 31 * hash + getMemberReferenceHash(bcodes.getMethodReference());
+          break;
+        case JBC_new:
+        case JBC_anewarray:
+        case JBC_checkcast:
+        case JBC_instanceof:
+          hash = 31 * hash + bcodes.getTypeReference().getName().hashCode();
+          break;
+        case JBC_multianewarray:
+          hash = 31 * hash + bcodes.getTypeReference().getName().hashCode();
+          hash = 31 * hash + bcodes.getArrayDimension();
+          break;
+        case JBC_ldc:
+          hash = 31 * hash + getConstantHash(bcodes, bcodes.getConstantIndex());
+          break;
+        case JBC_ldc_w:
+        case JBC_ldc2_w:
+          hash = 31 * hash + getConstantHash(bcodes, bcodes.getWideConstantIndex());
+          break;
+        default:
+          // No constant pool index, so hash the operands as they are
+          bcodes.skipInstruction();
+          for (int i = start + 1; i < bcodes.index(); i++) {
+            hash = 31 * hash + bytecodes[i];
+          }
+          continue;
+      }
+      bcodes.reset(start + 1);
+      bcodes.skipInstruction();
+    }
+    return hash;
+  }
+
+  /**
+   * Get a hash of a field or method reference that is the same in every run
+   * (atoms hash their contents).
+   */
+  private static int getMemberReferenceHash(MemberReference ref) {
+    int hash = ref.getType().getName().hashCode();
+    hash = 31 * hash + ref.getName().hashCode();
+    return 31 * hash + ref.getDescriptor().hashCode();
+  }
+
+  /**
+   * Get a hash of the constant loaded by an ldc, ldc_w or ldc2_w.  Class
+   * literals are hashed by their constant pool tag only.
+   */
+  private static int getConstantHash(BytecodeStream bcodes, int index) {
+    byte type = bcodes.getConstantType(index);
+    switch (type) {
+      case CP_INT:
+        return bcodes.getIntConstant(index);
+      case CP_FLOAT:
+        return Float.floatToIntBits(bcodes.getFloatConstant(index));
+      case CP_LONG: {
+        long value = bcodes.getLongConstant(index);
+        return (int) (value ^ (value >>> 32));
+      }
+      case CP_DOUBLE: {
+        long value = Double.doubleToLongBits(bcodes.getDoubleConstant(index));
+        return (int) (value ^ (value >>> 32));
+      }
+      case CP_STRING:
+        return bcodes.getStringConstant(index).hashCode();
+      default:
+        return type;
+    }
+  }
+
   /**
    * Fill in DynamicLink object for the invoke at the given bytecode index
    * @param dynamicLink the dynamicLink object to initialize
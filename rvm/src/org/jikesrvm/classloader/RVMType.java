@@ -212,6 +212,27 @@ public abstract class RVMType extends AnnotatedElement
    */
   private RVMArray cachedElementType;
 
+  /**
+   * The number of times the bias of the lock on an instance of this type
+   * has been revoked since {@link #biasCountsStart} (see
+   * {@link org.jikesrvm.scheduler.ThinLock}).
+   */
+  private int biasRevocations;
+  /**
+   * The number of times the bias of the lock on an instance of this type
+   * has been handed from one thread to another since {@link #biasCountsStart}.
+   */
+  private int biasRebiases;
+  /** The time at which the bias counts were last reset */
+  private long biasCountsStart;
+  /**
+   * The bias epoch of this type, advanced by each bulk rebias.  Only its
+   * low bits are recorded in lock words.
+   */
+  private int biasEpoch;
+  /** Has biased locking been disabled for instances of this type? */
+  private boolean biasingDisabled;
+
   /**
    * The superclass ids for this type.
    */
@@ -509,6 +530,85 @@ public abstract class RVMType extends AnnotatedElement
     return superclassIds;
   }
 
+  /**
+   * Count the revocation of the bias of the lock on an instance of this
+   * type.
+   *
+   * @param now the current time, in nanoseconds
+   * @param decayTime the time after which the bias counts are reset, in nanoseconds
+   * @return the number of revocations since the counts were reset, including this one
+   */
+  @Uninterruptible
+  public final int countBiasRevocation(long now, long decayTime) {
+    decayBiasCounts(now, decayTime);
+    return ++biasRevocations;
+  }
+
+  /**
+   * Count the handing over of the bias of the lock on an instance of this
+   * type from one thread to another.
+   *
+   * @param now the current time, in nanoseconds
+   * @param decayTime the time after which the bias counts are reset, in nanoseconds
+   * @return the number of rebiases since the counts were reset, including this one
+   */
+  @Uninterruptible
+  public final int countBiasRebias(long now, long decayTime) {
+    decayBiasCounts(now, decayTime);
+    return ++biasRebiases;
+  }
+
+  @Uninterruptible
+  private void decayBiasCounts(long now, long decayTime) {
+    if (now - biasCountsStart > decayTime) {
+      biasCountsStart = now;
+      biasRevocations = 0;
+      biasRebiases = 0;
+    }
+  }
+
+  /**
+   * @return the number of biases revoked since the bias counts were reset
+   */
+  @Uninterruptible
+  public final int getBiasRevocations() {
+    return biasRevocations;
+  }
+
+  /**
+   * @return the bias epoch of this type
+   */
+  @Uninterruptible
+  public final int getBiasEpoch() {
+    return biasEpoch;
+  }
+
+  /**
+   * Advance the bias epoch of this type, making the biases of locks on its
+   * instances stale.  Only called while all other threads are stopped.
+   */
+  @Uninterruptible
+  public final void advanceBiasEpoch() {
+    biasEpoch++;
+    biasRebiases = 0;
+  }
+
+  /**
+   * @return whether biased locking has been disabled for instances of this type
+   */
+  @Uninterruptible
+  public final boolean isBiasingDisabled() {
+    return biasingDisabled;
+  }
+
+  /**
+   * Disable biased locking for instances of this type
+   */
+  @Uninterruptible
+  public final void disableBiasing() {
+    biasingDisabled = true;
+  }
+
   /**
    * get doesImplement vector (@see DynamicTypeCheck)
    */
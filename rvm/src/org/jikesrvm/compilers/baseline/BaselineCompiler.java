@@ -18,6 +18,7 @@ import org.jikesrvm.classloader.Atom;
 import org.jikesrvm.classloader.FieldReference;
 import org.jikesrvm.classloader.MethodReference;
 import org.jikesrvm.classloader.NormalMethod;
+import org.jikesrvm.classloader.RVMMethod;
 import org.jikesrvm.compilers.common.CodeArray;
 import org.jikesrvm.compilers.common.CompiledMethod;
 import org.jikesrvm.compilers.common.CompiledMethods;
@@ -56,6 +57,21 @@ public abstract class BaselineCompiler extends TemplateCompilerFramework {
    */
   protected int edgeCounterIdx;
 
+  /**
+   * Are we profiling the receiver types of calls in the method being compiled?
+   */
+  private boolean profileReceiverTypes;
+
+  /**
+   * The bytecode indexes of the call sites whose receiver types are profiled
+   */
+  private int[] receiverTypeSites;
+
+  /**
+   * The number of call sites whose receiver types are profiled
+   */
+  private int numReceiverTypeSites;
+
   /**
    * Reference maps for method being compiled
    */
@@ -109,6 +125,32 @@ public abstract class BaselineCompiler extends TemplateCompilerFramework {
     return method.getId();
   }
 
+  /**
+   * Allocate an entry in the method's receiver type profile for the call
+   * at the current bytecode, if its receiver type should be profiled.
+   * Calls that can only have one target aren't profiled.
+   *
+   * @param target the statically resolved target of the call, or null
+   * @return the offset of the call site's entry, to be passed to
+   *         {@link ReceiverTypeProfiles#profileReceiverType}, or -1 if
+   *         the call shouldn't be profiled
+   */
+  protected final int allocateReceiverTypeSite(RVMMethod target) {
+    if (!profileReceiverTypes) return -1;
+    if (target != null && (target.isFinal() || target.isPrivate() || target.getDeclaringClass().isFinal())) {
+      return -1;
+    }
+    if (receiverTypeSites == null) {
+      receiverTypeSites = new int[8];
+    } else if (numReceiverTypeSites == receiverTypeSites.length) {
+      int[] tmp = new int[receiverTypeSites.length * 2];
+      System.arraycopy(receiverTypeSites, 0, tmp, 0, receiverTypeSites.length);
+      receiverTypeSites = tmp;
+    }
+    receiverTypeSites[numReceiverTypeSites] = biStart;
+    return numReceiverTypeSites++ * ReceiverTypeProfiles.SITE_SIZE;
+  }
+
   /**
    * The types that locals can take.
    * There are two types of locals. First the parameters of the method, they only have one type
@@ -310,6 +352,10 @@ public abstract class BaselineCompiler extends TemplateCompilerFramework {
           (method.hasCondBranch() || method.hasSwitch())) {
         ((BaselineCompiledMethod) compiledMethod).setHasCounterArray(); // yes, we will inject counters for this method.
       }
+      // and whether we are going to profile the receiver types of its calls
+      profileReceiverTypes = options.PROFILE_RECEIVER_TYPES && isInterruptible &&
+          !(VM.BuildForAdaptiveSystem && method.isForOsrSpecialization()) &&
+          !method.getDeclaringClass().hasBridgeFromNativeAnnotation();
 
       //do platform specific tasks before generating code;
       initializeCompiler();
@@ -363,6 +409,9 @@ public abstract class BaselineCompiler extends TemplateCompilerFramework {
       if (edgeCounterIdx > 0) {
         EdgeCounts.allocateCounters(method, edgeCounterIdx);
       }
+      if (numReceiverTypeSites > 0) {
+        ReceiverTypeProfiles.allocateProfiles(method, receiverTypeSites, numReceiverTypeSites);
+      }
       if (shouldPrint) {
         ((BaselineCompiledMethod) compiledMethod).printExceptionTable();
         printEndHeader(method);
@@ -74,7 +74,13 @@ public final class EdgeCounts {
           }
         });
     }
-    allocateCounters(m.getId(), numEntries);
+    int id = m.getId();
+    if (data != null && id < data.length && data[id] != null && data[id].length == numEntries) {
+      // Keep the counts read from a profile, or gathered by an
+      // earlier baseline compilation of the same bytecodes
+      return;
+    }
+    allocateCounters(id, numEntries);
   }
 
   private static synchronized void allocateCounters(int id, int numEntries) {
@@ -118,14 +124,18 @@ public final class EdgeCounts {
       VM.sysWrite("\n\nEdgeCounts.dumpCounts: Error opening output file!!\n\n");
       return;
     }
-    if (data == null) return;
-    for (int i = 0; i < data.length; i++) {
-      if (data[i] != null) {
-        NormalMethod m =
-            (NormalMethod) MemberReference.getMemberRef(i).asMethodReference().peekResolvedMethod();
-        new BranchProfiles(m, data[i]).print(f);
+    if (data != null) {
+      for (int i = 0; i < data.length; i++) {
+        if (data[i] != null) {
+          NormalMethod m =
+              (NormalMethod) MemberReference.getMemberRef(i).asMethodReference().peekResolvedMethod();
+          // Counts read from a profile for a method that has not been loaded
+          if (m == null) continue;
+          new BranchProfiles(m, data[i]).print(f);
+        }
       }
     }
+    f.close();
   }
 
   @SuppressWarnings("unused")
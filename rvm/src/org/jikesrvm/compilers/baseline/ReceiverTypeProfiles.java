@@ -0,0 +1,215 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.baseline;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.NormalMethod;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.runtime.Magic;
+import org.vmmagic.pragma.Entrypoint;
+import org.vmmagic.pragma.Uninterruptible;
+
+/**
+ * A repository of receiver type profiles for the invokevirtual and
+ * invokeinterface call sites of baseline compiled methods.  For each call
+ * site, the first {@link #TYPES_PER_SITE} receiver types seen are counted,
+ * and the receivers of any other type are counted together.  The optimizing
+ * compiler uses the profiles to inline the methods of the dominant receiver
+ * types of call sites that class hierarchy analysis can't bind.
+ */
+public final class ReceiverTypeProfiles {
+  /** The number of receiver types counted at each call site */
+  public static final int TYPES_PER_SITE = 2;
+
+  /*
+   * The layout of a call site's entry in a method's profile: the bytecode
+   * index of the call, then a (type id, count) pair for each type, then the
+   * count of receivers of other types.  Type ids start at 1, so 0 marks a
+   * type slot that hasn't been used.
+   */
+  private static final int BC_INDEX = 0;
+  private static final int FIRST_TYPE = 1;
+  private static final int OTHER = FIRST_TYPE + 2 * TYPES_PER_SITE;
+  static final int SITE_SIZE = OTHER + 1;
+
+  /**
+   * Array of receiver type profiles.  The first index is the ID of the
+   * method, the second the offset of a call site's entry; the entries
+   * are in bytecode order.
+   */
+  private static int[][] data;
+
+  /**
+   * Allocate the profile for a baseline compiled method, unless one
+   * has already been allocated for the same call sites.
+   *
+   * @param m the method
+   * @param bcIndexes the bytecode indexes of the profiled call sites,
+   *        in increasing order
+   * @param numSites the number of profiled call sites
+   */
+  public static synchronized void allocateProfiles(NormalMethod m, int[] bcIndexes, int numSites) {
+    if (numSites == 0) return;
+    int id = m.getId();
+    if (data != null && id < data.length && data[id] != null && data[id].length == numSites * SITE_SIZE) {
+      // Keep the profile gathered by an earlier baseline compilation
+      return;
+    }
+    if (data == null) {
+      data = new int[id + 500][];
+    }
+    if (id >= data.length) {
+      int newSize = data.length * 2;
+      if (newSize <= id) newSize = id + 500;
+      int[][] tmp = new int[newSize][];
+      System.arraycopy(data, 0, tmp, 0, data.length);
+      Magic.sync();
+      data = tmp;
+    }
+    int[] profile = new int[numSites * SITE_SIZE];
+    for (int i = 0; i < numSites; i++) {
+      profile[i * SITE_SIZE + BC_INDEX] = bcIndexes[i];
+    }
+    Magic.sync();
+    data[id] = profile;
+  }
+
+  /**
+   * Count the type of the receiver of a call.  Called by baseline
+   * compiled code before each profiled call site.  The counts are updated
+   * without synchronization, so a few may be lost when a call site is
+   * executed by several threads at once.
+   *
+   * @param receiver the receiver of the call
+   * @param methodId the id of the calling method
+   * @param site the offset of the call site's entry in the method's profile
+   */
+  @Entrypoint
+  @Uninterruptible
+  public static void profileReceiverType(Object receiver, int methodId, int site) {
+    int[][] profiles = data;
+    // A null receiver will make the call throw; leave that to the call
+    if (receiver == null || profiles == null || methodId >= profiles.length) return;
+    int[] profile = profiles[methodId];
+    if (profile == null) return;
+    int typeId = Magic.getObjectType(receiver).getId();
+    for (int i = site + FIRST_TYPE; i < site + OTHER; i += 2) {
+      int t = profile[i];
+      if (t == 0) {
+        profile[i] = typeId;
+        t = typeId;
+      }
+      if (t == typeId) {
+        if (profile[i + 1] != Integer.MAX_VALUE) profile[i + 1]++;
+        return;
+      }
+    }
+    if (profile[site + OTHER] != Integer.MAX_VALUE) profile[site + OTHER]++;
+  }
+
+  /**
+   * @param m a method
+   * @param bcIndex the bytecode index of a call site in the method
+   * @return the receiver type profile of the call site, or null if the
+   *         call site hasn't been profiled or no receivers have been seen
+   */
+  public static SiteProfile getSiteProfile(NormalMethod m, int bcIndex) {
+    int[][] profiles = data;
+    int id = m.getId();
+    if (profiles == null || id >= profiles.length) return null;
+    int[] profile = profiles[id];
+    if (profile == null) return null;
+    // Binary search of the call sites, which are in bytecode order
+    int low = 0;
+    int high = profile.length / SITE_SIZE - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int midIndex = profile[mid * SITE_SIZE + BC_INDEX];
+      if (midIndex < bcIndex) {
+        low = mid + 1;
+      } else if (midIndex > bcIndex) {
+        high = mid - 1;
+      } else {
+        SiteProfile sp = new SiteProfile(profile, mid * SITE_SIZE);
+        return sp.getTotal() == 0 ? null : sp;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * A copy of the receiver type profile of one call site, with the types
+   * in decreasing order of count.
+   */
+  public static final class SiteProfile {
+    private final RVMType[] types;
+    private final int[] counts;
+    private final int otherCount;
+    private final long total;
+
+    SiteProfile(int[] profile, int site) {
+      int numTypes = 0;
+      RVMType[] t = new RVMType[TYPES_PER_SITE];
+      int[] c = new int[TYPES_PER_SITE];
+      long sum = profile[site + OTHER];
+      for (int i = site + FIRST_TYPE; i < site + OTHER; i += 2) {
+        int typeId = profile[i];
+        int count = profile[i + 1];
+        if (typeId == 0 || count == 0) continue;
+        // Insertion sort by decreasing count
+        int j = numTypes++;
+        while (j > 0 && c[j - 1] < count) {
+          t[j] = t[j - 1];
+          c[j] = c[j - 1];
+          j--;
+        }
+        t[j] = RVMType.getType(typeId);
+        c[j] = count;
+        sum += count;
+      }
+      if (numTypes < TYPES_PER_SITE) {
+        RVMType[] tmpTypes = new RVMType[numTypes];
+        int[] tmpCounts = new int[numTypes];
+        System.arraycopy(t, 0, tmpTypes, 0, numTypes);
+        System.arraycopy(c, 0, tmpCounts, 0, numTypes);
+        t = tmpTypes;
+        c = tmpCounts;
+      }
+      types = t;
+      counts = c;
+      otherCount = profile[site + OTHER];
+      total = sum;
+    }
+
+    /** @return the number of receiver types counted */
+    public int getNumTypes() { return types.length; }
+
+    /** @return the i'th most frequent receiver type */
+    public RVMType getType(int i) { return types[i]; }
+
+    /** @return the number of receivers of the i'th most frequent type */
+    public int getCount(int i) { return counts[i]; }
+
+    /** @return the number of receivers of types that weren't counted separately */
+    public int getOtherCount() { return otherCount; }
+
+    /** @return the number of receivers seen */
+    public long getTotal() { return total; }
+
+    /** @return the fraction of the receivers that were of the i'th most frequent type */
+    public double getFraction(int i) {
+      if (VM.VerifyAssertions) VM._assert(total > 0);
+      return counts[i] / (double) total;
+    }
+  }
+}
@@ -3159,10 +3159,11 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
    */
   @Override
   protected void emit_unresolved_invokevirtual(MethodReference methodRef) {
-    emitDynamicLinkingSequence(asm, T0, methodRef, true);            // T0 has offset of method
     int methodRefparameterWords = methodRef.getParameterWords() + 1; // +1 for "this" parameter
     Offset objectOffset =
       Offset.fromIntZeroExtend(methodRefparameterWords << LG_WORDSIZE).minus(WORDSIZE); // object offset into stack
+    genReceiverTypeProfile(null, objectOffset);
+    emitDynamicLinkingSequence(asm, T0, methodRef, true);            // T0 has offset of method
     stackMoveHelper(T1, objectOffset);                               // T1 has "this" parameter
     asm.baselineEmitLoadTIB(S0, T1);                                // S0 has TIB
     if(VM.BuildFor32Addr) {
@@ -3185,6 +3186,7 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
     Offset methodRefOffset = methodRef.peekResolvedMethod().getOffset();
     Offset objectOffset =
       Offset.fromIntZeroExtend(methodRefparameterWords << LG_WORDSIZE).minus(WORDSIZE); // object offset into stack
+    genReceiverTypeProfile(methodRef.peekResolvedMethod(), objectOffset);
     stackMoveHelper(T1, objectOffset);                               // T1 has "this" parameter
     asm.baselineEmitLoadTIB(S0, T1);                                 // S0 has TIB
     genParameterRegisterLoad(methodRef, true);
@@ -3266,6 +3268,8 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
     RVMMethod resolvedMethod = null;
     resolvedMethod = methodRef.peekInterfaceMethod();
 
+    genReceiverTypeProfile(null, Offset.fromIntZeroExtend((count - 1) << LG_WORDSIZE));
+
     // (1) Emit dynamic type checking sequence if required to do so inline.
     if (VM.BuildForIMTInterfaceInvocation) {
       if (methodRef.isMiranda()) {
@@ -4169,6 +4173,24 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
     }
   }
 
+  /**
+   * Generate a call to count the type of the receiver of a virtual or
+   * interface call in the method's receiver type profile, if the call
+   * is to be profiled.
+   * @param target the statically resolved target of the call, or null
+   * @param objectOffset offset of the receiver on the operand stack
+   */
+  private void genReceiverTypeProfile(RVMMethod target, Offset objectOffset) {
+    int site = allocateReceiverTypeSite(target);
+    if (site < 0) return;
+    stackMoveHelper(T0, objectOffset);      // T0 = "this" object
+    asm.emitPUSH_Reg(T0);
+    asm.emitPUSH_Imm(method.getId());
+    asm.emitPUSH_Imm(site);
+    genParameterRegisterLoad(asm, 3);       // pass 3 parameter words
+    asm.generateJTOCcall(Entrypoints.profileReceiverTypeMethod.getOffset());
+  }
+
   /**
    * Generate code to increment edge counter
    * @param scratch register to use as scratch
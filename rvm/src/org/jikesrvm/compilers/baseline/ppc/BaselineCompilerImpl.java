@@ -2756,6 +2756,7 @@ public final class BaselineCompilerImpl extends BaselineCompiler
    */
   protected void emit_unresolved_invokevirtual(MethodReference methodRef) {
     int objectIndex = methodRef.getParameterWords(); // +1 for "this" parameter, -1 to load it
+    genReceiverTypeProfile(null, objectIndex);
     emitDynamicLinkingSequence(T2, methodRef, true); // leaves method offset in T2
     peekAddr(T0, objectIndex);
     asm.baselineEmitLoadTIB(T1, T0); // load TIB
@@ -2772,6 +2773,7 @@ public final class BaselineCompilerImpl extends BaselineCompiler
    */
   protected void emit_resolved_invokevirtual(MethodReference methodRef) {
     int objectIndex = methodRef.getParameterWords(); // +1 for "this" parameter, -1 to load it
+    genReceiverTypeProfile(methodRef.peekResolvedMethod(), objectIndex);
     peekAddr(T0, objectIndex);
     asm.baselineEmitLoadTIB(T1, T0); // load TIB
     Offset methodOffset = methodRef.peekResolvedMethod().getOffset();
@@ -2850,6 +2852,8 @@ public final class BaselineCompilerImpl extends BaselineCompiler
     RVMMethod resolvedMethod = null;
     resolvedMethod = methodRef.peekInterfaceMethod();
 
+    genReceiverTypeProfile(null, count - 1);
+
     // (1) Emit dynamic type checking sequence if required to
     // do so inline.
     if (VM.BuildForIMTInterfaceInvocation) {
@@ -3769,6 +3773,24 @@ public final class BaselineCompilerImpl extends BaselineCompiler
     }
   }
 
+  /**
+   * Generate a call to count the type of the receiver of a virtual or
+   * interface call in the method's receiver type profile, if the call
+   * is to be profiled.
+   * @param target the statically resolved target of the call, or null
+   * @param objectIndex index of the receiver on the operand stack
+   */
+  private void genReceiverTypeProfile(RVMMethod target, int objectIndex) {
+    int site = allocateReceiverTypeSite(target);
+    if (site < 0) return;
+    asm.emitLAddrToc(T0, Entrypoints.profileReceiverTypeMethod.getOffset());
+    asm.emitMTCTR(T0);
+    peekAddr(T0, objectIndex);         // the "this" object
+    asm.emitLVAL(T1, method.getId());  // id of the calling method
+    asm.emitLVAL(T2, site);            // offset of the call site's entry
+    asm.emitBCCTRL();
+  }
+
   /**
    * increment an edge counter.
    * @param counters register containing base of counter array
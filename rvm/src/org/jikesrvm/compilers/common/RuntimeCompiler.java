@@ -98,17 +98,23 @@ public class RuntimeCompiler implements Constants {
   // is the opt compiler usable?
   protected static boolean compilerEnabled;
 
-  // is opt compiler currently in use?
-  // This flag is used to detect/avoid recursive opt compilation.
-  // (ie when opt compilation causes a method to be compiled).
-  // We also make all public entrypoints static synchronized methods
-  // because the opt compiler is not reentrant.
-  // When we actually fix defect 2912, we'll have to implement a different
-  // scheme that can distinguish between recursive opt compilation by the same
-  // thread (always bad) and parallel opt compilation (currently bad, future ok).
+  // is opt compiler currently in use by this thread?
+  // The per-thread flag (RVMThread.optCompilationInProgress) is used to
+  // detect/avoid recursive opt compilation (ie when opt compilation causes
+  // a method to be compiled), which is always bad.
+  // There is no global lock: compilations on different threads may overlap.
+  // Compiler phases that keep per-compilation state get a new instance for
+  // each compilation (see CompilerPhase.newExecution), so the phase
+  // instances shared by all compilations only hold configuration.
   // NOTE: This code can be quite subtle, so please be absolutely sure
   // you know what you're doing before modifying it!!!
-  protected static boolean compilationInProgress;
+  private static boolean compilationInProgress() {
+    return RVMThread.getCurrentThread().optCompilationInProgress;
+  }
+
+  private static void setCompilationInProgress(boolean inProgress) {
+    RVMThread.getCurrentThread().optCompilationInProgress = inProgress;
+  }
 
   // Cache objects needed to cons up compilation plans
   // TODO: cutting link to opt compiler by declaring type as object.
@@ -340,7 +346,7 @@ public class RuntimeCompiler implements Constants {
       throws OptimizingCompilerException {
     if (VM.BuildForOptCompiler) {
       if (VM.VerifyAssertions) {
-        VM._assert(compilationInProgress, "Failed to acquire compilationInProgress \"lock\"");
+        VM._assert(compilationInProgress(), "Failed to acquire compilationInProgress \"lock\"");
       }
       Callbacks.methodCompileStartCallbacks.notify(method, CompiledMethod.OPT);
       long start = 0;
@@ -379,13 +385,13 @@ public class RuntimeCompiler implements Constants {
    * Be absolutely sure you know what you're doing before changing it !!!
    * @param method the method to compile
    */
-  public static synchronized CompiledMethod optCompileWithFallBack(NormalMethod method) {
+  public static CompiledMethod optCompileWithFallBack(NormalMethod method) {
     if (VM.BuildForOptCompiler) {
-      if (compilationInProgress) {
+      if (compilationInProgress()) {
         return fallback(method);
       } else {
         try {
-          compilationInProgress = true;
+          setCompilationInProgress(true);
           CompilationPlan plan =
               new CompilationPlan(method,
                                       (OptimizationPlanElement[]) optimizationPlan,
@@ -393,7 +399,7 @@ public class RuntimeCompiler implements Constants {
                                       (OptOptions) options);
           return optCompileWithFallBackInternal(method, plan);
         } finally {
-          compilationInProgress = false;
+          setCompilationInProgress(false);
         }
       }
     } else {
@@ -412,17 +418,17 @@ public class RuntimeCompiler implements Constants {
    * @param method the method to compile
    * @param plan the compilation plan to use for the compile
    */
-  public static synchronized CompiledMethod optCompileWithFallBack(NormalMethod method,
-                                                                      CompilationPlan plan) {
+  public static CompiledMethod optCompileWithFallBack(NormalMethod method,
+                                                         CompilationPlan plan) {
     if (VM.BuildForOptCompiler) {
-      if (compilationInProgress) {
+      if (compilationInProgress()) {
         return fallback(method);
       } else {
         try {
-          compilationInProgress = true;
+          setCompilationInProgress(true);
           return optCompileWithFallBackInternal(method, plan);
         } finally {
-          compilationInProgress = false;
+          setCompilationInProgress(false);
         }
       }
     } else {
@@ -470,12 +476,12 @@ public class RuntimeCompiler implements Constants {
   public static CompiledMethod recompileWithOptOnStackSpecialization(CompilationPlan plan) {
     if (VM.BuildForOptCompiler) {
       if (VM.VerifyAssertions) { VM._assert(plan.method.isForOsrSpecialization());}
-      if (compilationInProgress) {
+      if (compilationInProgress()) {
         return null;
       }
 
       try {
-        compilationInProgress = true;
+        setCompilationInProgress(true);
 
         // the compiler will check if isForOsrSpecialization of the method
         CompiledMethod cm = optCompile(plan.method, plan);
@@ -502,7 +508,7 @@ public class RuntimeCompiler implements Constants {
         }
         return null;
       } finally {
-        compilationInProgress = false;
+        setCompilationInProgress(false);
       }
     } else {
       if (VM.VerifyAssertions) VM._assert(false);
@@ -521,13 +527,13 @@ public class RuntimeCompiler implements Constants {
    *    recompilation failed.
    *
    **/
-  public static synchronized int recompileWithOpt(CompilationPlan plan) {
+  public static int recompileWithOpt(CompilationPlan plan) {
     if (VM.BuildForOptCompiler) {
-      if (compilationInProgress) {
+      if (compilationInProgress()) {
         return -1;
       } else {
         try {
-          compilationInProgress = true;
+          setCompilationInProgress(true);
           CompiledMethod cm = optCompile(plan.method, plan);
           try {
             plan.method.replaceCompiledMethod(cm);
@@ -554,7 +560,7 @@ public class RuntimeCompiler implements Constants {
           }
           return -1;
         } finally {
-          compilationInProgress = false;
+          setCompilationInProgress(false);
         }
       }
     } else {
@@ -666,7 +672,7 @@ public class RuntimeCompiler implements Constants {
             if (!method.optCompileOnly()) {
               cm = optCompileWithFallBack(method, compPlan);
             } else {
-              compilationInProgress = true;
+              setCompilationInProgress(true);
               try {
                 cm = optCompile(method, compPlan);
               } catch (OptimizingCompilerException e) {
@@ -675,7 +681,7 @@ public class RuntimeCompiler implements Constants {
                   "can't optimize \"" + method + "\"";
                 throw new Error(msg, e);
               } finally {
-                compilationInProgress = false;
+                setCompilationInProgress(false);
               }
             }
           }
@@ -691,7 +697,7 @@ public class RuntimeCompiler implements Constants {
           } else {
             if (CompilerAdviceAttribute.hasAdvice()) {
               CompilerAdviceAttribute attr = CompilerAdviceAttribute.getCompilerAdviceInfo(method);
-              if (attr.getCompiler() != CompiledMethod.OPT) {
+              if (attr.getCompiler() != CompiledMethod.OPT || !attr.matches(method)) {
                 cm = fallback(method);
                 AOSLogging.logger.recordCompileTime(cm, 0.0);
                 return cm;
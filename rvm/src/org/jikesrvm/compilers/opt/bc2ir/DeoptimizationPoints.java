@@ -0,0 +1,144 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.opt.bc2ir;
+
+import static org.jikesrvm.compilers.opt.ir.Operators.IG_PATCH_POINT;
+import static org.jikesrvm.compilers.opt.ir.Operators.OSR_BARRIER_opcode;
+
+import java.util.ArrayList;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.compilers.opt.OptOptions;
+import org.jikesrvm.compilers.opt.driver.CompilerPhase;
+import org.jikesrvm.compilers.opt.ir.BasicBlock;
+import org.jikesrvm.compilers.opt.ir.Call;
+import org.jikesrvm.compilers.opt.ir.IR;
+import org.jikesrvm.compilers.opt.ir.InlineGuard;
+import org.jikesrvm.compilers.opt.ir.Instruction;
+import org.jikesrvm.compilers.opt.ir.InstructionEnumeration;
+import org.jikesrvm.compilers.opt.ir.operand.BranchProfileOperand;
+import org.jikesrvm.compilers.opt.ir.operand.IntConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.TrueGuardOperand;
+import org.jikesrvm.compilers.opt.runtimesupport.OptCompiledMethod;
+
+/**
+ * A phase in the OPT compiler that inserts deoptimization points into
+ * methods whose inlining decisions depend on the class hierarchy.
+ * <p>
+ * When a class loaded later invalidates such a method, new calls go to
+ * its replacement, but the activations already on the stack keep running
+ * the invalid code.  This phase puts a patch point before each call that
+ * wasn't inlined, whose off branch is an OSR point built from the call's
+ * OsrBarrier.  Invalidation patches every patch point of the method (see
+ * {@link OptCompiledMethod#applyCodePatches}), so an activation of the
+ * invalid code is transferred to baseline code, by on-stack replacement,
+ * at its next call.
+ * <p>
+ * Must run after BC2IR, while the OsrBarriers are still in the IR, and
+ * before the {@link OsrPointConstructor}, which builds the OSR points.
+ */
+public final class DeoptimizationPoints extends CompilerPhase {
+
+  public boolean shouldPerform(OptOptions options) {
+    return VM.runningVM && options.OSR_GUARDED_INLINING && options.OSR_EAGER_DEOPT;
+  }
+
+  /**
+   * Return this instance of this phase. This phase contains no
+   * per-compilation instance fields.
+   * @param ir not used
+   * @return this
+   */
+  public CompilerPhase newExecution(IR ir) {
+    return this;
+  }
+
+  public String getName() {
+    return "DeoptimizationPoints";
+  }
+
+  public void perform(IR ir) {
+    OptCompiledMethod cm = ir.compiledMethod;
+    if (cm == null || !cm.hasClassLoadingDependencies()) return;
+    // Methods of boot image classes can't be replaced on the stack
+    if (ir.method.getDeclaringClass().isInBootImage()) return;
+
+    ArrayList<Instruction> calls = new ArrayList<Instruction>();
+    for (InstructionEnumeration e = ir.forwardInstrEnumerator(); e.hasMoreElements();) {
+      Instruction s = e.next();
+      if (Call.conforms(s) && Call.getMethod(s) != null && s.position.getMethod().isInterruptible()) {
+        calls.add(s);
+      }
+    }
+
+    for (Instruction call : calls) {
+      Instruction barrier = findOsrBarrier(call);
+      if (barrier != null) {
+        insertDeoptimizationPoint(call, barrier, ir);
+      }
+    }
+  }
+
+  /**
+   * @param call a call instruction
+   * @return the OsrBarrier created for the call by BC2IR, or null
+   *         if the call has none
+   */
+  private static Instruction findOsrBarrier(Instruction call) {
+    for (Instruction s = call.prevInstructionInCodeOrder(); !s.isBbFirst(); s = s.prevInstructionInCodeOrder()) {
+      if (s.getOpcode() == OSR_BARRIER_opcode) {
+        return (s.bcIndex == call.bcIndex && s.position == call.position) ? s : null;
+      }
+      if (Call.conforms(s)) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Split the call's block after the barrier, and end the first half
+   * with a patch point that, once patched, branches to an OSR point.
+   *
+   * @param call the call
+   * @param barrier the call's OsrBarrier
+   * @param ir the governing IR
+   */
+  private static void insertDeoptimizationPoint(Instruction call, Instruction barrier, IR ir) {
+    BasicBlock bb = barrier.getBasicBlock();
+    bb.splitNodeWithLinksAt(barrier, ir);
+
+    BasicBlock deopt = bb.createSubBlock(barrier.bcIndex, ir, 0f);
+    deopt.setInfrequent();
+    Instruction osr = BC2IR._osrHelper(barrier);
+    osr.position = barrier.position;
+    osr.bcIndex = barrier.bcIndex;
+    deopt.appendInstruction(osr);
+    deopt.insertOut(ir.cfg.exit());
+    ir.cfg.addLastInCodeOrder(deopt);
+
+    // The guard's value only has to be non-null; a patch point is an
+    // unconditional jump that is only taken once patched
+    Instruction guard =
+        InlineGuard.create(IG_PATCH_POINT,
+                           new IntConstantOperand(0),
+                           new TrueGuardOperand(),
+                           Call.getMethod(call).copy().asMethod(),
+                           deopt.makeJumpTarget(),
+                           BranchProfileOperand.never());
+    guard.position = barrier.position;
+    guard.bcIndex = barrier.bcIndex;
+    bb.appendInstruction(guard);
+    bb.insertOut(deopt);
+  }
+}
@@ -14,6 +14,7 @@ package org.jikesrvm.compilers.opt.bc2ir;
 
 import static org.jikesrvm.compilers.opt.ir.Operators.OSR_BARRIER_opcode;
 
+import java.lang.reflect.Constructor;
 import java.util.LinkedList;
 
 import org.jikesrvm.VM;
@@ -42,13 +43,19 @@ public class OsrPointConstructor extends CompilerPhase {
   }
 
   /**
-   * Return this instance of this phase. This phase contains no
-   * per-compilation instance fields.
-   * @param ir not used
-   * @return this
+   * Constructor for this compiler phase
    */
-  public CompilerPhase newExecution(IR ir) {
-    return this;
+  private static final Constructor<CompilerPhase> constructor =
+      getCompilerPhaseConstructor(OsrPointConstructor.class);
+
+  /**
+   * Get a constructor object for this compiler phase.  A new instance
+   * is used for each compilation, so that compilations on different
+   * threads do not share the branch optimizations phase.
+   * @return compiler phase constructor
+   */
+  public Constructor<CompilerPhase> getClassConstructor() {
+    return constructor;
   }
 
   public final String getName() {
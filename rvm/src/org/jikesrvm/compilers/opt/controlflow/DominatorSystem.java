@@ -29,12 +29,20 @@ class DominatorSystem extends DF_System {
    */
   private final IR ir;
 
+  /**
+   * Are we computing post-dominators rather than dominators?
+   */
+  private final boolean postDominators;
+
   /**
    * Default constructor.
    * @param ir the governing IR
+   * @param postDominators whether to compute post-dominators
+   *  instead of dominators
    */
-  public DominatorSystem(IR ir) {
+  public DominatorSystem(IR ir, boolean postDominators) {
     this.ir = ir;
+    this.postDominators = postDominators;
     setupEquations();
   }
 
@@ -67,7 +75,7 @@ class DominatorSystem extends DF_System {
    * each basic block.
    */
   protected void initializeLatticeCells() {
-    if (Dominators.COMPUTE_POST_DOMINATORS) {
+    if (postDominators) {
       BasicBlock exit = ir.cfg.exit();
       DominatorCell last = (DominatorCell) getCell(exit);
       for (final DF_LatticeCell latticeCell : cells.values()) {
@@ -98,7 +106,7 @@ class DominatorSystem extends DF_System {
    * node.
    */
   protected void initializeWorkList() {
-    if (Dominators.COMPUTE_POST_DOMINATORS) {
+    if (postDominators) {
       // Add every equation to work list (to be safe)
       // WARNING: an "end node" may be part of a cycle
       for (BasicBlockEnumeration e = ir.getBasicBlocks(); e.hasMoreElements();) {
@@ -135,7 +143,7 @@ class DominatorSystem extends DF_System {
    * @param bb the basic block
    */
   DF_LatticeCell[] getCellsForPredecessors(BasicBlock bb) {
-    if (Dominators.COMPUTE_POST_DOMINATORS) {
+    if (postDominators) {
       /****
        if ( bb.mayThrowUncaughtException() ) {
        if (Dominators.DEBUG) VM.sysWrite("LOCATION #1 ...\n");
@@ -36,12 +36,6 @@ public class Dominators {
    * Control for debug output
    */
   static final boolean DEBUG = false;
-  /**
-   * Should we compute post-dominators instead of dominators? This is
-   * false by default.
-   */
-  static boolean COMPUTE_POST_DOMINATORS = false;
-
   /**
    * Calculate the dominators for an IR.
    * <p> After this pass, each basic block's scrach field points to
@@ -54,7 +48,7 @@ public class Dominators {
     if (ir.hasReachableExceptionHandlers()) {
       throw new OperationNotImplementedException("IR with exception handlers");
     }
-    DominatorSystem system = new DominatorSystem(ir);
+    DominatorSystem system = new DominatorSystem(ir, false);
     if (DEBUG) {
       System.out.print("Solving...");
     }
@@ -93,7 +87,7 @@ public class Dominators {
    * @param ir the IR in question
    */
   public static void computeApproxDominators(IR ir) {
-    DominatorSystem system = new DominatorSystem(ir);
+    DominatorSystem system = new DominatorSystem(ir, false);
     if (DEBUG) {
       System.out.print("Solving...");
     }
@@ -129,8 +123,7 @@ public class Dominators {
    * @param ir the IR in question
    */
   public static void computeApproxPostdominators(IR ir) {
-    Dominators.COMPUTE_POST_DOMINATORS = true;
-    DominatorSystem system = new DominatorSystem(ir);
+    DominatorSystem system = new DominatorSystem(ir, true);
     if (DEBUG) {
       System.out.print("Solving...");
     }
@@ -155,7 +148,6 @@ public class Dominators {
     if (ir.options.PRINT_DOMINATORS) {
       printDominators(ir);
     }
-    Dominators.COMPUTE_POST_DOMINATORS = false;
   }
 
   /**
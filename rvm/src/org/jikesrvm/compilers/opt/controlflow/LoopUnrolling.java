@@ -92,6 +92,13 @@ public class LoopUnrolling extends CompilerPhase {
    * This is the method that actually does the work of the phase.
    */
   public void perform(IR ir) {
+    // theVisit is shared by all compilations, so unroll one IR at a time
+    synchronized (LoopUnrolling.class) {
+      unrollLoops(ir);
+    }
+  }
+
+  private void unrollLoops(IR ir) {
     unrollFactor = (1 << ir.options.CONTROL_UNROLL_LOG);
 
     if (ir.hasReachableExceptionHandlers()) return;
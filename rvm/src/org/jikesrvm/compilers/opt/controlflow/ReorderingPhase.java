@@ -36,7 +36,16 @@ import org.jikesrvm.compilers.opt.ir.operand.BranchOperand;
  * This pass actually implements two code placement algorithms:
  * (1) A simple 'fluff' removal pass that moves all infrequent basic blocks
  *     to the end of the code order.
- * (2) Pettis and Hansen Algo2.
+ * (2) Pettis and Hansen Algo2, optionally followed by (1) so that the
+ *     infrequent blocks are split from the frequent ones.
+ * <p>
+ * The infrequent blocks stay at the tail of the method, rather than
+ * being moved to a separate cold code region.  A compiled method is a
+ * single code array: stack walking, the GC maps, the exception tables
+ * and the OSR maps all turn an instruction address into an offset from
+ * the start of that array, and the array is allocated and reclaimed as
+ * one object.  Blocks placed in another region would have no valid
+ * offset.
  */
 public final class ReorderingPhase extends CompilerPhase {
 
@@ -78,6 +87,10 @@ public final class ReorderingPhase extends CompilerPhase {
     if (ir.options.REORDER_CODE_PH) {
       // Do Pettis and Hansen PLDI'90 Algo2
       doPettisHansenAlgo2(ir);
+      if (ir.options.REORDER_CODE_SPLIT_COLD) {
+        // Keep the frequent code together, followed by the cold code
+        exileInfrequentBlocks(ir);
+      }
     } else {
       // Simple algorithm: just move infrequent code to the end
       exileInfrequentBlocks(ir);
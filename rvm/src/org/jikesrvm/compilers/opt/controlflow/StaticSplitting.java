@@ -15,6 +15,8 @@ package org.jikesrvm.compilers.opt.controlflow;
 import static org.jikesrvm.compilers.opt.ir.Operators.GOTO;
 import static org.jikesrvm.compilers.opt.ir.Operators.YIELDPOINT_OSR;
 
+import java.lang.reflect.Constructor;
+
 import org.jikesrvm.VM;
 import org.jikesrvm.compilers.opt.OptOptions;
 import org.jikesrvm.compilers.opt.driver.CompilerPhase;
@@ -56,13 +58,19 @@ public class StaticSplitting extends CompilerPhase {
   }
 
   /**
-   * Return this instance of this phase. This phase contains no
-   * per-compilation instance fields.
-   * @param ir not used
-   * @return this
+   * Constructor for this compiler phase
+   */
+  private static final Constructor<CompilerPhase> constructor =
+      getCompilerPhaseConstructor(StaticSplitting.class);
+
+  /**
+   * Get a constructor object for this compiler phase.  A new instance
+   * is used for each compilation, because the candidates are kept in
+   * an instance field.
+   * @return compiler phase constructor
    */
-  public CompilerPhase newExecution(IR ir) {
-    return this;
+  public Constructor<CompilerPhase> getClassConstructor() {
+    return constructor;
   }
 
   public String getName() { return "Static Splitting"; }
@@ -77,8 +77,6 @@ public final class TailRecursionElimination extends CompilerPhase {
 
   public String getName() { return "Tail Recursion Elimination"; }
 
-  public CompilerPhase newExecution(IR ir) { return this; }
-
   /**
    * Perform tail recursion elimination.
    *
@@ -89,7 +89,10 @@ public final class OptimizationPlanAtomicElement extends OptimizationPlanElement
     } finally {
       if (VM.MeasureCompilationPhases && VM.runningVM) {
         long end = Time.nanoTime();
-        phaseNanos += end - start;
+        // the element is shared by compilations on different threads
+        synchronized (this) {
+          phaseNanos += end - start;
+        }
       }
     }
   }
@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import org.jikesrvm.VM;
 import org.jikesrvm.adaptive.recompilation.instrumentation.InsertInstructionCounters;
 import org.jikesrvm.adaptive.recompilation.instrumentation.InsertMethodInvocationCounter;
+import org.jikesrvm.adaptive.recompilation.instrumentation.InsertRecompilationCounter;
 import org.jikesrvm.adaptive.recompilation.instrumentation.InsertYieldpointCounters;
 import org.jikesrvm.adaptive.recompilation.instrumentation.InstrumentationSamplingFramework;
 import org.jikesrvm.adaptive.recompilation.instrumentation.LowerInstrumentation;
@@ -29,6 +30,7 @@ import org.jikesrvm.compilers.opt.LocalCopyProp;
 import org.jikesrvm.compilers.opt.OptOptions;
 import org.jikesrvm.compilers.opt.Simple;
 import org.jikesrvm.compilers.opt.bc2ir.ConvertBCtoHIR;
+import org.jikesrvm.compilers.opt.bc2ir.DeoptimizationPoints;
 import org.jikesrvm.compilers.opt.bc2ir.OsrPointConstructor;
 import org.jikesrvm.compilers.opt.controlflow.BranchOptimizations;
 import org.jikesrvm.compilers.opt.controlflow.BuildLST;
@@ -185,6 +187,9 @@ public class OptimizationPlanner {
         // Generate HIR from bytecodes
         new ConvertBCtoHIR(),
 
+        // Deoptimization points must be inserted before the OsrBarriers are removed
+        new DeoptimizationPoints(),
+
         new AdjustBCIndexes(), new OsrPointConstructor(),
 
         // Always do initial wave of peephole branch optimizations
@@ -281,6 +286,8 @@ public class OptimizationPlanner {
       addComponent(p, new InsertInstructionCounters());
       // Insert method invocation counters
       addComponent(p, new InsertMethodInvocationCounter());
+      // Insert the counters that trigger tiered recompilation
+      addComponent(p, new InsertRecompilationCounter());
     }
   }
 
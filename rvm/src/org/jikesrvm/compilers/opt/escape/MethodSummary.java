@@ -24,7 +24,7 @@ class MethodSummary {
    * Is this method currently being analyzed?  Used for recursive
    * invocations of the optimizing compiler.
    */
-  private static boolean inProgress = false;
+  private boolean inProgress = false;
 
   /**
    * Default escape result, that the result escapes but that no parameter is
@@ -416,12 +416,10 @@ public abstract class ConvertToLowLevelIR extends IRTools {
     }
     // Eliminate possible redundant trap block from array store checks
     if (didArrayStoreCheck) {
-      branchOpts.perform(ir, true);
+      new BranchOptimizations(-1, true, true).perform(ir, true);
     }
   }
 
-  private static BranchOptimizations branchOpts = new BranchOptimizations(-1, true, true);
-
   /**
    * Expand a tableswitch.
    * @param s the instruction to expand
@@ -74,6 +74,7 @@ public final class ClassLoadingDependencyManager implements ClassLoadingListener
       report("CLDM: " + cmid + "(" + cm.getMethod() + ") is dependent on " + source + " not being overridden\n");
     }
     db.addNotOverriddenDependency(source, cmid);
+    ((OptCompiledMethod) cm).setHasClassLoadingDependencies();
   }
 
   /**
@@ -86,6 +87,7 @@ public final class ClassLoadingDependencyManager implements ClassLoadingListener
       report("CLDM: " + cmid + "(" + cm.getMethod() + ") is dependent on " + source + " not having a subclass\n");
     }
     db.addNoSubclassDependency(source, cmid);
+    ((OptCompiledMethod) cm).setHasClassLoadingDependencies();
   }
 
   ////////////////////////
@@ -22,6 +22,8 @@ import org.jikesrvm.adaptive.database.callgraph.WeightedCallTargets;
 import org.jikesrvm.classloader.NormalMethod;
 import org.jikesrvm.classloader.RVMClass;
 import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.compilers.baseline.ReceiverTypeProfiles;
 import org.jikesrvm.compilers.common.CompiledMethod;
 import org.jikesrvm.compilers.opt.OptOptions;
 import org.jikesrvm.compilers.opt.driver.OptimizingCompiler;
@@ -35,6 +37,8 @@ import org.jikesrvm.scheduler.RVMThread;
  *  (1) Always inline trivial methods that can be inlined without a guard
  *  (2) At O1 and greater use a mix of profile information and static heuristics
  *      to inline larger methods and methods that require guards.
+ * The profile information is the dynamic call graph and, for call sites it
+ * has no data for, the receiver types profiled by baseline compiled code.
  */
 public final class DefaultInlineOracle extends InlineTools implements InlineOracle {
 
@@ -148,6 +152,19 @@ public final class DefaultInlineOracle extends InlineTools implements InlineOrac
         }
       }
     }
+    ReceiverTypeProfiles.SiteProfile receiverTypes = null;
+    if (targets == null && opts.INLINE_RECEIVER_TYPES && !state.getHasPreciseTarget() &&
+        caller instanceof NormalMethod) {
+      receiverTypes = ReceiverTypeProfiles.getSiteProfile((NormalMethod) caller, bcIndex);
+      if (receiverTypes != null && receiverTypes.getTotal() >= opts.INLINE_RECEIVER_TYPES_MIN_COUNT) {
+        targets = receiverTypeTargets(receiverTypes, staticCallee, state);
+        if (targets != null) {
+          if (verbose) VM.sysWriteln("\tFound receiver type profile");
+          purelyStatic = false;
+        }
+      }
+      if (targets == null) receiverTypes = null;
+    }
 
     // Critical section: must prevent class hierarchy from changing while
     // we are inspecting it to determine how/whether to do the inline guard.
@@ -211,6 +228,7 @@ public final class DefaultInlineOracle extends InlineTools implements InlineOrac
       final double callSiteWeight = targets.totalWeight();
       final boolean goosc = guardOverrideOnStaticCallee; // real closures anyone?
       final boolean ps = purelyStatic;                   // real closures anyone?
+      final double[] inlinedWeight = new double[1];      // real closures anyone?
       targets.visitTargets(new WeightedCallTargets.Visitor() {
         public void visit(RVMMethod callee, double weight) {
           if (hasBody(callee)) {
@@ -335,6 +353,7 @@ public final class DefaultInlineOracle extends InlineTools implements InlineOrac
               // Ok, we're going to inline it.
               // Record that and also whether or not we think it needs a guard.
               methodsToInline.add(callee);
+              inlinedWeight[0] += weight;
               if (preEx) {
                 ClassLoadingDependencyManager cldm = (ClassLoadingDependencyManager) RVMClass.classLoadListener;
                 if (ClassLoadingDependencyManager.TRACE || ClassLoadingDependencyManager.DEBUG) {
@@ -368,23 +387,9 @@ public final class DefaultInlineOracle extends InlineTools implements InlineOrac
               InlineDecision.guardedYES(target,
                   chooseGuard(caller, target, staticCallee, state, true),
                   "Guarded inline of single static target");
-            /*
-             * Determine if it is allowable to put an OSR point in the failed case of
-             * the guarded inline instead of generating a real call instruction.
-             * There are several conditions that must be met for this to be allowable:
-             *   (1) OSR guarded inlining and recompilation must both be enabled
-             *   (2) The current context must be an interruptible method
-             *   (3) The application must be started.  This is a rough proxy for the VM
-             *       being fully booted so we can actually get through the OSR process.
-             *       Note: One implication of this requirement is that we will
-             *       never put an OSR on an off-branch of a guarded inline in bootimage
-             *       code.
-             */
-            if (opts.OSR_GUARDED_INLINING && Controller.options.ENABLE_RECOMPILATION &&
-                caller.isInterruptible() &&
-                OptimizingCompiler.getAppStarted()) {
-                if (VM.VerifyAssertions) VM._assert(VM.runningVM);
-                d.setOSRTestFailed();
+            if (canOSRTestFailed(caller, opts)) {
+              if (VM.VerifyAssertions) VM._assert(VM.runningVM);
+              d.setOSRTestFailed();
             }
             if (verbose) VM.sysWriteln("\tDecide: " + d);
             return d;
@@ -393,6 +398,9 @@ public final class DefaultInlineOracle extends InlineTools implements InlineOrac
               InlineDecision.guardedYES(target,
                   chooseGuard(caller, target, staticCallee, state, false),
                   "Guarded inlining of one potential target");
+            if (coversReceiverTypes(receiverTypes, inlinedWeight[0]) && canOSRTestFailed(caller, opts)) {
+              d.setOSRTestFailed();
+            }
             if (verbose) VM.sysWriteln("\tDecide: " + d);
             return d;
           }
@@ -427,12 +435,79 @@ public final class DefaultInlineOracle extends InlineTools implements InlineOrac
           idx++;
         }
         InlineDecision d = InlineDecision.guardedYES(methods, guards, "Inline multiple targets");
+        if (coversReceiverTypes(receiverTypes, inlinedWeight[0]) && canOSRTestFailed(caller, opts)) {
+          d.setOSRTestFailed();
+        }
         if (verbose) VM.sysWriteln("\tDecide: " + d);
         return d;
       }
     }
   }
 
+  /**
+   * Find the targets of a call for the receiver types in its profile that
+   * account for at least INLINE_AI_MIN_CALLSITE_FRACTION of its receivers.
+   * Each target is weighted by the fraction of the receivers that call it,
+   * so, as for targets found statically, the call site's total weight is
+   * too low for the call to be treated as a hot edge of the call graph.
+   *
+   * @param receiverTypes the receiver type profile of the call site
+   * @param staticCallee the statically resolved target of the call
+   * @param state the compilation state
+   * @return the targets, or null if there are none
+   */
+  private WeightedCallTargets receiverTypeTargets(ReceiverTypeProfiles.SiteProfile receiverTypes,
+                                                  RVMMethod staticCallee, CompilationState state) {
+    WeightedCallTargets targets = null;
+    for (int i = 0; i < receiverTypes.getNumTypes(); i++) {
+      double fraction = receiverTypes.getFraction(i);
+      // The types are in decreasing order of count
+      if (fraction < state.getOptions().INLINE_AI_MIN_CALLSITE_FRACTION) break;
+      RVMType type = receiverTypes.getType(i);
+      if (!type.isClassType() || !type.isResolved()) continue;
+      RVMMethod callee = type.findVirtualMethod(staticCallee.getName(), staticCallee.getDescriptor());
+      if (callee == null) continue;
+      if (targets == null) {
+        targets = WeightedCallTargets.create(callee, fraction);
+      } else {
+        targets = targets.augmentCount(callee, fraction);
+      }
+    }
+    return targets == null ? null : targets.filter(staticCallee, false);
+  }
+
+  /**
+   * @param receiverTypes the receiver type profile the targets of a guarded
+   *        inline were chosen from, or null
+   * @param inlinedWeight the sum of the weights of the inlined targets
+   * @return whether every receiver in the profile called an inlined target,
+   *         so the guards are expected to never fail
+   */
+  private static boolean coversReceiverTypes(ReceiverTypeProfiles.SiteProfile receiverTypes, double inlinedWeight) {
+    return receiverTypes != null && receiverTypes.getOtherCount() == 0 && inlinedWeight > 0.999;
+  }
+
+  /**
+   * Determine if it is allowable to put an OSR point in the failed case of
+   * a guarded inline instead of generating a real call instruction.
+   * There are several conditions that must be met for this to be allowable:
+   *   (1) OSR guarded inlining and recompilation must both be enabled
+   *   (2) The current context must be an interruptible method
+   *   (3) The application must be started.  This is a rough proxy for the VM
+   *       being fully booted so we can actually get through the OSR process.
+   *       Note: One implication of this requirement is that we will
+   *       never put an OSR on an off-branch of a guarded inline in bootimage
+   *       code.
+   *
+   * @param caller the method containing the call
+   * @param opts controlling options object
+   */
+  private static boolean canOSRTestFailed(RVMMethod caller, OptOptions opts) {
+    return opts.OSR_GUARDED_INLINING && Controller.options.ENABLE_RECOMPILATION &&
+        caller.isInterruptible() &&
+        OptimizingCompiler.getAppStarted();
+  }
+
   /**
    * Logic to select the appropriate guarding mechanism for the edge
    * from caller to callee according to the controlling {@link OptOptions}.
@@ -32,6 +32,11 @@ public final class MIRInfo {
    */
   public int mcSizeEstimate;
 
+  /**
+   * Should the machinecodes be allocated with the hot code?
+   */
+  public boolean hotCode = true;
+
   /**
    * The IRMap for the method (symbolic GCMapping info)
    */
@@ -13,8 +13,10 @@
 package org.jikesrvm.compilers.opt.mir2mc;
 
 import org.jikesrvm.VM;
+import org.jikesrvm.adaptive.controller.Controller;
 import org.jikesrvm.architecture.ArchConstants;
 import org.jikesrvm.architecture.Constants;
+import org.jikesrvm.compilers.common.CompiledMethod;
 import org.jikesrvm.compilers.opt.OptOptions;
 import org.jikesrvm.compilers.opt.driver.CompilerPhase;
 import org.jikesrvm.compilers.opt.driver.OptimizingCompiler;
@@ -51,6 +53,8 @@ final class AssemblerDriver extends CompilerPhase implements Constants {
       ir.verify("right before machine codegen", true);
     }
 
+    ir.MIRInfo.hotCode = isHotCode(ir);
+
     //////////
     // STEP 2: Generate the machinecode array.
     // As part of the generation, the machinecode offset
@@ -87,6 +91,37 @@ final class AssemblerDriver extends CompilerPhase implements Constants {
     }
   }
 
+  /**
+   * Should the machine code of a method be allocated with the hot code?
+   * Only when the adaptive system's profiles are available, and show
+   * that the method is hot: either its share of the weight of the dynamic
+   * call graph (of the edges into it) or the share of the method samples
+   * taken in its current code is at least
+   * <code>-X:aos:hot_code_threshold</code>.  Otherwise, as all opt
+   * compiled code used to be, it is assumed to be hot.
+   *
+   * @param ir the IR of the method
+   * @return whether the code is hot
+   */
+  private static boolean isHotCode(IR ir) {
+    if (!VM.BuildForAdaptiveSystem || !VM.runningVM || Controller.dcg == null || Controller.methodSamples == null) {
+      return true;
+    }
+    double threshold = Controller.options.HOT_CODE_THRESHOLD;
+    double totalWeight = Controller.dcg.getTotalEdgeWeights();
+    double totalSamples = Controller.methodSamples.getTotalNumberOfSamples();
+    if (totalWeight <= 0 && totalSamples <= 0) {
+      // No profile yet, so nothing to compare with
+      return true;
+    }
+    CompiledMethod cm = ir.method.getCurrentCompiledMethod();
+    if (cm != null && totalSamples > 0 &&
+        Controller.methodSamples.getData(cm.getId()) >= threshold * totalSamples) {
+      return true;
+    }
+    return totalWeight > 0 && Controller.dcg.getIncomingEdgeWeight(ir.method) >= threshold * totalWeight;
+  }
+
   public void verify(IR ir) {
     /* Do nothing, IR invariants violated by final expansion*/
   }
@@ -163,6 +163,11 @@ abstract class AssemblerBase extends Assembler {
    */
   private final Register ESP;
 
+  /**
+   * Should the code be allocated in the hot code space?
+   */
+  private final boolean hotCode;
+
   /**
    * Operators with byte arguments
    */
@@ -209,14 +214,15 @@ abstract class AssemblerBase extends Assembler {
     super(bytecodeSize, shouldPrint);
     EBP = ir.regpool.getPhysicalRegisterSet().asIA32().getEBP();
     ESP = ir.regpool.getPhysicalRegisterSet().asIA32().getESP();
+    hotCode = ir.MIRInfo.hotCode;
   }
 
   /**
    * Should code created by this assembler instance be allocated in the
-   * hot code code space? The default answer for opt compiled code is yes
-   * (otherwise why are we opt compiling it?).
+   * hot code code space? Opt compiled code is, unless the profile
+   * says the method isn't hot (see {@link org.jikesrvm.compilers.opt.ir.MIRInfo#hotCode}).
    */
-  protected boolean isHotCode() { return true; }
+  protected boolean isHotCode() { return hotCode; }
 
   /**
    *  Is the given operand an immediate?  In the IA32 assembly, one
@@ -99,7 +99,7 @@ public class AssemblerOpt {
    * @return the number of machinecode instructions generated
    */
   public static int generateCode(IR ir, boolean shouldPrint) {
-    ir.MIRInfo.machinecode = CodeArray.Factory.create(ir.MIRInfo.mcSizeEstimate, true);
+    ir.MIRInfo.machinecode = CodeArray.Factory.create(ir.MIRInfo.mcSizeEstimate, ir.MIRInfo.hotCode);
     return new AssemblerOpt().genCode(ir, shouldPrint);
   }
 
@@ -109,6 +109,8 @@ public final class OptCompiledMethod extends CompiledMethod {
   private boolean volatilesSaved;
   /** is the current method executing with instrumentation */
   private boolean instrumented;
+  /** does the code depend on assumptions about the class hierarchy? */
+  private boolean classLoadingDependencies;
 
   /** Constructor */
   public OptCompiledMethod(int id, RVMMethod m) {
@@ -353,6 +355,10 @@ public final class OptCompiledMethod extends CompiledMethod {
     return instrumented;
   }
 
+  public boolean hasClassLoadingDependencies() {
+    return classLoadingDependencies;
+  }
+
   public int getFrameFixedSize() {
     return stackFrameFixedSize;
   }
@@ -390,6 +396,10 @@ public final class OptCompiledMethod extends CompiledMethod {
     instrumented = _instrumented;
   }
 
+  public void setHasClassLoadingDependencies() {
+    classLoadingDependencies = true;
+  }
+
   public void setFrameFixedSize(int x) {
     if (VM.VerifyAssertions) VM._assert(x >= 0 && x < 0xFFFF);
     stackFrameFixedSize = (char) x;
@@ -735,16 +735,18 @@ public final class OptMachineCodeMap implements Constants, OptConstants {
       double mapMCPercent = (double) mapSize / machineCodeSize;
       VM.sysWrite(method);
       VM.sysWrite(" map is " + (int) (mapMCPercent * 100) + "% (" + mapSize + "/" + machineCodeSize + ") of MC.\n");
-      totalMCSize += machineCodeSize;
-      totalMapSize += mapSize;
-      double MCPct = (double) totalMapSize / totalMCSize;
-      VM.sysWrite("  Cumulative maps are now " +
-                  (int) (MCPct * 100) +
-                  "% (" +
-                  totalMapSize +
-                  "/" +
-                  totalMCSize +
-                  ") of MC.\n");
+      synchronized (OptMachineCodeMap.class) {
+        totalMCSize += machineCodeSize;
+        totalMapSize += mapSize;
+        double MCPct = (double) totalMapSize / totalMCSize;
+        VM.sysWrite("  Cumulative maps are now " +
+                    (int) (MCPct * 100) +
+                    "% (" +
+                    totalMapSize +
+                    "/" +
+                    totalMCSize +
+                    ") of MC.\n");
+      }
     }
   }
 
@@ -43,7 +43,7 @@ public final class SpecializedMethodPool {
   /**
    * Associate a particular compiled method with a specialized method id.
    */
-  public static void storeSpecializedMethod(CompiledMethod cm, int smid) {
+  public static synchronized void storeSpecializedMethod(CompiledMethod cm, int smid) {
     specializedMethods[smid] = cm.getEntryCodeArray();
   }
 
@@ -58,7 +58,7 @@ public final class SpecializedMethodPool {
   /**
    * @return a new unique integer identifier for a specialized method
    */
-  public static int createSpecializedMethodID() {
+  public static synchronized int createSpecializedMethodID() {
     specializedMethodCount++;
     if (specializedMethodCount >= specializedMethods.length) {
       growSpecializedMethods();
@@ -3030,7 +3030,7 @@ public class JNIFunctions implements SizeConstants {
       byte[] sourceArray = (byte[]) env.getJNIRef(arrayJREF);
       int size = sourceArray.length;
 
-      if (MemoryManager.willNeverMove(sourceArray)) {
+      if (MemoryManager.pinObject(sourceArray)) {
         /* return a direct pointer */
         JNIHelpers.setBoolStar(isCopyAddress, false);
         return Magic.objectAsAddress(sourceArray);
@@ -3075,7 +3075,7 @@ public class JNIFunctions implements SizeConstants {
       char[] sourceArray = (char[]) env.getJNIRef(arrayJREF);
       int size = sourceArray.length;
 
-      if (MemoryManager.willNeverMove(sourceArray)) {
+      if (MemoryManager.pinObject(sourceArray)) {
         JNIHelpers.setBoolStar(isCopyAddress, false);
         return Magic.objectAsAddress(sourceArray);
       } else {
@@ -3118,7 +3118,7 @@ public class JNIFunctions implements SizeConstants {
       short[] sourceArray = (short[]) env.getJNIRef(arrayJREF);
       int size = sourceArray.length;
 
-      if (MemoryManager.willNeverMove(sourceArray)) {
+      if (MemoryManager.pinObject(sourceArray)) {
         JNIHelpers.setBoolStar(isCopyAddress, false);
         return Magic.objectAsAddress(sourceArray);
       } else {
@@ -3161,7 +3161,7 @@ public class JNIFunctions implements SizeConstants {
       int[] sourceArray = (int[]) env.getJNIRef(arrayJREF);
       int size = sourceArray.length;
 
-      if (MemoryManager.willNeverMove(sourceArray)) {
+      if (MemoryManager.pinObject(sourceArray)) {
         JNIHelpers.setBoolStar(isCopyAddress, false);
         return Magic.objectAsAddress(sourceArray);
       } else {
@@ -3203,7 +3203,7 @@ public class JNIFunctions implements SizeConstants {
       long[] sourceArray = (long[]) env.getJNIRef(arrayJREF);
       int size = sourceArray.length;
 
-      if (MemoryManager.willNeverMove(sourceArray)) {
+      if (MemoryManager.pinObject(sourceArray)) {
         JNIHelpers.setBoolStar(isCopyAddress, false);
         return Magic.objectAsAddress(sourceArray);
       } else {
@@ -3245,7 +3245,7 @@ public class JNIFunctions implements SizeConstants {
       float[] sourceArray = (float[]) env.getJNIRef(arrayJREF);
       int size = sourceArray.length;
 
-      if (MemoryManager.willNeverMove(sourceArray)) {
+      if (MemoryManager.pinObject(sourceArray)) {
         JNIHelpers.setBoolStar(isCopyAddress, false);
         return Magic.objectAsAddress(sourceArray);
       } else {
@@ -3288,7 +3288,7 @@ public class JNIFunctions implements SizeConstants {
       double[] sourceArray = (double[]) env.getJNIRef(arrayJREF);
       int size = sourceArray.length;
 
-      if (MemoryManager.willNeverMove(sourceArray)) {
+      if (MemoryManager.pinObject(sourceArray)) {
         JNIHelpers.setBoolStar(isCopyAddress, false);
         return Magic.objectAsAddress(sourceArray);
       } else {
@@ -3398,7 +3398,8 @@ public class JNIFunctions implements SizeConstants {
           sysCall.sysFree(copyBufferAddress);
         }
       } else {
-        // Nothing to be done
+        // JNI_COMMIT leaves the array in use, otherwise it can be unpinned
+        if (releaseMode != 1) MemoryManager.unpinObject(sourceArray);
       }
     } catch (Throwable unexpected) {
       if (traceJNI) unexpected.printStackTrace(System.err);
@@ -3438,6 +3439,9 @@ public class JNIFunctions implements SizeConstants {
         if (releaseMode == 0 || releaseMode == 2) {
           sysCall.sysFree(copyBufferAddress);
         }
+      } else {
+        // JNI_COMMIT leaves the array in use, otherwise it can be unpinned
+        if (releaseMode != 1) MemoryManager.unpinObject(sourceArray);
       }
     } catch (Throwable unexpected) {
       if (traceJNI) unexpected.printStackTrace(System.err);
@@ -3476,6 +3480,9 @@ public class JNIFunctions implements SizeConstants {
         if (releaseMode == 0 || releaseMode == 2) {
           sysCall.sysFree(copyBufferAddress);
         }
+      } else {
+        // JNI_COMMIT leaves the array in use, otherwise it can be unpinned
+        if (releaseMode != 1) MemoryManager.unpinObject(sourceArray);
       }
     } catch (Throwable unexpected) {
       if (traceJNI) unexpected.printStackTrace(System.err);
@@ -3514,6 +3521,9 @@ public class JNIFunctions implements SizeConstants {
         if (releaseMode == 0 || releaseMode == 2) {
           sysCall.sysFree(copyBufferAddress);
         }
+      } else {
+        // JNI_COMMIT leaves the array in use, otherwise it can be unpinned
+        if (releaseMode != 1) MemoryManager.unpinObject(sourceArray);
       }
     } catch (Throwable unexpected) {
       if (traceJNI) unexpected.printStackTrace(System.err);
@@ -3552,6 +3562,9 @@ public class JNIFunctions implements SizeConstants {
         if (releaseMode == 0 || releaseMode == 2) {
           sysCall.sysFree(copyBufferAddress);
         }
+      } else {
+        // JNI_COMMIT leaves the array in use, otherwise it can be unpinned
+        if (releaseMode != 1) MemoryManager.unpinObject(sourceArray);
       }
     } catch (Throwable unexpected) {
       if (traceJNI) unexpected.printStackTrace(System.err);
@@ -3590,6 +3603,9 @@ public class JNIFunctions implements SizeConstants {
         if (releaseMode == 0 || releaseMode == 2) {
           sysCall.sysFree(copyBufferAddress);
         }
+      } else {
+        // JNI_COMMIT leaves the array in use, otherwise it can be unpinned
+        if (releaseMode != 1) MemoryManager.unpinObject(sourceArray);
       }
     } catch (Throwable unexpected) {
       if (traceJNI) unexpected.printStackTrace(System.err);
@@ -3628,6 +3644,9 @@ public class JNIFunctions implements SizeConstants {
         if (releaseMode == 0 || releaseMode == 2) {
           sysCall.sysFree(copyBufferAddress);
         }
+      } else {
+        // JNI_COMMIT leaves the array in use, otherwise it can be unpinned
+        if (releaseMode != 1) MemoryManager.unpinObject(sourceArray);
       }
     } catch (Throwable unexpected) {
       if (traceJNI) unexpected.printStackTrace(System.err);
@@ -13,6 +13,7 @@
 package org.jikesrvm.mm.mminterface;
 
 import org.jikesrvm.VM;
+import org.jikesrvm.adaptive.measurements.RuntimeMeasurements;
 import org.jikesrvm.architecture.StackFrameLayout;
 import org.jikesrvm.compilers.common.CompiledMethods;
 import org.jikesrvm.mm.mmtk.Collection;
@@ -21,6 +22,7 @@ import org.jikesrvm.mm.mmtk.ScanThread;
 import org.jikesrvm.mm.mmtk.Scanning;
 import org.jikesrvm.runtime.Magic;
 import org.jikesrvm.runtime.Time;
+import org.jikesrvm.scheduler.Lock;
 import org.jikesrvm.scheduler.Synchronization;
 import org.jikesrvm.scheduler.RVMThread;
 import org.mmtk.plan.Plan;
@@ -121,6 +123,9 @@ public final class CollectorThread extends RVMThread {
   /** The base collection attempt */
   public static int collectionAttemptBase = 0;
 
+  /** Are collector threads sampled by the timer thread during GC? */
+  private static boolean sampling = false;
+
   /***********************************************************************
    *
    * Instance variables
@@ -181,6 +186,37 @@ public final class CollectorThread extends RVMThread {
     return true;
   }
 
+  /**
+   * Start sampling collector threads during GC.
+   */
+  public static void enableSampling() {
+    sampling = true;
+  }
+
+  /**
+   * Take a sample of what this thread is executing.  Called by the timer
+   * thread while this thread runs.  GC code is uninterruptible, so has no
+   * yieldpoints at which it could sample itself; instead its stack is
+   * walked from the frame pointer saved by the most recent prologue, just
+   * as a mutator's is at a yieldpoint.  As this thread keeps running the
+   * frames may change under us, so frames outside its stack are ignored
+   * and the listeners drop samples whose method ids are not valid.
+   */
+  @Uninterruptible
+  public void takeSample() {
+    if (VM.BuildForAdaptiveSystem && VM.BuildForIA32 && sampling && gcThreadRunning) {
+      Address stackHigh = stackLimit.minus(StackFrameLayout.getStackSizeGuard()).plus(getStackLength());
+      Address fp = framePointer;
+      if (fp.GE(stackLimit) && fp.LT(stackHigh)) {
+        Address callerFP = Magic.getCallerFramePointer(fp);
+        if (callerFP.LT(stackLimit) || callerFP.GE(stackHigh)) {
+          callerFP = StackFrameLayout.getStackFrameSentinelFP();
+        }
+        RuntimeMeasurements.takeGCSample(fp, callerFP);
+      }
+    }
+  }
+
   /**
    * Get the thread to use for building stack traces.
    */
@@ -346,6 +382,7 @@ public final class CollectorThread extends RVMThread {
         if (verbose>=2) VM.sysWriteln("Thread #",getThreadSlot()," is about to block a bunch of threads.");
 
         RVMThread.hardHandshakeSuspend(RVMThread.gcBlockAdapter,RVMThread.allButGC);
+        Lock.deflateIdleLocks();
 
         if (verbose>=2) {
           VM.sysWriteln("Thread #",getThreadSlot()," just blocked a bunch of threads.");
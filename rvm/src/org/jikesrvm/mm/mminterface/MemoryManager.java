@@ -920,6 +920,28 @@ public final class MemoryManager implements HeapLayoutConstants, Constants {
     return Selected.Plan.get().willNeverMove(ObjectReference.fromObject(obj));
   }
 
+  /**
+   * Pin an object so that its address can be handed to native code (for
+   * IO or JNI) without copying it.  If this returns false the caller must
+   * copy; the object may be moved somewhere it can be pinned by the next
+   * collection.  A successful pin must be paired with {@link #unpinObject}.
+   *
+   * @param obj the object to pin
+   * @return true if the object will not move until it is unpinned
+   */
+  public static boolean pinObject(Object obj) {
+    return Selected.Plan.get().pinObject(ObjectReference.fromObject(obj));
+  }
+
+  /**
+   * Unpin an object pinned by a successful call to {@link #pinObject}.
+   *
+   * @param obj the object to unpin
+   */
+  public static void unpinObject(Object obj) {
+    Selected.Plan.get().unpinObject(ObjectReference.fromObject(obj));
+  }
+
   /**
    *  Will this object move (allows us to optimize some JNI calls)
    */
@@ -26,7 +26,10 @@ import org.vmmagic.unboxed.Word;
  * 1Z..Z where Z..Z is the id of a heavy lock, or it is in
  * thin state in which case it looks like 0I..IC..C where
  * I is the thread id of the thread that owns the lock and
- * C is the recursion count of the lock.
+ * C is the recursion count of the lock.  A biased lock also
+ * holds the bias epoch of its object's type when it was biased
+ * (see {@link org.jikesrvm.scheduler.ThinLock}), between the
+ * recursion count and the status bits.
  * <pre>
  * aaaaTTTTTTTTTTbbbbb
  * JavaHeader.NUM_THIN_LOCK_BITS = # of T's
@@ -42,11 +45,13 @@ public interface ThinLockConstants extends SizeConstants {
 
   int TL_NUM_BITS_STAT = 2;
   int TL_NUM_BITS_TID = RVMThread.LOG_MAX_THREADS;
-  int TL_NUM_BITS_RC = JavaHeader.NUM_THIN_LOCK_BITS - TL_NUM_BITS_TID - TL_NUM_BITS_STAT;
+  int TL_NUM_BITS_EPOCH = 2;
+  int TL_NUM_BITS_RC = JavaHeader.NUM_THIN_LOCK_BITS - TL_NUM_BITS_TID - TL_NUM_BITS_EPOCH - TL_NUM_BITS_STAT;
 
   int TL_THREAD_ID_SHIFT = JavaHeader.THIN_LOCK_SHIFT;
   int TL_LOCK_COUNT_SHIFT = TL_THREAD_ID_SHIFT + TL_NUM_BITS_TID;
-  int TL_STAT_SHIFT = TL_LOCK_COUNT_SHIFT + TL_NUM_BITS_RC;
+  int TL_EPOCH_SHIFT = TL_LOCK_COUNT_SHIFT + TL_NUM_BITS_RC;
+  int TL_STAT_SHIFT = TL_EPOCH_SHIFT + TL_NUM_BITS_EPOCH;
   int TL_LOCK_ID_SHIFT = JavaHeader.THIN_LOCK_SHIFT;
   int TL_DEDICATED_U16_OFFSET = JavaHeader.THIN_LOCK_DEDICATED_U16_OFFSET;
   int TL_DEDICATED_U16_SHIFT = JavaHeader.THIN_LOCK_DEDICATED_U16_SHIFT;
@@ -55,8 +60,10 @@ public interface ThinLockConstants extends SizeConstants {
 
   Word TL_LOCK_COUNT_MASK = Word.fromIntSignExtend(-1).rshl(BITS_IN_ADDRESS - TL_NUM_BITS_RC).lsh(TL_LOCK_COUNT_SHIFT);
   Word TL_THREAD_ID_MASK = Word.fromIntSignExtend(-1).rshl(BITS_IN_ADDRESS - TL_NUM_BITS_TID).lsh(TL_THREAD_ID_SHIFT);
+  Word TL_EPOCH_MASK = Word.fromIntSignExtend(-1).rshl(BITS_IN_ADDRESS - TL_NUM_BITS_EPOCH).lsh(TL_EPOCH_SHIFT);
   Word TL_LOCK_ID_MASK =
-      Word.fromIntSignExtend(-1).rshl(BITS_IN_ADDRESS - (TL_NUM_BITS_RC + TL_NUM_BITS_TID)).lsh(TL_LOCK_ID_SHIFT);
+      Word.fromIntSignExtend(-1).rshl(BITS_IN_ADDRESS - (TL_NUM_BITS_RC + TL_NUM_BITS_TID + TL_NUM_BITS_EPOCH))
+      .lsh(TL_LOCK_ID_SHIFT);
   Word TL_STAT_MASK = Word.fromIntSignExtend(-1).rshl(BITS_IN_ADDRESS - TL_NUM_BITS_TID).lsh(TL_STAT_SHIFT);
   Word TL_UNLOCK_MASK = Word.fromIntSignExtend(-1).rshl(BITS_IN_ADDRESS - JavaHeader
       .NUM_THIN_LOCK_BITS).lsh(JavaHeader.THIN_LOCK_SHIFT).not();
@@ -237,7 +237,9 @@ public class BootRecord {
   // memory
   public Address sysCopyIP;
   public Address sysMallocIP;
+  public Address sysTryMallocIP;
   public Address sysCallocIP;
+  public Address sysReallocIP;
   public Address sysFreeIP;
   public Address sysZeroIP;
   public Address sysZeroPagesIP;
@@ -248,6 +250,12 @@ public class BootRecord {
   public Address sysWriteByteIP;
   public Address sysReadBytesIP;
   public Address sysWriteBytesIP;
+  public Address sysTryReadBytesIP;
+  public Address sysTryWriteBytesIP;
+  public Address sysPollerCreateIP;
+  public Address sysPollerRegisterIP;
+  public Address sysPollerWaitIP;
+  public Address sysSocketTimeoutIP;
 
   // memory mapping
   public Address sysMemoryReserveIP;
@@ -452,6 +452,8 @@ public class Entrypoints {
 
   public static final RVMField edgeCountersField =
       getField(org.jikesrvm.compilers.baseline.EdgeCounts.class, "data", int[][].class);
+  public static final NormalMethod profileReceiverTypeMethod =
+      getMethod(org.jikesrvm.compilers.baseline.ReceiverTypeProfiles.class, "profileReceiverType", "(Ljava/lang/Object;II)V");
 
   //////////////////
   // Entrypoints that are valid only when the opt compiler is included in the build
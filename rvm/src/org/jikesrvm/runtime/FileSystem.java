@@ -20,6 +20,7 @@ import java.io.FileOutputStream;
 import java.io.PrintStream;
 import org.jikesrvm.VM;
 import org.jikesrvm.runtime.Callbacks.Callback;
+import org.jikesrvm.scheduler.PollerThread;
 import org.jikesrvm.scheduler.RVMThread;
 import static org.jikesrvm.runtime.SysCall.sysCall;
 import org.vmmagic.pragma.NoInline;
@@ -35,6 +36,12 @@ import org.vmmagic.pragma.Unpreemptible;
  */
 public class FileSystem {
 
+  /** sysTryReadBytes/sysTryWriteBytes: the file descriptor is not a socket */
+  private static final int NOT_A_SOCKET = -4;
+
+  /** sysTryReadBytes/sysTryWriteBytes: the operation must wait for the socket */
+  private static final int MUST_WAIT = -5;
+
   /**
    * Read single byte from file.
    *
@@ -73,7 +80,9 @@ public class FileSystem {
   }
 
   /**
-   * Read multiple bytes.
+   * Read multiple bytes.  A read from a blocking socket that has no data
+   * waits for the poller thread rather than blocking in native code, until
+   * the socket's receive timeout (if any) passes.
    *
    * @param buf a pinned byte array to read into
    * @return -2: i/o error, -1: timeout, >=0: number of bytes read
@@ -83,6 +92,16 @@ public class FileSystem {
   @BaselineSaveLSRegisters
   @Unpreemptible
   public static int readBytes(int fd, byte[] buf, int off, int cnt) {
+    if (PollerThread.isEnabled()) {
+      long deadline = 0;
+      for (;;) {
+        int result=sysCall.sysTryReadBytes(fd,Magic.objectAsAddress(buf).plus(off),cnt);
+        if (result == NOT_A_SOCKET) break;
+        if (result != MUST_WAIT) return result;
+        if (deadline == 0) deadline = PollerThread.deadline(fd, PollerThread.READ);
+        if (!PollerThread.awaitReady(fd, PollerThread.READ, deadline)) return -1; // timed out
+      }
+    }
     RVMThread.saveThreadState();
     RVMThread.enterNative();
     int result=sysCall.sysReadBytes(fd,Magic.objectAsAddress(buf).plus(off),cnt);
@@ -91,7 +110,9 @@ public class FileSystem {
   }
 
   /**
-   * Write multiple bytes.
+   * Write multiple bytes.  A write to a blocking socket that is full
+   * waits for the poller thread rather than blocking in native code, until
+   * the socket's send timeout (if any) passes.
    *
    * @param buf a pinned byte array to write from
    * @return -2: i/o error, -1: timeout, >=0: number of bytes written
@@ -101,6 +122,16 @@ public class FileSystem {
   @BaselineSaveLSRegisters
   @Unpreemptible
   public static int writeBytes(int fd, byte[] buf, int off, int cnt) {
+    if (PollerThread.isEnabled()) {
+      long deadline = 0;
+      for (;;) {
+        int result=sysCall.sysTryWriteBytes(fd,Magic.objectAsAddress(buf).plus(off),cnt);
+        if (result == NOT_A_SOCKET) break;
+        if (result != MUST_WAIT) return result;
+        if (deadline == 0) deadline = PollerThread.deadline(fd, PollerThread.WRITE);
+        if (!PollerThread.awaitReady(fd, PollerThread.WRITE, deadline)) return -1; // timed out
+      }
+    }
     RVMThread.saveThreadState();
     RVMThread.enterNative();
     int result=sysCall.sysWriteBytes(fd,Magic.objectAsAddress(buf).plus(off),cnt);
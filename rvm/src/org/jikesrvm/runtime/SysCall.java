@@ -83,9 +83,20 @@ public abstract class SysCall {
   @SysCallTemplate
   public abstract Address sysMalloc(int length);
 
+  /**
+   * Like {@link #sysMalloc(int)}, but returns zero rather than exiting
+   * if the memory can't be had
+   */
+  @SysCallTemplate
+  public abstract Address sysTryMalloc(int length);
+
   @SysCallTemplate
   public abstract Address sysCalloc(int length);
 
+  /** Returns zero, leaving <code>location</code> alone, if the memory can't be had */
+  @SysCallTemplate
+  public abstract Address sysRealloc(Address location, int length);
+
   @SysCallTemplate
   public abstract void sysFree(Address location);
 
@@ -145,6 +156,24 @@ public abstract class SysCall {
   @SysCallTemplate
   public abstract int sysWriteBytes(int fd, Address buf, int cnt);
 
+  @SysCallTemplate
+  public abstract int sysTryReadBytes(int fd, Address buf, int cnt);
+
+  @SysCallTemplate
+  public abstract int sysTryWriteBytes(int fd, Address buf, int cnt);
+
+  @SysCallTemplate
+  public abstract int sysPollerCreate();
+
+  @SysCallTemplate
+  public abstract int sysPollerRegister(int pollfd, int fd, int events, int slot);
+
+  @SysCallTemplate
+  public abstract int sysPollerWait(int pollfd, int[] slots, int max, int timeoutMillis);
+
+  @SysCallTemplate
+  public abstract int sysSocketTimeout(int fd, int events);
+
   // memory mapping
   @SysCallTemplate
   public abstract Address sysMemoryReserve(Address start, Extent length, boolean read, boolean write, boolean exec, boolean commit);
@@ -0,0 +1,124 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.scheduler;
+
+import org.vmmagic.pragma.Interruptible;
+import org.vmmagic.pragma.NonMoving;
+import org.vmmagic.pragma.Uninterruptible;
+import org.vmmagic.pragma.Unpreemptible;
+
+/**
+ * An action that a thread is asked to perform at its next yieldpoint,
+ * without stopping the thread that asks.  Unlike
+ * {@link RVMThread#softHandshake}, requesting an asynchronous handshake
+ * does not wait for the thread to acknowledge it; the requester can carry
+ * on, and later use {@link #isDone} or {@link #await} to find out whether
+ * the action has been performed.
+ * <p>
+ * The action is run by the target thread, with the target's monitor held,
+ * so it must not block, allocate, or acquire any lock other than a leaf
+ * lock.  If the target is not running Java code when the request is made
+ * (it is in native code, blocked, or terminating) the requesting thread
+ * runs the action on the target's behalf, while the target is prevented
+ * from returning to Java code.
+ * <p>
+ * A handshake may be requested from any number of threads, and is done once
+ * all of them have performed it.  An instance may be reused once it is done.
+ */
+@Uninterruptible
+@NonMoving
+public abstract class AsyncHandshake {
+
+  /** Used to wait for handshakes to be performed.  A leaf lock. */
+  private static Monitor completionLock;
+
+  /** The number of requests that have not yet been performed, guarded by completionLock */
+  private int pending;
+
+  @Interruptible
+  static void boot() {
+    completionLock = new Monitor();
+  }
+
+  /**
+   * The action.
+   *
+   * @param t the thread the action is performed for; the current thread,
+   *          unless the action is being performed on t's behalf
+   */
+  protected abstract void run(RVMThread t);
+
+  /**
+   * Ask a thread to perform this handshake at its next yieldpoint.  Only
+   * waits if the thread is running Java code and already has too many
+   * handshakes outstanding, in which case this waits for the thread to
+   * perform them (see {@link RVMThread#requestAsyncHandshake}).
+   *
+   * @param t the thread
+   */
+  @Unpreemptible("May wait for the thread to perform its outstanding handshakes")
+  public final void requestFrom(RVMThread t) {
+    completionLock.lockNoHandshake();
+    pending++;
+    completionLock.unlock();
+    t.requestAsyncHandshake(this);
+  }
+
+  /**
+   * Ask every thread other than the current one (and those that don't take
+   * part in handshakes) to perform this handshake at its next yieldpoint.
+   */
+  @Unpreemptible("May wait for threads to perform their outstanding handshakes")
+  public final void requestFromAll() {
+    RVMThread.handshakeLock.lockWithHandshake();
+    int numToHandshake = RVMThread.snapshotHandshakeThreads();
+    for (int i = 0; i < numToHandshake; i++) {
+      RVMThread t = RVMThread.handshakeThreads[i];
+      RVMThread.handshakeThreads[i] = null; // help GC
+      requestFrom(t);
+    }
+    RVMThread.handshakeLock.unlock();
+  }
+
+  /**
+   * @return whether every thread asked to perform this handshake has done so
+   */
+  public final boolean isDone() {
+    return pending == 0;
+  }
+
+  /**
+   * Wait until every thread asked to perform this handshake has done so.
+   */
+  @Unpreemptible("Waits for threads to perform the handshake")
+  public final void await() {
+    completionLock.lockWithHandshake();
+    while (pending > 0) {
+      completionLock.waitWithHandshake();
+    }
+    completionLock.unlock();
+  }
+
+  /**
+   * Count a request as done, once its action has been performed.  Must not
+   * be called with a thread's monitor held, since a thread waiting in
+   * {@link #await} holds completionLock while acquiring its own monitor.
+   */
+  final void complete() {
+    completionLock.lockNoHandshake();
+    if (--pending == 0) {
+      completionLock.broadcast();
+    }
+    completionLock.unlock();
+  }
+}
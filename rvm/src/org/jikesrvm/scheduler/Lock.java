@@ -14,6 +14,7 @@ package org.jikesrvm.scheduler;
 
 import org.jikesrvm.VM;
 import org.jikesrvm.architecture.Constants;
+import org.jikesrvm.classloader.RVMType;
 import org.jikesrvm.objectmodel.ObjectModel;
 import org.jikesrvm.objectmodel.ThinLockConstants;
 import org.jikesrvm.runtime.Callbacks;
@@ -89,16 +90,17 @@ java.lang.Object#notifyAll}, and {@link java.lang.Object#wait()}.
  SMP in the Fall of '99.)
  <LI> <EM>When should a heavy-weight lock be deflated?</EM>  Currently,
  deflation happens when the lock is unlocked with nothing on either
- of its queues.  Probably better, would be to periodically (what
- period?) examine heavy-weight locks and deflate any that havn't
- been held for a while (how long?).
+ of its queues, unless threads have contended for it since the last
+ garbage collection, in which case it is likely to be inflated again
+ soon.  At the start of each garbage collection, locks that are
+ neither held nor contended are deflated (see {@link #deflateIdleLocks}).
  <LI> <EM>How many heavy-weight locks are needed? and how should they be
- managed?</EM>  Currently, each processor maintains a pool of free
- locks.  When a lock is inflated by a processor it is taken from
- this pool and when a lock is deflated by a processor it gets added
- to the processors pool.  Since inflation can happen on one processor
- and deflation on another, this can create an imbalance.  It might
- be worth investigating a scheme for balancing these local pools.
+ managed?</EM>  Currently, each thread maintains a small pool of free
+ locks.  When a lock is inflated by a thread it is taken from
+ this pool and when a lock is deflated by a thread it gets added
+ to the thread's pool.  Since inflation can happen on one thread
+ and deflation on another, this can create an imbalance, so pools
+ are refilled from, and overflow to, the global free list in batches.
  <LI> <EM>Is there any advantage to using the {@link SpinLock#tryLock}
  method?</EM>
  </OL>
@@ -137,6 +139,10 @@ public final class Lock implements Constants {
   protected static final int MAX_LOCKS = LOCK_SPINE_SIZE * LOCK_CHUNK_SIZE;
   /** The number of chunks to allocate on startup */
   protected static final int INITIAL_CHUNKS = 1;
+  /** The maximum number of free locks a thread keeps for itself */
+  protected static final int LOCK_CACHE_SIZE = 16;
+  /** The number of locks moved between a thread and the global free list at a time */
+  protected static final int LOCK_CACHE_BATCH = LOCK_CACHE_SIZE / 2;
 
   /**
    * Should we give up or persist in the attempt to get a heavy-weight lock,
@@ -175,6 +181,19 @@ public final class Lock implements Constants {
   public static int unlockOperations;
   /** Number of deflations */
   public static int deflations;
+  /** Number of inflations */
+  public static int inflations;
+  /** Number of times a thread refilled its free locks from the global free list */
+  public static int cacheRefills;
+  /** Number of times a thread returned free locks to the global free list */
+  public static int cacheFlushes;
+
+  /** The log size of each chunk of per-type inflation counts */
+  private static final int LOG_INFLATION_CHUNK_SIZE = 10;
+  /** The size of the spine of per-type inflation counts */
+  private static final int INFLATION_SPINE_SIZE = 1 << 10;
+  /** Number of inflations of locks on instances of each type, indexed by type id */
+  private static int[][] inflationsByType;
 
   /****************************************************************************
    * Instance
@@ -190,6 +209,11 @@ public final class Lock implements Constants {
   public final SpinLock mutex;
   /** Is this lock currently being used? */
   protected boolean active;
+  /**
+   * Has a thread had to queue for this lock since it was inflated, or
+   * since the last scan for idle locks?  Guarded by mutex.
+   */
+  private boolean contended;
   /** The next free lock on the free lock list */
   private Lock nextFreeLock;
   /** This lock's index in the lock table*/
@@ -243,6 +267,7 @@ public final class Lock implements Constants {
       ownerId = threadId;
       recursionCount = 1;
     } else {
+      contended = true;
       entering.enqueue(me);
       mutex.unlock();
       me.monitor().lockNoHandshake();
@@ -283,8 +308,9 @@ public final class Lock implements Constants {
     if (STATS) unlockOperations++;
     ownerId = 0;
     RVMThread toAwaken = entering.dequeue();
-    if (toAwaken == null && entering.isEmpty() && waiting.isEmpty()) { // heavy lock can be deflated
-      // Possible project: decide on a heuristic to control when lock should be deflated
+    if (toAwaken == null && entering.isEmpty() && waiting.isEmpty() && !contended) { // heavy lock can be deflated
+      // A contended lock is left inflated: it is likely to be contended again, and
+      // deflateIdleLocks will deflate it if it isn't.
       Offset lockOffset = Magic.getObjectType(o).getThinLockOffset();
       if (!lockOffset.isMax()) { // deflate heavy lock
         deflate(o, lockOffset);
@@ -314,9 +340,47 @@ public final class Lock implements Constants {
     if (STATS) deflations++;
     ThinLock.markDeflated(o, lockOffset, index);
     lockedObject = null;
+    contended = false;
     free(this);
   }
 
+  /**
+   * Deflates every heavy-weight lock that is not held, has no threads
+   * waiting on it, and has not been contended since the last call, so that
+   * locks inflated by a burst of contention don't stay inflated (and keep
+   * their objects alive) indefinitely.  Locks that have been contended are
+   * given until the next call.
+   * <p>
+   * Must be called with all mutators stopped, as it is at the start of a
+   * garbage collection.
+   */
+  public static void deflateIdleLocks() {
+    RVMThread me = RVMThread.getCurrentThread();
+    for (int i = 1; i < nextLockIndex; i++) {
+      Lock l = getLock(i);
+      if (l == null || !l.active || !l.mutex.tryLock()) {
+        continue;
+      }
+      Object o = l.lockedObject;
+      if (o != null && l.ownerId == 0 && l.entering.isEmpty() && l.waiting.isEmpty()) {
+        if (l.contended) {
+          l.contended = false;
+        } else {
+          Offset lockOffset = Magic.getObjectType(o).getThinLockOffset();
+          if (!lockOffset.isMax()) {
+            if (trace) {
+              VM.sysWriteln("Lock.deflateIdleLocks: deflating ",Magic.objectAsAddress(l));
+            }
+            l.deflate(o, lockOffset);
+          }
+        }
+      }
+      l.mutex.unlock();
+    }
+    // the caller can't use the locks it has freed
+    flushCache(me, 0);
+  }
+
   /**
    * Set the owner of a lock
    * @param id The thread id of the owner.
@@ -454,8 +518,10 @@ public final class Lock implements Constants {
 
   /**
    * Delivers up an unassigned heavy-weight lock.  Locks are allocated
-   * from processor specific regions or lists, so normally no synchronization
-   * is required to obtain a lock.
+   * from thread specific lists, so normally no synchronization
+   * is required to obtain a lock.  When a thread's list is empty it is
+   * refilled with a batch of locks from the global free list, and only
+   * when that is empty too is a new lock created.
    *
    * Collector threads cannot use heavy-weight locks.
    *
@@ -464,104 +530,167 @@ public final class Lock implements Constants {
   @UnpreemptibleNoWarn("The caller is prepared to lose control when it allocates a lock")
   static Lock allocate() {
     RVMThread me=RVMThread.getCurrentThread();
-    if (me.cachedFreeLock != null) {
-      Lock l = me.cachedFreeLock;
-      me.cachedFreeLock = null;
-      if (trace) {
-        VM.sysWriteln("Lock.allocate: returning ",Magic.objectAsAddress(l),
-                      ", a cached free lock from Thread #",me.getThreadSlot());
-      }
-      return l;
-    }
-
-    Lock l = null;
-    while (l == null) {
-      if (globalFreeLock != null) {
-        lockAllocationMutex.lock();
-        l = globalFreeLock;
-        if (l != null) {
-          globalFreeLock = l.nextFreeLock;
-          l.nextFreeLock = null;
-          l.active = true;
-          globalFreeLocks--;
-        }
-        lockAllocationMutex.unlock();
-        if (trace && l!=null) {
-          VM.sysWriteln("Lock.allocate: returning ",Magic.objectAsAddress(l),
-                        " from the global freelist for Thread #",me.getThreadSlot());
+    if (me.cachedFreeLocks == null) {
+      refillCache(me);
+    }
+    while (me.cachedFreeLocks == null) {
+      Lock l = new Lock(); // may cause thread switch (and processor loss)
+      lockAllocationMutex.lock();
+      if (globalFreeLock == null) {
+        // ok, it's still correct for us to be adding a new lock
+        if (nextLockIndex >= MAX_LOCKS) {
+          VM.sysWriteln("Too many fat locks"); // make MAX_LOCKS bigger? we can keep going??
+          VM.sysFail("Exiting VM with fatal error");
         }
+        l.index = nextLockIndex++;
+        globalLocksAllocated++;
       } else {
-        l = new Lock(); // may cause thread switch (and processor loss)
-        lockAllocationMutex.lock();
-        if (globalFreeLock == null) {
-          // ok, it's still correct for us to be adding a new lock
-          if (nextLockIndex >= MAX_LOCKS) {
-            VM.sysWriteln("Too many fat locks"); // make MAX_LOCKS bigger? we can keep going??
-            VM.sysFail("Exiting VM with fatal error");
-          }
-          l.index = nextLockIndex++;
-          globalLocksAllocated++;
-        } else {
-          l = null; // someone added to the freelist, try again
-        }
-        lockAllocationMutex.unlock();
-        if (l != null) {
-          if (l.index >= numLocks()) {
-            /* We need to grow the table */
-            growLocks(l.index);
-          }
-          addLock(l);
-          l.active = true;
-          /* make sure other processors see lock initialization.
-           * Note: Derek and I BELIEVE that an isync is not required in the other processor because the lock is newly allocated - Bowen */
-          Magic.sync();
+        l = null; // someone added to the freelist, try again
+      }
+      lockAllocationMutex.unlock();
+      if (l != null) {
+        if (l.index >= numLocks()) {
+          /* We need to grow the table */
+          growLocks(l.index);
         }
-        if (trace && l!=null) {
+        addLock(l);
+        l.active = true;
+        /* make sure other processors see lock initialization.
+         * Note: Derek and I BELIEVE that an isync is not required in the other processor because the lock is newly allocated - Bowen */
+        Magic.sync();
+        if (trace) {
           VM.sysWriteln("Lock.allocate: returning ",Magic.objectAsAddress(l),
                         ", a freshly allocated lock for Thread #",
                         me.getThreadSlot());
         }
+        return l;
       }
+      refillCache(me);
+    }
+    Lock l = me.cachedFreeLocks;
+    me.cachedFreeLocks = l.nextFreeLock;
+    me.numCachedFreeLocks--;
+    l.nextFreeLock = null;
+    l.active = true;
+    if (trace) {
+      VM.sysWriteln("Lock.allocate: returning ",Magic.objectAsAddress(l),
+                    ", a cached free lock from Thread #",me.getThreadSlot());
     }
     return l;
   }
 
   /**
    * Recycles an unused heavy-weight lock.  Locks are deallocated
-   * to processor specific lists, so normally no synchronization
-   * is required to obtain or release a lock.
+   * to thread specific lists, so normally no synchronization
+   * is required to obtain or release a lock.  When a thread's list grows
+   * too long, a batch of its least recently freed locks is returned to
+   * the global free list.
    */
   protected static void free(Lock l) {
     l.active = false;
     RVMThread me = RVMThread.getCurrentThread();
-    if (me.cachedFreeLock == null) {
-      if (trace) {
-        VM.sysWriteln("Lock.free: setting ",Magic.objectAsAddress(l),
-                      " as the cached free lock for Thread #",
-                      me.getThreadSlot());
-      }
-      me.cachedFreeLock = l;
-    } else {
+    if (trace) {
+      VM.sysWriteln("Lock.free: caching ",Magic.objectAsAddress(l),
+                    " as a free lock for Thread #",
+                    me.getThreadSlot());
+    }
+    l.nextFreeLock = me.cachedFreeLocks;
+    me.cachedFreeLocks = l;
+    me.numCachedFreeLocks++;
+    if (me.numCachedFreeLocks > LOCK_CACHE_SIZE) {
+      flushCache(me, LOCK_CACHE_SIZE - LOCK_CACHE_BATCH);
+    }
+  }
+
+  /**
+   * Move up to a batch of locks from the global free list to a thread's
+   * (empty) list of free locks.
+   *
+   * @param t the thread whose list is to be refilled
+   */
+  private static void refillCache(RVMThread t) {
+    if (VM.VerifyAssertions) VM._assert(t.cachedFreeLocks == null);
+    if (globalFreeLock == null) {
+      return;
+    }
+    lockAllocationMutex.lock();
+    Lock head = globalFreeLock;
+    Lock tail = null;
+    int count = 0;
+    for (Lock l = head; l != null && count < LOCK_CACHE_BATCH; l = l.nextFreeLock) {
+      tail = l;
+      count++;
+    }
+    if (count > 0) {
+      globalFreeLock = tail.nextFreeLock;
+      tail.nextFreeLock = null;
+      globalFreeLocks -= count;
+    }
+    lockAllocationMutex.unlock();
+    if (count > 0) {
+      if (STATS) cacheRefills++;
+      t.cachedFreeLocks = head;
+      t.numCachedFreeLocks = count;
       if (trace) {
-        VM.sysWriteln("Lock.free: returning ",Magic.objectAsAddress(l),
-                      " to the global freelist for Thread #",
-                      me.getThreadSlot());
+        VM.sysWriteln("Lock.refillCache: moved ",count,
+                      " locks from the global freelist to Thread #",t.getThreadSlot());
       }
-      returnLock(l);
     }
   }
-  static void returnLock(Lock l) {
+
+  /**
+   * Return all but the first few of a thread's free locks to the global
+   * free list.
+   *
+   * @param t the thread whose free locks are to be returned
+   * @param keep the number of locks to leave on the thread's list
+   */
+  private static void flushCache(RVMThread t, int keep) {
+    Lock last = null;
+    Lock head = t.cachedFreeLocks;
+    for (int i = 0; i < keep; i++) {
+      last = head;
+      head = head.nextFreeLock;
+    }
+    if (head == null) {
+      return;
+    }
+    int count = t.numCachedFreeLocks - keep;
+    if (last == null) {
+      t.cachedFreeLocks = null;
+    } else {
+      last.nextFreeLock = null;
+    }
+    t.numCachedFreeLocks = keep;
+    Lock tail = head;
+    while (tail.nextFreeLock != null) {
+      tail = tail.nextFreeLock;
+    }
     if (trace) {
-      VM.sysWriteln("Lock.returnLock: returning ",Magic.objectAsAddress(l),
-                    " to the global freelist for Thread #",
-                    RVMThread.getCurrentThreadSlot());
+      VM.sysWriteln("Lock.flushCache: returning ",count,
+                    " locks to the global freelist for Thread #",t.getThreadSlot());
     }
     lockAllocationMutex.lock();
-    l.nextFreeLock = globalFreeLock;
-    globalFreeLock = l;
-    globalFreeLocks++;
-    globalLocksFreed++;
+    tail.nextFreeLock = globalFreeLock;
+    globalFreeLock = head;
+    globalFreeLocks += count;
+    globalLocksFreed += count;
     lockAllocationMutex.unlock();
+    if (STATS) cacheFlushes++;
+  }
+
+  /**
+   * Return all of a terminating thread's free locks to the global free list.
+   *
+   * @param t the terminating thread
+   */
+  static void returnCachedLocks(RVMThread t) {
+    if (VM.VerifyAssertions) {
+      for (Lock l = t.cachedFreeLocks; l != null; l = l.nextFreeLock) {
+        VM._assert(l.mutex.latestContender != t);
+      }
+    }
+    flushCache(t, 0);
   }
 
   /**
@@ -643,6 +772,64 @@ public final class Lock implements Constants {
     VM.sysWrite(" free locks\n");
   }
 
+  /**
+   * Make sure there is somewhere to count inflations of the lock on an
+   * object, so that {@link #countInflation} need not allocate.
+   *
+   * @param o the object whose lock is about to be inflated
+   */
+  @UnpreemptibleNoWarn("The caller is prepared to lose control when it allocates a lock")
+  static void prepareInflationStats(Object o) {
+    if (!STATS) return;
+    int id = Magic.getObjectType(o).getId();
+    int spineId = id >> LOG_INFLATION_CHUNK_SIZE;
+    if (inflationsByType != null && spineId < INFLATION_SPINE_SIZE &&
+        inflationsByType[spineId] == null) {
+      int[] newChunk = new int[1 << LOG_INFLATION_CHUNK_SIZE];
+      lockAllocationMutex.lock();
+      if (inflationsByType[spineId] == null) {
+        Services.setArrayUninterruptible(inflationsByType, spineId, newChunk);
+      }
+      lockAllocationMutex.unlock();
+    }
+  }
+
+  /**
+   * Count the inflation of the lock on an object, against the object's type.
+   *
+   * @param o the object whose lock has been inflated
+   */
+  static void countInflation(Object o) {
+    if (!STATS) return;
+    inflations++;
+    int id = Magic.getObjectType(o).getId();
+    int spineId = id >> LOG_INFLATION_CHUNK_SIZE;
+    if (inflationsByType != null && spineId < INFLATION_SPINE_SIZE &&
+        inflationsByType[spineId] != null) {
+      inflationsByType[spineId][id & ((1 << LOG_INFLATION_CHUNK_SIZE) - 1)]++;
+    }
+  }
+
+  /**
+   * Report the types whose locks have been inflated, with the number of
+   * inflations of each.
+   */
+  private static void dumpInflationsByType() {
+    for (int spineId = 0; spineId < INFLATION_SPINE_SIZE; spineId++) {
+      int[] chunk = inflationsByType[spineId];
+      if (chunk == null) continue;
+      for (int i = 0; i < chunk.length; i++) {
+        if (chunk[i] == 0) continue;
+        RVMType type = RVMType.getType((spineId << LOG_INFLATION_CHUNK_SIZE) + i);
+        VM.sysWrite("FatLocks: ");
+        VM.sysWrite(chunk[i]);
+        VM.sysWrite(" inflations of ");
+        VM.sysWrite(type.getDescriptor());
+        Services.percentage(chunk[i], inflations, "all inflations");
+      }
+    }
+  }
+
   /**
    * Count number of locks held by thread
    * @param id the thread locking ID we're counting for
@@ -683,6 +870,7 @@ public final class Lock implements Constants {
   @Interruptible
   public static void boot() {
     if (STATS) {
+      inflationsByType = new int[INFLATION_SPINE_SIZE][];
       Callbacks.vmExitCallbacks.addCallback(new Lock.ExitMonitor());
       Callbacks.appStartCallbacks.addCallback(new Lock.AppRunStartMonitor());
     }
@@ -696,6 +884,16 @@ public final class Lock implements Constants {
       lockOperations = 0;
       unlockOperations = 0;
       deflations = 0;
+      inflations = 0;
+      cacheRefills = 0;
+      cacheFlushes = 0;
+      for (int[] chunk : inflationsByType) {
+        if (chunk != null) {
+          for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = 0;
+          }
+        }
+      }
 
       ThinLock.notifyAppRunStart("", 0);
     }
@@ -720,6 +918,10 @@ public final class Lock implements Constants {
       VM.sysWrite("FatLocks: ");
       VM.sysWrite(deflations);
       VM.sysWrite(" deflations\n");
+      VM.sysWrite("FatLocks: ");
+      VM.sysWrite(inflations);
+      VM.sysWrite(" inflations\n");
+      dumpInflationsByType();
 
       ThinLock.notifyExit(totalLocks);
       VM.sysWriteln();
@@ -731,6 +933,11 @@ public final class Lock implements Constants {
       VM.sysWrite(" locks freed, ");
       VM.sysWriteInt(globalFreeLocks);
       VM.sysWrite(" free locks\n");
+      VM.sysWrite("lock cache stats: ");
+      VM.sysWriteInt(cacheRefills);
+      VM.sysWrite(" refills, ");
+      VM.sysWriteInt(cacheFlushes);
+      VM.sysWrite(" flushes\n");
     }
   }
 }
@@ -0,0 +1,195 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.scheduler;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.mm.mminterface.MemoryManager;
+import static org.jikesrvm.runtime.SysCall.sysCall;
+import org.vmmagic.pragma.Interruptible;
+import org.vmmagic.pragma.NonMoving;
+import org.vmmagic.pragma.Uninterruptible;
+import org.vmmagic.pragma.UninterruptibleNoWarn;
+import org.vmmagic.pragma.Unpreemptible;
+
+/**
+ * The poller thread.  A thread whose socket read or write would block
+ * registers its interest in the socket with the operating system's poller
+ * (epoll) and waits on its own monitor; the poller thread waits for sockets
+ * to become ready and wakes their threads, which then retry.  Unlike a thread
+ * blocked in a native read, a thread waiting for the poller holds no
+ * resources in the operating system beyond its registration, and responds to
+ * handshakes.
+ * <p>
+ * Registrations are one-shot, and identify the waiting thread by its slot.
+ * Read and write interest in a descriptor are registered separately, so a
+ * thread reading a socket and another writing it both get their wakeups.
+ * A wakeup is only a hint: the waiting thread always retries its operation,
+ * and waits again if the socket is still not ready (eg because another
+ * thread got the data first).  Waits are bounded so a lost wakeup only
+ * delays a thread, and a wakeup intended for a thread that has since died
+ * and whose slot has been reused is harmless.
+ * <p>
+ * Where the operating system has no supported poller, the poller thread is
+ * not started and socket IO blocks in native code as before.
+ */
+@Uninterruptible
+@NonMoving
+public class PollerThread extends RVMThread {
+  private static final int verbose = 0;
+
+  /** Interest in a file descriptor becoming readable */
+  public static final int READ = 1;
+  /** Interest in a file descriptor becoming writable */
+  public static final int WRITE = 2;
+
+  /**
+   * Most threads woken by one wait (a descriptor may wake both a reader and
+   * a writer)
+   */
+  private static final int MAX_EVENTS = 64;
+
+  /**
+   * Longest a thread waits for a wakeup before retrying its operation, in
+   * nanoseconds
+   */
+  private static final long MAX_WAIT_NS = 1000L*1000L*1000L;
+
+  /** The poller's file descriptor, or -1 if there is no poller */
+  private static int pollFD = -1;
+
+  /** The slots of the threads whose file descriptors are ready */
+  private static int[] readySlots;
+
+  public PollerThread() {
+    super("PollerThread");
+  }
+
+  /**
+   * Create and start the poller thread, if the operating system supports
+   * polling
+   */
+  @Interruptible
+  public static void boot() {
+    int fd = sysCall.sysPollerCreate();
+    if (fd < 0) {
+      if (verbose>=1) VM.sysWriteln("PollerThread: no poller, socket IO will block");
+      return;
+    }
+    readySlots = MemoryManager.newNonMovingIntArray(MAX_EVENTS);
+    pollFD = fd;
+    PollerThread pt = new PollerThread();
+    pt.makeDaemon(true);
+    pt.start();
+  }
+
+  /**
+   * @return whether socket IO may wait for the poller rather than block
+   */
+  public static boolean isEnabled() {
+    return pollFD >= 0;
+  }
+
+  /**
+   * When an operation on a socket that must wait for it times out, as set
+   * by SO_RCVTIMEO or SO_SNDTIMEO.
+   *
+   * @param fd the socket
+   * @param events {@link #READ} for the receive timeout, {@link #WRITE} for
+   *   the send timeout
+   * @return the deadline, in nanoseconds, or Long.MAX_VALUE if the socket
+   *   has no timeout
+   */
+  public static long deadline(int fd, int events) {
+    int millis = sysCall.sysSocketTimeout(fd, events);
+    if (millis <= 0) {
+      return Long.MAX_VALUE;
+    }
+    return sysCall.sysNanoTime() + millis * 1000L * 1000L;
+  }
+
+  /**
+   * Wait until the given file descriptor may be ready, as reported by the
+   * poller, or until a bounded time has passed.  The caller must retry its
+   * operation, and call this again if it would still block.
+   *
+   * @param fd the file descriptor
+   * @param events {@link #READ} or {@link #WRITE}
+   * @param deadline when the operation times out, as returned by
+   *   {@link #deadline}
+   * @return false if the deadline has passed, true if the caller should retry
+   */
+  @Unpreemptible("Blocks until woken by the poller")
+  public static boolean awaitReady(int fd, int events, long deadline) {
+    RVMThread t = getCurrentThread();
+    t.monitor().lockNoHandshake();
+    t.ioReady = false;
+    t.monitor().unlock();
+    if (sysCall.sysPollerRegister(pollFD, fd, events, t.getThreadSlot()) != 0) {
+      // Can't be polled (eg a regular file), so just retry
+      return sysCall.sysNanoTime() < deadline;
+    }
+    long whenEnd = sysCall.sysNanoTime() + MAX_WAIT_NS;
+    if (whenEnd > deadline) {
+      whenEnd = deadline;
+    }
+    t.monitor().lockNoHandshake();
+    t.waiting = Waiting.TIMED_WAITING;
+    while (!t.ioReady && sysCall.sysNanoTime() < whenEnd) {
+      t.monitor().timedWaitAbsoluteWithHandshake(whenEnd);
+    }
+    boolean ready = t.ioReady;
+    t.ioReady = false;
+    t.waiting = Waiting.RUNNABLE;
+    t.monitor().unlock();
+    return ready || sysCall.sysNanoTime() < deadline;
+  }
+
+  // NOTE: this runs concurrently with stop-the-world GC
+  @Override
+  public void run() {
+    disableYieldpoints();
+    if (verbose>=1) trace("PollerThread","run routine entered");
+    try {
+      for (;;) {
+        int n = sysCall.sysPollerWait(pollFD, readySlots, MAX_EVENTS, -1);
+        if (n < 0) {
+          VM.sysWriteln("PollerThread: poller failed, socket IO will block");
+          pollFD = -1;
+          return;
+        }
+        for (int i = 0; i < n; i++) {
+          // grab the lock to prevent the thread from being GC'd while we wake
+          // it (since this thread doesn't stop for GC)
+          RVMThread.acctLock.lockNoHandshake();
+          RVMThread t = RVMThread.threadBySlot[readySlots[i]];
+          RVMThread.acctLock.unlock();
+          if (t != null) {
+            t.monitor().lockNoHandshake();
+            t.ioReady = true;
+            t.monitor().broadcast();
+            t.monitor().unlock();
+          }
+        }
+      }
+    } catch (Throwable e) {
+      printExceptionAndDie(e);
+    }
+  }
+  @UninterruptibleNoWarn
+  private static void printExceptionAndDie(Throwable e) {
+    VM.sysWriteln("Unexpected exception thrown in poller thread: ",e.toString());
+    e.printStackTrace();
+    VM._assert(VM.NOT_REACHED);
+  }
+  public boolean ignoreHandshakesAndGC() { return true; }
+}
@@ -472,6 +472,18 @@ public class RVMThread extends ThreadContext {
    */
   public boolean yieldToOSRRequested;
 
+  /**
+   * Should the next taken backedge yieldpoint check whether to promote
+   * an outdated baseline activation by OSR?
+   */
+  public boolean osrPromotionRequested;
+
+  /**
+   * How many more non-backedge yieldpoints to take while waiting for a
+   * backedge at which to honour {@link #osrPromotionRequested}.
+   */
+  public int osrPromotionYieldpoints;
+
   /**
    * Is CBS enabled for 'call' yieldpoints?
    */
@@ -567,6 +579,43 @@ public class RVMThread extends ThreadContext {
    */
   public static Monitor softHandshakeDataLock;
 
+  /** The most asynchronous handshakes a thread may have outstanding */
+  private static final int MAX_ASYNC_HANDSHAKES = 8;
+
+  /**
+   * Asynchronous handshakes this thread has been asked to perform, in the
+   * order requested (protected by the thread's monitor).
+   */
+  private final AsyncHandshake[] asyncHandshakes = new AsyncHandshake[MAX_ASYNC_HANDSHAKES];
+
+  /** The number of entries in asyncHandshakes (protected by the thread's monitor) */
+  private int numAsyncHandshakes;
+
+  /**
+   * Asynchronous handshakes this thread has performed but not yet counted
+   * as done, which it can only do once it has released its monitor (only
+   * accessed by this thread).
+   */
+  private final AsyncHandshake[] asyncHandshakesPerformed = new AsyncHandshake[MAX_ASYNC_HANDSHAKES];
+
+  /** The number of entries in asyncHandshakesPerformed */
+  private int numAsyncHandshakesPerformed;
+
+  /** Used by this thread to revoke the biases of other threads' locks */
+  final ThinLock.BiasRevocation biasRevocation = new ThinLock.BiasRevocation();
+
+  /*
+   * VM.MeasureTimeToSafepoint support (protected by the thread's monitor)
+   */
+  /** When this thread was asked to block, if it hasn't yet acknowledged it; otherwise 0 */
+  private long blockRequestedNanos;
+  /** The compiled method in which this thread took the yieldpoint at which it noticed the request, or 0 */
+  private int safepointCMID;
+  /** The offset of that yieldpoint in the compiled method */
+  private Offset safepointOffset = Offset.zero();
+  /** How long this thread took to acknowledge its last block request, if not yet reported */
+  private long timeToSafepointNanos;
+
   /**
    * Lock that prevents multiple (soft or hard) handshakes from proceeding
    * concurrently.
@@ -607,10 +656,13 @@ public class RVMThread extends ThreadContext {
   private int uncaughtExceptionCount = 0;
 
   /**
-   * A cached free lock. Not a free list; this will only ever contain 0 or 1
-   * locks!
+   * This thread's list of free locks, linked through the locks themselves.
+   * Holds at most {@link Lock#LOCK_CACHE_SIZE} locks.
    */
-  public Lock cachedFreeLock;
+  Lock cachedFreeLocks;
+
+  /** The number of locks on cachedFreeLocks */
+  int numCachedFreeLocks;
 
   /*
    * Wait/notify fields
@@ -875,6 +927,9 @@ public class RVMThread extends ThreadContext {
   /** Is a running thread permitted to ignore the next park request */
   private boolean parkingPermit;
 
+  /** Has the poller reported the file descriptor this thread is waiting on to be ready */
+  boolean ioReady;
+
   /*
    * JNI fields
    */
@@ -926,6 +981,12 @@ public class RVMThread extends ThreadContext {
    */
   public final Object /* OnStackReplacementEvent */onStackReplacementEvent;
 
+  /**
+   * Is this thread running the opt compiler?  Used by RuntimeCompiler to
+   * detect recursive opt compilation.
+   */
+  public boolean optCompilationInProgress = false;
+
   /**
    * The flag indicates whether this thread is waiting for on stack replacement
    * before being rescheduled.
@@ -1270,6 +1331,7 @@ public class RVMThread extends ThreadContext {
     outputLock = new NoYieldpointsMonitor();
     softHandshakeDataLock = new Monitor();
     handshakeLock = new Monitor();
+    AsyncHandshake.boot();
     doProfileReport = new Latch(false);
     monitorBySlot[getCurrentThread().threadSlot] = new NoYieldpointsMonitor();
     communicationLockBySlot[getCurrentThread().threadSlot] = new Monitor();
@@ -1296,6 +1358,7 @@ public class RVMThread extends ThreadContext {
       t.start();
     }
     FinalizerThread.boot();
+    PollerThread.boot();
     getCurrentThread().enableYieldpoints();
     if (traceAcct) VM.sysWriteln("RVMThread booted");
   }
@@ -1326,6 +1389,7 @@ public class RVMThread extends ThreadContext {
     monitor().unlock();
 
     softRendezvous();
+    completeAsyncHandshakes();
 
     acctLock.lockNoHandshake();
     aboutToTerminate[aboutToTerminateN++] = threadSlot;
@@ -1582,6 +1646,9 @@ public class RVMThread extends ThreadContext {
       }
     }
     if (hadSome) {
+      if (VM.MeasureTimeToSafepoint && blockRequestedNanos != 0) {
+        recordTimeToSafepoint();
+      }
       monitor().broadcast();
     }
   }
@@ -1673,9 +1740,10 @@ public class RVMThread extends ThreadContext {
     // check if a soft handshake has been requested, and if so, clear the
     // request
     boolean commitSoftRendezvous = softRendezvousCheckAndClear();
-    if (commitSoftRendezvous) {
-      // if a soft handshake had been requested, we need to acknowledge it.
-      // but to acknowledge it we cannot be holding the monitor() lock.
+    if (commitSoftRendezvous || numAsyncHandshakesPerformed > 0) {
+      // if a soft handshake had been requested, we need to acknowledge it,
+      // and likewise count asynchronous handshakes as done.
+      // but to do either we cannot be holding the monitor() lock.
       // it turns out that at this point in the code it is perfectly safe
       // to release it, because:
       // 1) callers of this method expect that it may, in all likelihood,
@@ -1685,7 +1753,10 @@ public class RVMThread extends ThreadContext {
       // we won't call wait, since we reacquire the lock prior to checking
       // for block requests.
       int recCount = monitor().unlockCompletely();
-      softRendezvousCommit();
+      if (commitSoftRendezvous) {
+        softRendezvousCommit();
+      }
+      completeAsyncHandshakes();
       monitor().relockNoHandshake(recCount);
     }
 
@@ -1733,6 +1804,11 @@ public class RVMThread extends ThreadContext {
     isBlocking = false;
     // deal with requests that came up while we were blocked.
     handleHandshakeRequest();
+    if (numAsyncHandshakesPerformed > 0) {
+      int recCount = monitor().unlockCompletely();
+      completeAsyncHandshakes();
+      monitor().relockNoHandshake(recCount);
+    }
     monitor().unlock();
 
     if (traceBlock)
@@ -1822,6 +1898,9 @@ public class RVMThread extends ThreadContext {
     // with stop-the-world GC!
     boolean commitSoftRendezvous;
     monitor().lockNoHandshake();
+    // the requesters of outstanding handshakes expect them to be performed
+    // promptly, which they won't be once we're in native code
+    runAsyncHandshakes();
     if (jni) {
       jniEnteredBlocked++;
       setExecStatus(BLOCKED_IN_JNI);
@@ -1837,6 +1916,7 @@ public class RVMThread extends ThreadContext {
           " done with the locking part of native entry.");
     if (commitSoftRendezvous)
       softRendezvousCommit();
+    completeAsyncHandshakes();
     if (traceBlock)
       VM.sysWriteln("Thread #", threadSlot, " done enter native blocked.");
   }
@@ -1981,6 +2061,9 @@ public class RVMThread extends ThreadContext {
         // CAS the execStatus field
         int newState = setBlockedExecStatus();
         result = newState;
+        if (VM.MeasureTimeToSafepoint && newState == IN_JAVA_TO_BLOCK && blockRequestedNanos == 0) {
+          blockRequestedNanos = sysCall.sysNanoTime();
+        }
         if (traceReallyBlock)
           VM.sysWriteln("Thread #", getCurrentThreadSlot(),
               " is blocking thread #", threadSlot, " which is in state ",
@@ -2707,20 +2790,11 @@ public class RVMThread extends ThreadContext {
    */
   @Unpreemptible
   private void terminateUnpreemptible() {
-    // return cached free lock
+    // return cached free locks
     if (traceAcct)
-      VM.sysWriteln("returning cached lock...");
+      VM.sysWriteln("returning cached locks...");
 
-    if (cachedFreeLock != null) {
-      if (Lock.trace) {
-        VM.sysWriteln("Thread #", threadSlot, ": about to free lock ",
-            Magic.objectAsAddress(cachedFreeLock));
-      }
-      if (VM.VerifyAssertions)
-        VM._assert(cachedFreeLock.mutex.latestContender != this);
-      Lock.returnLock(cachedFreeLock);
-      cachedFreeLock = null;
-    }
+    Lock.returnCachedLocks(this);
 
     if (traceAcct)
       VM.sysWriteln("adding to aboutToTerminate...");
@@ -3364,6 +3438,96 @@ public class RVMThread extends ThreadContext {
       dumpStack();
       dumpLock.unlock();
     }
+    // perform asynchronous handshakes (see AsyncHandshake)
+    runAsyncHandshakes();
+  }
+
+  /**
+   * Ask this thread to perform an asynchronous handshake at its next
+   * yieldpoint, or perform it on the thread's behalf if the thread is not
+   * running Java code.
+   * <p>
+   * If the thread is running Java code and already has
+   * MAX_ASYNC_HANDSHAKES outstanding, this waits until it reaches a
+   * yieldpoint and performs them, or stops running Java code (in which
+   * case the handshake is performed on its behalf).  While waiting, the
+   * current thread performs its own outstanding handshakes, so two
+   * threads waiting for room in each other's arrays can't deadlock.
+   *
+   * @param h the handshake
+   */
+  @NoCheckStore
+  @Unpreemptible("May wait for the thread to perform its outstanding handshakes")
+  final void requestAsyncHandshake(AsyncHandshake h) {
+    RVMThread me = getCurrentThread();
+    if (this == me) {
+      h.run(this);
+      h.complete();
+      return;
+    }
+    boolean performed = false;
+    monitor().lockNoHandshake();
+    while (true) {
+      // as in softHandshake, this stops the thread from entering or leaving
+      // Java code without acquiring its monitor, which we hold
+      setBlockedExecStatus();
+      if (!isInJava()) {
+        h.run(this);
+        performed = true;
+        break;
+      }
+      if (numAsyncHandshakes < MAX_ASYNC_HANDSHAKES) {
+        asyncHandshakes[numAsyncHandshakes++] = h;
+        takeYieldpoint = 1;
+        break;
+      }
+      // full: let the thread reach a yieldpoint, which it has been asked
+      // to take, and perform any handshakes we have been asked to perform
+      monitor().unlock();
+      me.runAsyncHandshakes();
+      me.completeAsyncHandshakes();
+      yield();
+      monitor().lockNoHandshake();
+    }
+    monitor().unlock();
+    // the requester of a handshake may be waiting for it with its own
+    // monitor held, so don't count it as done while holding ours
+    if (performed) {
+      h.complete();
+    }
+  }
+
+  /**
+   * Perform this thread's outstanding asynchronous handshakes.  Called with
+   * the monitor held; once it is released, the handshakes must be counted
+   * as done with completeAsyncHandshakes.
+   */
+  @NoCheckStore
+  private void runAsyncHandshakes() {
+    if (numAsyncHandshakes == 0) {
+      return;
+    }
+    monitor().lockNoHandshake();
+    for (int i = 0; i < numAsyncHandshakes; i++) {
+      AsyncHandshake h = asyncHandshakes[i];
+      asyncHandshakes[i] = null;
+      h.run(this);
+      asyncHandshakesPerformed[numAsyncHandshakesPerformed++] = h;
+    }
+    numAsyncHandshakes = 0;
+    monitor().unlock();
+  }
+
+  /**
+   * Count the asynchronous handshakes performed by runAsyncHandshakes as
+   * done.  Must not be called with the monitor held.  Doesn't clear the
+   * entries, since a terminating thread can't run write barriers.
+   */
+  private void completeAsyncHandshakes() {
+    for (int i = 0; i < numAsyncHandshakesPerformed; i++) {
+      asyncHandshakesPerformed[i].complete();
+    }
+    numAsyncHandshakesPerformed = 0;
   }
 
   @Uninterruptible
@@ -3463,6 +3627,9 @@ public class RVMThread extends ThreadContext {
       }
     }
     if (VM.VerifyAssertions) VM._assert(numLockedLocks==numUnlockedLocks);
+    if (VM.MeasureTimeToSafepoint) {
+      collectTimeToSafepoint(sysCall.sysNanoTime()-before);
+    }
     handshakeLock.unlock();
 
     if (false) {
@@ -3557,11 +3724,20 @@ public class RVMThread extends ThreadContext {
     t.yieldpointsTakenFully++;
 
     Throwable throwThis = null;
+    boolean osrPromoted = false;
     t.monitor().lockNoHandshake();
 
     int takeYieldpointVal = t.takeYieldpoint;
     if (takeYieldpointVal != 0) {
       t.takeYieldpoint = 0;
+      if (VM.MeasureTimeToSafepoint && t.blockRequestedNanos != 0) {
+        // remember where we were when we noticed the request
+        t.safepointCMID = Magic.getCompiledMethodID(Magic.getCallerFramePointer(yieldpointServiceMethodFP));
+        CompiledMethod cm = CompiledMethods.getCompiledMethod(t.safepointCMID);
+        if (cm != null) {
+          t.safepointOffset = cm.getInstructionOffset(Magic.getReturnAddress(yieldpointServiceMethodFP), false);
+        }
+      }
       // do two things: check if we should be blocking, and act upon
       // handshake requests. This also has the effect of reasserting that
       // we are in fact IN_JAVA (as opposed to IN_JAVA_TO_BLOCK).
@@ -3602,11 +3778,26 @@ public class RVMThread extends ThreadContext {
               yieldpointServiceMethodFP);
         }
         if (VM.BuildForAdaptiveSystem) {
-          OSRListener
+          osrPromoted = OSRListener
               .checkForOSRPromotion(whereFrom, yieldpointServiceMethodFP);
         }
       }
 
+      if (VM.BuildForAdaptiveSystem && t.osrPromotionRequested) {
+        if (whereFrom == BACKEDGE) {
+          t.osrPromotionRequested = false;
+          if (!osrPromoted) {
+            OSRListener.checkForOSRPromotion(whereFrom, yieldpointServiceMethodFP);
+          }
+        } else if (--t.osrPromotionYieldpoints > 0) {
+          // keep taking yieldpoints until we reach a backedge
+          t.takeYieldpoint = 1;
+        } else {
+          // the activation has probably returned, so give up
+          t.osrPromotionRequested = false;
+        }
+      }
+
       if (t.yieldForCBSCall) {
         if (!(whereFrom == BACKEDGE || whereFrom == OSROPT)) {
           if (--t.countdownCBSCall <= 0) {
@@ -5020,6 +5211,133 @@ public class RVMThread extends ThreadContext {
     return getCurrentThread().feedlet;
   }
 
+  ////////////////////////// VM.MeasureTimeToSafepoint support //////////////////////////
+
+  /** The number of buckets in the time-to-safepoint histogram */
+  private static final int TIME_TO_SAFEPOINT_BUCKETS = 21;
+  /**
+   * Time-to-safepoint histogram.  Bucket i counts times of less than 2^i
+   * microseconds (and at least 2^(i-1)); the last bucket counts everything
+   * longer.  Protected by handshakeLock.
+   */
+  static final int[] timeToSafepointHistogram = new int[TIME_TO_SAFEPOINT_BUCKETS];
+  /** Stops of the world whose slowest thread takes longer than this are reported as they happen */
+  private static final long SLOW_SAFEPOINT_NANOS = 1000L * 1000L;
+  /** The number of slowest yieldpoints to report on exit */
+  private static final int SLOWEST_SAFEPOINTS = 10;
+  /** The slowest times to safepoint seen in stops of the world (protected by handshakeLock) */
+  private static final long[] slowestSafepointNanos = new long[SLOWEST_SAFEPOINTS];
+  /** The compiled method ids of the yieldpoints of the slowest times */
+  private static final int[] slowestSafepointCMIDs = new int[SLOWEST_SAFEPOINTS];
+  /** The offsets of the yieldpoints of the slowest times */
+  private static final int[] slowestSafepointOffsets = new int[SLOWEST_SAFEPOINTS];
+  /** The number of stops of the world, and the total time they took */
+  private static int stopsOfTheWorld;
+  private static long stopTheWorldNanos;
+
+  /**
+   * Record how long this thread took to acknowledge a block request.  Called
+   * by the thread itself, with its monitor held.
+   */
+  private void recordTimeToSafepoint() {
+    timeToSafepointNanos = sysCall.sysNanoTime() - blockRequestedNanos;
+    blockRequestedNanos = 0;
+  }
+
+  /**
+   * Collect the times that the threads blocked by a stop of the world took
+   * to stop into the histogram, report the stop if it was slow, and
+   * remember the slowest yieldpoints.  Called with handshakeLock held, and
+   * the threads blocked.
+   *
+   * @param elapsed how long stopping the world took
+   */
+  private static void collectTimeToSafepoint(long elapsed) {
+    stopsOfTheWorld++;
+    stopTheWorldNanos += elapsed;
+    RVMThread slowest = null;
+    for (int i = 0; i < numThreads; i++) {
+      RVMThread t = threads[i];
+      long nanos = t.timeToSafepointNanos;
+      if (nanos == 0) continue;
+      int bucket = 0;
+      for (long micros = nanos / 1000; micros > 0 && bucket < TIME_TO_SAFEPOINT_BUCKETS - 1; micros >>= 1) {
+        bucket++;
+      }
+      timeToSafepointHistogram[bucket]++;
+      if (slowest == null || nanos > slowest.timeToSafepointNanos) {
+        slowest = t;
+      }
+      int min = 0;
+      for (int j = 1; j < SLOWEST_SAFEPOINTS; j++) {
+        if (slowestSafepointNanos[j] < slowestSafepointNanos[min]) min = j;
+      }
+      if (nanos > slowestSafepointNanos[min]) {
+        slowestSafepointNanos[min] = nanos;
+        slowestSafepointCMIDs[min] = t.safepointCMID;
+        slowestSafepointOffsets[min] = t.safepointOffset.toInt();
+      }
+    }
+    if (slowest != null && slowest.timeToSafepointNanos > SLOW_SAFEPOINT_NANOS) {
+      outputLock.lockNoHandshake();
+      VM.sysWrite("Slow stop of the world: ", elapsed / 1000);
+      VM.sysWrite(" us, thread #", slowest.threadSlot);
+      VM.sysWrite(" took ", slowest.timeToSafepointNanos / 1000);
+      VM.sysWrite(" us, stopping in ");
+      writeSafepointSite(slowest.safepointCMID, slowest.safepointOffset.toInt());
+      VM.sysWriteln();
+      outputLock.unlock();
+    }
+    for (int i = 0; i < numThreads; i++) {
+      RVMThread t = threads[i];
+      t.timeToSafepointNanos = 0;
+      t.safepointCMID = 0;
+    }
+  }
+
+  /**
+   * Describe the yieldpoint at which a thread stopped.
+   */
+  private static void writeSafepointSite(int cmid, int offset) {
+    CompiledMethod cm = cmid == 0 ? null : CompiledMethods.getCompiledMethod(cmid);
+    if (cm == null || cm.getMethod() == null) {
+      VM.sysWrite("<not at a yieldpoint>");
+    } else {
+      VM.sysWrite(cm.getMethod());
+      VM.sysWrite(":", cm.findLineNumberForInstruction(Offset.fromIntSignExtend(offset)));
+      VM.sysWrite(" (", cm.getCompilerName(), ")");
+    }
+  }
+
+  /**
+   * Report the time-to-safepoint histogram and the slowest yieldpoints.
+   */
+  public static void reportTimeToSafepoint() {
+    VM.sysWriteln("Time to safepoint:");
+    VM.sysWrite("  ", stopsOfTheWorld);
+    VM.sysWrite(" stops of the world, taking ", stopTheWorldNanos / 1000);
+    VM.sysWriteln(" us");
+    VM.sysWriteln("  Histogram (threads taking less than n us to stop):");
+    for (int i = 0; i < TIME_TO_SAFEPOINT_BUCKETS; i++) {
+      if (timeToSafepointHistogram[i] != 0) {
+        if (i == TIME_TO_SAFEPOINT_BUCKETS - 1) {
+          VM.sysWriteln("    more: ", timeToSafepointHistogram[i]);
+        } else {
+          VM.sysWriteln("    ", 1 << i, ": ", timeToSafepointHistogram[i]);
+        }
+      }
+    }
+    VM.sysWriteln("  Slowest yieldpoints:");
+    for (int i = 0; i < SLOWEST_SAFEPOINTS; i++) {
+      if (slowestSafepointNanos[i] != 0) {
+        VM.sysWrite("    ", slowestSafepointNanos[i] / 1000);
+        VM.sysWrite(" us in ");
+        writeSafepointSite(slowestSafepointCMIDs[i], slowestSafepointOffsets[i]);
+        VM.sysWriteln();
+      }
+    }
+  }
+
   ////////////////////////// VM.countThreadTransitions support //////////////////////////
 
   static final int[] sloppyExecStatusHistogram =
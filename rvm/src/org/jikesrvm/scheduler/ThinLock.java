@@ -13,12 +13,15 @@
 package org.jikesrvm.scheduler;
 
 import org.jikesrvm.VM;
+import org.jikesrvm.classloader.RVMType;
 import org.jikesrvm.objectmodel.ThinLockConstants;
 import org.jikesrvm.runtime.Magic;
+import org.jikesrvm.runtime.Time;
 import org.jikesrvm.util.Services;
 import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.NoInline;
 import org.vmmagic.pragma.NoNullCheck;
+import org.vmmagic.pragma.NonMoving;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.pragma.Unpreemptible;
 import org.vmmagic.unboxed.Offset;
@@ -26,12 +29,41 @@ import org.vmmagic.unboxed.Word;
 
 /**
  * Implementation of thin locks.
+ * <p>
+ * Locks start out biased towards the first thread to acquire them.  Taking
+ * a bias away from a thread requires a handshake with it (a
+ * {@link BiasRevocation}), so revocations are counted per type of locked
+ * object; the counts are reset once
+ * {@link #BIAS_DECAY_NANOS} have passed.
+ * <ul>
+ * <li>Once a type has had {@link #BULK_REBIAS_THRESHOLD} revocations, it
+ * is bulk rebiased: its bias epoch is advanced, while all other threads
+ * are stopped.  A biased lock records the epoch in which it was biased,
+ * and its owner only updates it without a CAS while that epoch is
+ * current, so a bias from an earlier epoch that its owner isn't holding
+ * can be taken over by another thread with a CAS, without a handshake.
+ * From then on, the bias of a current lock that its owner isn't holding
+ * is also handed over (with a handshake) rather than revoked.  This suits
+ * objects that are passed from one thread to another.  These rebiases
+ * are counted separately, and another {@link #BULK_REBIAS_THRESHOLD} of
+ * them lead to another bulk rebias.</li>
+ * <li>Once a type has had {@link #BULK_REVOKE_THRESHOLD} revocations, its
+ * instances are genuinely contended, and biasing is disabled for the
+ * type.</li>
+ * </ul>
  */
 @Uninterruptible
 public final class ThinLock implements ThinLockConstants {
 
   private static final boolean ENABLE_BIASED_LOCKING = true;
 
+  /** Revocations (or rebiases) after which a type is bulk rebiased */
+  private static final int BULK_REBIAS_THRESHOLD = 20;
+  /** Revocations after which biasing is disabled for a type */
+  private static final int BULK_REVOKE_THRESHOLD = 40;
+  /** The time after which a type's revocation and rebias counts are reset */
+  private static final long BIAS_DECAY_NANOS = 25L * 1000 * 1000 * 1000;
+
   @Inline
   @NoNullCheck
   @Unpreemptible
@@ -41,7 +73,7 @@ public final class ThinLock implements ThinLockConstants {
     Word tid = Word.fromIntSignExtend(RVMThread.getCurrentThread().getLockingId());
     if (id.EQ(tid)) {
       Word changed = old.plus(TL_LOCK_COUNT_UNIT);
-      if (!changed.and(TL_LOCK_COUNT_MASK).isZero()) {
+      if (!changed.and(TL_LOCK_COUNT_MASK).isZero() && old.and(TL_EPOCH_MASK).EQ(biasEpoch(o))) {
         setDedicatedU16(o, lockOffset, changed);
         return;
       }
@@ -83,6 +115,8 @@ public final class ThinLock implements ThinLockConstants {
     if (STATS) fastLocks++;
 
     Word threadId = Word.fromIntZeroExtend(RVMThread.getCurrentThread().getLockingId());
+    int spinSlot = spinSlot(o);
+    boolean spun = false;
 
     for (int cnt=0;;cnt++) {
       Word old = Magic.getWordAtOffset(o, lockOffset);
@@ -90,13 +124,14 @@ public final class ThinLock implements ThinLockConstants {
       boolean tryToInflate=false;
       if (stat.EQ(TL_STAT_BIASABLE)) {
         Word id = old.and(TL_THREAD_ID_MASK);
+        Word epoch = biasEpoch(o);
         if (id.isZero()) {
-          if (ENABLE_BIASED_LOCKING) {
+          if (ENABLE_BIASED_LOCKING && !Magic.getObjectType(o).isBiasingDisabled()) {
             // lock is unbiased, bias it in our favor and grab it
             if (Synchronization.tryCompareAndSwap(
                   o, lockOffset,
                   old,
-                  old.or(threadId).plus(TL_LOCK_COUNT_UNIT))) {
+                  old.and(TL_EPOCH_MASK.not()).or(epoch).or(threadId).plus(TL_LOCK_COUNT_UNIT))) {
               Magic.isync();
               return;
             }
@@ -114,14 +149,44 @@ public final class ThinLock implements ThinLockConstants {
         } else if (id.EQ(threadId)) {
           // lock is biased in our favor
           Word changed = old.plus(TL_LOCK_COUNT_UNIT);
-          if (!changed.and(TL_LOCK_COUNT_MASK).isZero()) {
+          if (changed.and(TL_LOCK_COUNT_MASK).isZero()) {
+            tryToInflate=true;
+          } else if (old.and(TL_EPOCH_MASK).EQ(epoch)) {
             setDedicatedU16(o, lockOffset, changed);
             return;
-          } else {
-            tryToInflate=true;
+          } else if (Synchronization.tryCompareAndSwap(
+                       o, lockOffset, old, changed.and(TL_EPOCH_MASK.not()).or(epoch))) {
+            // our bias is from an earlier epoch, so another thread may be
+            // trying to take it over; renew it with a CAS
+            Magic.isync();
+            return;
+          }
+        } else if (old.and(TL_LOCK_COUNT_MASK).isZero() && old.and(TL_EPOCH_MASK).NE(epoch) &&
+                   !Magic.getObjectType(o).isBiasingDisabled()) {
+          // biased to someone else, who isn't holding it, in an earlier
+          // epoch.  the owner won't update the lock without a CAS, so we can
+          // take the bias over without a handshake.
+          if (Synchronization.tryCompareAndSwap(
+                o, lockOffset, old,
+                old.and(TL_UNLOCK_MASK).or(epoch).or(threadId).plus(TL_LOCK_COUNT_UNIT))) {
+            if (STATS) rebiases++;
+            Magic.isync();
+            return;
+          }
+        } else if (old.and(TL_LOCK_COUNT_MASK).isZero() &&
+                   Magic.getObjectType(o).getBiasRevocations() >= BULK_REBIAS_THRESHOLD &&
+                   !Magic.getObjectType(o).isBiasingDisabled()) {
+          // biased to someone else who isn't holding it, and the type has
+          // been bulk rebiased: hand the bias over
+          if (casFromBiased(o, lockOffset, old,
+                            old.and(TL_UNLOCK_MASK).or(epoch).or(threadId).plus(TL_LOCK_COUNT_UNIT), cnt)) {
+            countRebias(o);
+            Magic.isync();
+            return;
           }
         } else {
           if (casFromBiased(o, lockOffset, old, biasBitsToThinBits(old), cnt)) {
+            countRevocation(o);
             continue; // don't spin, since it's thin now
           }
         }
@@ -131,6 +196,7 @@ public final class ThinLock implements ThinLockConstants {
           if (Synchronization.tryCompareAndSwap(
                 o, lockOffset, old, old.or(threadId))) {
             Magic.isync();
+            if (spun) spinSucceeded(spinSlot);
             return;
           }
         } else if (id.EQ(threadId)) {
@@ -142,8 +208,11 @@ public final class ThinLock implements ThinLockConstants {
             Magic.isync();
             return;
           }
-        } else if (cnt>retryLimit) {
+        } else if (cnt>spinLimits[spinSlot]) {
+          spinFailed(spinSlot);
           tryToInflate=true;
+        } else {
+          spun = true;
         }
       } else {
         if (VM.VerifyAssertions) VM._assert(stat.EQ(TL_STAT_FAT));
@@ -164,6 +233,8 @@ public final class ThinLock implements ThinLockConstants {
         if (inflateAndLock(o, lockOffset)) {
           return;
         }
+      } else if (cnt < SPIN_PAUSES) {
+        Magic.pause();
       } else {
         RVMThread.yield();
       }
@@ -344,35 +415,132 @@ public final class ThinLock implements ThinLockConstants {
         return Synchronization.tryCompareAndSwap(
           o, lockOffset, oldLockWord, changed);
       } else {
-        boolean result=false;
-
-        // NB. this may stop a thread other than the one that had the bias,
-        // if that thread died and some other thread took its slot.  that's
-        // why we do a CAS below.  it's only needed if some other thread
-        // had seen the owner be null (which may happen if we came here after
-        // a new thread took the slot while someone else came here when the
-        // slot was still null).  if it was the case that everyone else had
-        // seen a non-null owner, then the pair handshake would serve as
-        // sufficient synchronization (the id would identify the set of threads
-        // that shared that id's communicationLock).  oddly, that means that
-        // this whole thing could be "simplified" to acquire the
-        // communicationLock even if the owner was null.  but that would be
-        // goofy.
-        if (false) VM.sysWriteln("entering pair handshake");
-        owner.beginPairHandshake();
-        if (false) VM.sysWriteln("done with that");
-
-        Word newLockWord=Magic.getWordAtOffset(o, lockOffset);
-        result=Synchronization.tryCompareAndSwap(
-          o, lockOffset, oldLockWord, changed);
-        owner.endPairHandshake();
-        if (false) VM.sysWriteln("that worked.");
-
-        return result;
+        // NB. this may handshake with a thread other than the one that had
+        // the bias, if that thread died and some other thread took its
+        // slot.  that's why the handshake does a CAS.  it's only needed if
+        // some other thread had seen the owner be null (which may happen if
+        // we came here after a new thread took the slot while someone else
+        // came here when the slot was still null).
+        if (false) VM.sysWriteln("handshaking with the owner");
+        return me.biasRevocation.revoke(owner, o, lockOffset, oldLockWord, changed);
       }
     }
   }
 
+  /**
+   * Changes the lock word of a lock biased to another thread, by having
+   * that thread do it at its next yieldpoint, or doing it while the thread
+   * is prevented from running Java code.  Either way, the thread can't be
+   * part way through updating the lock word without a CAS, as it may while
+   * it believes the bias is its own.  The thread that wants the change
+   * waits for it, but the owner doesn't wait for anyone.  Each thread has
+   * one, as {@link RVMThread#biasRevocation}.
+   */
+  @Uninterruptible
+  @NonMoving
+  static final class BiasRevocation extends AsyncHandshake {
+    /** The object whose lock is to be changed */
+    private Object o;
+    /** The offset of the object's lock word */
+    private Offset lockOffset;
+    /** The lock word the owner must still have */
+    private Word oldLockWord;
+    /** The lock word to replace it with */
+    private Word changed;
+    /** Whether the lock word was changed */
+    private boolean result;
+
+    @Override
+    protected void run(RVMThread t) {
+      result = Synchronization.tryCompareAndSwap(o, lockOffset, oldLockWord, changed);
+    }
+
+    /**
+     * Change the lock word of a lock biased to another thread, and wait
+     * until it is done.
+     *
+     * @param owner the thread the lock is biased to
+     * @param o the object
+     * @param lockOffset the offset of the object's lock word
+     * @param oldLockWord the lock word expected
+     * @param changed the lock word to replace it with
+     * @return whether the lock word was changed
+     */
+    @Unpreemptible("Waits for the owner to perform the handshake")
+    boolean revoke(RVMThread owner, Object o, Offset lockOffset, Word oldLockWord, Word changed) {
+      this.o = o;
+      this.lockOffset = lockOffset;
+      this.oldLockWord = oldLockWord;
+      this.changed = changed;
+      requestFrom(owner);
+      await();
+      this.o = null;
+      return result;
+    }
+  }
+
+  /**
+   * @param o an object
+   * @return the current bias epoch of the object's type, as lock word bits
+   */
+  @Inline
+  @Uninterruptible
+  private static Word biasEpoch(Object o) {
+    return Word.fromIntZeroExtend(Magic.getObjectType(o).getBiasEpoch()).lsh(TL_EPOCH_SHIFT).and(TL_EPOCH_MASK);
+  }
+
+  /**
+   * Count the revocation of the bias of an object's lock against the
+   * object's type.  Bulk rebias the type if it has had enough revocations,
+   * and disable biasing for it if it has had too many.
+   *
+   * @param o the object whose lock's bias has been revoked
+   */
+  @Unpreemptible("May stop all other threads to bulk rebias")
+  private static void countRevocation(Object o) {
+    if (STATS) revocations++;
+    RVMType type = Magic.getObjectType(o);
+    int revocations = type.countBiasRevocation(Time.nanoTime(), BIAS_DECAY_NANOS);
+    if (revocations == BULK_REBIAS_THRESHOLD) {
+      bulkRebias(type);
+    } else if (revocations == BULK_REVOKE_THRESHOLD) {
+      if (STATS) bulkRevocations++;
+      type.disableBiasing();
+    }
+  }
+
+  /**
+   * Count the handing over of the bias of an object's lock from one thread
+   * to another against the object's type, and bulk rebias the type if it
+   * has had enough.
+   *
+   * @param o the object whose lock has been rebiased
+   */
+  @Unpreemptible("May stop all other threads to bulk rebias")
+  private static void countRebias(Object o) {
+    if (STATS) rebiases++;
+    RVMType type = Magic.getObjectType(o);
+    if (type.countBiasRebias(Time.nanoTime(), BIAS_DECAY_NANOS) == BULK_REBIAS_THRESHOLD) {
+      bulkRebias(type);
+    }
+  }
+
+  /**
+   * Advance the bias epoch of a type, so that biases of unheld locks on its
+   * instances can be taken over without a handshake.  Other threads are
+   * stopped while this happens, so none of them can be part way through
+   * updating a lock whose bias it believes to be current.
+   *
+   * @param type the type
+   */
+  @Unpreemptible("Stops all other threads")
+  private static void bulkRebias(RVMType type) {
+    if (STATS) bulkRebiases++;
+    RVMThread.hardHandshakeSuspend();
+    type.advanceBiasEpoch();
+    RVMThread.hardHandshakeResume();
+  }
+
   @Inline
   @Unpreemptible
   public static boolean attemptToMarkInflated(Object o, Offset lockOffset,
@@ -454,6 +622,7 @@ public final class ThinLock implements ThinLockConstants {
         } else {
           if (VM.VerifyAssertions) VM._assert(l.getRecursionCount()==0);
         }
+        if (STATS) Lock.countInflation(o);
         return l;
       }
       // contention detected, try again
@@ -520,6 +689,7 @@ public final class ThinLock implements ThinLockConstants {
     if (VM.VerifyAssertions) {
       VM._assert(l != null); // inflate called by wait (or notify) which shouldn't be called during GC
     }
+    if (STATS) Lock.prepareInflationStats(o);
     Lock rtn = attemptToInflate(o, lockOffset, l);
     if (rtn == l)
       l.mutex.unlock();
@@ -540,6 +710,7 @@ public final class ThinLock implements ThinLockConstants {
   private static boolean inflateAndLock(Object o, Offset lockOffset) {
     Lock l = Lock.allocate();
     if (l == null) return false; // can't allocate locks during GC
+    if (STATS) Lock.prepareInflationStats(o);
     Lock rtn = attemptToInflate(o, lockOffset, l);
     if (l != rtn) {
       l = rtn;
@@ -583,21 +754,75 @@ public final class ThinLock implements ThinLockConstants {
    * object to a heavy-weight lock.  The current value was for the
    * portBOB benchmark on a 12-way SMP (AIX) in the Fall of '99.  FP
    * confirmed that it's still optimal for JBB and DaCapo on 4-, 8-,
-   * and 16-way SMPs (Linux/ia32) in Spring '09.
+   * and 16-way SMPs (Linux/ia32) in Spring '09.  This is now the
+   * initial limit, which is adapted per type (see spinLimits).
    */
   private static final int retryLimit = 40;
 
+  /*
+   * Adaptive spinning.  How long it is worth waiting for a thin lock to be
+   * released before inflating it depends on how long the lock is held for,
+   * which is learnt per type of locked object: each time a thread gets a lock
+   * after waiting for it, the type's limit goes up, and each time a thread
+   * gives up and inflates the lock, it goes down.  Types share entries in a
+   * small table, indexed by type id; the entries are updated without
+   * synchronization, as lost updates only make the policy a little slower
+   * to adapt.
+   */
+
+  /** The log size of the table of spin limits */
+  private static final int LOG_SPIN_TABLE_SIZE = 8;
+  /** The fewest times to retry a contended thin lock before inflating it */
+  private static final int MIN_SPIN_LIMIT = 4;
+  /** The most times to retry a contended thin lock before inflating it */
+  private static final int MAX_SPIN_LIMIT = retryLimit * 4;
+  /** The number of retries that busy-wait rather than yield */
+  private static final int SPIN_PAUSES = 8;
+
+  /** The number of times to retry a contended thin lock before inflating it, by type */
+  private static final int[] spinLimits = new int[1 << LOG_SPIN_TABLE_SIZE];
+  static {
+    for (int i = 0; i < spinLimits.length; i++) {
+      spinLimits[i] = retryLimit;
+    }
+  }
+
+  @Inline
+  private static int spinSlot(Object o) {
+    return Magic.getObjectType(o).getId() & ((1 << LOG_SPIN_TABLE_SIZE) - 1);
+  }
+
+  /** A thread waited for a thin lock and got it: it may be worth waiting longer */
+  private static void spinSucceeded(int slot) {
+    int limit = spinLimits[slot] + 2;
+    spinLimits[slot] = limit > MAX_SPIN_LIMIT ? MAX_SPIN_LIMIT : limit;
+  }
+
+  /** A thread waited for a thin lock without getting it: give up sooner */
+  private static void spinFailed(int slot) {
+    int limit = spinLimits[slot] - (spinLimits[slot] >> 2);
+    spinLimits[slot] = limit < MIN_SPIN_LIMIT ? MIN_SPIN_LIMIT : limit;
+  }
+
   static final boolean STATS = Lock.STATS;
 
   static final boolean trace = false;
 
   static int fastLocks;
   static int slowLocks;
+  static int revocations;
+  static int rebiases;
+  static int bulkRebiases;
+  static int bulkRevocations;
 
   static void notifyAppRunStart(String app, int value) {
     if (!STATS) return;
     fastLocks = 0;
     slowLocks = 0;
+    revocations = 0;
+    rebiases = 0;
+    bulkRebiases = 0;
+    bulkRevocations = 0;
   }
 
   static void notifyExit(int value) {
@@ -610,6 +835,15 @@ public final class ThinLock implements ThinLockConstants {
     VM.sysWrite(slowLocks);
     VM.sysWrite(" slow locks");
     Services.percentage(slowLocks, value, "all lock operations");
+    VM.sysWrite("ThinLocks: ");
+    VM.sysWrite(revocations);
+    VM.sysWrite(" bias revocations, ");
+    VM.sysWrite(rebiases);
+    VM.sysWrite(" rebiases, ");
+    VM.sysWrite(bulkRebiases);
+    VM.sysWrite(" bulk rebiases, ");
+    VM.sysWrite(bulkRevocations);
+    VM.sysWrite(" types with biasing disabled\n");
   }
 
 }
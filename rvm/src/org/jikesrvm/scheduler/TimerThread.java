@@ -13,6 +13,7 @@
 package org.jikesrvm.scheduler;
 
 import org.jikesrvm.VM;
+import org.jikesrvm.mm.mminterface.CollectorThread;
 import static org.jikesrvm.runtime.SysCall.sysCall;
 import org.vmmagic.pragma.NonMoving;
 import org.vmmagic.pragma.Uninterruptible;
@@ -38,8 +39,8 @@ public class TimerThread extends RVMThread {
   public TimerThread() {
     super("TimerThread");
   }
-  // NOTE: this runs concurrently with stop-the-world GC
-  // TODO: consider allowing GC to be sampled to enable profile-directed optimization of MMTk.
+  // NOTE: this runs concurrently with stop-the-world GC.  Collector threads
+  // are sampled during GC if the adaptive system asks for it (-X:aos:sample_gc).
   @Override
   public void run() {
     disableYieldpoints();
@@ -60,6 +61,9 @@ public class TimerThread extends RVMThread {
             if (candidate!=null && candidate.shouldBeSampled()) {
               candidate.timeSliceExpired++;
               candidate.takeYieldpoint=1;
+              if (candidate.isGCThread()) {
+                ((CollectorThread)candidate).takeSample();
+              }
             }
           }
           RVMThread.acctLock.unlock();
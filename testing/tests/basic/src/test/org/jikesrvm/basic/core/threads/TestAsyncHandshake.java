@@ -0,0 +1,139 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.basic.core.threads;
+
+import org.jikesrvm.scheduler.AsyncHandshake;
+import org.jikesrvm.scheduler.RVMThread;
+import org.vmmagic.pragma.NonMoving;
+import org.vmmagic.pragma.Uninterruptible;
+
+/**
+ * Check that asynchronous handshakes are performed by threads running Java
+ * code and on behalf of threads that are waiting, including when more are
+ * requested than a thread can have outstanding, and that the bias of a
+ * lock can be revoked from a thread that never blocks.
+ */
+public class TestAsyncHandshake {
+
+  /** Records which thread performed it, and for which thread */
+  @Uninterruptible
+  @NonMoving
+  static final class Recorder extends AsyncHandshake {
+    RVMThread ranFor;
+    RVMThread ranOn;
+    int count;
+
+    @Override
+    protected void run(RVMThread t) {
+      ranFor = t;
+      ranOn = RVMThread.getCurrentThread();
+      count++;
+    }
+  }
+
+  static volatile boolean stop;
+  static volatile long spins;
+  static volatile RVMThread spinner;
+  static volatile RVMThread waiter;
+  static volatile boolean waiting;
+
+  static final Object biased = new Object();
+  static final Object lock = new Object();
+
+  public static void main(String[] args) throws Exception {
+    Thread spinnerThread = new Thread() {
+      @Override
+      public void run() {
+        // bias the lock towards this thread, which then never blocks
+        synchronized (biased) {
+        }
+        spinner = RVMThread.getCurrentThread();
+        while (!stop) {
+          spins++;
+        }
+      }
+    };
+    Thread waiterThread = new Thread() {
+      @Override
+      public void run() {
+        waiter = RVMThread.getCurrentThread();
+        synchronized (lock) {
+          waiting = true;
+          while (!stop) {
+            try {
+              lock.wait();
+            } catch (InterruptedException e) {
+            }
+          }
+        }
+      }
+    };
+    spinnerThread.start();
+    waiterThread.start();
+    while (spins == 0 || !waiting) {
+      Thread.yield();
+    }
+
+    Recorder h = new Recorder();
+    h.requestFrom(spinner);
+    h.await();
+    System.out.println("Spinner: done " + h.isDone() + ", for spinner " + (h.ranFor == spinner) +
+                       ", by spinner " + (h.ranOn == spinner));
+
+    h = new Recorder();
+    h.requestFrom(waiter);
+    h.await();
+    System.out.println("Waiter: done " + h.isDone() + ", for waiter " + (h.ranFor == waiter));
+
+    // more than a thread can have outstanding, so some requests wait
+    System.out.println("Many to spinner: done " + requestMany(spinner));
+    System.out.println("Many to waiter: done " + requestMany(waiter));
+
+    h = new Recorder();
+    h.requestFromAll();
+    h.await();
+    System.out.println("All: done " + h.isDone() + ", performed " + (h.count > 0));
+
+    synchronized (biased) {
+      System.out.println("Locked an object biased to a running thread");
+    }
+
+    synchronized (lock) {
+      stop = true;
+      lock.notifyAll();
+    }
+    spinnerThread.join();
+    waiterThread.join();
+  }
+
+  /**
+   * Request many handshakes from a thread without waiting for any of them,
+   * then wait for them all.
+   *
+   * @param t the thread
+   * @return whether each was performed once, for t
+   */
+  static boolean requestMany(RVMThread t) {
+    Recorder[] hs = new Recorder[32];
+    for (int i = 0; i < hs.length; i++) {
+      hs[i] = new Recorder();
+      hs[i].requestFrom(t);
+    }
+    boolean ok = true;
+    for (Recorder h : hs) {
+      h.await();
+      ok &= h.isDone() && h.count == 1 && h.ranFor == t;
+    }
+    return ok;
+  }
+}
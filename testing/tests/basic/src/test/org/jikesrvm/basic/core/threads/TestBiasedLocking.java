@@ -0,0 +1,99 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.basic.core.threads;
+
+import org.jikesrvm.runtime.Magic;
+
+/**
+ * Check that a type whose instances are handed from one thread to another
+ * keeps biased locking, while a type whose instances are contended for
+ * loses it.
+ */
+public class TestBiasedLocking {
+
+  /** Objects made by one thread and then used by another */
+  static class Handed {
+  }
+
+  /** Objects locked by two threads at once */
+  static class Contended {
+  }
+
+  /** More than the bulk revoke threshold */
+  private static final int OBJECTS = 200;
+
+  static volatile boolean waiting;
+
+  public static void main(String[] args) throws Exception {
+    handoff();
+    contend();
+    System.out.println("Handed biasing disabled: " + Magic.getObjectType(new Handed()).isBiasingDisabled());
+    System.out.println("Contended biasing disabled: " + Magic.getObjectType(new Contended()).isBiasingDisabled());
+  }
+
+  /**
+   * Lock each object in this thread, then hand it to another thread which
+   * locks it repeatedly after this thread is done with it.
+   */
+  private static void handoff() throws InterruptedException {
+    final Object[] objects = new Object[OBJECTS];
+    for (int i = 0; i < OBJECTS; i++) {
+      objects[i] = new Handed();
+      synchronized (objects[i]) {
+      }
+    }
+    Thread consumer = new Thread() {
+      @Override
+      public void run() {
+        for (int j = 0; j < 10; j++) {
+          for (Object o : objects) {
+            synchronized (o) {
+            }
+          }
+        }
+      }
+    };
+    consumer.start();
+    consumer.join();
+  }
+
+  /**
+   * Have another thread lock each object, and hold it while this thread
+   * tries to lock it.
+   */
+  private static void contend() throws InterruptedException {
+    for (int i = 0; i < OBJECTS; i++) {
+      final Object o = new Contended();
+      waiting = false;
+      Thread holder = new Thread() {
+        @Override
+        public void run() {
+          synchronized (o) {
+            waiting = true;
+            try {
+              Thread.sleep(5);
+            } catch (InterruptedException e) {
+            }
+          }
+        }
+      };
+      holder.start();
+      while (!waiting) {
+        Thread.yield();
+      }
+      synchronized (o) {
+      }
+      holder.join();
+    }
+  }
+}
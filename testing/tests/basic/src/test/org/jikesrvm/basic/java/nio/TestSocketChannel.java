@@ -0,0 +1,107 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.basic.java.nio;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A thread blocked reading a socket and another blocked writing the same
+ * socket must both be woken when the socket becomes ready for them.
+ */
+public class TestSocketChannel {
+  /** Much more than the socket buffers hold, so the writer has to wait */
+  private static final int WRITE_BYTES = 8 * 1024 * 1024;
+  private static final int REPLY_BYTES = 16;
+
+  private static volatile long written;
+  private static volatile long replyRead;
+  private static volatile Throwable failure;
+
+  public static void main(String[] args) throws Exception {
+    ServerSocketChannel server = ServerSocketChannel.open();
+    server.socket().bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+    final SocketChannel peer = SocketChannel.open(server.socket().getLocalSocketAddress());
+    final SocketChannel socket = server.accept();
+
+    // Blocks reading the socket until the peer replies
+    Thread reader = new Thread() {
+      public void run() {
+        try {
+          ByteBuffer buffer = ByteBuffer.allocate(REPLY_BYTES);
+          while (buffer.hasRemaining()) {
+            if (socket.read(buffer) < 0) break;
+          }
+          replyRead = buffer.position();
+        } catch (Throwable t) {
+          failure = t;
+        }
+      }
+    };
+    // Blocks writing the same socket until the peer drains it
+    Thread writer = new Thread() {
+      public void run() {
+        try {
+          ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+          long total = 0;
+          while (total < WRITE_BYTES) {
+            buffer.clear();
+            for (int i = 0; buffer.hasRemaining(); i++) buffer.put((byte) (total + i));
+            buffer.flip();
+            while (buffer.hasRemaining()) total += socket.write(buffer);
+          }
+          written = total;
+        } catch (Throwable t) {
+          failure = t;
+        }
+      }
+    };
+    reader.start();
+    writer.start();
+    // Let both threads block on the socket
+    Thread.sleep(500);
+
+    ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    long total = 0;
+    boolean intact = true;
+    while (total < WRITE_BYTES) {
+      buffer.clear();
+      int n = peer.read(buffer);
+      if (n < 0) break;
+      for (int i = 0; i < n; i++) {
+        if (buffer.get(i) != (byte) (total + i)) intact = false;
+      }
+      total += n;
+    }
+    writer.join();
+    peer.write(ByteBuffer.allocate(REPLY_BYTES));
+    reader.join();
+
+    if (failure != null) {
+      System.out.println("TestSocketChannel FAILURE");
+      failure.printStackTrace(System.out);
+    } else if (written != WRITE_BYTES || total != WRITE_BYTES || !intact || replyRead != REPLY_BYTES) {
+      System.out.println("TestSocketChannel FAILURE");
+      System.out.println("Wrote " + written + ", peer read " + total + (intact ? "" : " (corrupt)") +
+                         ", replied " + REPLY_BYTES + " and " + replyRead + " were read");
+    } else {
+      System.out.println("TestSocketChannel SUCCESS");
+    }
+    socket.close();
+    peer.close();
+    server.close();
+  }
+}
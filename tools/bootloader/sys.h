@@ -182,6 +182,12 @@ EXTERNAL int sysReadByte(int fd);
 EXTERNAL int sysWriteByte(int fd, int data);
 EXTERNAL int sysReadBytes(int fd, char *buf, int cnt);
 EXTERNAL int sysWriteBytes(int fd, char *buf, int cnt);
+EXTERNAL int sysTryReadBytes(int fd, char *buf, int cnt);
+EXTERNAL int sysTryWriteBytes(int fd, char *buf, int cnt);
+EXTERNAL int sysPollerCreate();
+EXTERNAL int sysPollerRegister(int pollfd, int fd, int events, int slot);
+EXTERNAL int sysPollerWait(int pollfd, int *slots, int max, int timeoutMillis);
+EXTERNAL int sysSocketTimeout(int fd, int events);
 
 /* Library declarations */
 
@@ -229,7 +235,9 @@ EXTERNAL double sysVMMathLog1p(double a);
 /* Memory declarations */
 
 EXTERNAL void* sysMalloc(int length);
+EXTERNAL void* sysTryMalloc(int length);
 EXTERNAL void* sysCalloc(int length);
+EXTERNAL void* sysRealloc(void *location, int length);
 EXTERNAL void sysFree(void *location);
 EXTERNAL void sysCopy(void *dst, const void *src, Extent cnt);
 EXTERNAL void sysZero(void *dst, Extent cnt);
@@ -17,9 +17,22 @@
 
 #ifndef RVM_FOR_HARMONY
 #include <errno.h>
+#include <fcntl.h>
 #include <string.h>
 #include <unistd.h>
+#include <sys/types.h>
+#include <sys/socket.h>
+#include <sys/time.h>
 #endif
+#ifdef RVM_FOR_LINUX
+#include <pthread.h>
+#include <stdlib.h>
+#include <sys/epoll.h>
+#endif
+
+/* Interest in a file descriptor, as passed to sysPollerRegister */
+#define POLL_READ  1
+#define POLL_WRITE 2
 
 /**
  * Read one byte from file.
@@ -160,3 +173,303 @@ EXTERNAL int sysWriteBytes(int fd, char *buf, int cnt)
   }
 #endif // RVM_FOR_HARMONY
 }
+
+#ifndef RVM_FOR_HARMONY
+/**
+ * Does an operation on the given descriptor that would have blocked need to
+ * wait, rather than report that it would block?  It does unless the
+ * descriptor is itself in non-blocking mode.
+ *
+ * @param fd file or socket descriptor
+ * @return -5 if the caller should wait, -1 if it should report that the
+ *         operation would block
+ */
+static int wouldBlock(int fd)
+{
+  int flags = fcntl(fd, F_GETFL);
+  if (flags != -1 && (flags & O_NONBLOCK)) {
+    return -1;
+  }
+  return -5;
+}
+#endif
+
+/**
+ * Read multiple bytes from a socket, without blocking.
+ *
+ * @param fd  socket descriptor
+ * @param buf buffer to be filled
+ * @param cnt number of bytes requested
+ * @return number of bytes delivered (-1: non-blocking socket would have
+ * blocked, -2: error, -4: not a socket, -5: blocking socket would have
+ * blocked, wait for it to become readable and retry)
+ */
+EXTERNAL int sysTryReadBytes(int fd, char *buf, int cnt)
+{
+  SYS_START();
+  TRACE_PRINTF("%s: sysTryReadBytes %d %p %d\n", Me, fd, buf, cnt);
+#ifdef RVM_FOR_HARMONY
+  return -4;
+#else
+  while (1) {
+    int rc = recv(fd, buf, cnt, MSG_DONTWAIT);
+    if (rc >= 0)
+      return rc;
+    int err = errno;
+    if (err == EAGAIN || err == EWOULDBLOCK) {
+      return wouldBlock(fd);
+    } else if (err == ENOTSOCK) {
+      return -4;
+    } else if (err != EINTR) {
+      ERROR_PRINTF("%s: recv error %d (%s) on %d\n", Me,
+		   err, strerror(err), fd);
+      return -2;
+    } else {
+      // interrupted by signal; try again
+    }
+  }
+#endif // RVM_FOR_HARMONY
+}
+
+/**
+ * Write multiple bytes to a socket, without blocking.
+ *
+ * @param fd  socket descriptor
+ * @param buf buffer to be written
+ * @param cnt number of bytes to write
+ * @return number of bytes written (-1: non-blocking socket would have
+ * blocked, -2: error, -3: EPIPE error, -4: not a socket, -5: blocking socket
+ * would have blocked, wait for it to become writable and retry)
+ */
+EXTERNAL int sysTryWriteBytes(int fd, char *buf, int cnt)
+{
+  SYS_START();
+  TRACE_PRINTF("%s: sysTryWriteBytes %d %p %d\n", Me, fd, buf, cnt);
+#ifdef RVM_FOR_HARMONY
+  return -4;
+#else
+  int flags = MSG_DONTWAIT;
+#ifdef MSG_NOSIGNAL
+  flags |= MSG_NOSIGNAL;
+#endif
+  while (1) {
+    int rc = send(fd, buf, cnt, flags);
+    if (rc >= 0)
+      return rc;
+    int err = errno;
+    if (err == EAGAIN || err == EWOULDBLOCK) {
+      return wouldBlock(fd);
+    } else if (err == ENOTSOCK) {
+      return -4;
+    } else if (err == EPIPE) {
+      TRACE_PRINTF("%s: send on %d with nobody to read it\n", Me, fd);
+      return -3;
+    } else if (err != EINTR) {
+      ERROR_PRINTF("%s: send error %d (%s) on %d\n", Me,
+		   err, strerror(err), fd);
+      return -2;
+    } else {
+      // interrupted by signal; try again
+    }
+  }
+#endif // RVM_FOR_HARMONY
+}
+
+/**
+ * Create a poller, through which threads wait for sockets to become
+ * readable or writable.
+ *
+ * @return the poller's descriptor, or -1 if polling is not supported
+ */
+EXTERNAL int sysPollerCreate()
+{
+  SYS_START();
+  TRACE_PRINTF("%s: sysPollerCreate\n", Me);
+#ifdef RVM_FOR_LINUX
+  int rc = epoll_create(64);
+  if (rc == -1) {
+    ERROR_PRINTF("%s: epoll_create failed (errno=%d)\n", Me, errno);
+  }
+  return rc;
+#else
+  return -1;
+#endif
+}
+
+#ifdef RVM_FOR_LINUX
+/*
+ * The threads waiting for each polled descriptor, indexed by descriptor.
+ * A descriptor has a single epoll registration, so a reader and a writer
+ * waiting on the same socket share it: its event mask is the union of
+ * their interests, and when it is reported each of them whose interest was
+ * met is woken.  Slots are -1 when no thread is waiting.  Protected by
+ * pollerLock.
+ */
+typedef struct {
+  int readSlot;
+  int writeSlot;
+} PollInterest;
+static PollInterest *pollInterests;
+static int pollInterestsLength;
+static pthread_mutex_t pollerLock = PTHREAD_MUTEX_INITIALIZER;
+
+/**
+ * (Re-)arm the one-shot registration of a descriptor with the remaining
+ * interest in it.  Called with pollerLock held.
+ *
+ * @param pollfd the poller
+ * @param fd the descriptor
+ * @return 0 on success (or if no interest remains), -1 on error
+ */
+static int pollerArm(int pollfd, int fd)
+{
+  struct epoll_event event;
+  memset(&event, 0, sizeof event);
+  event.events = EPOLLONESHOT;
+  if (pollInterests[fd].readSlot != -1)
+    event.events |= EPOLLIN;
+  if (pollInterests[fd].writeSlot != -1)
+    event.events |= EPOLLOUT;
+  if (event.events == EPOLLONESHOT)
+    return 0;
+  event.data.fd = fd;
+  int rc = epoll_ctl(pollfd, EPOLL_CTL_MOD, fd, &event);
+  if (rc == -1 && errno == ENOENT) {
+    rc = epoll_ctl(pollfd, EPOLL_CTL_ADD, fd, &event);
+  }
+  if (rc == -1) {
+    TRACE_PRINTF("%s: epoll_ctl on %d failed (errno=%d)\n", Me, fd, errno);
+  }
+  return rc;
+}
+#endif
+
+/**
+ * Register a thread's interest in a descriptor becoming ready.  Interest is
+ * one-shot: once the poller has reported the descriptor ready for it, it
+ * must be registered again.  Read and write interest are kept separately,
+ * so a thread waiting to read and one waiting to write the same socket are
+ * both woken.  A later registration for the same direction replaces an
+ * earlier one.
+ *
+ * @param pollfd the poller
+ * @param fd the descriptor
+ * @param events POLL_READ and/or POLL_WRITE
+ * @param slot identifies the waiting thread, reported by sysPollerWait
+ * @return 0 on success, -1 on error
+ */
+EXTERNAL int sysPollerRegister(int pollfd, int fd, int events, int slot)
+{
+  SYS_START();
+  TRACE_PRINTF("%s: sysPollerRegister %d %d %d %d\n", Me, pollfd, fd, events, slot);
+#ifdef RVM_FOR_LINUX
+  if (fd < 0)
+    return -1;
+  pthread_mutex_lock(&pollerLock);
+  if (fd >= pollInterestsLength) {
+    int length = pollInterestsLength == 0 ? 64 : pollInterestsLength;
+    while (length <= fd)
+      length *= 2;
+    PollInterest *grown = (PollInterest *) realloc(pollInterests, length * sizeof(PollInterest));
+    if (grown == NULL) {
+      pthread_mutex_unlock(&pollerLock);
+      return -1;
+    }
+    int i;
+    for (i = pollInterestsLength; i < length; i++) {
+      grown[i].readSlot = -1;
+      grown[i].writeSlot = -1;
+    }
+    pollInterests = grown;
+    pollInterestsLength = length;
+  }
+  PollInterest old = pollInterests[fd];
+  if (events & POLL_READ)
+    pollInterests[fd].readSlot = slot;
+  if (events & POLL_WRITE)
+    pollInterests[fd].writeSlot = slot;
+  int rc = pollerArm(pollfd, fd);
+  if (rc == -1)
+    pollInterests[fd] = old;
+  pthread_mutex_unlock(&pollerLock);
+  return rc;
+#else
+  return -1;
+#endif
+}
+
+/**
+ * Wait for registered descriptors to become ready.  A descriptor that is
+ * ready for both a waiting reader and a waiting writer reports both of
+ * them, so up to two slots are reported for each ready descriptor.
+ *
+ * @param pollfd the poller
+ * @param slots filled with the slots of the threads whose descriptors are ready
+ * @param max the length of slots
+ * @param timeoutMillis how long to wait (-1: indefinitely)
+ * @return the number of slots reported, or -1 on error
+ */
+EXTERNAL int sysPollerWait(int pollfd, int *slots, int max, int timeoutMillis)
+{
+  SYS_START();
+#ifdef RVM_FOR_LINUX
+  int maxEvents = max / 2;
+  struct epoll_event events[maxEvents];
+  int rc = epoll_wait(pollfd, events, maxEvents, timeoutMillis);
+  if (rc == -1) {
+    if (errno == EINTR)
+      return 0;
+    ERROR_PRINTF("%s: epoll_wait failed (errno=%d)\n", Me, errno);
+    return -1;
+  }
+  int n = 0;
+  int i;
+  pthread_mutex_lock(&pollerLock);
+  for (i = 0; i < rc; i++) {
+    int fd = events[i].data.fd;
+    uint32_t ready = events[i].events;
+    if (fd >= pollInterestsLength)
+      continue;
+    if ((ready & (EPOLLIN | EPOLLERR | EPOLLHUP)) && pollInterests[fd].readSlot != -1) {
+      slots[n++] = pollInterests[fd].readSlot;
+      pollInterests[fd].readSlot = -1;
+    }
+    if ((ready & (EPOLLOUT | EPOLLERR | EPOLLHUP)) && pollInterests[fd].writeSlot != -1) {
+      slots[n++] = pollInterests[fd].writeSlot;
+      pollInterests[fd].writeSlot = -1;
+    }
+    // The registration is disarmed; keep waiting for the other direction
+    pollerArm(pollfd, fd);
+  }
+  pthread_mutex_unlock(&pollerLock);
+  return n;
+#else
+  return -1;
+#endif
+}
+
+/**
+ * Find how long an operation on a socket may block before it times out,
+ * as set with SO_RCVTIMEO or SO_SNDTIMEO.
+ *
+ * @param fd the socket
+ * @param events POLL_READ for the receive timeout, POLL_WRITE for the send
+ *        timeout
+ * @return the timeout in milliseconds, or 0 if there is none
+ */
+EXTERNAL int sysSocketTimeout(int fd, int events)
+{
+  SYS_START();
+  TRACE_PRINTF("%s: sysSocketTimeout %d %d\n", Me, fd, events);
+#ifdef RVM_FOR_HARMONY
+  return 0;
+#else
+  struct timeval timeout;
+  socklen_t length = sizeof timeout;
+  int option = (events & POLL_READ) ? SO_RCVTIMEO : SO_SNDTIMEO;
+  if (getsockopt(fd, SOL_SOCKET, option, &timeout, &length) == -1) {
+    return 0;
+  }
+  return timeout.tv_sec * 1000 + (timeout.tv_usec + 999) / 1000;
+#endif // RVM_FOR_HARMONY
+}
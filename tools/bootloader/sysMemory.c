@@ -48,6 +48,23 @@ EXTERNAL void* sysMalloc(int length)
   return result;
 }
 
+/**
+ * Allocate memory for Java code that can throw OutOfMemoryError.  Unlike
+ * sysMalloc, returns NULL rather than exiting if the memory can't be had.
+ */
+EXTERNAL void* sysTryMalloc(int length)
+{
+  void *result;
+  SYS_START();
+  TRACE_PRINTF("%s: sysTryMalloc %d\n", Me, length);
+#ifdef RVM_FOR_HARMONY
+  result = hymem_allocate_memory(length);
+#else
+  result = malloc(length);
+#endif
+  return result;
+}
+
 EXTERNAL void* sysCalloc(int length)
 {
   void *result;
@@ -68,6 +85,25 @@ EXTERNAL void* sysCalloc(int length)
   return result;
 }
 
+/**
+ * Resize memory allocated by sysMalloc, sysTryMalloc or sysCalloc.  The
+ * contents are preserved up to the lesser of the old and new sizes.  If
+ * the memory can't be had, returns NULL and leaves the old block alone,
+ * so that Java code can throw OutOfMemoryError.
+ */
+EXTERNAL void* sysRealloc(void *location, int length)
+{
+  void *result;
+  SYS_START();
+  TRACE_PRINTF("%s: sysRealloc %p %d\n", Me, location, length);
+#ifdef RVM_FOR_HARMONY
+  result = hymem_reallocate_memory(location, length);
+#else
+  result = realloc(location, length);
+#endif
+  return result;
+}
+
 /** Release memory. */
 EXTERNAL void sysFree(void *location)
 {